@@ -0,0 +1,447 @@
+package fr.vergne.japdict.dict;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaType;
+
+/**
+ * An {@link AutocompleteIndex} gives the best completions of a reading prefix
+ * without searching them: the completions of every prefix up to a given depth
+ * are computed when the index is written and stored at the node of the
+ * prefix, so a query is a walk down the trie followed by the read of an
+ * array.<br/>
+ * <br/>
+ * The completions are the indexes of the {@link Entry}s in the
+ * {@link BinarySegment} written from the same {@link Entry}s, which stores
+ * them by decreasing priority: the best completions are thus the lowest
+ * indexes, and each array is sorted. The readings are normalized to
+ * hiraganas through {@link KanaFactory#transform(String, KanaType)}, as well
+ * as the prefixes searched, so katakana prefixes work too. Romaji prefixes
+ * are supported through {@link #completeRomaji(String)}.<br/>
+ * <br/>
+ * The file is made of:
+ * <ul>
+ * <li>a header (magic number, version, number of nodes, depth, limit)</li>
+ * <li>the node table, in breadth-first order so the children of a node are
+ * contiguous and sorted by label, each slot giving the label of the node, its
+ * first child, its number of children and the offset of its completions</li>
+ * <li>the data area, storing the completions of each node as a count followed
+ * by the indexes</li>
+ * </ul>
+ * The file is memory-mapped when opened and, like a {@link BinarySegment},
+ * closing an {@link AutocompleteIndex} unmaps it immediately, so it must not
+ * be closed while queries are running on it.
+ */
+public class AutocompleteIndex extends MappedFile {
+
+	private static final int MAGIC = 0x4A444143; // JDAC
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 20;
+	private static final int NODE_SLOT_SIZE = 16;
+	private static final int[] NO_COMPLETIONS = new int[0];
+	private static final String VOWELS = "aiueo";
+	private static final KanaFactory FACTORY = new KanaFactory();
+
+	private final int nodeCount;
+	private final int depth;
+	private final int limit;
+
+	private AutocompleteIndex(File file, ByteBuffer buffer) throws IOException {
+		super(file, buffer);
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not an autocomplete index");
+		} else if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unmanaged index version: "
+					+ buffer.getInt(4));
+		} else {
+			this.nodeCount = buffer.getInt(8);
+			this.depth = buffer.getInt(12);
+			this.limit = buffer.getInt(16);
+		}
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the file written through
+	 *            {@link #write(Collection, int, int, File)}
+	 * @return the {@link AutocompleteIndex} mapping this file
+	 * @throws IOException
+	 *             if the file cannot be read or is not an autocomplete index
+	 */
+	public static AutocompleteIndex open(File file) throws IOException {
+		return new AutocompleteIndex(file, map(file));
+	}
+
+	/**
+	 * Write the completions of the readings of {@link Entry}s in an
+	 * autocomplete index file, replacing any existing file.
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s, also written in a {@link BinarySegment}
+	 * @param depth
+	 *            the length of the longest prefix to complete
+	 * @param limit
+	 *            the maximal number of completions stored for each prefix
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(Collection<Entry> entries, int depth, int limit,
+			File file) throws IOException {
+		try (OutputStream stream = new BufferedOutputStream(
+				new FileOutputStream(file))) {
+			write(entries, depth, limit, stream);
+		}
+	}
+
+	/**
+	 * Write the completions of the readings of {@link Entry}s in the
+	 * autocomplete index format.
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s, also written in a {@link BinarySegment}
+	 * @param depth
+	 *            the length of the longest prefix to complete
+	 * @param limit
+	 *            the maximal number of completions stored for each prefix
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	public static void write(Collection<Entry> entries, int depth, int limit,
+			OutputStream stream) throws IOException {
+		if (depth < 0) {
+			throw new IllegalArgumentException("Invalid depth: " + depth);
+		} else if (limit <= 0) {
+			throw new IllegalArgumentException("Invalid limit: " + limit);
+		} else {
+			// same order than the segment: stable sort by priority
+			List<Entry> sorted = new ArrayList<>(entries);
+			Collections.sort(sorted, new Comparator<Entry>() {
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					return Integer.compare(e2.getPriority(), e1.getPriority());
+				}
+			});
+
+			Node root = new Node((char) 0);
+			for (int index = 0; index < sorted.size(); index++) {
+				String reading = FACTORY.transform(sorted.get(index)
+						.getReading(), KanaType.HIRAGANA);
+				Node node = root;
+				node.add(index, limit);
+				int length = Math.min(depth, reading.length());
+				for (int i = 0; i < length; i++) {
+					node = node.getChild(reading.charAt(i));
+					node.add(index, limit);
+				}
+			}
+
+			// breadth-first, so the children of a node are contiguous
+			List<Node> nodes = new ArrayList<>();
+			Queue<Node> queue = new LinkedList<>();
+			queue.add(root);
+			while (!queue.isEmpty()) {
+				Node node = queue.poll();
+				nodes.add(node);
+				queue.addAll(node.children.values());
+			}
+
+			ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream(dataBytes);
+			int dataOffset = HEADER_SIZE + nodes.size() * NODE_SLOT_SIZE;
+			DataOutputStream out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nodes.size());
+			out.writeInt(depth);
+			out.writeInt(limit);
+			int nextChild = 1;
+			for (Node node : nodes) {
+				out.writeInt(node.label);
+				out.writeInt(nextChild);
+				out.writeInt(node.children.size());
+				out.writeInt(dataOffset + data.size());
+				nextChild += node.children.size();
+				data.writeInt(node.size);
+				for (int i = 0; i < node.size; i++) {
+					data.writeInt(node.completions[i]);
+				}
+			}
+			dataBytes.writeTo(out);
+			out.flush();
+		}
+	}
+
+	private static class Node {
+		private final char label;
+		private final Map<Character, Node> children = new TreeMap<>();
+		private int[] completions = new int[1];
+		private int size = 0;
+
+		public Node(char label) {
+			this.label = label;
+		}
+
+		public Node getChild(char label) {
+			Node child = children.get(label);
+			if (child == null) {
+				child = new Node(label);
+				children.put(label, child);
+			} else {
+				// existing prefix
+			}
+			return child;
+		}
+
+		public void add(int index, int limit) {
+			if (size == limit) {
+				// better completions already stored
+			} else {
+				if (size == completions.length) {
+					completions = Arrays.copyOf(completions,
+							Math.min(limit, size * 2));
+				} else {
+					// enough space
+				}
+				completions[size++] = index;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the file mapped by this {@link AutocompleteIndex}
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * 
+	 * @return the number of prefixes stored, the empty one included
+	 */
+	public int size() {
+		return nodeCount;
+	}
+
+	/**
+	 * 
+	 * @return the length of the longest prefix which can be completed
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * 
+	 * @return the maximal number of completions of a prefix
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Complete a prefix typed in kanas. No completions are stored beyond the
+	 * depth of the index, so a longer prefix is cut to the depth: its
+	 * completions are the ones of its first {@link #getDepth()} kanas, among
+	 * which the caller can keep the {@link Entry}s having the whole prefix.
+	 * 
+	 * @param prefix
+	 *            the prefix of the readings, in kanas
+	 * @return the indexes of the best {@link Entry}s having a reading starting
+	 *         with this prefix, or with its first {@link #getDepth()} kanas if
+	 *         it is longer, best first
+	 */
+	public int[] complete(String prefix) {
+		checkOpen();
+		int node = findNode(FACTORY.transform(prefix, KanaType.HIRAGANA));
+		return node < 0 ? NO_COMPLETIONS : getCompletions(node);
+	}
+
+	/**
+	 * Complete a prefix typed in romaji, converted through
+	 * {@link KanaFactory#createFromRomajiText(String, KanaType)}. The
+	 * consonants ending the prefix are not a kana yet, so they are completed
+	 * with all the kanas they can start (e.g. "kan" gives the completions of
+	 * かな, かに, かぬ, かね, かの and かん). Like with {@link #complete(String)},
+	 * the converted prefix is cut to the depth of the index.
+	 * 
+	 * @param romaji
+	 *            the prefix of the readings, in romaji
+	 * @return the indexes of the best {@link Entry}s having a reading starting
+	 *         with this prefix, or with its first {@link #getDepth()} kanas if
+	 *         it is longer, best first
+	 * @throws IllegalArgumentException
+	 *             if the romaji is not valid
+	 */
+	public int[] completeRomaji(String romaji) {
+		checkOpen();
+		String lower = romaji.toLowerCase(Locale.ROOT);
+		int head = lower.length();
+		while (head > 0 && isConsonant(lower.charAt(head - 1))) {
+			head--;
+		}
+		String kanas = FACTORY.createFromRomajiText(lower.substring(0, head),
+				KanaType.HIRAGANA);
+		String pending = lower.substring(head);
+		if (pending.isEmpty() || kanas.length() >= depth) {
+			return complete(kanas);
+		} else {
+			List<int[]> lists = new ArrayList<>();
+			for (String next : getNextKanas(pending)) {
+				int node = findNode(kanas + next);
+				if (node >= 0) {
+					lists.add(getCompletions(node));
+				} else {
+					// no such reading
+				}
+			}
+			return merge(lists);
+		}
+	}
+
+	private static boolean isConsonant(char character) {
+		return character >= 'a' && character <= 'z'
+				&& VOWELS.indexOf(character) < 0;
+	}
+
+	/**
+	 * 
+	 * @return the kanas which can start with these consonants, without the
+	 *         ones starting with another one
+	 */
+	private static Collection<String> getNextKanas(String consonants) {
+		TreeSet<String> kanas = new TreeSet<>();
+		List<String> romajis = new ArrayList<>();
+		romajis.add(consonants);
+		for (char vowel : VOWELS.toCharArray()) {
+			romajis.add(consonants + vowel);
+			romajis.add(consonants + "y" + vowel);
+			romajis.add(consonants + "h" + vowel);
+		}
+		for (String romaji : romajis) {
+			try {
+				kanas.add(FACTORY.createFromRomajiText(romaji,
+						KanaType.HIRAGANA));
+			} catch (IllegalArgumentException e) {
+				// not a romaji
+			}
+		}
+		// completions of きゃ are already among the ones of き
+		List<String> roots = new ArrayList<>();
+		for (String kana : kanas) {
+			if (roots.isEmpty()
+					|| !kana.startsWith(roots.get(roots.size() - 1))) {
+				roots.add(kana);
+			} else {
+				// already covered
+			}
+		}
+		return roots;
+	}
+
+	/**
+	 * 
+	 * @return the best indexes of sorted arrays, without duplicates
+	 */
+	private int[] merge(List<int[]> lists) {
+		int[] merged = new int[limit];
+		int size = 0;
+		int[] positions = new int[lists.size()];
+		while (size < limit) {
+			int best = -1;
+			int bestIndex = Integer.MAX_VALUE;
+			for (int l = 0; l < lists.size(); l++) {
+				int[] list = lists.get(l);
+				if (positions[l] < list.length && list[positions[l]] < bestIndex) {
+					best = l;
+					bestIndex = list[positions[l]];
+				} else {
+					// not better
+				}
+			}
+			if (best < 0) {
+				break;
+			} else {
+				positions[best]++;
+				if (size == 0 || merged[size - 1] != bestIndex) {
+					merged[size++] = bestIndex;
+				} else {
+					// duplicate
+				}
+			}
+		}
+		return Arrays.copyOf(merged, size);
+	}
+
+	/**
+	 * 
+	 * @return the node of the prefix, or of its first {@link #depth} kanas if
+	 *         it is longer, -1 if no reading has this prefix
+	 */
+	private int findNode(String prefix) {
+		int length = Math.min(depth, prefix.length());
+		int node = 0;
+		for (int i = 0; i < length; i++) {
+			node = findChild(node, prefix.charAt(i));
+			if (node < 0) {
+				return -1;
+			} else {
+				// continue down
+			}
+		}
+		return node;
+	}
+
+	private int findChild(int node, char label) {
+		int slot = HEADER_SIZE + node * NODE_SLOT_SIZE;
+		int low = buffer.getInt(slot + 4);
+		int high = low + buffer.getInt(slot + 8);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int middleLabel = buffer.getInt(HEADER_SIZE + middle
+					* NODE_SLOT_SIZE);
+			if (middleLabel < label) {
+				low = middle + 1;
+			} else if (middleLabel > label) {
+				high = middle;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private int[] getCompletions(int node) {
+		int offset = buffer.getInt(HEADER_SIZE + node * NODE_SLOT_SIZE + 12);
+		int[] completions = new int[buffer.getInt(offset)];
+		for (int i = 0; i < completions.length; i++) {
+			completions[i] = buffer.getInt(offset + 4 + 4 * i);
+		}
+		return completions;
+	}
+}
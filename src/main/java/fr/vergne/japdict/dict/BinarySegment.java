@@ -0,0 +1,519 @@
+package fr.vergne.japdict.dict;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.vergne.japdict.metrics.Events;
+
+/**
+ * A {@link BinarySegment} is a read-only {@link Dictionary} stored in a single
+ * file, which is memory-mapped when opened. The file is made of:
+ * <ul>
+ * <li>a header (magic number, version, number of entries and keys)</li>
+ * <li>the key table, sorted by key, each slot giving the offset of the key and
+ * the index of the {@link Entry} it refers to</li>
+ * <li>the entry table, giving the offset of each {@link Entry}</li>
+ * <li>the data area, storing strings as a length followed by UTF-16 chars</li>
+ * </ul>
+ * Entries are stored by decreasing priority, so the slots of a given key
+ * already come in the order expected by {@link #lookup(String)}. Keys are
+ * compared directly on the mapped chars, so a lookup only decodes the
+ * {@link Entry}s it returns.<br/>
+ * <br/>
+ * Closing a {@link BinarySegment} unmaps its file immediately, so it must not
+ * be closed while lookups are running on it. Sharing it through a
+ * {@link Snapshot} or a {@link DictionaryHandle} ensures it.
+ */
+public class BinarySegment implements Dictionary, Closeable {
+
+	private static final int MAGIC = 0x4A445347; // JDSG
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int KEY_SLOT_SIZE = 8;
+	private static final int ENTRY_SLOT_SIZE = 4;
+
+	private final File file;
+	private final ByteBuffer buffer;
+	private final int entryCount;
+	private final int keyCount;
+	private final int entriesOffset;
+	private volatile boolean closed = false;
+
+	private BinarySegment(File file, ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a dictionary segment");
+		} else if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unmanaged segment version: "
+					+ buffer.getInt(4));
+		} else {
+			this.file = file;
+			this.buffer = buffer;
+			this.entryCount = buffer.getInt(8);
+			this.keyCount = buffer.getInt(12);
+			this.entriesOffset = HEADER_SIZE + keyCount * KEY_SLOT_SIZE;
+		}
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the file written through {@link #write(Collection, File)}
+	 * @return the {@link BinarySegment} mapping this file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a segment
+	 */
+	public static BinarySegment open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+					channel.size());
+			// the mapping remains valid once the channel is closed
+			return new BinarySegment(file, buffer);
+		}
+	}
+
+	/**
+	 * Write the {@link Entry}s in a segment file, replacing any existing file.
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s to store
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(Collection<Entry> entries, File file)
+			throws IOException {
+		try (OutputStream stream = new FileOutputStream(file)) {
+			write(entries, stream);
+		}
+	}
+
+	/**
+	 * Write the {@link Entry}s in the segment format.
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s to store
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	public static void write(Collection<Entry> entries, OutputStream stream)
+			throws IOException {
+		List<Entry> sorted = new ArrayList<>(entries);
+		// stable sort: equal priorities keep their original order
+		Collections.sort(sorted, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return Integer.compare(e2.getPriority(), e1.getPriority());
+			}
+		});
+
+		ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(dataBytes);
+		int[] entryOffsets = new int[sorted.size()];
+		List<KeySlot> slots = new ArrayList<>(sorted.size() * 2);
+		for (int index = 0; index < sorted.size(); index++) {
+			Entry entry = sorted.get(index);
+			entryOffsets[index] = data.size();
+			slots.add(new KeySlot(entry.getWriting(), data.size(), index));
+			writeString(data, entry.getWriting());
+			int readingOffset = data.size();
+			writeString(data, entry.getReading());
+			if (!entry.getReading().equals(entry.getWriting())) {
+				slots.add(new KeySlot(entry.getReading(), readingOffset, index));
+			} else {
+				// same key, a single slot is enough
+			}
+			data.writeInt(entry.getPriority());
+			data.writeShort(entry.getGlosses().size());
+			for (String gloss : entry.getGlosses()) {
+				writeString(data, gloss);
+			}
+		}
+		Collections.sort(slots);
+
+		int dataOffset = HEADER_SIZE + slots.size() * KEY_SLOT_SIZE
+				+ sorted.size() * ENTRY_SLOT_SIZE;
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(sorted.size());
+		out.writeInt(slots.size());
+		for (KeySlot slot : slots) {
+			out.writeInt(dataOffset + slot.offset);
+			out.writeInt(slot.entryIndex);
+		}
+		for (int offset : entryOffsets) {
+			out.writeInt(dataOffset + offset);
+		}
+		dataBytes.writeTo(out);
+		out.flush();
+	}
+
+	private static int stringSize(String string) {
+		return 2 + 2 * string.length();
+	}
+
+	private static void writeString(DataOutputStream data, String string)
+			throws IOException {
+		if (string.length() > 0xFFFF) {
+			throw new IllegalArgumentException("String too long: "
+					+ string.length() + " chars");
+		} else {
+			data.writeShort(string.length());
+			data.writeChars(string);
+		}
+	}
+
+	private static class KeySlot implements Comparable<KeySlot> {
+		private final String key;
+		private final int offset;
+		private final int entryIndex;
+
+		public KeySlot(String key, int offset, int entryIndex) {
+			this.key = key;
+			this.offset = offset;
+			this.entryIndex = entryIndex;
+		}
+
+		@Override
+		public int compareTo(KeySlot slot) {
+			int comparison = key.compareTo(slot.key);
+			return comparison != 0 ? comparison : Integer.compare(entryIndex,
+					slot.entryIndex);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the file mapped by this {@link BinarySegment}
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Entry}s stored in this {@link BinarySegment}
+	 */
+	public int size() {
+		return entryCount;
+	}
+
+	/**
+	 * 
+	 * @param index
+	 *            the index of the {@link Entry}, between 0 and {@link #size()}
+	 *            (excluded), the lowest indexes having the highest priorities
+	 * @return the {@link Entry} stored at this index
+	 */
+	public Entry getEntry(int index) {
+		checkOpen();
+		if (index < 0 || index >= entryCount) {
+			throw new IndexOutOfBoundsException("No entry " + index + " in "
+					+ entryCount);
+		} else {
+			int offset = buffer.getInt(entriesOffset + index
+					* ENTRY_SLOT_SIZE);
+			String writing = readString(offset);
+			offset += stringSize(writing);
+			String reading = readString(offset);
+			offset += stringSize(reading);
+			int priority = buffer.getInt(offset);
+			offset += 4;
+			int glossCount = buffer.getShort(offset) & 0xFFFF;
+			offset += 2;
+			String[] glosses = new String[glossCount];
+			for (int i = 0; i < glossCount; i++) {
+				glosses[i] = readString(offset);
+				offset += stringSize(glosses[i]);
+			}
+			return new Entry(writing, reading, Arrays.asList(glosses),
+					priority);
+		}
+	}
+
+	/**
+	 * 
+	 * @return all the {@link Entry}s of this {@link BinarySegment}, by
+	 *         decreasing priority
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> entries = new ArrayList<>(entryCount);
+		for (int index = 0; index < entryCount; index++) {
+			entries.add(getEntry(index));
+		}
+		return entries;
+	}
+
+	@Override
+	public List<Entry> lookup(String key) {
+		checkOpen();
+		Object event = Events.beginLookup();
+		int slot = lowerBound(key, 0, keyCount);
+		List<Entry> entries = new ArrayList<>(2);
+		while (slot < keyCount && compareKey(slot, key) == 0) {
+			entries.add(getEntry(getSlotEntry(slot)));
+			slot++;
+		}
+		Events.commitLookup(event, 1, entries.size(), entries.isEmpty() ? 1
+				: 0);
+		return entries;
+	}
+
+	/**
+	 * The keys are sorted, then searched in increasing order: each search
+	 * starts from the slot reached by the previous one and gallops forward, so
+	 * the key table is walked once from start to end instead of being probed
+	 * randomly for each key. Duplicated keys are searched only once.
+	 */
+	@Override
+	public List<List<Entry>> lookupAll(List<String> keys) {
+		checkOpen();
+		Object event = Events.beginLookup();
+		Probe[] probes = new Probe[keys.size()];
+		for (int position = 0; position < probes.length; position++) {
+			probes[position] = new Probe(keys.get(position), position);
+		}
+		Arrays.sort(probes);
+
+		List<Entry>[] results = newResults(probes.length);
+		int slot = 0;
+		for (int i = 0; i < probes.length; i++) {
+			Probe probe = probes[i];
+			if (i > 0 && probe.key.equals(probes[i - 1].key)) {
+				// duplicate, each result must be independent
+				results[probe.position] = new ArrayList<>(
+						results[probes[i - 1].position]);
+			} else {
+				slot = gallop(probe.key, slot);
+				List<Entry> entries = new ArrayList<>(2);
+				while (slot < keyCount && compareKey(slot, probe.key) == 0) {
+					entries.add(getEntry(getSlotEntry(slot)));
+					slot++;
+				}
+				results[probe.position] = entries;
+			}
+		}
+		if (event != null) {
+			int resultCount = 0;
+			int missCount = 0;
+			for (List<Entry> entries : results) {
+				resultCount += entries.size();
+				missCount += entries.isEmpty() ? 1 : 0;
+			}
+			Events.commitLookup(event, probes.length, resultCount, missCount);
+		} else {
+			// not recorded
+		}
+		return Arrays.asList(results);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Entry>[] newResults(int size) {
+		return new List[size];
+	}
+
+	private static class Probe implements Comparable<Probe> {
+		private final String key;
+		private final int position;
+
+		public Probe(String key, int position) {
+			this.key = key;
+			this.position = position;
+		}
+
+		@Override
+		public int compareTo(Probe probe) {
+			return key.compareTo(probe.key);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the first slot from <code>from</code> having a key greater or
+	 *         equal to the one provided, searched with increasing steps
+	 */
+	private int gallop(String key, int from) {
+		if (from >= keyCount || compareKey(from, key) >= 0) {
+			return from;
+		} else {
+			int low = from;
+			int step = 1;
+			int high = from + step;
+			while (high < keyCount && compareKey(high, key) < 0) {
+				low = high;
+				step <<= 1;
+				high = from + step;
+			}
+			return lowerBound(key, low + 1, Math.min(high, keyCount));
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of slots in the key table
+	 */
+	int getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 *            the key to search for
+	 * @param from
+	 *            the first slot to consider
+	 * @param to
+	 *            the last slot to consider (excluded)
+	 * @return the first slot in [from, to) having a key greater or equal to
+	 *         the one provided, <code>to</code> if there is none
+	 */
+	int lowerBound(String key, int from, int to) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareKey(middle, key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 
+	 * @param slot
+	 *            the slot of the key table
+	 * @return the index of the {@link Entry} referred by this slot
+	 */
+	int getSlotEntry(int slot) {
+		return buffer.getInt(HEADER_SIZE + slot * KEY_SLOT_SIZE + 4);
+	}
+
+	/**
+	 * Compare the key of a slot with a given key, like
+	 * {@link String#compareTo(String)} would do, without decoding the stored
+	 * key.
+	 * 
+	 * @param slot
+	 *            the slot of the key table
+	 * @param key
+	 *            the key to compare with
+	 * @return a negative number, zero or a positive number if the key of the
+	 *         slot is lower, equal or greater than the key provided
+	 */
+	int compareKey(int slot, String key) {
+		int offset = buffer.getInt(HEADER_SIZE + slot * KEY_SLOT_SIZE);
+		int length = buffer.getShort(offset) & 0xFFFF;
+		offset += 2;
+		int common = Math.min(length, key.length());
+		for (int i = 0; i < common; i++) {
+			char c = buffer.getChar(offset + 2 * i);
+			char k = key.charAt(i);
+			if (c != k) {
+				return c - k;
+			} else {
+				// same so far
+			}
+		}
+		return length - key.length();
+	}
+
+	private String readString(int offset) {
+		int length = buffer.getShort(offset) & 0xFFFF;
+		char[] chars = new char[length];
+		offset += 2;
+		for (int i = 0; i < length; i++) {
+			chars[i] = buffer.getChar(offset + 2 * i);
+		}
+		return new String(chars);
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Segment closed: " + file);
+		} else {
+			// still mapped
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if this {@link BinarySegment} has been closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Unmap the file. If the JVM does not allow to unmap it explicitly, the
+	 * mapping is released once this {@link BinarySegment} is garbage
+	 * collected.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			unmap(buffer);
+		} else {
+			// already closed
+		}
+	}
+
+	/**
+	 * Unmap a mapped buffer if the JVM allows it, which must not be used
+	 * anymore.
+	 * 
+	 * @param buffer
+	 *            the buffer to unmap
+	 */
+	static void unmap(ByteBuffer buffer) {
+		try {
+			// Java 9+
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+			unsafeField.setAccessible(true);
+			Object unsafe = unsafeField.get(null);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+					ByteBuffer.class);
+			invokeCleaner.invoke(unsafe, buffer);
+			return;
+		} catch (Exception e) {
+			// not available, try the Java 7-8 way
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			} else {
+				// nothing mapped
+			}
+		} catch (Exception e) {
+			// not available, let the garbage collector release it
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package fr.vergne.japdict.dict;
+
+import java.util.List;
+
+/**
+ * A {@link Dictionary} provides the {@link Entry}s available for a given key,
+ * the key being either the writing or the reading of the {@link Entry}.
+ */
+public interface Dictionary {
+
+	/**
+	 * 
+	 * @param key
+	 *            the writing or reading to search for
+	 * @return the {@link Entry}s having this writing or reading, ordered by
+	 *         decreasing priority, or an empty list if there is none
+	 */
+	public List<Entry> lookup(String key);
+
+	/**
+	 * Look up several keys at once, letting the {@link Dictionary} process
+	 * them in the order which suits it best (e.g. sorted and without
+	 * duplicates).
+	 * 
+	 * @param keys
+	 *            the writings or readings to search for
+	 * @return for each key, at the same position, the {@link Entry}s that
+	 *         {@link #lookup(String)} would return
+	 */
+	public List<List<Entry>> lookupAll(List<String> keys);
+}
@@ -0,0 +1,164 @@
+package fr.vergne.japdict.dict;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fr.vergne.japdict.metrics.Metric;
+import fr.vergne.japdict.metrics.Metrics;
+
+/**
+ * A {@link DictionaryHandle} gives access to the current version of a
+ * {@link Dictionary}, which can be replaced while lookups are running. Each
+ * version is published as a {@link Snapshot} through an atomic reference:
+ * <ul>
+ * <li>readers take the current {@link Snapshot} through {@link #acquire()}
+ * without locking, and keep using it until they close it</li>
+ * <li>{@link #swap(Dictionary)} publishes a new {@link Snapshot}, so new
+ * readers use the new version while the running ones finish on the old
+ * one</li>
+ * <li>the old {@link Snapshot} releases its resources once its last reader
+ * closes it</li>
+ * </ul>
+ * For simple cases, {@link #lookup(String)} does all of this for a single
+ * lookup. The lookups done this way are measured by {@link Metrics} when they
+ * are enabled.
+ */
+public class DictionaryHandle implements Dictionary, Closeable {
+
+	private final AtomicReference<Snapshot> current;
+
+	/**
+	 * 
+	 * @param dictionary
+	 *            the first version of the {@link Dictionary}
+	 */
+	public DictionaryHandle(Dictionary dictionary) {
+		this.current = new AtomicReference<>(new Snapshot(dictionary));
+	}
+
+	/**
+	 * 
+	 * @param snapshot
+	 *            the {@link Snapshot} of the first version of the
+	 *            {@link Dictionary}, the reference held by its creator being
+	 *            transferred to this {@link DictionaryHandle}
+	 */
+	public DictionaryHandle(Snapshot snapshot) {
+		if (snapshot == null) {
+			throw new NullPointerException("No snapshot provided");
+		} else {
+			this.current = new AtomicReference<>(snapshot);
+		}
+	}
+
+	/**
+	 * Take a reference on the current version of the {@link Dictionary}. The
+	 * {@link Snapshot} returned must be closed once it is not used anymore,
+	 * typically through a try-with-resources block.
+	 * 
+	 * @return the current {@link Snapshot}
+	 */
+	public Snapshot acquire() {
+		while (true) {
+			Snapshot snapshot = current.get();
+			if (snapshot == null) {
+				throw new IllegalStateException("Dictionary handle closed");
+			} else if (snapshot.retain()) {
+				return snapshot;
+			} else {
+				// released meanwhile, so already replaced: retry
+			}
+		}
+	}
+
+	/**
+	 * Publish a new version of the {@link Dictionary}. The previous version
+	 * remains available to the readers which already acquired it, and is
+	 * released once they are all done.
+	 * 
+	 * @param dictionary
+	 *            the new version of the {@link Dictionary}
+	 */
+	public void swap(Dictionary dictionary) {
+		swap(new Snapshot(dictionary));
+	}
+
+	/**
+	 * Publish a new version of the {@link Dictionary}. The previous version
+	 * remains available to the readers which already acquired it, and is
+	 * released once they are all done.
+	 * 
+	 * @param snapshot
+	 *            the {@link Snapshot} of the new version, the reference held
+	 *            by its creator being transferred to this
+	 *            {@link DictionaryHandle}
+	 */
+	public void swap(Snapshot snapshot) {
+		if (snapshot == null) {
+			throw new NullPointerException("No snapshot provided");
+		} else {
+			Snapshot previous = current.getAndSet(snapshot);
+			if (previous == null) {
+				current.set(null);
+				snapshot.close();
+				throw new IllegalStateException("Dictionary handle closed");
+			} else {
+				previous.close();
+			}
+		}
+	}
+
+	@Override
+	public List<Entry> lookup(String key) {
+		long start = Metrics.start();
+		List<Entry> entries;
+		try (Snapshot snapshot = acquire()) {
+			entries = snapshot.lookup(key);
+		}
+		if (entries.isEmpty()) {
+			Metrics.increment(Metric.LOOKUP_MISS);
+		} else {
+			// found
+		}
+		Metrics.stop(Metric.LOOKUP, start);
+		return entries;
+	}
+
+	/**
+	 * All the keys are searched in the same version of the {@link Dictionary}.
+	 */
+	@Override
+	public List<List<Entry>> lookupAll(List<String> keys) {
+		long start = Metrics.start();
+		List<List<Entry>> results;
+		try (Snapshot snapshot = acquire()) {
+			results = snapshot.lookupAll(keys);
+		}
+		if (Metrics.isEnabled()) {
+			int misses = 0;
+			for (List<Entry> entries : results) {
+				misses += entries.isEmpty() ? 1 : 0;
+			}
+			Metrics.increment(Metric.LOOKUP_MISS, misses);
+		} else {
+			// not measured
+		}
+		Metrics.stop(Metric.BATCH_LOOKUP, start);
+		return results;
+	}
+
+	/**
+	 * Stop publishing the current version. It is released once its running
+	 * readers are done.
+	 */
+	@Override
+	public void close() {
+		Snapshot previous = current.getAndSet(null);
+		if (previous != null) {
+			previous.close();
+		} else {
+			// already closed
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package fr.vergne.japdict.dict;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link Entry} is a single dictionary item: a headword (its writing, which
+ * may use kanjis or kanas), its reading in kanas, the glosses explaining it and
+ * a priority used to order the entries sharing the same key. The higher the
+ * priority, the earlier the {@link Entry} comes in lookup results.
+ */
+public class Entry {
+
+	private final String writing;
+	private final String reading;
+	private final List<String> glosses;
+	private final int priority;
+
+	/**
+	 * 
+	 * @param writing
+	 *            the headword of the {@link Entry}
+	 * @param reading
+	 *            the reading of the headword, in kanas
+	 * @param glosses
+	 *            the glosses of the {@link Entry}
+	 * @param priority
+	 *            the priority of the {@link Entry}, higher is better
+	 */
+	public Entry(String writing, String reading, List<String> glosses,
+			int priority) {
+		if (writing == null) {
+			throw new NullPointerException("No writing provided");
+		} else if (reading == null) {
+			throw new NullPointerException("No reading provided");
+		} else if (glosses == null) {
+			throw new NullPointerException("No glosses provided");
+		} else {
+			this.writing = writing;
+			this.reading = reading;
+			this.glosses = Collections.unmodifiableList(new ArrayList<>(
+					glosses));
+			this.priority = priority;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the headword of this {@link Entry}
+	 */
+	public String getWriting() {
+		return writing;
+	}
+
+	/**
+	 * 
+	 * @return the reading of this {@link Entry}, in kanas
+	 */
+	public String getReading() {
+		return reading;
+	}
+
+	/**
+	 * 
+	 * @return the unmodifiable list of glosses of this {@link Entry}
+	 */
+	public List<String> getGlosses() {
+		return glosses;
+	}
+
+	/**
+	 * 
+	 * @return the priority of this {@link Entry}, higher is better
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Two {@link Entry}s are equals when they have the same writing, reading,
+	 * glosses and priority.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (obj instanceof Entry) {
+			Entry e = (Entry) obj;
+			return priority == e.priority && writing.equals(e.writing)
+					&& reading.equals(e.reading) && glosses.equals(e.glosses);
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return writing.hashCode() * 31 + reading.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return writing + " [" + reading + "] " + glosses;
+	}
+}
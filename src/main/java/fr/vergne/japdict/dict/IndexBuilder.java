@@ -0,0 +1,447 @@
+package fr.vergne.japdict.dict;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import fr.vergne.japdict.jap.JapCharacter;
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaType;
+import fr.vergne.japdict.util.TaskUtil;
+
+/**
+ * An {@link IndexBuilder} builds, from the lines of an EDICT file, the files
+ * of a dictionary in a directory:
+ * <ul>
+ * <li>{@link #ENTRIES_FILE}: the {@link BinarySegment} of the {@link Entry}s
+ * </li>
+ * <li>{@link #READINGS_FILE}: the {@link PostingIndex} of the readings,
+ * normalized to hiraganas through
+ * {@link KanaFactory#transform(String, KanaType)}</li>
+ * <li>{@link #KANJIS_FILE}: the {@link PostingIndex} of the kanjis of the
+ * writings, according to {@link JapCharacter#isKanji()}</li>
+ * <li>{@link #GLOSSES_FILE}: the {@link PostingIndex} of the lower-cased words
+ * of the glosses, the parenthesized tags like (n) or (P) being ignored</li>
+ * </ul>
+ * The postings of the indexes are the indexes of the {@link Entry}s in the
+ * {@link BinarySegment}.<br/>
+ * <br/>
+ * The lines are split into partitions processed on a {@link ForkJoinPool}:
+ * each partition is parsed into {@link Entry}s, then each partition of
+ * {@link Entry}s produces a sorted run of (key, index) pairs per index, and
+ * the runs are merged pairwise while the tasks are joined. The partitions
+ * only depend on the input, and the results are always combined in the input
+ * order, so the files written are the same whatever the parallelism.
+ */
+public class IndexBuilder {
+
+	/**
+	 * Name of the file storing the {@link BinarySegment} of the
+	 * {@link Entry}s.
+	 */
+	public static final String ENTRIES_FILE = "entries.seg";
+	/**
+	 * Name of the file storing the {@link PostingIndex} of the readings.
+	 */
+	public static final String READINGS_FILE = "readings.idx";
+	/**
+	 * Name of the file storing the {@link PostingIndex} of the kanjis.
+	 */
+	public static final String KANJIS_FILE = "kanjis.idx";
+	/**
+	 * Name of the file storing the {@link PostingIndex} of the glosses.
+	 */
+	public static final String GLOSSES_FILE = "glosses.idx";
+
+	private static final int DEFAULT_PARTITION_SIZE = 4096;
+	private static final int READINGS = 0;
+	private static final int KANJIS = 1;
+	private static final int GLOSSES = 2;
+	private static final int INDEX_COUNT = 3;
+	private static final KanaFactory FACTORY = new KanaFactory();
+
+	private final int parallelism;
+	private final int partitionSize;
+
+	/**
+	 * 
+	 * @param parallelism
+	 *            the number of threads to use
+	 */
+	public IndexBuilder(int parallelism) {
+		this(parallelism, DEFAULT_PARTITION_SIZE);
+	}
+
+	/**
+	 * 
+	 * @param parallelism
+	 *            the number of threads to use
+	 * @param partitionSize
+	 *            the maximal number of lines or {@link Entry}s processed by a
+	 *            single task
+	 */
+	IndexBuilder(int parallelism, int partitionSize) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: "
+					+ parallelism);
+		} else if (partitionSize <= 0) {
+			throw new IllegalArgumentException("Invalid partition size: "
+					+ partitionSize);
+		} else {
+			this.parallelism = parallelism;
+			this.partitionSize = partitionSize;
+		}
+	}
+
+	/**
+	 * Parse a line of an EDICT file, which looks like:
+	 * 
+	 * <pre>
+	 * 日本 [にほん] /(n) Japan/(P)/EntL1582710X/
+	 * ひらがな /(n) hiragana/EntL1185880X/
+	 * </pre>
+	 * 
+	 * Only the first writing and reading are kept when several are given
+	 * (EDICT2). The {@link Entry} has a priority of 1 if it is marked with
+	 * (P), 0 otherwise.
+	 * 
+	 * @param line
+	 *            the line to parse
+	 * @return the {@link Entry} of the line, <code>null</code> if it is the
+	 *         header, a comment or an empty line
+	 */
+	public static Entry parseEdictLine(String line) {
+		if (line.isEmpty() || line.startsWith("#")
+				|| line.startsWith("　")) {
+			return null;
+		} else {
+			int glossStart = line.indexOf(" /");
+			if (glossStart < 0) {
+				throw new IllegalArgumentException("Invalid EDICT line: "
+						+ line);
+			} else {
+				String head = line.substring(0, glossStart);
+				String writing;
+				String reading;
+				int readingStart = head.indexOf(" [");
+				if (readingStart < 0) {
+					writing = firstForm(head);
+					reading = writing;
+				} else if (head.endsWith("]")) {
+					writing = firstForm(head.substring(0, readingStart));
+					reading = firstForm(head.substring(readingStart + 2,
+							head.length() - 1));
+				} else {
+					throw new IllegalArgumentException("Invalid EDICT line: "
+							+ line);
+				}
+
+				int priority = 0;
+				List<String> glosses = new ArrayList<>();
+				for (String field : line.substring(glossStart + 2).split("/")) {
+					if (field.equals("(P)")) {
+						priority = 1;
+					} else if (field.isEmpty() || field.startsWith("EntL")) {
+						// not a gloss
+					} else {
+						glosses.add(field);
+					}
+				}
+				return new Entry(writing, reading, glosses, priority);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the first of the forms separated by ;, without its tags
+	 */
+	private static String firstForm(String forms) {
+		int end = forms.indexOf(';');
+		String form = end < 0 ? forms : forms.substring(0, end);
+		int tag = form.indexOf('(');
+		return (tag < 0 ? form : form.substring(0, tag)).trim();
+	}
+
+	/**
+	 * Build the files of a dictionary, replacing any existing one.
+	 * 
+	 * @param lines
+	 *            the lines of the EDICT file
+	 * @param directory
+	 *            the existing directory receiving the files
+	 * @return the number of {@link Entry}s stored
+	 * @throws IOException
+	 *             if a file cannot be written
+	 */
+	public int build(List<String> lines, final File directory)
+			throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			final List<Entry> entries = pool.invoke(new ParseTask(lines, 0,
+					lines.size()));
+			// stable sort: the indexes of the segment, see BinarySegment
+			Collections.sort(entries, new Comparator<Entry>() {
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					return Integer.compare(e2.getPriority(), e1.getPriority());
+				}
+			});
+			final Run[] runs = pool.invoke(new RunTask(entries, 0, entries
+					.size()));
+
+			final File[] files = { new File(directory, READINGS_FILE),
+					new File(directory, KANJIS_FILE),
+					new File(directory, GLOSSES_FILE) };
+			List<Callable<Void>> writers = new ArrayList<>(INDEX_COUNT + 1);
+			writers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					try (OutputStream stream = new BufferedOutputStream(
+							new FileOutputStream(new File(directory,
+									ENTRIES_FILE)))) {
+						BinarySegment.write(entries, stream);
+					}
+					return null;
+				}
+			});
+			for (int index = 0; index < INDEX_COUNT; index++) {
+				final Run run = runs[index];
+				final File file = files[index];
+				writers.add(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						try (OutputStream stream = new BufferedOutputStream(
+								new FileOutputStream(file))) {
+							PostingIndex.write(run.keys, run.values, run.size,
+									stream);
+						}
+						return null;
+					}
+				});
+			}
+			TaskUtil.invokeAll(pool, writers);
+			return entries.size();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parse the lines of a range, the {@link Entry}s coming in the order of
+	 * the lines.
+	 */
+	@SuppressWarnings("serial")
+	private class ParseTask extends RecursiveTask<List<Entry>> {
+		private final List<String> lines;
+		private final int from;
+		private final int to;
+
+		public ParseTask(List<String> lines, int from, int to) {
+			this.lines = lines;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Entry> compute() {
+			if (to - from <= partitionSize) {
+				List<Entry> entries = new ArrayList<>(to - from);
+				for (String line : lines.subList(from, to)) {
+					Entry entry = parseEdictLine(line);
+					if (entry != null) {
+						entries.add(entry);
+					} else {
+						// nothing to store
+					}
+				}
+				return entries;
+			} else {
+				int middle = (from + to) >>> 1;
+				ParseTask left = new ParseTask(lines, from, middle);
+				left.fork();
+				List<Entry> right = new ParseTask(lines, middle, to).compute();
+				List<Entry> entries = left.join();
+				entries.addAll(right);
+				return entries;
+			}
+		}
+	}
+
+	/**
+	 * Produce the sorted runs of the {@link Entry}s of a range, one for each
+	 * index.
+	 */
+	@SuppressWarnings("serial")
+	private class RunTask extends RecursiveTask<Run[]> {
+		private final List<Entry> entries;
+		private final int from;
+		private final int to;
+
+		public RunTask(List<Entry> entries, int from, int to) {
+			this.entries = entries;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Run[] compute() {
+			if (to - from <= partitionSize) {
+				List<List<Posting>> postings = new ArrayList<>(INDEX_COUNT);
+				for (int index = 0; index < INDEX_COUNT; index++) {
+					postings.add(new ArrayList<Posting>());
+				}
+				for (int i = from; i < to; i++) {
+					addPostings(entries.get(i), i, postings);
+				}
+				Run[] runs = new Run[INDEX_COUNT];
+				for (int index = 0; index < INDEX_COUNT; index++) {
+					runs[index] = Run.sort(postings.get(index));
+				}
+				return runs;
+			} else {
+				int middle = (from + to) >>> 1;
+				RunTask left = new RunTask(entries, from, middle);
+				left.fork();
+				Run[] right = new RunTask(entries, middle, to).compute();
+				Run[] runs = left.join();
+				for (int index = 0; index < INDEX_COUNT; index++) {
+					runs[index] = Run.merge(runs[index], right[index]);
+				}
+				return runs;
+			}
+		}
+	}
+
+	private static void addPostings(Entry entry, int entryIndex,
+			List<List<Posting>> postings) {
+		postings.get(READINGS).add(
+				new Posting(FACTORY.transform(entry.getReading(),
+						KanaType.HIRAGANA), entryIndex));
+
+		String writing = entry.getWriting();
+		for (int i = 0; i < writing.length(); i++) {
+			char character = writing.charAt(i);
+			if (JapCharacter.valueOf(character).isKanji()) {
+				postings.get(KANJIS).add(
+						new Posting(String.valueOf(character), entryIndex));
+			} else {
+				// not indexed
+			}
+		}
+
+		for (String gloss : entry.getGlosses()) {
+			String text = gloss.replaceAll("\\([^)]*\\)", " ").toLowerCase(
+					Locale.ROOT);
+			for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+				if (!word.isEmpty()) {
+					postings.get(GLOSSES).add(new Posting(word, entryIndex));
+				} else {
+					// leading separator
+				}
+			}
+		}
+	}
+
+	private static class Posting implements Comparable<Posting> {
+		private final String key;
+		private final int entryIndex;
+
+		public Posting(String key, int entryIndex) {
+			this.key = key;
+			this.entryIndex = entryIndex;
+		}
+
+		@Override
+		public int compareTo(Posting posting) {
+			int comparison = key.compareTo(posting.key);
+			return comparison != 0 ? comparison : Integer.compare(entryIndex,
+					posting.entryIndex);
+		}
+	}
+
+	/**
+	 * (key, index) pairs sorted by key, then by index, without duplicates.
+	 */
+	private static class Run {
+		private final String[] keys;
+		private final int[] values;
+		private final int size;
+
+		public Run(String[] keys, int[] values, int size) {
+			this.keys = keys;
+			this.values = values;
+			this.size = size;
+		}
+
+		public static Run sort(List<Posting> postings) {
+			Posting[] sorted = postings.toArray(new Posting[postings.size()]);
+			Arrays.sort(sorted);
+			String[] keys = new String[sorted.length];
+			int[] values = new int[sorted.length];
+			int size = 0;
+			for (Posting posting : sorted) {
+				if (size > 0 && values[size - 1] == posting.entryIndex
+						&& keys[size - 1].equals(posting.key)) {
+					// duplicate, e.g. a kanji used twice in a writing
+				} else {
+					keys[size] = posting.key;
+					values[size] = posting.entryIndex;
+					size++;
+				}
+			}
+			return new Run(keys, values, size);
+		}
+
+		public static Run merge(Run run1, Run run2) {
+			String[] keys = new String[run1.size + run2.size];
+			int[] values = new int[keys.length];
+			int size = 0;
+			int i1 = 0;
+			int i2 = 0;
+			while (i1 < run1.size || i2 < run2.size) {
+				int comparison;
+				if (i1 == run1.size) {
+					comparison = 1;
+				} else if (i2 == run2.size) {
+					comparison = -1;
+				} else {
+					comparison = run1.keys[i1].compareTo(run2.keys[i2]);
+					if (comparison == 0) {
+						comparison = Integer.compare(run1.values[i1],
+								run2.values[i2]);
+					} else {
+						// keys decide
+					}
+				}
+				if (comparison <= 0) {
+					keys[size] = run1.keys[i1];
+					values[size] = run1.values[i1];
+					i1++;
+					if (comparison == 0) {
+						i2++;
+					} else {
+						// only from the first run
+					}
+				} else {
+					keys[size] = run2.keys[i2];
+					values[size] = run2.values[i2];
+					i2++;
+				}
+				size++;
+			}
+			return new Run(keys, values, size);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package fr.vergne.japdict.dict;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A {@link MappedFile} is a read-only file mapped in memory, like the indexes
+ * next to a {@link BinarySegment}. Like a {@link BinarySegment}, closing it
+ * unmaps its file immediately, so the subclasses must call
+ * {@link #checkOpen()} before reading the buffer.
+ */
+abstract class MappedFile implements Closeable {
+
+	final File file;
+	final ByteBuffer buffer;
+	private volatile boolean closed = false;
+
+	MappedFile(File file, ByteBuffer buffer) {
+		this.file = file;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the file to map
+	 * @return the whole file mapped in read-only mode
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	static ByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			// the mapping remains valid once the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Index closed: " + file);
+		} else {
+			// still mapped
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if this file has been closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Unmap the file, like {@link BinarySegment#close()} does.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			BinarySegment.unmap(buffer);
+		} else {
+			// already closed
+		}
+	}
+}
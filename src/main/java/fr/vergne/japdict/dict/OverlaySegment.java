@@ -0,0 +1,225 @@
+package fr.vergne.japdict.dict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An {@link OverlaySegment} is a write-optimised {@link Dictionary}: each added
+ * {@link Entry} is appended to a journal file and inserted in an in-memory
+ * sorted map, so it is available immediately without rewriting any index.
+ * Opening an existing journal replays it, ignoring an incomplete last record
+ * (e.g. after a crash while writing it).<br/>
+ * <br/>
+ * Additions must be done by a single thread at a time, but lookups can be done
+ * concurrently: the lists stored in the map are never modified once
+ * published.
+ */
+public class OverlaySegment implements Dictionary, Closeable {
+
+	private final File journal;
+	private final ConcurrentNavigableMap<String, List<Entry>> entries = new ConcurrentSkipListMap<>();
+	private final List<Entry> journaled = Collections
+			.synchronizedList(new ArrayList<Entry>());
+	private DataOutputStream output;
+
+	/**
+	 * Create an {@link OverlaySegment} on the given journal, which is replayed
+	 * if it already exists and created otherwise.
+	 * 
+	 * @param journal
+	 *            the journal file to append the {@link Entry}s to
+	 * @throws IOException
+	 *             if the journal cannot be read or written
+	 */
+	public OverlaySegment(File journal) throws IOException {
+		this.journal = journal;
+		long validLength = replay();
+		if (journal.exists() && journal.length() > validLength) {
+			try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+				raf.setLength(validLength);
+			}
+		} else {
+			// nothing to repair
+		}
+		this.output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(journal, true)));
+	}
+
+	private long replay() throws IOException {
+		if (!journal.exists()) {
+			return 0;
+		} else {
+			long length = journal.length();
+			long validLength = 0;
+			try (DataInputStream input = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(journal)))) {
+				while (true) {
+					Entry entry;
+					int size;
+					try {
+						size = input.readInt();
+						if (size < 0 || size > length - validLength - 4) {
+							// incomplete record
+							break;
+						} else {
+							// complete record
+						}
+						byte[] record = new byte[size];
+						input.readFully(record);
+						entry = decode(record);
+					} catch (EOFException e) {
+						break;
+					}
+					insert(entry);
+					validLength += 4 + size;
+				}
+			}
+			return validLength;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the journal file of this {@link OverlaySegment}
+	 */
+	public File getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Append an {@link Entry} to the journal and make it available for
+	 * lookups.
+	 * 
+	 * @param entry
+	 *            the {@link Entry} to add
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public synchronized void add(Entry entry) throws IOException {
+		if (output == null) {
+			throw new IllegalStateException("Overlay closed: " + journal);
+		} else {
+			byte[] record = encode(entry);
+			output.writeInt(record.length);
+			output.write(record);
+			output.flush();
+			insert(entry);
+		}
+	}
+
+	private void insert(Entry entry) {
+		insert(entry.getWriting(), entry);
+		if (!entry.getReading().equals(entry.getWriting())) {
+			insert(entry.getReading(), entry);
+		} else {
+			// same key, already inserted
+		}
+		journaled.add(entry);
+	}
+
+	private void insert(String key, Entry entry) {
+		List<Entry> current = entries.get(key);
+		List<Entry> updated = current == null ? new ArrayList<Entry>(1)
+				: new ArrayList<>(current);
+		int index = 0;
+		while (index < updated.size()
+				&& updated.get(index).getPriority() >= entry.getPriority()) {
+			index++;
+		}
+		updated.add(index, entry);
+		entries.put(key, Collections.unmodifiableList(updated));
+	}
+
+	@Override
+	public List<Entry> lookup(String key) {
+		List<Entry> found = entries.get(key);
+		return found == null ? new ArrayList<Entry>() : new ArrayList<>(found);
+	}
+
+	@Override
+	public List<List<Entry>> lookupAll(List<String> keys) {
+		List<List<Entry>> results = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			results.add(lookup(key));
+		}
+		return results;
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Entry}s added to this
+	 *         {@link OverlaySegment}
+	 */
+	public int size() {
+		return journaled.size();
+	}
+
+	/**
+	 * 
+	 * @return a copy of the {@link Entry}s of this {@link OverlaySegment}, in
+	 *         the order they were added
+	 */
+	public Collection<Entry> getEntries() {
+		synchronized (journaled) {
+			return new ArrayList<>(journaled);
+		}
+	}
+
+	/**
+	 * Close the journal. The {@link Entry}s remain available for lookups, but
+	 * no {@link Entry} can be added anymore.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (output != null) {
+			output.close();
+			output = null;
+		} else {
+			// already closed
+		}
+	}
+
+	private static byte[] encode(Entry entry) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeUTF(entry.getWriting());
+		data.writeUTF(entry.getReading());
+		data.writeInt(entry.getPriority());
+		data.writeInt(entry.getGlosses().size());
+		for (String gloss : entry.getGlosses()) {
+			data.writeUTF(gloss);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Entry decode(byte[] record) throws IOException {
+		DataInputStream data = new DataInputStream(
+				new ByteArrayInputStream(record));
+		String writing = data.readUTF();
+		String reading = data.readUTF();
+		int priority = data.readInt();
+		int glossCount = data.readInt();
+		List<String> glosses = new ArrayList<>(glossCount);
+		for (int i = 0; i < glossCount; i++) {
+			glosses.add(data.readUTF());
+		}
+		return new Entry(writing, reading, glosses, priority);
+	}
+}
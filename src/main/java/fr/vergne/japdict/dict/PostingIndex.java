@@ -0,0 +1,182 @@
+package fr.vergne.japdict.dict;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link PostingIndex} is a read-only index stored in a single file, which
+ * is memory-mapped when opened, giving for each key the sorted indexes of the
+ * {@link Entry}s of a {@link BinarySegment} it refers to. The file is made of:
+ * <ul>
+ * <li>a header (magic number, version, number of keys)</li>
+ * <li>the key table, sorted by key, each slot giving the offset of the key and
+ * the offset of its postings</li>
+ * <li>the data area, storing keys as a length followed by UTF-16 chars and
+ * postings as a count followed by the indexes</li>
+ * </ul>
+ * The files are written by an {@link IndexBuilder}. Like a
+ * {@link BinarySegment}, closing a {@link PostingIndex} unmaps its file
+ * immediately, so it must not be closed while lookups are running on it.
+ */
+public class PostingIndex extends MappedFile {
+
+	private static final int MAGIC = 0x4A445058; // JDPX
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+	private static final int KEY_SLOT_SIZE = 8;
+	private static final int[] NO_POSTINGS = new int[0];
+
+	private final int keyCount;
+
+	private PostingIndex(File file, ByteBuffer buffer) throws IOException {
+		super(file, buffer);
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a posting index");
+		} else if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unmanaged index version: "
+					+ buffer.getInt(4));
+		} else {
+			this.keyCount = buffer.getInt(8);
+		}
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the file written by an {@link IndexBuilder}
+	 * @return the {@link PostingIndex} mapping this file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a posting index
+	 */
+	public static PostingIndex open(File file) throws IOException {
+		return new PostingIndex(file, map(file));
+	}
+
+	/**
+	 * Write (key, value) pairs in the posting index format. The pairs must be
+	 * sorted by key, then by value, without duplicates, so the same pairs
+	 * always produce the same bytes.
+	 * 
+	 * @param keys
+	 *            the keys of the pairs
+	 * @param values
+	 *            the values of the pairs
+	 * @param count
+	 *            the number of pairs to write from the arrays
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	static void write(String[] keys, int[] values, int count,
+			OutputStream stream) throws IOException {
+		ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(dataBytes);
+		int[] keyOffsets = new int[count];
+		int[] postingsOffsets = new int[count];
+		int keyCount = 0;
+		int start = 0;
+		while (start < count) {
+			int end = start + 1;
+			while (end < count && keys[end].equals(keys[start])) {
+				end++;
+			}
+			keyOffsets[keyCount] = data.size();
+			String key = keys[start];
+			if (key.length() > 0xFFFF) {
+				throw new IllegalArgumentException("Key too long: "
+						+ key.length() + " chars");
+			} else {
+				data.writeShort(key.length());
+				data.writeChars(key);
+			}
+			postingsOffsets[keyCount] = data.size();
+			data.writeInt(end - start);
+			for (int i = start; i < end; i++) {
+				data.writeInt(values[i]);
+			}
+			keyCount++;
+			start = end;
+		}
+
+		int dataOffset = HEADER_SIZE + keyCount * KEY_SLOT_SIZE;
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(keyCount);
+		for (int slot = 0; slot < keyCount; slot++) {
+			out.writeInt(dataOffset + keyOffsets[slot]);
+			out.writeInt(dataOffset + postingsOffsets[slot]);
+		}
+		dataBytes.writeTo(out);
+		out.flush();
+	}
+
+	/**
+	 * 
+	 * @return the file mapped by this {@link PostingIndex}
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * 
+	 * @return the number of keys stored in this {@link PostingIndex}
+	 */
+	public int size() {
+		return keyCount;
+	}
+
+	/**
+	 * 
+	 * @param key
+	 *            the key to search for
+	 * @return the sorted indexes of the {@link Entry}s having this key, an
+	 *         empty array if the key is not stored
+	 */
+	public int[] lookup(String key) {
+		checkOpen();
+		int low = 0;
+		int high = keyCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareKey(middle, key);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle;
+			} else {
+				int offset = buffer.getInt(HEADER_SIZE + middle
+						* KEY_SLOT_SIZE + 4);
+				int[] postings = new int[buffer.getInt(offset)];
+				for (int i = 0; i < postings.length; i++) {
+					postings[i] = buffer.getInt(offset + 4 + 4 * i);
+				}
+				return postings;
+			}
+		}
+		return NO_POSTINGS;
+	}
+
+	private int compareKey(int slot, String key) {
+		int offset = buffer.getInt(HEADER_SIZE + slot * KEY_SLOT_SIZE);
+		int length = buffer.getShort(offset) & 0xFFFF;
+		offset += 2;
+		int common = Math.min(length, key.length());
+		for (int i = 0; i < common; i++) {
+			char c = buffer.getChar(offset + 2 * i);
+			char k = key.charAt(i);
+			if (c != k) {
+				return c - k;
+			} else {
+				// same so far
+			}
+		}
+		return length - key.length();
+	}
+}
@@ -0,0 +1,595 @@
+package fr.vergne.japdict.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import fr.vergne.japdict.jap.JapCharacter;
+import fr.vergne.japdict.jap.JapUnicode;
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaVariant;
+
+/**
+ * A {@link ReadingTrie} stores the readings of a {@link Dictionary} in a trie
+ * to search them approximately, so a reading mistyped by a learner (missing
+ * tenten, wrong small kana, forgotten long vowel, etc.) still finds its
+ * {@link Entry}s through {@link Dictionary#lookup(String)}.<br/>
+ * <br/>
+ * The search simulates the Levenshtein automaton of the query while walking
+ * the trie: the state reached at a node is the row of edit costs between the
+ * prefix of the node and each prefix of the query, and the subtrees whose row
+ * exceeds the maximal cost everywhere are never visited. Inserting, deleting
+ * or substituting a kana costs {@link #EDIT_COST}, but substituting a kana by
+ * another variant of the same base kana, according to
+ * {@link KanaFactory#transform(JapCharacter, KanaVariant)} with
+ * {@link KanaVariant#NONE} (e.g. は, ば and ぱ, or や and ゃ), costs only
+ * {@link #VARIANT_COST}.<br/>
+ * <br/>
+ * The nodes are visited by increasing cost, so the readings are found in the
+ * order of their costs and the search stops as soon as enough readings are
+ * found.<br/>
+ * <br/>
+ * Each reading can also have a score, like the priority of its {@link Entry}s
+ * (see {@link IndexBuilder#parseEdictLine(String)}), and each node keeps the
+ * highest score of its subtree. {@link #complete(String, int)} visits the
+ * subtree of a prefix best score first, so the k best readings are found
+ * without going through all the readings having this prefix.<br/>
+ * <br/>
+ * The trie is stored in a few primitive arrays and is immutable, so it can be
+ * shared between threads.
+ */
+public class ReadingTrie {
+
+	/**
+	 * Cost of inserting, deleting or substituting a character.
+	 */
+	public static final int EDIT_COST = 2;
+	/**
+	 * Cost of substituting a kana by another variant of the same base kana.
+	 */
+	public static final int VARIANT_COST = 1;
+
+	private static final char BASE_MIN = JapUnicode.HIRAGANA_MIN;
+	private static final char BASE_MAX = JapUnicode.KATAKANA_MAX;
+	/**
+	 * The base kana of each character from {@link #BASE_MIN} to
+	 * {@link #BASE_MAX}, 0 if it is not a kana.
+	 */
+	private static final char[] BASES = createBases();
+
+	/**
+	 * The readings, sorted.
+	 */
+	private final String[] readings;
+	/**
+	 * The character leading to each node, the root being the node 0.
+	 */
+	private final char[] labels;
+	/**
+	 * The first child of each node, the children of a node being contiguous
+	 * and sorted by label.
+	 */
+	private final int[] firstChildren;
+	private final int[] childCounts;
+	/**
+	 * The index in {@link #readings} of the reading ending at each node, -1
+	 * if no reading ends there.
+	 */
+	private final int[] terminals;
+	/**
+	 * The score of each reading.
+	 */
+	private final int[] scores;
+	/**
+	 * The highest score of the readings of the subtree of each node.
+	 */
+	private final int[] subtreeScores;
+
+	/**
+	 * A reading found by {@link ReadingTrie#search(String, int, int)}.
+	 */
+	public static class Match {
+		private final String reading;
+		private final int cost;
+
+		/**
+		 * 
+		 * @param reading
+		 *            the reading found
+		 * @param cost
+		 *            the cost of the edits between the query and the reading
+		 */
+		public Match(String reading, int cost) {
+			this.reading = reading;
+			this.cost = cost;
+		}
+
+		/**
+		 * 
+		 * @return the reading found
+		 */
+		public String getReading() {
+			return reading;
+		}
+
+		/**
+		 * 
+		 * @return the cost of the edits between the query and the reading
+		 */
+		public int getCost() {
+			return cost;
+		}
+
+		@Override
+		public String toString() {
+			return reading + "(" + cost + ")";
+		}
+	}
+
+	/**
+	 * A reading found by {@link ReadingTrie#complete(String, int)}.
+	 */
+	public static class Completion {
+		private final String reading;
+		private final int score;
+
+		/**
+		 * 
+		 * @param reading
+		 *            the reading found
+		 * @param score
+		 *            the score of the reading
+		 */
+		public Completion(String reading, int score) {
+			this.reading = reading;
+			this.score = score;
+		}
+
+		/**
+		 * 
+		 * @return the reading found
+		 */
+		public String getReading() {
+			return reading;
+		}
+
+		/**
+		 * 
+		 * @return the score of the reading
+		 */
+		public int getScore() {
+			return score;
+		}
+
+		@Override
+		public String toString() {
+			return reading + "(" + score + ")";
+		}
+	}
+
+	/**
+	 * 
+	 * @param readings
+	 *            the readings to store, duplicates being stored once, all with
+	 *            a score of 0
+	 */
+	public ReadingTrie(Collection<String> readings) {
+		this(createScores(readings));
+	}
+
+	/**
+	 * 
+	 * @param scores
+	 *            the readings to store, with their scores
+	 */
+	public ReadingTrie(Map<String, Integer> scores) {
+		TreeMap<String, Integer> sorted = new TreeMap<>(scores);
+		this.readings = sorted.keySet().toArray(new String[sorted.size()]);
+		this.scores = new int[readings.length];
+		int index = 0;
+		for (int score : sorted.values()) {
+			this.scores[index++] = score;
+		}
+		int capacity = 1;
+		for (String reading : this.readings) {
+			capacity += reading.length();
+		}
+		char[] labels = new char[capacity];
+		int[] firstChildren = new int[capacity];
+		int[] childCounts = new int[capacity];
+		int[] terminals = new int[capacity];
+		int[] subtreeScores = new int[capacity];
+		int count = build(labels, firstChildren, childCounts, terminals,
+				subtreeScores, 0, 1, 0, 0, this.readings.length);
+		this.labels = Arrays.copyOf(labels, count);
+		this.firstChildren = Arrays.copyOf(firstChildren, count);
+		this.childCounts = Arrays.copyOf(childCounts, count);
+		this.terminals = Arrays.copyOf(terminals, count);
+		this.subtreeScores = Arrays.copyOf(subtreeScores, count);
+	}
+
+	private static Map<String, Integer> createScores(
+			Collection<String> readings) {
+		Map<String, Integer> scores = new HashMap<>();
+		for (String reading : readings) {
+			scores.put(reading, 0);
+		}
+		return scores;
+	}
+
+	/**
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s to take the readings from
+	 * @return the {@link ReadingTrie} of their readings, each reading having
+	 *         the highest priority of its {@link Entry}s as score
+	 */
+	public static ReadingTrie fromEntries(Collection<Entry> entries) {
+		Map<String, Integer> scores = new HashMap<>();
+		for (Entry entry : entries) {
+			Integer score = scores.get(entry.getReading());
+			if (score == null || score < entry.getPriority()) {
+				scores.put(entry.getReading(), entry.getPriority());
+			} else {
+				// a better entry has the same reading
+			}
+		}
+		return new ReadingTrie(scores);
+	}
+
+	/**
+	 * Build the children of a node from the sorted readings sharing its
+	 * prefix.
+	 * 
+	 * @param node
+	 *            the node to build the children of
+	 * @param next
+	 *            the first free node
+	 * @param depth
+	 *            the length of the prefix of the node
+	 * @param from
+	 *            the first reading having this prefix
+	 * @param to
+	 *            the reading following the last one having this prefix
+	 * @return the first free node once the subtree is built
+	 */
+	private int build(char[] labels, int[] firstChildren, int[] childCounts,
+			int[] terminals, int[] subtreeScores, int node, int next,
+			int depth, int from, int to) {
+		int start = from;
+		int subtreeScore = Integer.MIN_VALUE;
+		if (start < to && readings[start].length() == depth) {
+			terminals[node] = start;
+			subtreeScore = scores[start];
+			start++;
+		} else {
+			terminals[node] = -1;
+		}
+
+		int children = 0;
+		for (int i = start; i < to; i++) {
+			if (i == start
+					|| readings[i].charAt(depth) != readings[i - 1]
+							.charAt(depth)) {
+				labels[next + children] = readings[i].charAt(depth);
+				children++;
+			} else {
+				// same child
+			}
+		}
+		firstChildren[node] = next;
+		childCounts[node] = children;
+
+		int free = next + children;
+		int groupStart = start;
+		for (int child = 0; child < children; child++) {
+			int groupEnd = groupStart;
+			while (groupEnd < to
+					&& readings[groupEnd].charAt(depth) == labels[next + child]) {
+				groupEnd++;
+			}
+			free = build(labels, firstChildren, childCounts, terminals,
+					subtreeScores, next + child, free, depth + 1, groupStart,
+					groupEnd);
+			subtreeScore = Math.max(subtreeScore, subtreeScores[next + child]);
+			groupStart = groupEnd;
+		}
+		subtreeScores[node] = subtreeScore;
+		return free;
+	}
+
+	private static char[] createBases() {
+		KanaFactory factory = new KanaFactory();
+		char[] bases = new char[BASE_MAX - BASE_MIN + 1];
+		for (char character = BASE_MIN; character <= BASE_MAX; character++) {
+			JapCharacter kana = JapCharacter.valueOf(character);
+			if (kana.isKana()) {
+				JapCharacter base = factory.transform(kana, KanaVariant.NONE);
+				bases[character - BASE_MIN] = base == null ? character : base
+						.toChar();
+			} else {
+				// not a kana
+			}
+		}
+		return bases;
+	}
+
+	private static int getSubstitutionCost(char expected, char actual) {
+		if (expected == actual) {
+			return 0;
+		} else if (expected >= BASE_MIN && expected <= BASE_MAX
+				&& actual >= BASE_MIN && actual <= BASE_MAX
+				&& BASES[expected - BASE_MIN] != 0
+				&& BASES[expected - BASE_MIN] == BASES[actual - BASE_MIN]) {
+			return VARIANT_COST;
+		} else {
+			return EDIT_COST;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of distinct readings stored
+	 */
+	public int size() {
+		return readings.length;
+	}
+
+	/**
+	 * 
+	 * @param reading
+	 *            a reading
+	 * @return <code>true</code> if this reading is stored
+	 */
+	public boolean contains(String reading) {
+		return Arrays.binarySearch(readings, reading) >= 0;
+	}
+
+	/**
+	 * A node to visit, or a reading to return, with the lowest cost it can
+	 * lead to. At equal costs, the one leading to the first reading in the
+	 * sorted order comes first. Since the cost and the first reading of a node
+	 * never decrease in its subtree, the readings of a same cost are returned
+	 * in their sorted order.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		private final int node;
+		private final int[] row;
+		private final int cost;
+		private final boolean isMatch;
+		private final int firstReading;
+
+		public Candidate(int node, int[] row, int cost, boolean isMatch,
+				int firstReading) {
+			this.node = node;
+			this.row = row;
+			this.cost = cost;
+			this.isMatch = isMatch;
+			this.firstReading = firstReading;
+		}
+
+		@Override
+		public int compareTo(Candidate candidate) {
+			if (cost != candidate.cost) {
+				return Integer.compare(cost, candidate.cost);
+			} else if (firstReading != candidate.firstReading) {
+				return Integer.compare(firstReading, candidate.firstReading);
+			} else if (isMatch != candidate.isMatch) {
+				return isMatch ? 1 : -1;
+			} else {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param query
+	 *            the reading to search for
+	 * @param maxCost
+	 *            the maximal cost of the readings to return, for instance 2
+	 *            {@link #EDIT_COST} to allow 2 edits
+	 * @param limit
+	 *            the maximal number of readings to return
+	 * @return the stored readings which can be obtained from the query with
+	 *         edits costing at most the maximal cost, by increasing cost, the
+	 *         readings of a same cost being sorted
+	 */
+	public List<Match> search(String query, int maxCost, int limit) {
+		if (maxCost < 0) {
+			throw new IllegalArgumentException("Negative cost: " + maxCost);
+		} else if (limit <= 0) {
+			return Collections.emptyList();
+		} else {
+			int length = query.length();
+			int[] root = new int[length + 1];
+			for (int i = 0; i <= length; i++) {
+				root[i] = i * EDIT_COST;
+			}
+			PriorityQueue<Candidate> queue = new PriorityQueue<>();
+			if (readings.length > 0) {
+				queue.add(new Candidate(0, root, 0, false, getFirstReading(0)));
+			} else {
+				// nothing to search
+			}
+			List<Match> matches = new ArrayList<>();
+			while (!queue.isEmpty() && matches.size() < limit) {
+				Candidate candidate = queue.poll();
+				int node = candidate.node;
+				int[] row = candidate.row;
+				if (candidate.isMatch) {
+					matches.add(new Match(readings[terminals[node]],
+							candidate.cost));
+				} else {
+					if (terminals[node] >= 0 && row[length] <= maxCost) {
+						queue.add(new Candidate(node, row, row[length], true,
+								terminals[node]));
+					} else {
+						// no reading here
+					}
+					int first = firstChildren[node];
+					int end = first + childCounts[node];
+					for (int child = first; child < end; child++) {
+						int[] childRow = step(query, row, labels[child]);
+						int lowest = min(childRow);
+						if (lowest <= maxCost) {
+							queue.add(new Candidate(child, childRow, lowest,
+									false, getFirstReading(child)));
+						} else {
+							// no reading within the cost in this subtree
+						}
+					}
+				}
+			}
+			return matches;
+		}
+	}
+
+	/**
+	 * A node to visit, or a reading to return, with the highest score it can
+	 * lead to. At equal scores, the one leading to the first reading in the
+	 * sorted order comes first, so the readings of a same score are returned in
+	 * their sorted order.
+	 */
+	private static class Ranked implements Comparable<Ranked> {
+		private final int node;
+		private final int score;
+		private final boolean isReading;
+		private final int firstReading;
+
+		public Ranked(int node, int score, boolean isReading, int firstReading) {
+			this.node = node;
+			this.score = score;
+			this.isReading = isReading;
+			this.firstReading = firstReading;
+		}
+
+		@Override
+		public int compareTo(Ranked ranked) {
+			if (score != ranked.score) {
+				return Integer.compare(ranked.score, score);
+			} else if (firstReading != ranked.firstReading) {
+				return Integer.compare(firstReading, ranked.firstReading);
+			} else if (isReading != ranked.isReading) {
+				return isReading ? 1 : -1;
+			} else {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Find the best readings starting with a prefix. The subtree of the prefix
+	 * is visited best score first: a node is visited only if its highest
+	 * score can still be among the best readings, so the cost depends on the
+	 * limit and the depth of the readings rather than on the number of
+	 * readings having the prefix.
+	 * 
+	 * @param prefix
+	 *            the prefix of the readings to return
+	 * @param limit
+	 *            the maximal number of readings to return
+	 * @return the readings starting with the prefix, by decreasing score, the
+	 *         readings of a same score being sorted
+	 */
+	public List<Completion> complete(String prefix, int limit) {
+		int node = 0;
+		for (int i = 0; i < prefix.length() && node >= 0; i++) {
+			node = findChild(node, prefix.charAt(i));
+		}
+		if (node < 0 || limit <= 0 || readings.length == 0) {
+			return Collections.emptyList();
+		} else {
+			PriorityQueue<Ranked> queue = new PriorityQueue<>();
+			queue.add(new Ranked(node, subtreeScores[node], false,
+					getFirstReading(node)));
+			List<Completion> completions = new ArrayList<>(Math.min(limit, 64));
+			while (!queue.isEmpty() && completions.size() < limit) {
+				Ranked ranked = queue.poll();
+				if (ranked.isReading) {
+					completions.add(new Completion(readings[ranked.firstReading],
+							ranked.score));
+				} else {
+					int terminal = terminals[ranked.node];
+					if (terminal >= 0) {
+						queue.add(new Ranked(ranked.node, scores[terminal], true,
+								terminal));
+					} else {
+						// no reading here
+					}
+					int first = firstChildren[ranked.node];
+					int end = first + childCounts[ranked.node];
+					for (int child = first; child < end; child++) {
+						queue.add(new Ranked(child, subtreeScores[child], false,
+								getFirstReading(child)));
+					}
+				}
+			}
+			return completions;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the child of the node having this label, -1 if there is none
+	 */
+	private int findChild(int node, char label) {
+		int low = firstChildren[node];
+		int high = low + childCounts[node];
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (labels[middle] < label) {
+				low = middle + 1;
+			} else if (labels[middle] > label) {
+				high = middle;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @return the index of the first reading of the subtree of the node, in
+	 *         the sorted order
+	 */
+	private int getFirstReading(int node) {
+		while (terminals[node] < 0) {
+			node = firstChildren[node];
+		}
+		return terminals[node];
+	}
+
+	/**
+	 * 
+	 * @return the state of the Levenshtein automaton of the query after
+	 *         reading the character
+	 */
+	private static int[] step(String query, int[] row, char character) {
+		int[] next = new int[row.length];
+		next[0] = row[0] + EDIT_COST;
+		for (int i = 1; i < row.length; i++) {
+			int substitution = row[i - 1]
+					+ getSubstitutionCost(query.charAt(i - 1), character);
+			int insertion = row[i] + EDIT_COST;
+			int deletion = next[i - 1] + EDIT_COST;
+			next[i] = Math.min(substitution, Math.min(insertion, deletion));
+		}
+		return next;
+	}
+
+	private static int min(int[] row) {
+		int min = row[0];
+		for (int i = 1; i < row.length; i++) {
+			min = Math.min(min, row[i]);
+		}
+		return min;
+	}
+}
@@ -0,0 +1,422 @@
+package fr.vergne.japdict.dict;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import fr.vergne.japdict.jap.JapCharacter;
+import fr.vergne.japdict.jap.KanaType;
+
+/**
+ * A {@link SentenceStore} stores example sentences to find the ones containing
+ * a given text, like a conjugated form (食べた) or a part of a compound (人気).
+ * Japanese does not separate words with spaces, so the sentences are indexed
+ * through an inverted index of characters:
+ * <ul>
+ * <li>each text is split into runs of the same script (kanjis, hiraganas,
+ * katakanas, other letters and digits), the other characters (spaces,
+ * punctuations) separating the runs</li>
+ * <li>each pair of consecutive characters of a run is a key</li>
+ * <li>each character alone is also a key, so a kanji next to kanas, a single
+ * kana or a punctuation can be searched</li>
+ * </ul>
+ * A text contained in a sentence has its runs contained in the runs of the
+ * sentence, so all its keys are keys of the sentence. A search intersects the
+ * postings of the keys of the query, then confirms each candidate by looking
+ * for the query in it. The sentences are numbered by increasing length, so the
+ * candidates come shortest first and the search stops as soon as enough
+ * sentences are confirmed, without going through the whole corpus.<br/>
+ * <br/>
+ * A {@link SentenceStore} is immutable, so it can be shared between threads.
+ */
+public class SentenceStore {
+
+	private static final int SEPARATOR = 0;
+	private static final int KANJI = 1;
+	private static final int HIRAGANA = 2;
+	private static final int KATAKANA = 3;
+	private static final int OTHER = 4;
+
+	/**
+	 * The sentences, by increasing length.
+	 */
+	private final Sentence[] sentences;
+	/**
+	 * The sorted indexes in {@link #sentences} of the sentences having each
+	 * key, see {@link #getKey(char, char)}.
+	 */
+	private final Map<Integer, int[]> postings;
+
+	/**
+	 * An example sentence.
+	 */
+	public static class Sentence {
+		private final int id;
+		private final String text;
+
+		/**
+		 * 
+		 * @param id
+		 *            the identifier of the sentence in its corpus
+		 * @param text
+		 *            the text of the sentence
+		 */
+		public Sentence(int id, String text) {
+			if (text == null) {
+				throw new NullPointerException("No text provided");
+			} else {
+				this.id = id;
+				this.text = text;
+			}
+		}
+
+		/**
+		 * 
+		 * @return the identifier of the sentence in its corpus
+		 */
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * 
+		 * @return the text of the sentence
+		 */
+		public String getText() {
+			return text;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof Sentence) {
+				Sentence sentence = (Sentence) obj;
+				return id == sentence.id && text.equals(sentence.text);
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * id + text.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return id + ":" + text;
+		}
+	}
+
+	/**
+	 * 
+	 * @param sentences
+	 *            the sentences to store
+	 */
+	public SentenceStore(Collection<Sentence> sentences) {
+		List<Sentence> sorted = new ArrayList<>(sentences);
+		// stable sort: sentences of the same length keep their order
+		Collections.sort(sorted, new Comparator<Sentence>() {
+			@Override
+			public int compare(Sentence s1, Sentence s2) {
+				return Integer.compare(s1.text.length(), s2.text.length());
+			}
+		});
+		this.sentences = sorted.toArray(new Sentence[sorted.size()]);
+
+		Map<Integer, IntList> lists = new HashMap<>();
+		for (int index = 0; index < this.sentences.length; index++) {
+			for (int key : getKeys(this.sentences[index].text)) {
+				IntList list = lists.get(key);
+				if (list == null) {
+					list = new IntList();
+					lists.put(key, list);
+				} else {
+					// key already known
+				}
+				list.add(index);
+			}
+		}
+		this.postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+		for (Map.Entry<Integer, IntList> entry : lists.entrySet()) {
+			this.postings.put(entry.getKey(), entry.getValue().toArray());
+		}
+	}
+
+	/**
+	 * Read the sentences of a Tatoeba-like TSV file, in UTF-8, each line
+	 * giving the identifier of a sentence, optionally its language, and its
+	 * text:
+	 * 
+	 * <pre>
+	 * 4705	jpn	私は犬が好きです。
+	 * 4706	猫が好きです。
+	 * </pre>
+	 * 
+	 * The lines of other languages than jpn are ignored, as well as the empty
+	 * lines.
+	 * 
+	 * @param file
+	 *            the file to read
+	 * @return the {@link SentenceStore} of its sentences
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static SentenceStore readTsv(File file) throws IOException {
+		List<Sentence> sentences = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] columns = line.split("\t");
+				if (line.isEmpty()) {
+					// no sentence
+				} else if (columns.length == 2) {
+					sentences.add(new Sentence(parseId(line, columns[0]),
+							columns[1]));
+				} else if (columns.length == 3) {
+					if (columns[1].equals("jpn")) {
+						sentences.add(new Sentence(parseId(line, columns[0]),
+								columns[2]));
+					} else {
+						// other language
+					}
+				} else {
+					throw new IOException("Invalid sentence line: " + line);
+				}
+			}
+		}
+		return new SentenceStore(sentences);
+	}
+
+	private static int parseId(String line, String id) throws IOException {
+		try {
+			return Integer.parseInt(id);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid sentence line: " + line, e);
+		}
+	}
+
+	private static int getScript(char character) {
+		JapCharacter japCharacter = JapCharacter.valueOf(character);
+		if (character == '々' || japCharacter.isKanji()) {
+			return KANJI;
+		} else if (character == 'ー'
+				|| japCharacter.isKana(KanaType.KATAKANA)) {
+			return KATAKANA;
+		} else if (japCharacter.isKana(KanaType.HIRAGANA)) {
+			return HIRAGANA;
+		} else if (Character.isLetterOrDigit(character)) {
+			return OTHER;
+		} else {
+			return SEPARATOR;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the key of a pair of characters, or of a single character if the
+	 *         first one is 0
+	 */
+	private static int getKey(char first, char second) {
+		return first << 16 | second;
+	}
+
+	/**
+	 * 
+	 * @return the distinct keys of the text, sorted
+	 */
+	private static int[] getKeys(String text) {
+		int[] keys = new int[2 * text.length()];
+		int count = 0;
+		int previousScript = SEPARATOR;
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			int script = getScript(character);
+			keys[count++] = getKey((char) 0, character);
+			if (script != SEPARATOR && script == previousScript) {
+				keys[count++] = getKey(text.charAt(i - 1), character);
+			} else {
+				// starts a new run
+			}
+			previousScript = script;
+		}
+		Arrays.sort(keys, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+				keys[distinct++] = keys[i];
+			} else {
+				// duplicate
+			}
+		}
+		return Arrays.copyOf(keys, distinct);
+	}
+
+	/**
+	 * 
+	 * @return the number of sentences stored
+	 */
+	public int size() {
+		return sentences.length;
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to search for
+	 * @param limit
+	 *            the maximal number of sentences to return
+	 * @return the sentences containing the text, shortest first
+	 */
+	public List<Sentence> search(String text, int limit) {
+		if (text.isEmpty()) {
+			throw new IllegalArgumentException("No text to search");
+		} else if (limit <= 0) {
+			return Collections.emptyList();
+		} else {
+			int[] keys = getKeys(text);
+			int[][] lists = new int[keys.length][];
+			for (int k = 0; k < keys.length; k++) {
+				lists[k] = postings.get(keys[k]);
+				if (lists[k] == null) {
+					// a key is missing from all the sentences
+					return Collections.emptyList();
+				} else {
+					// candidates remain
+				}
+			}
+			// the shortest list drives the intersection
+			Arrays.sort(lists, new Comparator<int[]>() {
+				@Override
+				public int compare(int[] list1, int[] list2) {
+					return Integer.compare(list1.length, list2.length);
+				}
+			});
+
+			List<Sentence> found = new ArrayList<>(Math.min(limit, 16));
+			Iterator<Integer> candidates = new Intersection(lists);
+			while (found.size() < limit && candidates.hasNext()) {
+				Sentence sentence = sentences[candidates.next()];
+				if (sentence.text.contains(text)) {
+					found.add(sentence);
+				} else {
+					// has all the keys, but not in the right order
+				}
+			}
+			return found;
+		}
+	}
+
+	/**
+	 * The indexes present in all the sorted lists, in increasing order. Each
+	 * index of the first list is searched in the other lists by galloping from
+	 * the position reached by the previous search.
+	 */
+	private static class Intersection implements Iterator<Integer> {
+		private final int[][] lists;
+		private final int[] positions;
+		private int next;
+
+		public Intersection(int[][] lists) {
+			this.lists = lists;
+			this.positions = new int[lists.length];
+			this.next = findNext();
+		}
+
+		private int findNext() {
+			int[] first = lists[0];
+			candidates: while (positions[0] < first.length) {
+				int candidate = first[positions[0]++];
+				for (int l = 1; l < lists.length; l++) {
+					int position = gallop(lists[l], positions[l], candidate);
+					positions[l] = position;
+					if (position == lists[l].length) {
+						positions[0] = first.length;
+						return -1;
+					} else if (lists[l][position] != candidate) {
+						continue candidates;
+					} else {
+						// present in this list too
+					}
+				}
+				return candidate;
+			}
+			return -1;
+		}
+
+		/**
+		 * 
+		 * @return the first position from <code>from</code> having a value
+		 *         greater or equal to the one provided
+		 */
+		private static int gallop(int[] list, int from, int value) {
+			int low = from;
+			int step = 1;
+			int high = from;
+			while (high < list.length && list[high] < value) {
+				low = high + 1;
+				high = from + step;
+				step <<= 1;
+			}
+			high = Math.min(high, list.length);
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (list[middle] < value) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public Integer next() {
+			int current = next;
+			next = findNext();
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		public void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			} else {
+				// enough space
+			}
+			values[size++] = value;
+		}
+
+		public int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
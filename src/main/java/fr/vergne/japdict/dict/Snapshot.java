@@ -0,0 +1,121 @@
+package fr.vergne.japdict.dict;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Snapshot} is an immutable {@link Dictionary} shared by several
+ * readers. It counts its references: the publisher holds one from the
+ * creation of the {@link Snapshot}, and each reader takes one through
+ * {@link #retain()} and gives it back through {@link #close()}. When the last
+ * reference is given back, the resources of the {@link Dictionary} (e.g.
+ * memory-mapped files) are released and the {@link Snapshot} cannot be
+ * retained anymore.
+ */
+public class Snapshot implements Dictionary, AutoCloseable {
+
+	private final Dictionary dictionary;
+	private final Closeable resource;
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	/**
+	 * Create a {@link Snapshot} releasing the {@link Dictionary} itself, if it
+	 * is {@link Closeable}.
+	 * 
+	 * @param dictionary
+	 *            the {@link Dictionary} to share
+	 */
+	public Snapshot(Dictionary dictionary) {
+		this(dictionary, dictionary instanceof Closeable ? (Closeable) dictionary
+				: null);
+	}
+
+	/**
+	 * 
+	 * @param dictionary
+	 *            the {@link Dictionary} to share
+	 * @param resource
+	 *            the resource to close once the last reference is given back,
+	 *            <code>null</code> if there is none
+	 */
+	public Snapshot(Dictionary dictionary, Closeable resource) {
+		if (dictionary == null) {
+			throw new NullPointerException("No dictionary provided");
+		} else {
+			this.dictionary = dictionary;
+			this.resource = resource;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the {@link Dictionary} shared by this {@link Snapshot}
+	 */
+	public Dictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Take a reference on this {@link Snapshot}, which should be given back
+	 * through {@link #close()} once it is not used anymore.
+	 * 
+	 * @return <code>true</code> if the reference has been taken,
+	 *         <code>false</code> if the {@link Snapshot} has already been
+	 *         released
+	 */
+	public boolean retain() {
+		while (true) {
+			int count = references.get();
+			if (count == 0) {
+				return false;
+			} else if (references.compareAndSet(count, count + 1)) {
+				return true;
+			} else {
+				// concurrent update, retry
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if all the references have been given back,
+	 *         so the resources of the {@link Dictionary} have been released
+	 */
+	public boolean isReleased() {
+		return references.get() == 0;
+	}
+
+	@Override
+	public List<Entry> lookup(String key) {
+		return dictionary.lookup(key);
+	}
+
+	@Override
+	public List<List<Entry>> lookupAll(List<String> keys) {
+		return dictionary.lookupAll(keys);
+	}
+
+	/**
+	 * Give back a reference taken on this {@link Snapshot}. Giving back the
+	 * last one releases the resources of the {@link Dictionary}.
+	 */
+	@Override
+	public void close() {
+		int count = references.decrementAndGet();
+		if (count > 0) {
+			// still used
+		} else if (count < 0) {
+			throw new IllegalStateException("Snapshot released too many times");
+		} else if (resource != null) {
+			try {
+				resource.close();
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot release " + dictionary, e);
+			}
+		} else {
+			// nothing to release
+		}
+	}
+}
@@ -0,0 +1,591 @@
+package fr.vergne.japdict.dict;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A {@link SuffixIndex} finds the words (headwords and readings) containing a
+ * given substring, like all the words containing 人気, which a prefix search
+ * cannot do. The words are concatenated, each one followed by a separator, and
+ * the suffixes of this text are sorted in a suffix array, so the suffixes
+ * starting with a substring are contiguous and found by binary search in
+ * O(m log n) for a substring of m chars. The LCP array, giving the length of
+ * the common prefix of each suffix with the previous one, allows to enumerate
+ * the matching suffixes without searching where they end.<br/>
+ * <br/>
+ * The suffix array is built in linear time with SA-IS, the chars being first
+ * replaced by their rank among the chars used, so the alphabet is as small as
+ * the set of kanas and kanjis of the words rather than the whole UTF-16
+ * range. The file is made of:
+ * <ul>
+ * <li>a header (magic number, version, text length, suffix count, word count)
+ * </li>
+ * <li>the offset of each word in the text</li>
+ * <li>the suffix array, the suffixes starting with a separator being omitted
+ * </li>
+ * <li>the LCP array, the common prefixes stopping at the separators</li>
+ * <li>the text, as UTF-16 chars, the separator being the char 0</li>
+ * </ul>
+ * The file is memory-mapped when opened and, like a {@link BinarySegment},
+ * closing a {@link SuffixIndex} unmaps it immediately, so it must not be
+ * closed while searches are running on it.
+ */
+public class SuffixIndex extends MappedFile {
+
+	private static final int MAGIC = 0x4A445358; // JDSX
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 20;
+	private static final char SEPARATOR = 0;
+
+	private final int textLength;
+	private final int suffixCount;
+	private final int wordCount;
+	private final int suffixesOffset;
+	private final int lcpsOffset;
+	private final int textOffset;
+
+	private SuffixIndex(File file, ByteBuffer buffer) throws IOException {
+		super(file, buffer);
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a suffix index");
+		} else if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unmanaged index version: "
+					+ buffer.getInt(4));
+		} else {
+			this.textLength = buffer.getInt(8);
+			this.suffixCount = buffer.getInt(12);
+			this.wordCount = buffer.getInt(16);
+			this.suffixesOffset = HEADER_SIZE + 4 * wordCount;
+			this.lcpsOffset = suffixesOffset + 4 * suffixCount;
+			this.textOffset = lcpsOffset + 4 * suffixCount;
+		}
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the file written through {@link #write(Collection, File)}
+	 * @return the {@link SuffixIndex} mapping this file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a suffix index
+	 */
+	public static SuffixIndex open(File file) throws IOException {
+		return new SuffixIndex(file, map(file));
+	}
+
+	/**
+	 * Write the headwords and the readings of {@link Entry}s in a suffix
+	 * index file, replacing any existing file.
+	 * 
+	 * @param entries
+	 *            the {@link Entry}s to take the words from
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void writeEntries(Collection<Entry> entries, File file)
+			throws IOException {
+		List<String> words = new ArrayList<>(entries.size() * 2);
+		for (Entry entry : entries) {
+			words.add(entry.getWriting());
+			words.add(entry.getReading());
+		}
+		write(words, file);
+	}
+
+	/**
+	 * Write words in a suffix index file, replacing any existing file.
+	 * 
+	 * @param words
+	 *            the words to store, duplicates being stored once
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(Collection<String> words, File file)
+			throws IOException {
+		try (OutputStream stream = new BufferedOutputStream(
+				new FileOutputStream(file))) {
+			write(words, stream);
+		}
+	}
+
+	/**
+	 * Write words in the suffix index format.
+	 * 
+	 * @param words
+	 *            the words to store, duplicates being stored once
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	public static void write(Collection<String> words, OutputStream stream)
+			throws IOException {
+		String[] sorted = new TreeSet<>(words).toArray(new String[0]);
+		int textLength = 0;
+		for (String word : sorted) {
+			if (word.indexOf(SEPARATOR) >= 0) {
+				throw new IllegalArgumentException("Word with a separator: "
+						+ word);
+			} else {
+				textLength += word.length() + 1;
+			}
+		}
+
+		char[] text = new char[textLength];
+		int[] wordOffsets = new int[sorted.length];
+		int offset = 0;
+		for (int w = 0; w < sorted.length; w++) {
+			wordOffsets[w] = offset;
+			sorted[w].getChars(0, sorted[w].length(), text, offset);
+			offset += sorted[w].length();
+			text[offset++] = SEPARATOR;
+		}
+
+		// ranks: 0 for the sentinel, 1 for the separator, then the chars
+		int[] ranks = new int[Character.MAX_VALUE + 1];
+		for (char character : text) {
+			ranks[character] = 1;
+		}
+		int alphabetSize = 1;
+		for (int c = 0; c < ranks.length; c++) {
+			if (ranks[c] != 0) {
+				ranks[c] = alphabetSize++;
+			} else {
+				// not used
+			}
+		}
+		int[] ranked = new int[textLength + 1];
+		for (int i = 0; i < textLength; i++) {
+			ranked[i] = ranks[text[i]];
+		}
+		ranked[textLength] = 0;
+		int[] suffixes = buildSuffixArray(ranked, alphabetSize);
+		int[] lcps = buildLcpArray(text, suffixes);
+
+		// skip the sentinel and the separators, which sort first
+		int first = 1 + sorted.length;
+		int suffixCount = suffixes.length - first;
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(textLength);
+		out.writeInt(suffixCount);
+		out.writeInt(sorted.length);
+		for (int wordOffset : wordOffsets) {
+			out.writeInt(wordOffset);
+		}
+		for (int i = first; i < suffixes.length; i++) {
+			out.writeInt(suffixes[i]);
+		}
+		for (int i = first; i < suffixes.length; i++) {
+			out.writeInt(i == first ? 0 : lcps[i]);
+		}
+		for (char character : text) {
+			out.writeChar(character);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Build the suffix array of a text with SA-IS (Nong, Zhang and Chan,
+	 * 2009).
+	 * 
+	 * @param text
+	 *            the text, made of values in [0, alphabetSize) and ending with
+	 *            0, which appears nowhere else
+	 * @param alphabetSize
+	 *            the number of possible values
+	 * @return the start of each suffix of the text, in their sorted order
+	 */
+	static int[] buildSuffixArray(int[] text, int alphabetSize) {
+		int[] suffixes = new int[text.length];
+		sais(text, suffixes, text.length, alphabetSize);
+		return suffixes;
+	}
+
+	private static void sais(int[] text, int[] suffixes, int n, int k) {
+		if (n == 1) {
+			// only the sentinel, which is not an LMS suffix
+			suffixes[0] = 0;
+			return;
+		} else {
+			// at least the sentinel as LMS suffix
+		}
+		// S-type (true) or L-type (false) of each suffix
+		boolean[] types = new boolean[n];
+		types[n - 1] = true;
+		for (int i = n - 2; i >= 0; i--) {
+			types[i] = text[i] < text[i + 1] || text[i] == text[i + 1]
+					&& types[i + 1];
+		}
+		int[] buckets = new int[k];
+
+		// sort the LMS substrings
+		getBucketEnds(text, buckets, n, k);
+		Arrays.fill(suffixes, 0, n, -1);
+		for (int i = 1; i < n; i++) {
+			if (isLms(types, i)) {
+				suffixes[--buckets[text[i]]] = i;
+			} else {
+				// induced later
+			}
+		}
+		induce(text, suffixes, types, buckets, n, k);
+
+		// name the LMS substrings
+		int lmsCount = 0;
+		for (int i = 0; i < n; i++) {
+			if (isLms(types, suffixes[i])) {
+				suffixes[lmsCount++] = suffixes[i];
+			} else {
+				// not LMS
+			}
+		}
+		Arrays.fill(suffixes, lmsCount, n, -1);
+		int name = 0;
+		int previous = -1;
+		for (int i = 0; i < lmsCount; i++) {
+			int position = suffixes[i];
+			boolean different = false;
+			for (int d = 0; d < n; d++) {
+				if (previous == -1
+						|| text[position + d] != text[previous + d]
+						|| types[position + d] != types[previous + d]) {
+					different = true;
+					break;
+				} else if (d > 0
+						&& (isLms(types, position + d) || isLms(types,
+								previous + d))) {
+					break;
+				} else {
+					// same so far
+				}
+			}
+			if (different) {
+				name++;
+				previous = position;
+			} else {
+				// same LMS substring
+			}
+			suffixes[lmsCount + position / 2] = name - 1;
+		}
+		int[] reduced = new int[lmsCount];
+		for (int i = n - 1, j = lmsCount - 1; i >= lmsCount; i--) {
+			if (suffixes[i] >= 0) {
+				reduced[j--] = suffixes[i];
+			} else {
+				// free slot
+			}
+		}
+
+		// sort the LMS suffixes, recursively if some names are repeated
+		int[] reducedSuffixes = new int[lmsCount];
+		if (name < lmsCount) {
+			sais(reduced, reducedSuffixes, lmsCount, name);
+		} else {
+			for (int i = 0; i < lmsCount; i++) {
+				reducedSuffixes[reduced[i]] = i;
+			}
+		}
+
+		// induce the order of all the suffixes from the sorted LMS ones
+		for (int i = 1, j = 0; i < n; i++) {
+			if (isLms(types, i)) {
+				reduced[j++] = i;
+			} else {
+				// not LMS
+			}
+		}
+		for (int i = 0; i < lmsCount; i++) {
+			reducedSuffixes[i] = reduced[reducedSuffixes[i]];
+		}
+		getBucketEnds(text, buckets, n, k);
+		Arrays.fill(suffixes, 0, n, -1);
+		for (int i = lmsCount - 1; i >= 0; i--) {
+			int position = reducedSuffixes[i];
+			suffixes[--buckets[text[position]]] = position;
+		}
+		induce(text, suffixes, types, buckets, n, k);
+	}
+
+	private static boolean isLms(boolean[] types, int i) {
+		return i > 0 && types[i] && !types[i - 1];
+	}
+
+	private static void induce(int[] text, int[] suffixes, boolean[] types,
+			int[] buckets, int n, int k) {
+		getBucketStarts(text, buckets, n, k);
+		for (int i = 0; i < n; i++) {
+			int j = suffixes[i] - 1;
+			if (j >= 0 && !types[j]) {
+				suffixes[buckets[text[j]]++] = j;
+			} else {
+				// not an L-type suffix to induce
+			}
+		}
+		getBucketEnds(text, buckets, n, k);
+		for (int i = n - 1; i >= 0; i--) {
+			int j = suffixes[i] - 1;
+			if (j >= 0 && types[j]) {
+				suffixes[--buckets[text[j]]] = j;
+			} else {
+				// not an S-type suffix to induce
+			}
+		}
+	}
+
+	private static void getBucketStarts(int[] text, int[] buckets, int n, int k) {
+		countValues(text, buckets, n, k);
+		int sum = 0;
+		for (int c = 0; c < k; c++) {
+			int count = buckets[c];
+			buckets[c] = sum;
+			sum += count;
+		}
+	}
+
+	private static void getBucketEnds(int[] text, int[] buckets, int n, int k) {
+		countValues(text, buckets, n, k);
+		int sum = 0;
+		for (int c = 0; c < k; c++) {
+			sum += buckets[c];
+			buckets[c] = sum;
+		}
+	}
+
+	private static void countValues(int[] text, int[] buckets, int n, int k) {
+		Arrays.fill(buckets, 0, k, 0);
+		for (int i = 0; i < n; i++) {
+			buckets[text[i]]++;
+		}
+	}
+
+	/**
+	 * Build the LCP array of a suffix array with the algorithm of Kasai et al.
+	 * in linear time, the common prefixes stopping at the separators.
+	 * 
+	 * @return the length of the common prefix of each suffix with the
+	 *         previous one, 0 for the first one
+	 */
+	static int[] buildLcpArray(char[] text, int[] suffixes) {
+		int n = suffixes.length;
+		int[] ranks = new int[n];
+		for (int i = 0; i < n; i++) {
+			ranks[suffixes[i]] = i;
+		}
+		int[] lcps = new int[n];
+		int common = 0;
+		for (int position = 0; position < n; position++) {
+			int rank = ranks[position];
+			if (rank == 0) {
+				common = 0;
+			} else {
+				int previous = suffixes[rank - 1];
+				while (position + common < text.length
+						&& previous + common < text.length
+						&& text[position + common] == text[previous + common]
+						&& text[position + common] != SEPARATOR) {
+					common++;
+				}
+				lcps[rank] = common;
+				if (common > 0) {
+					common--;
+				} else {
+					// next one starts from scratch
+				}
+			}
+		}
+		return lcps;
+	}
+
+	/**
+	 * 
+	 * @return the file mapped by this {@link SuffixIndex}
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * 
+	 * @return the number of distinct words stored
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * 
+	 * @param substring
+	 *            the substring to search for
+	 * @return the number of occurrences of the substring in the words stored
+	 */
+	public int count(String substring) {
+		checkOpen();
+		checkSubstring(substring);
+		return findBound(substring, true) - findBound(substring, false);
+	}
+
+	/**
+	 * 
+	 * @param substring
+	 *            the substring to search for
+	 * @param limit
+	 *            the maximal number of words to return
+	 * @return the distinct words containing the substring, sorted by the text
+	 *         following its first occurrence in them
+	 */
+	public List<String> find(String substring, int limit) {
+		checkOpen();
+		checkSubstring(substring);
+		if (limit <= 0) {
+			return Collections.emptyList();
+		} else {
+			List<String> words = new ArrayList<>(Math.min(limit, 16));
+			BitSet found = new BitSet(wordCount);
+			int suffix = findBound(substring, false);
+			boolean matching = suffix < suffixCount
+					&& startsWith(getSuffix(suffix), substring);
+			while (matching && words.size() < limit) {
+				int word = getWord(getSuffix(suffix));
+				if (!found.get(word)) {
+					found.set(word);
+					words.add(getWordText(word));
+				} else {
+					// already found through another occurrence
+				}
+				suffix++;
+				// starts with the substring if it shares it with the previous
+				matching = suffix < suffixCount
+						&& getLcp(suffix) >= substring.length();
+			}
+			return words;
+		}
+	}
+
+	private static void checkSubstring(String substring) {
+		if (substring.isEmpty()) {
+			throw new IllegalArgumentException("No substring to search");
+		} else if (substring.indexOf(SEPARATOR) >= 0) {
+			throw new IllegalArgumentException("Substring with a separator: "
+					+ substring);
+		} else {
+			// valid substring
+		}
+	}
+
+	/**
+	 * Binary search skipping the chars already known to match: the suffixes
+	 * between two bounds share at least the shortest of their common prefixes
+	 * with the substring.
+	 * 
+	 * @param upper
+	 *            <code>false</code> for the first suffix starting with the
+	 *            substring or greater, <code>true</code> for the first suffix
+	 *            greater than all the ones starting with it
+	 * @return the bound found
+	 */
+	private int findBound(String substring, boolean upper) {
+		int low = 0;
+		int high = suffixCount;
+		int lowCommon = 0;
+		int highCommon = 0;
+		int length = substring.length();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int position = getSuffix(middle);
+			int common = Math.min(lowCommon, highCommon);
+			char character = 0;
+			while (common < length) {
+				character = getChar(position + common);
+				if (character != substring.charAt(common)) {
+					break;
+				} else {
+					common++;
+				}
+			}
+			boolean before = common == length ? upper
+					: character < substring.charAt(common);
+			if (before) {
+				low = middle + 1;
+				lowCommon = common;
+			} else {
+				high = middle;
+				highCommon = common;
+			}
+		}
+		return low;
+	}
+
+	private boolean startsWith(int position, String substring) {
+		for (int i = 0; i < substring.length(); i++) {
+			if (getChar(position + i) != substring.charAt(i)) {
+				return false;
+			} else {
+				// same so far
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @return the word containing the char at this position of the text
+	 */
+	private int getWord(int position) {
+		int low = 0;
+		int high = wordCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (getWordOffset(middle) <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	private String getWordText(int word) {
+		int start = getWordOffset(word);
+		int end = word + 1 < wordCount ? getWordOffset(word + 1) - 1
+				: textLength - 1;
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = getChar(start + i);
+		}
+		return new String(chars);
+	}
+
+	private int getWordOffset(int word) {
+		return buffer.getInt(HEADER_SIZE + 4 * word);
+	}
+
+	private int getSuffix(int suffix) {
+		return buffer.getInt(suffixesOffset + 4 * suffix);
+	}
+
+	private int getLcp(int suffix) {
+		return buffer.getInt(lcpsOffset + 4 * suffix);
+	}
+
+	private char getChar(int position) {
+		return buffer.getChar(textOffset + 2 * position);
+	}
+}
@@ -0,0 +1,487 @@
+package fr.vergne.japdict.dict;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link UserDictionary} adds personal {@link Entry}s on top of a read-only
+ * base {@link Dictionary}. The personal {@link Entry}s are stored in a
+ * directory, in two forms:
+ * <ul>
+ * <li>an {@link OverlaySegment} receiving the new {@link Entry}s, so they are
+ * searchable as soon as they are added</li>
+ * <li>a {@link BinarySegment} storing the {@link Entry}s already compacted</li>
+ * </ul>
+ * Once the overlay reaches a given size, a background task compacts it into a
+ * new {@link BinarySegment} and swaps it in. Lookups never wait for this task:
+ * they work on the layers published through a {@link DictionaryHandle} at the
+ * time they start, and a replaced {@link BinarySegment} is unmapped once the
+ * last of these lookups is done.<br/>
+ * <br/>
+ * Each file has a generation number: the segment of generation N contains all
+ * the {@link Entry}s of the journals of generation N or lower, so any journal
+ * of a higher generation found when opening the directory is replayed and
+ * compacted again.
+ */
+public class UserDictionary implements Dictionary, Closeable {
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".bin";
+	private static final String JOURNAL_PREFIX = "journal-";
+	private static final String JOURNAL_SUFFIX = ".log";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final Dictionary base;
+	private final File directory;
+	private final int compactionThreshold;
+	private final DictionaryHandle layers;
+	private final Object writeLock = new Object();
+	private final ExecutorService compactor = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "japdict-compaction");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	private Future<Void> compaction = null;
+	/**
+	 * The failure of the last compaction started automatically, which has no
+	 * caller to report it to, until it is thrown by {@link #add(Entry)} or
+	 * {@link #close()}. A later successful compaction forgets it, since it
+	 * compacts the overlays left by the failed one.
+	 */
+	private Exception compactionFailure = null;
+
+	/**
+	 * The layers of {@link Entry}s, never modified once published. The
+	 * {@link BinarySegment} being shared by successive {@link Layers}, each of
+	 * them holds its own reference on it.
+	 */
+	private static class Layers implements Dictionary, Closeable {
+		private final Snapshot segment;
+		private final List<OverlaySegment> frozen;
+		private final OverlaySegment active;
+
+		public Layers(Snapshot segment, List<OverlaySegment> frozen,
+				OverlaySegment active) {
+			this.segment = segment;
+			this.frozen = Collections.unmodifiableList(frozen);
+			this.active = active;
+		}
+
+		public BinarySegment getSegment() {
+			return segment == null ? null : (BinarySegment) segment
+					.getDictionary();
+		}
+
+		public Snapshot shareSegment() {
+			if (segment == null) {
+				return null;
+			} else if (segment.retain()) {
+				return segment;
+			} else {
+				throw new IllegalStateException("Segment already released");
+			}
+		}
+
+		@Override
+		public List<Entry> lookup(String key) {
+			List<Entry> entries = new ArrayList<>();
+			entries.addAll(active.lookup(key));
+			for (int i = frozen.size() - 1; i >= 0; i--) {
+				entries.addAll(frozen.get(i).lookup(key));
+			}
+			if (segment != null) {
+				entries.addAll(segment.lookup(key));
+			} else {
+				// no entry compacted yet
+			}
+			return entries;
+		}
+
+		@Override
+		public List<List<Entry>> lookupAll(List<String> keys) {
+			List<List<Entry>> results = active.lookupAll(keys);
+			for (int i = frozen.size() - 1; i >= 0; i--) {
+				append(results, frozen.get(i).lookupAll(keys));
+			}
+			if (segment != null) {
+				append(results, segment.lookupAll(keys));
+			} else {
+				// no entry compacted yet
+			}
+			return results;
+		}
+
+		@Override
+		public void close() {
+			if (segment != null) {
+				segment.close();
+			} else {
+				// no segment to release
+			}
+		}
+	}
+
+	/**
+	 * Open the personal {@link Entry}s stored in a directory, creating it if
+	 * needed.
+	 * 
+	 * @param base
+	 *            the read-only {@link Dictionary} to complete
+	 * @param directory
+	 *            the directory storing the personal {@link Entry}s
+	 * @param compactionThreshold
+	 *            the number of {@link Entry}s in the overlay triggering its
+	 *            compaction
+	 * @throws IOException
+	 *             if the directory cannot be read or written
+	 */
+	public UserDictionary(Dictionary base, File directory,
+			int compactionThreshold) throws IOException {
+		if (base == null) {
+			throw new NullPointerException("No base dictionary provided");
+		} else if (compactionThreshold <= 0) {
+			throw new IllegalArgumentException(
+					"The compaction threshold must be positive: "
+							+ compactionThreshold);
+		} else if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		} else {
+			this.base = base;
+			this.directory = directory;
+			this.compactionThreshold = compactionThreshold;
+			Layers recovered = recover();
+			this.layers = new DictionaryHandle(recovered);
+			if (!recovered.frozen.isEmpty()
+					|| recovered.active.size() >= compactionThreshold) {
+				startCompaction(true);
+			} else {
+				// nothing to compact yet
+			}
+		}
+	}
+
+	private Layers recover() throws IOException {
+		TreeMap<Long, File> segments = new TreeMap<>();
+		TreeMap<Long, File> journals = new TreeMap<>();
+		for (File file : directory.listFiles()) {
+			String name = file.getName();
+			if (name.endsWith(TEMPORARY_SUFFIX)) {
+				// interrupted compaction
+				delete(file);
+			} else if (name.startsWith(SEGMENT_PREFIX)
+					&& name.endsWith(SEGMENT_SUFFIX)) {
+				segments.put(generation(file, SEGMENT_PREFIX, SEGMENT_SUFFIX),
+						file);
+			} else if (name.startsWith(JOURNAL_PREFIX)
+					&& name.endsWith(JOURNAL_SUFFIX)) {
+				journals.put(generation(file, JOURNAL_PREFIX, JOURNAL_SUFFIX),
+						file);
+			} else {
+				// not managed by this dictionary
+			}
+		}
+
+		Snapshot segment = null;
+		long compacted = 0;
+		if (!segments.isEmpty()) {
+			compacted = segments.lastKey();
+			segment = new Snapshot(BinarySegment.open(segments.lastEntry()
+					.getValue()));
+			for (File old : segments.headMap(compacted).values()) {
+				delete(old);
+			}
+		} else {
+			// no entry compacted yet
+		}
+		for (File old : journals.headMap(compacted, true).values()) {
+			delete(old);
+		}
+
+		List<OverlaySegment> frozen = new ArrayList<>();
+		for (File journal : journals.tailMap(compacted, false).values()) {
+			OverlaySegment overlay = new OverlaySegment(journal);
+			overlay.close();
+			frozen.add(overlay);
+		}
+		OverlaySegment active;
+		if (frozen.isEmpty()) {
+			active = new OverlaySegment(journal(compacted + 1));
+		} else {
+			active = new OverlaySegment(frozen.remove(frozen.size() - 1)
+					.getJournal());
+		}
+		return new Layers(segment, frozen, active);
+	}
+
+	/**
+	 * Add a personal {@link Entry}, which is available for lookups once this
+	 * method returns. If the overlay reaches the compaction threshold, a
+	 * compaction is started in background. If such a compaction failed, its
+	 * failure is thrown instead and the {@link Entry} is not added, the
+	 * next compaction retrying to compact the same overlays.
+	 * 
+	 * @param entry
+	 *            the {@link Entry} to add
+	 * @throws IOException
+	 *             if the {@link Entry} cannot be stored or if the last
+	 *             compaction started automatically failed
+	 */
+	public void add(Entry entry) throws IOException {
+		synchronized (writeLock) {
+			throwCompactionFailure();
+			OverlaySegment active = current().active;
+			active.add(entry);
+			if (active.size() >= compactionThreshold
+					&& (compaction == null || compaction.isDone())) {
+				startCompaction(true);
+			} else {
+				// wait for more entries or for the running compaction
+			}
+		}
+	}
+
+	/**
+	 * Request the compaction of the overlay into a new {@link BinarySegment}.
+	 * The compaction is done in background, lookups and additions remaining
+	 * possible meanwhile.
+	 * 
+	 * @return the {@link Future} telling when the compaction is done
+	 */
+	public Future<Void> compact() {
+		return startCompaction(false);
+	}
+
+	/**
+	 * 
+	 * @param isAutomatic
+	 *            <code>true</code> if no caller receives the {@link Future},
+	 *            so its failure must be kept to be thrown later
+	 * @return the {@link Future} telling when the compaction is done
+	 */
+	private Future<Void> startCompaction(final boolean isAutomatic) {
+		synchronized (writeLock) {
+			compaction = compactor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					try {
+						runCompaction();
+						synchronized (writeLock) {
+							compactionFailure = null;
+						}
+					} catch (IOException | RuntimeException e) {
+						if (isAutomatic) {
+							synchronized (writeLock) {
+								compactionFailure = e;
+							}
+						} else {
+							// reported through the future
+						}
+						throw e;
+					}
+					return null;
+				}
+			});
+			return compaction;
+		}
+	}
+
+	/**
+	 * Throw the failure of the last compaction started automatically, if any,
+	 * so it is reported only once.
+	 */
+	private void throwCompactionFailure() throws IOException {
+		Exception failure = compactionFailure;
+		compactionFailure = null;
+		if (failure != null) {
+			throw new IOException("Background compaction failed", failure);
+		} else {
+			// no failure to report
+		}
+	}
+
+	private void runCompaction() throws IOException {
+		Layers before;
+		synchronized (writeLock) {
+			Layers current = current();
+			if (current.active.size() == 0) {
+				before = current;
+			} else {
+				long generation = generation(current.active.getJournal(),
+						JOURNAL_PREFIX, JOURNAL_SUFFIX);
+				current.active.close();
+				List<OverlaySegment> frozen = new ArrayList<>(current.frozen);
+				frozen.add(current.active);
+				before = new Layers(current.shareSegment(), frozen,
+						new OverlaySegment(journal(generation + 1)));
+				layers.swap(before);
+			}
+		}
+		if (before.frozen.isEmpty()) {
+			return;
+		} else {
+			// compact the frozen overlays
+		}
+
+		// only this task swaps segments, so the one of before is still open
+		BinarySegment previous = before.getSegment();
+		List<Entry> entries = new ArrayList<>();
+		if (previous != null) {
+			entries.addAll(previous.getEntries());
+		} else {
+			// no entry compacted yet
+		}
+		for (OverlaySegment overlay : before.frozen) {
+			entries.addAll(overlay.getEntries());
+		}
+		OverlaySegment last = before.frozen.get(before.frozen.size() - 1);
+		long generation = generation(last.getJournal(), JOURNAL_PREFIX,
+				JOURNAL_SUFFIX);
+		File file = segment(generation);
+		File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+		BinarySegment.write(entries, temporary);
+		Files.move(temporary.toPath(), file.toPath(),
+				StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		Snapshot segment = new Snapshot(BinarySegment.open(file));
+
+		synchronized (writeLock) {
+			Layers current = current();
+			List<OverlaySegment> frozen = new ArrayList<>(current.frozen);
+			frozen.removeAll(before.frozen);
+			layers.swap(new Layers(segment, frozen, current.active));
+		}
+
+		// the previous segment is unmapped once its last reader is done
+		if (previous != null) {
+			delete(previous.getFile());
+		} else {
+			// no previous segment
+		}
+		for (OverlaySegment overlay : before.frozen) {
+			delete(overlay.getJournal());
+		}
+	}
+
+	@Override
+	public List<Entry> lookup(String key) {
+		List<Entry> entries = new ArrayList<>();
+		entries.addAll(layers.lookup(key));
+		entries.addAll(base.lookup(key));
+		return merge(entries);
+	}
+
+	@Override
+	public List<List<Entry>> lookupAll(List<String> keys) {
+		List<List<Entry>> results = layers.lookupAll(keys);
+		append(results, base.lookupAll(keys));
+		for (int i = 0; i < results.size(); i++) {
+			results.set(i, merge(results.get(i)));
+		}
+		return results;
+	}
+
+	private static void append(List<List<Entry>> results,
+			List<List<Entry>> others) {
+		for (int i = 0; i < results.size(); i++) {
+			results.get(i).addAll(others.get(i));
+		}
+	}
+
+	/**
+	 * Order the {@link Entry}s by decreasing priority and remove duplicates.
+	 * The sort being stable, the most recent {@link Entry}s come first among
+	 * the ones having the same priority.
+	 */
+	private static List<Entry> merge(List<Entry> entries) {
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return Integer.compare(e2.getPriority(), e1.getPriority());
+			}
+		});
+		return new ArrayList<>(new LinkedHashSet<>(entries));
+	}
+
+	/**
+	 * Wait for the running compaction, if any, and close the journal. The
+	 * {@link UserDictionary} should not be used anymore.
+	 * 
+	 * @throws IOException
+	 *             if the journal cannot be closed or if the last compaction
+	 *             started automatically failed
+	 */
+	@Override
+	public void close() throws IOException {
+		compactor.shutdown();
+		try {
+			compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (writeLock) {
+			current().active.close();
+			layers.close();
+			throwCompactionFailure();
+		}
+	}
+
+	/**
+	 * Only the threads holding the write lock can change the layers, so they
+	 * can use the current ones without taking a reference on them.
+	 */
+	private Layers current() {
+		try (Snapshot snapshot = layers.acquire()) {
+			return (Layers) snapshot.getDictionary();
+		}
+	}
+
+	private File segment(long generation) {
+		return new File(directory, SEGMENT_PREFIX + generation
+				+ SEGMENT_SUFFIX);
+	}
+
+	private File journal(long generation) {
+		return new File(directory, JOURNAL_PREFIX + generation
+				+ JOURNAL_SUFFIX);
+	}
+
+	private static long generation(File file, String prefix, String suffix) {
+		String name = file.getName();
+		String number = name.substring(prefix.length(), name.length()
+				- suffix.length());
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid generation for "
+					+ file, e);
+		}
+	}
+
+	private static void delete(File file) {
+		if (!file.delete() && file.exists()) {
+			// still mapped somewhere (e.g. Windows), retried at next opening
+			file.deleteOnExit();
+		} else {
+			// deleted
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package fr.vergne.japdict.jap;
+
+/**
+ * {@link BulkKana} converts in place the kanas of large char arrays, giving
+ * the same result than {@link KanaFactory#transform(String, KanaType)}: the
+ * hiraganas and katakanas having a counterpart in the requested
+ * {@link KanaType}, including the old kanas ゐ and ゑ, are replaced, while the
+ * kanas without counterpart (e.g. ヷ) and the other chars are left
+ * unchanged.<br/>
+ * <br/>
+ * This version converts the chars one by one through the kana tables. The
+ * conversion being the addition of a constant to a range of chars, the
+ * multi-release jar replaces this class on Java 17 or later by one using the
+ * Vector API of the <code>jdk.incubator.vector</code> module, which converts
+ * several chars per instruction. Being an incubator module, it must be added
+ * explicitly to be used:
+ * 
+ * <pre>
+ * java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * 
+ * Otherwise, this scalar conversion is used. {@link #isAccelerated()} tells
+ * which one is used.
+ */
+public class BulkKana {
+
+	private BulkKana() {
+		// static methods only
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the conversions use the Vector API,
+	 *         <code>false</code> if they are scalar
+	 */
+	public static boolean isAccelerated() {
+		return false;
+	}
+
+	/**
+	 * Convert in place the kanas of a range of chars.
+	 * 
+	 * @param chars
+	 *            the chars to convert
+	 * @param offset
+	 *            the index of the first char to convert
+	 * @param length
+	 *            the number of chars to convert
+	 * @param type
+	 *            the {@link KanaType} to convert the kanas to
+	 */
+	public static void transform(char[] chars, int offset, int length,
+			KanaType type) {
+		if (type == null) {
+			throw new NullPointerException("No type provided");
+		} else if (offset < 0 || length < 0 || offset + length > chars.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset
+					+ "+" + length + " for " + chars.length + " chars");
+		} else {
+			char[] table = KanaFactory.KanaTables.get(type);
+			int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				int index = chars[i] - KanaFactory.KanaTables.MIN;
+				if (index >= 0 && index < table.length && table[index] != 0) {
+					chars[i] = table[index];
+				} else {
+					// not a kana or no counterpart
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to convert
+	 * @param type
+	 *            the {@link KanaType} to convert the kanas to
+	 * @return the converted text
+	 */
+	public static String transform(String text, KanaType type) {
+		char[] chars = text.toCharArray();
+		transform(chars, 0, chars.length, type);
+		return new String(chars);
+	}
+}
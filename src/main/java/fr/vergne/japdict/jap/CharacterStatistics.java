@@ -0,0 +1,504 @@
+package fr.vergne.japdict.jap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.vergne.japdict.util.TaskUtil;
+
+/**
+ * {@link CharacterStatistics} counts the characters of texts, to know the
+ * frequency of each kana and kanji of a corpus. The counts are stored in a
+ * dense array covering the chars from {@link JapUnicode#HIRAGANA_MIN} to
+ * {@link JapUnicode#KANJI_MAX}, which includes all the kanas and kanjis,
+ * indexed by the offset of the char, so counting a char is a subtraction and
+ * an increment. The other characters are counted together, a surrogate pair
+ * counting as one character.<br/>
+ * <br/>
+ * An instance is not thread-safe. The parallel methods give its own instance
+ * to each thread, then merge them with {@link #merge(CharacterStatistics)}.
+ * The files are counted on their UTF-8 bytes, without decoding them, so they
+ * can be cut at any byte and counted by blocks: the bytes continuing a
+ * character are counted with the first byte of the character.
+ */
+public class CharacterStatistics {
+
+	private static final char MIN = JapUnicode.HIRAGANA_MIN;
+	private static final int SIZE = JapUnicode.KANJI_MAX - MIN + 1;
+	private static final int BLOCK_SIZE = 1024 * 1024;
+	/**
+	 * The {@link Script} of each char counted individually, by offset.
+	 */
+	private static final Script[] SCRIPTS = createScripts();
+
+	/**
+	 * The scripts of the characters counted.
+	 */
+	public static enum Script {
+		/**
+		 * A hiragana, see {@link KanaType#HIRAGANA}.
+		 */
+		HIRAGANA,
+		/**
+		 * A katakana, see {@link KanaType#KATAKANA}.
+		 */
+		KATAKANA,
+		/**
+		 * A kanji, rare ones included, see {@link JapCharacter#isKanji()}.
+		 */
+		KANJI,
+		/**
+		 * Any character which is neither a kana nor a kanji, like the
+		 * punctuation, the Latin letters or the digits.
+		 */
+		OTHER
+	}
+
+	private final long[] counts = new long[SIZE];
+	private long otherCount = 0;
+
+	private static Script[] createScripts() {
+		Script[] scripts = new Script[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			JapCharacter character = JapCharacter.valueOf((char) (MIN + i));
+			KanaType type = character.getKanaType();
+			scripts[i] = type == KanaType.HIRAGANA ? Script.HIRAGANA
+					: type == KanaType.KATAKANA ? Script.KATAKANA : character
+							.isKanji() ? Script.KANJI : Script.OTHER;
+		}
+		return scripts;
+	}
+
+	/**
+	 * The number of occurrences of a character.
+	 */
+	public static class CharacterCount {
+		private final char character;
+		private final long count;
+
+		/**
+		 * 
+		 * @param character
+		 *            the character counted
+		 * @param count
+		 *            the number of occurrences of the character
+		 */
+		public CharacterCount(char character, long count) {
+			this.character = character;
+			this.count = count;
+		}
+
+		/**
+		 * 
+		 * @return the character counted
+		 */
+		public char getCharacter() {
+			return character;
+		}
+
+		/**
+		 * 
+		 * @return the number of occurrences of the character
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			return character + "(" + count + ")";
+		}
+	}
+
+	/**
+	 * Count the characters of a text.
+	 * 
+	 * @param text
+	 *            the text to count
+	 */
+	public void add(CharSequence text) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char character = text.charAt(i);
+			if (Character.isHighSurrogate(character) && i + 1 < length
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				otherCount++;
+				i++;
+			} else {
+				count(character);
+			}
+		}
+	}
+
+	private void count(int character) {
+		int offset = character - MIN;
+		if (offset >= 0 && offset < SIZE) {
+			counts[offset]++;
+		} else {
+			otherCount++;
+		}
+	}
+
+	/**
+	 * Count the characters of a UTF-8 text. The malformed bytes count as
+	 * {@link Script#OTHER} characters, except the continuation bytes which do
+	 * not follow the first byte of a character, which are ignored.
+	 * 
+	 * @param bytes
+	 *            the bytes of the text
+	 * @param offset
+	 *            the index of the first byte of the text
+	 * @param length
+	 *            the number of bytes of the text
+	 */
+	public void addUtf8(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset
+					+ "+" + length + " for " + bytes.length + " bytes");
+		} else {
+			addUtf8(bytes, offset, offset + length, offset + length);
+		}
+	}
+
+	/**
+	 * Count the characters starting between two indexes, reading the bytes
+	 * continuing the last character up to the limit.
+	 */
+	private void addUtf8(byte[] bytes, int from, int to, int limit) {
+		int i = from;
+		while (i < to) {
+			int lead = bytes[i];
+			if (lead >= 0) {
+				otherCount++;
+				i++;
+			} else if ((lead & 0xC0) == 0x80) {
+				// continuation of a character counted before
+				i++;
+			} else if ((lead & 0xF0) == 0xE0) {
+				if (i + 2 < limit && (bytes[i + 1] & 0xC0) == 0x80
+						&& (bytes[i + 2] & 0xC0) == 0x80) {
+					count((lead & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6
+							| bytes[i + 2] & 0x3F);
+					i += 3;
+				} else {
+					otherCount++;
+					i++;
+				}
+			} else {
+				int continuations = (lead & 0xE0) == 0xC0 ? 1
+						: (lead & 0xF8) == 0xF0 ? 3 : 0;
+				otherCount++;
+				i += isContinued(bytes, i, continuations, limit) ? continuations + 1
+						: 1;
+			}
+		}
+	}
+
+	private static boolean isContinued(byte[] bytes, int lead, int count,
+			int limit) {
+		if (count == 0 || lead + count >= limit) {
+			return false;
+		} else {
+			for (int i = lead + 1; i <= lead + count; i++) {
+				if ((bytes[i] & 0xC0) != 0x80) {
+					return false;
+				} else {
+					// continuation byte
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Add the counts of other {@link CharacterStatistics} to this one.
+	 * 
+	 * @param statistics
+	 *            the {@link CharacterStatistics} to add
+	 */
+	public void merge(CharacterStatistics statistics) {
+		for (int i = 0; i < SIZE; i++) {
+			counts[i] += statistics.counts[i];
+		}
+		otherCount += statistics.otherCount;
+	}
+
+	/**
+	 * 
+	 * @param character
+	 *            a character from {@link JapUnicode#HIRAGANA_MIN} to
+	 *            {@link JapUnicode#KANJI_MAX}, like a kana or a kanji
+	 * @return the number of occurrences of this character
+	 * @throws IllegalArgumentException
+	 *             if the character is not counted individually
+	 */
+	public long getCount(char character) {
+		int offset = character - MIN;
+		if (offset >= 0 && offset < SIZE) {
+			return counts[offset];
+		} else {
+			throw new IllegalArgumentException("Invalid character: "
+					+ character + " is not counted individually");
+		}
+	}
+
+	/**
+	 * 
+	 * @param script
+	 *            a {@link Script}
+	 * @return the number of characters of this {@link Script}
+	 */
+	public long getCount(Script script) {
+		long count = script == Script.OTHER ? otherCount : 0;
+		for (int i = 0; i < SIZE; i++) {
+			if (SCRIPTS[i] == script) {
+				count += counts[i];
+			} else {
+				// other script
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @return the number of characters counted
+	 */
+	public long getTotalCount() {
+		long count = 0;
+		for (Script script : Script.values()) {
+			count += getCount(script);
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param script
+	 *            {@link Script#HIRAGANA}, {@link Script#KATAKANA} or
+	 *            {@link Script#KANJI}
+	 * @return the number of different characters of this {@link Script}
+	 *         counted
+	 */
+	public int getDistinctCount(Script script) {
+		return getCounts(script).size();
+	}
+
+	/**
+	 * 
+	 * @param script
+	 *            {@link Script#HIRAGANA}, {@link Script#KATAKANA} or
+	 *            {@link Script#KANJI}
+	 * @param limit
+	 *            the maximum number of characters to return
+	 * @return the most frequent characters of this {@link Script}, the most
+	 *         frequent first, the equally frequent ones in the order of their
+	 *         codes
+	 */
+	public List<CharacterCount> getTop(Script script, int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("Invalid limit: " + limit);
+		} else {
+			List<CharacterCount> counts = getCounts(script);
+			Collections.sort(counts, new Comparator<CharacterCount>() {
+				@Override
+				public int compare(CharacterCount c1, CharacterCount c2) {
+					int comparison = Long.compare(c2.getCount(), c1.getCount());
+					return comparison != 0 ? comparison : Character.compare(
+							c1.getCharacter(), c2.getCharacter());
+				}
+			});
+			return counts.size() > limit ? new ArrayList<>(counts.subList(0,
+					limit)) : counts;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the characters of a {@link Script} occurring at least once, in
+	 *         the order of their codes
+	 */
+	private List<CharacterCount> getCounts(Script script) {
+		if (script == Script.OTHER) {
+			throw new IllegalArgumentException("Invalid script: " + script
+					+ " is not counted per character");
+		} else {
+			List<CharacterCount> found = new ArrayList<>();
+			for (int i = 0; i < SIZE; i++) {
+				if (counts[i] > 0 && SCRIPTS[i] == script) {
+					found.add(new CharacterCount((char) (MIN + i), counts[i]));
+				} else {
+					// absent or other script
+				}
+			}
+			return found;
+		}
+	}
+
+	/**
+	 * Write a summary of the counts as tab-separated values: a line per
+	 * {@link Script} giving its name, its number of characters and its number
+	 * of different characters (empty for {@link Script#OTHER}), then a line
+	 * per most frequent character of each {@link Script} giving the name of
+	 * the {@link Script}, the character and its count.
+	 * 
+	 * @param output
+	 *            where to write the summary
+	 * @param limit
+	 *            the maximum number of characters to write per
+	 *            {@link Script}
+	 * @throws IOException
+	 *             if the summary cannot be written
+	 */
+	public void writeSummary(Appendable output, int limit) throws IOException {
+		for (Script script : Script.values()) {
+			output.append(script.name()).append('\t')
+					.append(String.valueOf(getCount(script))).append('\t');
+			if (script != Script.OTHER) {
+				output.append(String.valueOf(getDistinctCount(script)));
+			} else {
+				// not counted per character
+			}
+			output.append('\n');
+		}
+		for (Script script : Script.values()) {
+			if (script != Script.OTHER) {
+				for (CharacterCount count : getTop(script, limit)) {
+					output.append(script.name()).append('\t')
+							.append(count.getCharacter()).append('\t')
+							.append(String.valueOf(count.getCount()))
+							.append('\n');
+				}
+			} else {
+				// not counted per character
+			}
+		}
+	}
+
+	/**
+	 * Count the characters of texts in parallel.
+	 * 
+	 * @param texts
+	 *            the texts to count
+	 * @param parallelism
+	 *            the number of threads to use
+	 * @return the counts of all the texts
+	 */
+	public static CharacterStatistics count(
+			final List<? extends CharSequence> texts, int parallelism) {
+		checkParallelism(parallelism);
+		final AtomicInteger next = new AtomicInteger();
+		List<Callable<CharacterStatistics>> workers = new ArrayList<>(
+				parallelism);
+		for (int worker = 0; worker < parallelism; worker++) {
+			workers.add(new Callable<CharacterStatistics>() {
+				@Override
+				public CharacterStatistics call() {
+					CharacterStatistics statistics = new CharacterStatistics();
+					for (int index = next.getAndIncrement(); index < texts
+							.size(); index = next.getAndIncrement()) {
+						statistics.add(texts.get(index));
+					}
+					return statistics;
+				}
+			});
+		}
+		try {
+			return run(workers, parallelism);
+		} catch (IOException e) {
+			throw new RuntimeException("Unexpected I/O failure", e);
+		}
+	}
+
+	/**
+	 * Count the characters of a UTF-8 file in parallel. The file is read by
+	 * blocks, each thread counting the blocks it takes in its own
+	 * {@link CharacterStatistics} with its own buffer, so the memory used does
+	 * not depend on the size of the file.
+	 * 
+	 * @param file
+	 *            the file to count
+	 * @param parallelism
+	 *            the number of threads to use
+	 * @return the counts of the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static CharacterStatistics countUtf8(File file, int parallelism)
+			throws IOException {
+		return countUtf8(file, parallelism, BLOCK_SIZE);
+	}
+
+	static CharacterStatistics countUtf8(final File file, int parallelism,
+			final int blockSize) throws IOException {
+		checkParallelism(parallelism);
+		try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = access.getChannel();
+			final long size = channel.size();
+			final long blocks = (size + blockSize - 1) / blockSize;
+			final AtomicLong next = new AtomicLong();
+			List<Callable<CharacterStatistics>> workers = new ArrayList<>(
+					parallelism);
+			for (int worker = 0; worker < parallelism; worker++) {
+				workers.add(new Callable<CharacterStatistics>() {
+					@Override
+					public CharacterStatistics call() throws IOException {
+						CharacterStatistics statistics = new CharacterStatistics();
+						// up to 3 more bytes to end the last character
+						byte[] bytes = new byte[blockSize + 3];
+						ByteBuffer buffer = ByteBuffer.wrap(bytes);
+						for (long block = next.getAndIncrement(); block < blocks; block = next
+								.getAndIncrement()) {
+							long start = block * blockSize;
+							long remaining = size - start;
+							int length = (int) Math.min(blockSize, remaining);
+							buffer.clear();
+							buffer.limit((int) Math.min(bytes.length, remaining));
+							while (buffer.hasRemaining()) {
+								long position = start + buffer.position();
+								if (channel.read(buffer, position) < 0) {
+									throw new IOException("File truncated: "
+											+ file);
+								} else {
+									// read more
+								}
+							}
+							statistics.addUtf8(bytes, 0, length, buffer.limit());
+						}
+						return statistics;
+					}
+				});
+			}
+			return run(workers, parallelism);
+		}
+	}
+
+	private static void checkParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: "
+					+ parallelism);
+		} else {
+			// valid
+		}
+	}
+
+	private static CharacterStatistics run(
+			List<Callable<CharacterStatistics>> workers, int parallelism)
+			throws IOException {
+		CharacterStatistics total = new CharacterStatistics();
+		for (CharacterStatistics statistics : TaskUtil.invokeAll(workers,
+				parallelism)) {
+			total.merge(statistics);
+		}
+		return total;
+	}
+}
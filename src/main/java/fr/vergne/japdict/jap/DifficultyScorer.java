@@ -0,0 +1,301 @@
+package fr.vergne.japdict.jap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import fr.vergne.japdict.util.TaskUtil;
+
+/**
+ * {@link DifficultyScorer} grades texts for learners by the share of their
+ * kanjis above a level, like the kanjis beyond the JLPT 3 or beyond the
+ * school grade 6. The levels come from a {@link KanjiAttribute} of a
+ * {@link KanjiMetadata}, copied at creation into a table indexed by
+ * {@link JapUnicode#getKanjiIndex(char)}, so classifying a kanji is a single
+ * array access. The kanjis without level are considered above any level.<br/>
+ * <br/>
+ * The texts are read from {@link Reader}s by chunks, counting the kanjis of
+ * each level in a histogram, so a text is never fully loaded in memory. A
+ * {@link DifficultyScorer} is immutable, so it can score several texts in
+ * parallel.
+ */
+public class DifficultyScorer {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final KanjiAttribute attribute;
+	private final int level;
+	/**
+	 * The level of each kanji, by kanji index.
+	 */
+	private final short[] levels;
+	private final int maxLevel;
+
+	/**
+	 * The counts of a text or of a part of it.
+	 */
+	public static class Score {
+		private final long characterCount;
+		private final long[] kanjiCounts;
+		private final long kanjiCount;
+		private final long aboveCount;
+
+		Score(long characterCount, long[] kanjiCounts, long aboveCount) {
+			this.characterCount = characterCount;
+			this.kanjiCounts = kanjiCounts;
+			long kanjiCount = 0;
+			for (long count : kanjiCounts) {
+				kanjiCount += count;
+			}
+			this.kanjiCount = kanjiCount;
+			this.aboveCount = aboveCount;
+		}
+
+		/**
+		 * 
+		 * @return the number of characters read, whatever they are
+		 */
+		public long getCharacterCount() {
+			return characterCount;
+		}
+
+		/**
+		 * 
+		 * @return the number of kanjis read
+		 */
+		public long getKanjiCount() {
+			return kanjiCount;
+		}
+
+		/**
+		 * 
+		 * @param level
+		 *            a value of the {@link KanjiAttribute} of the
+		 *            {@link DifficultyScorer}, 0 for the kanjis without level
+		 * @return the number of kanjis read having this level
+		 */
+		public long getKanjiCount(int level) {
+			return level < 0 || level >= kanjiCounts.length ? 0
+					: kanjiCounts[level];
+		}
+
+		/**
+		 * 
+		 * @return the number of kanjis read which are above the level of the
+		 *         {@link DifficultyScorer}
+		 */
+		public long getAboveCount() {
+			return aboveCount;
+		}
+
+		/**
+		 * 
+		 * @return the share of the kanjis read which are above the level of
+		 *         the {@link DifficultyScorer}, from 0 to 1, 0 if no kanji was
+		 *         read
+		 */
+		public double getAboveShare() {
+			return kanjiCount == 0 ? 0 : (double) aboveCount / kanjiCount;
+		}
+
+		@Override
+		public String toString() {
+			return aboveCount + "/" + kanjiCount + " kanjis above in "
+					+ characterCount + " characters";
+		}
+	}
+
+	/**
+	 * 
+	 * @param metadata
+	 *            the {@link KanjiMetadata} giving the levels of the kanjis
+	 * @param attribute
+	 *            the {@link KanjiAttribute} used as level, the higher the
+	 *            harder except for {@link KanjiAttribute#JLPT_LEVEL} which goes
+	 *            from 4 (easiest) to 1 (hardest)
+	 * @param level
+	 *            the last level considered as known, like 3 for the JLPT 3
+	 *            or 6 for the grade 6
+	 */
+	public DifficultyScorer(KanjiMetadata metadata, KanjiAttribute attribute,
+			int level) {
+		if (metadata == null) {
+			throw new NullPointerException("No metadata provided");
+		} else if (attribute == null) {
+			throw new NullPointerException("No attribute provided");
+		} else if (level < 0) {
+			throw new IllegalArgumentException("Invalid level: " + level);
+		} else {
+			this.attribute = attribute;
+			this.level = level;
+			this.levels = new short[JapUnicode.KANJI_COUNT];
+			int maxLevel = 0;
+			for (int index = 0; index < levels.length; index++) {
+				int value = metadata.get(JapUnicode.getKanji(index), attribute);
+				levels[index] = (short) value;
+				maxLevel = Math.max(maxLevel, value);
+			}
+			this.maxLevel = maxLevel;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the {@link KanjiAttribute} used as level
+	 */
+	public KanjiAttribute getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * 
+	 * @return the last level considered as known
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * 
+	 * @param kanjiLevel
+	 *            the level of a kanji, 0 if it has none
+	 * @return <code>true</code> if this level is above the level of this
+	 *         {@link DifficultyScorer}
+	 */
+	public boolean isAbove(int kanjiLevel) {
+		if (kanjiLevel == 0) {
+			return true;
+		} else if (attribute == KanjiAttribute.JLPT_LEVEL) {
+			return kanjiLevel < level;
+		} else {
+			return kanjiLevel > level;
+		}
+	}
+
+	/**
+	 * Score a whole text. The {@link Reader} is not closed.
+	 * 
+	 * @param reader
+	 *            the text to score
+	 * @return the {@link Score} of the text
+	 * @throws IOException
+	 *             if the text cannot be read
+	 */
+	public Score score(Reader reader) throws IOException {
+		List<Score> scores = score(reader, Long.MAX_VALUE);
+		return scores.isEmpty() ? createScore(0, new long[maxLevel + 1])
+				: scores.get(0);
+	}
+
+	/**
+	 * Score a text by windows of consecutive characters. The {@link Reader}
+	 * is not closed.
+	 * 
+	 * @param reader
+	 *            the text to score
+	 * @param windowSize
+	 *            the number of characters of each window, the last one being
+	 *            possibly shorter
+	 * @return the {@link Score} of each window, in the order of the text, none
+	 *         if the text is empty
+	 * @throws IOException
+	 *             if the text cannot be read
+	 */
+	public List<Score> score(Reader reader, long windowSize)
+			throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("Invalid window size: "
+					+ windowSize);
+		} else {
+			List<Score> scores = new ArrayList<>();
+			char[] buffer = new char[BUFFER_SIZE];
+			long[] counts = new long[maxLevel + 1];
+			long characters = 0;
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				int start = 0;
+				while (start < read) {
+					long remaining = windowSize - characters;
+					int end = remaining < read - start ? start + (int) remaining
+							: read;
+					for (int i = start; i < end; i++) {
+						int index = JapUnicode.getKanjiIndex(buffer[i]);
+						if (index >= 0) {
+							counts[levels[index]]++;
+						} else {
+							// not a kanji
+						}
+					}
+					characters += end - start;
+					start = end;
+					if (characters == windowSize) {
+						scores.add(createScore(characters, counts));
+						counts = new long[maxLevel + 1];
+						characters = 0;
+					} else {
+						// window not complete yet
+					}
+				}
+			}
+			if (characters > 0) {
+				scores.add(createScore(characters, counts));
+			} else {
+				// no partial window
+			}
+			return scores;
+		}
+	}
+
+	private Score createScore(long characters, long[] counts) {
+		long above = 0;
+		for (int kanjiLevel = 0; kanjiLevel < counts.length; kanjiLevel++) {
+			if (isAbove(kanjiLevel)) {
+				above += counts[kanjiLevel];
+			} else {
+				// known
+			}
+		}
+		return new Score(characters, counts, above);
+	}
+
+	/**
+	 * Score files in parallel, each file being scored by a single thread.
+	 * 
+	 * @param files
+	 *            the files to score
+	 * @param charset
+	 *            the {@link Charset} of the files
+	 * @param parallelism
+	 *            the number of threads to use
+	 * @return the {@link Score} of each file, in the order of the files
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	public List<Score> score(List<File> files, final Charset charset,
+			int parallelism) throws IOException {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: "
+					+ parallelism);
+		} else {
+			List<Callable<Score>> tasks = new ArrayList<>(files.size());
+			for (final File file : files) {
+				tasks.add(new Callable<Score>() {
+					@Override
+					public Score call() throws IOException {
+						try (Reader reader = new InputStreamReader(
+								new FileInputStream(file), charset)) {
+							return score(reader);
+						}
+					}
+				});
+			}
+			return TaskUtil.invokeAll(tasks, parallelism);
+		}
+	}
+}
@@ -0,0 +1,429 @@
+package fr.vergne.japdict.jap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link FuriganaAligner} splits the reading of a word across its kanjis, to
+ * display it as furigana (e.g. 食べ物 read たべもの gives 食:た, べ, 物:もの).
+ * The characters which are not kanjis, mainly the kanas identified through
+ * {@link JapCharacter#isKana()}, must appear as is in the reading, so they are
+ * fixed anchors splitting the problem. Between them, the reading of each kanji
+ * is chosen among its candidates, built from the on and kun readings of
+ * {@link KanjiMetadata}:
+ * <ul>
+ * <li>the readings themselves, the on readings being compared as hiraganas
+ * and the kun readings with or without their okurigana</li>
+ * <li>with a small cost, their usual sound changes: rendaku (e.g. か as が),
+ * gemination of the on readings (e.g. がく as がっ) and conjugation stems of
+ * the kun readings (e.g. うける as うけ, はなす as はなし)</li>
+ * </ul>
+ * The readings which cannot be explained this way, like the jukujikun 今日
+ * read きょう, are assigned to the kanjis concerned as a whole, with a high
+ * cost per kanji. The alignment of least cost is found by dynamic
+ * programming over the positions in the word and in the reading, which is
+ * polynomial whatever the number of kanjis. The candidates of each kanji are
+ * computed once and then reused for all the words containing it, so aligning
+ * a whole dictionary mostly costs the dynamic programming.<br/>
+ * <br/>
+ * A {@link FuriganaAligner} can be used by several threads at the same time.
+ */
+public class FuriganaAligner {
+
+	/**
+	 * The iteration mark, which repeats the reading of the previous kanji.
+	 */
+	private static final char REPEAT = '々';
+	private static final int EXACT_COST = 0;
+	private static final int CHANGE_COST = 1;
+	/**
+	 * Cost of each kanji having a reading unexplained by its candidates, high
+	 * enough for any combination of candidates to be preferred.
+	 */
+	private static final int UNEXPLAINED_COST = 100;
+	/**
+	 * Additional cost of each unexplained reading, so a single reading over
+	 * several kanjis is preferred to arbitrary splits of it.
+	 */
+	private static final int UNEXPLAINED_SPAN_COST = 50;
+	private static final int NONE = Integer.MAX_VALUE;
+	private static final String GODAN_ENDINGS = "うくぐすつぬぶむる";
+	private static final String GODAN_STEMS = "いきぎしちにびみり";
+	private static final String GEMINATED_ENDINGS = "つくちき";
+
+	private final KanjiMetadata metadata;
+	private final KanaFactory factory = new KanaFactory();
+	/**
+	 * The {@link Candidates} of each kanji, indexed by
+	 * {@link JapUnicode#getKanjiIndex(char)} and computed when first needed.
+	 * Two threads may compute the same {@link Candidates}, which is harmless
+	 * since they are immutable.
+	 */
+	private final Candidates[] candidates = new Candidates[JapUnicode.KANJI_COUNT];
+
+	/**
+	 * A part of a word with its reading.
+	 */
+	public static class Segment {
+		private final String text;
+		private final String reading;
+
+		/**
+		 * 
+		 * @param text
+		 *            the part of the word
+		 * @param reading
+		 *            the reading of the part, <code>null</code> if the part is
+		 *            its own reading (e.g. kanas)
+		 */
+		public Segment(String text, String reading) {
+			this.text = text;
+			this.reading = reading;
+		}
+
+		/**
+		 * 
+		 * @return the part of the word
+		 */
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * 
+		 * @return the reading of the part, <code>null</code> if the part is
+		 *         its own reading (e.g. kanas)
+		 */
+		public String getReading() {
+			return reading;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof Segment) {
+				Segment other = (Segment) obj;
+				return text.equals(other.text)
+						&& (reading == null ? other.reading == null : reading
+								.equals(other.reading));
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() * 31
+					+ (reading == null ? 0 : reading.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return reading == null ? text : text + ":" + reading;
+		}
+	}
+
+	/**
+	 * The possible readings of a kanji, in hiraganas, with their costs.
+	 */
+	private static class Candidates {
+		private final char[][] readings;
+		private final int[] costs;
+
+		public Candidates(Map<String, Integer> candidates) {
+			readings = new char[candidates.size()][];
+			costs = new int[candidates.size()];
+			int index = 0;
+			for (Map.Entry<String, Integer> entry : candidates.entrySet()) {
+				readings[index] = entry.getKey().toCharArray();
+				costs[index] = entry.getValue();
+				index++;
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param metadata
+	 *            the {@link KanjiMetadata} providing the readings of the
+	 *            kanjis
+	 */
+	public FuriganaAligner(KanjiMetadata metadata) {
+		if (metadata == null) {
+			throw new NullPointerException("No metadata provided");
+		} else {
+			this.metadata = metadata;
+		}
+	}
+
+	/**
+	 * 
+	 * @param word
+	 *            the word to align, usually written with kanjis
+	 * @param reading
+	 *            the reading of the word, in hiraganas or katakanas
+	 * @return the {@link Segment}s of the word, each kanji having its own
+	 *         {@link Segment} unless its reading is merged with the next ones,
+	 *         and each run of other characters forming a {@link Segment}
+	 *         without reading, or <code>null</code> if the word cannot be read
+	 *         this way (e.g. its kanas are not in the reading)
+	 */
+	public List<Segment> align(String word, String reading) {
+		String folded = factory.transform(word, KanaType.HIRAGANA);
+		String target = factory.transform(reading, KanaType.HIRAGANA);
+		int width = target.length() + 1;
+		int size = (word.length() + 1) * width;
+		int[] costs = new int[size];
+		int[] previous = new int[size];
+		for (int state = 0; state < size; state++) {
+			costs[state] = NONE;
+		}
+		costs[0] = 0;
+
+		for (int i = 0; i < word.length(); i++) {
+			char character = word.charAt(i);
+			boolean isRead = isRead(character);
+			int runEnd = i;
+			while (runEnd < word.length() && isRead(word.charAt(runEnd))) {
+				runEnd++;
+			}
+			Candidates candidates = isRead ? getCandidates(word, i) : null;
+			for (int j = 0; j <= target.length(); j++) {
+				int state = i * width + j;
+				int cost = costs[state];
+				if (cost == NONE) {
+					// unreachable state
+				} else if (!isRead) {
+					if (j < target.length()
+							&& folded.charAt(i) == target.charAt(j)) {
+						relax(costs, previous, state, state + width + 1, cost);
+					} else {
+						// anchor not found
+					}
+				} else {
+					if (candidates != null) {
+						for (int c = 0; c < candidates.readings.length; c++) {
+							char[] candidate = candidates.readings[c];
+							if (matches(target, j, candidate)) {
+								relax(costs, previous, state, state + width
+										+ candidate.length, cost
+										+ candidates.costs[c]);
+							} else {
+								// not this reading
+							}
+						}
+					} else {
+						// only unexplained readings
+					}
+					for (int next = i + 1; next <= runEnd; next++) {
+						int unexplained = cost + UNEXPLAINED_SPAN_COST
+								+ UNEXPLAINED_COST * (next - i);
+						for (int end = j + 1; end <= target.length(); end++) {
+							relax(costs, previous, state, next * width + end,
+									unexplained);
+						}
+					}
+				}
+			}
+		}
+
+		int last = size - 1;
+		if (costs[last] == NONE) {
+			return null;
+		} else {
+			SegmentsBuilder builder = new SegmentsBuilder();
+			int state = last;
+			while (state != 0) {
+				int from = previous[state];
+				int i = from / width;
+				int j = from % width;
+				int nextI = state / width;
+				int nextJ = state % width;
+				String text = word.substring(i, nextI);
+				if (isRead(word.charAt(i))) {
+					builder.addFirst(new Segment(text, reading.substring(j,
+							nextJ)));
+				} else {
+					builder.addFirstAnchor(text);
+				}
+				state = from;
+			}
+			return builder.build();
+		}
+	}
+
+	/**
+	 * Builds the {@link Segment}s from the last to the first, merging the
+	 * consecutive anchors.
+	 */
+	private static class SegmentsBuilder {
+		private final List<Segment> reversed = new ArrayList<>();
+		private final StringBuilder anchors = new StringBuilder();
+
+		public void addFirst(Segment segment) {
+			flushAnchors();
+			reversed.add(segment);
+		}
+
+		public void addFirstAnchor(String text) {
+			anchors.insert(0, text);
+		}
+
+		private void flushAnchors() {
+			if (anchors.length() > 0) {
+				reversed.add(new Segment(anchors.toString(), null));
+				anchors.setLength(0);
+			} else {
+				// no anchor to add
+			}
+		}
+
+		public List<Segment> build() {
+			flushAnchors();
+			Collections.reverse(reversed);
+			return Collections.unmodifiableList(reversed);
+		}
+	}
+
+	private static void relax(int[] costs, int[] previous, int from, int to,
+			int cost) {
+		if (cost < costs[to]) {
+			costs[to] = cost;
+			previous[to] = from;
+		} else {
+			// not better
+		}
+	}
+
+	private static boolean matches(String target, int start, char[] candidate) {
+		if (start + candidate.length > target.length()) {
+			return false;
+		} else {
+			for (int k = 0; k < candidate.length; k++) {
+				if (target.charAt(start + k) != candidate[k]) {
+					return false;
+				} else {
+					// continue
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the character has to be given a reading,
+	 *         <code>false</code> if it has to appear as is in the reading
+	 */
+	private static boolean isRead(char character) {
+		return character == REPEAT || JapUnicode.getKanjiIndex(character) >= 0;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Candidates} of the character at this position,
+	 *         <code>null</code> if it has none
+	 */
+	private Candidates getCandidates(String word, int position) {
+		char character = word.charAt(position);
+		if (character == REPEAT) {
+			return position == 0 ? null : getCandidates(word, position - 1);
+		} else {
+			int index = JapUnicode.getKanjiIndex(character);
+			Candidates kanjiCandidates = candidates[index];
+			if (kanjiCandidates == null) {
+				kanjiCandidates = computeCandidates(character);
+				candidates[index] = kanjiCandidates;
+			} else {
+				// already computed
+			}
+			return kanjiCandidates.readings.length == 0 ? null
+					: kanjiCandidates;
+		}
+	}
+
+	private Candidates computeCandidates(char kanji) {
+		Map<String, Integer> readings = new LinkedHashMap<>();
+		for (String on : metadata.getOnReadings(kanji)) {
+			String reading = factory.transform(on.replace("-", ""),
+					KanaType.HIRAGANA);
+			addWithRendaku(readings, reading, EXACT_COST);
+			if (reading.length() > 1
+					&& GEMINATED_ENDINGS.indexOf(reading.charAt(reading
+							.length() - 1)) >= 0) {
+				String geminated = reading.substring(0, reading.length() - 1)
+						+ 'っ';
+				addWithRendaku(readings, geminated, CHANGE_COST);
+			} else {
+				// no gemination
+			}
+		}
+		for (String kun : metadata.getKunReadings(kanji)) {
+			String reading = kun.replace("-", "");
+			int dot = reading.indexOf('.');
+			if (dot < 0) {
+				addWithRendaku(readings, reading, EXACT_COST);
+			} else {
+				addWithRendaku(readings, reading.substring(0, dot), EXACT_COST);
+				String full = reading.replace(".", "");
+				addWithRendaku(readings, full, EXACT_COST);
+				int ending = full.isEmpty() ? -1 : GODAN_ENDINGS.indexOf(full
+						.charAt(full.length() - 1));
+				if (ending >= 0) {
+					String stem = full.substring(0, full.length() - 1);
+					addWithRendaku(readings, stem + GODAN_STEMS.charAt(ending),
+							CHANGE_COST);
+					if (full.endsWith("る") && stem.length() > dot) {
+						// ichidan verb
+						addWithRendaku(readings, stem, CHANGE_COST);
+					} else {
+						// stem already added
+					}
+				} else {
+					// not a verb
+				}
+			}
+		}
+		return new Candidates(readings);
+	}
+
+	/**
+	 * Add a reading and its rendaku variants, which cost one change more.
+	 */
+	private void addWithRendaku(Map<String, Integer> readings, String reading,
+			int cost) {
+		if (reading.isEmpty()) {
+			// nothing to read
+		} else {
+			add(readings, reading, cost);
+			JapCharacter first = JapCharacter.valueOf(reading.charAt(0));
+			String rest = reading.substring(1);
+			JapCharacter tenten = factory.transform(first, KanaVariant.TENTEN);
+			if (tenten != null && !tenten.equals(first)) {
+				add(readings, tenten.toChar() + rest, cost + CHANGE_COST);
+			} else {
+				// no voiced variant
+			}
+			JapCharacter maru = factory.transform(first, KanaVariant.MARU);
+			if (maru != null && !maru.equals(first)) {
+				add(readings, maru.toChar() + rest, cost + CHANGE_COST);
+			} else {
+				// no semi-voiced variant
+			}
+		}
+	}
+
+	private static void add(Map<String, Integer> readings, String reading,
+			int cost) {
+		Integer known = readings.get(reading);
+		if (known == null || known > cost) {
+			readings.put(reading, cost);
+		} else {
+			// already cheaper
+		}
+	}
+}
@@ -10,11 +10,25 @@ import fr.vergne.japdict.util.StringUtil;
  * through its {@link KanaVariant}). Various methods are provided to retrieve
  * these characteristics.
  * 
- * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * @author Matthieu Vergne &lt;matthieu.vergne@gmail.com&gt;
  * 
  */
 public class JapCharacter {
 
+	private static final KanaVariant[] VARIANTS = KanaVariant.values();
+	private static final KanaType[] TYPES = KanaType.values();
+	/**
+	 * The {@link JapCharacter}s of the kanas, shared by
+	 * {@link #valueOf(char)}.
+	 */
+	private static final JapCharacter[] KANAS = new JapCharacter[KanaFlags.MAX
+			- KanaFlags.MIN + 1];
+	static {
+		for (int i = 0; i < KANAS.length; i++) {
+			KANAS[i] = new JapCharacter((char) (KanaFlags.MIN + i));
+		}
+	}
+
 	private final char character;
 
 	/**
@@ -26,6 +40,25 @@ public class JapCharacter {
 		this.character = character;
 	}
 
+	/**
+	 * Like {@link Character#valueOf(char)}, this method provides a shared
+	 * instance for the most used characters, here the kanas, so it should be
+	 * preferred to the constructor to avoid creating objects in intensive
+	 * processing.
+	 * 
+	 * @param character
+	 *            the character to consider as a {@link JapCharacter}
+	 * @return the {@link JapCharacter} of this character
+	 */
+	public static JapCharacter valueOf(char character) {
+		int index = character - KanaFlags.MIN;
+		if (index >= 0 && index < KANAS.length) {
+			return KANAS[index];
+		} else {
+			return new JapCharacter(character);
+		}
+	}
+
 	/**
 	 * 
 	 * @return the <code>char</code> corresponding to this {@link JapCharacter}
@@ -42,6 +75,27 @@ public class JapCharacter {
 	 *         given type and variant, <code>false</code> otherwise
 	 */
 	public boolean isKana(KanaType type, KanaVariant variant) {
+		return (getFlags() & KanaFlags.mask(type, variant)) != 0;
+	}
+
+	/**
+	 * 
+	 * @return the {@link KanaFlags} of this character, 0 if it is not a kana
+	 */
+	private int getFlags() {
+		int index = character - KanaFlags.MIN;
+		if (index >= 0 && index < KanaFlags.FLAGS.length) {
+			return KanaFlags.FLAGS[index];
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Definition of the kanas, used to compute {@link KanaFlags}.
+	 */
+	private static boolean isKana(char character, KanaType type,
+			KanaVariant variant) {
 		if (type == KanaType.HIRAGANA) {
 			if (variant == KanaVariant.NONE) {
 				return JapUnicode.HIRAGANAS_CLASSIC.contains(character)
@@ -54,10 +108,10 @@ public class JapCharacter {
 			} else if (variant == KanaVariant.MARU) {
 				return StringUtil.split("ぱぴぷぺぽ").contains(character);
 			} else if (variant == null) {
-				return isKana(type, KanaVariant.MARU)
-						|| isKana(type, KanaVariant.SMALL)
-						|| isKana(type, KanaVariant.TENTEN)
-						|| isKana(type, KanaVariant.NONE);
+				return isKana(character, type, KanaVariant.MARU)
+						|| isKana(character, type, KanaVariant.SMALL)
+						|| isKana(character, type, KanaVariant.TENTEN)
+						|| isKana(character, type, KanaVariant.NONE);
 			} else {
 				throw new RuntimeException("Unmanaged hiragana variant: "
 						+ variant);
@@ -74,22 +128,64 @@ public class JapCharacter {
 			} else if (variant == KanaVariant.MARU) {
 				return StringUtil.split("パピプペポ").contains(character);
 			} else if (variant == null) {
-				return isKana(type, KanaVariant.MARU)
-						|| isKana(type, KanaVariant.SMALL)
-						|| isKana(type, KanaVariant.TENTEN)
-						|| isKana(type, KanaVariant.NONE);
+				return isKana(character, type, KanaVariant.MARU)
+						|| isKana(character, type, KanaVariant.SMALL)
+						|| isKana(character, type, KanaVariant.TENTEN)
+						|| isKana(character, type, KanaVariant.NONE);
 			} else {
 				throw new RuntimeException("Unmanaged katakana variant: "
 						+ variant);
 			}
 		} else if (type == null) {
-			return isKana(KanaType.HIRAGANA, variant)
-					|| isKana(KanaType.KATAKANA, variant);
+			return isKana(character, KanaType.HIRAGANA, variant)
+					|| isKana(character, KanaType.KATAKANA, variant);
 		} else {
 			throw new RuntimeException("Unmanaged type: " + type);
 		}
 	}
 
+	/**
+	 * The kinds of kana of each character from {@link #MIN} to {@link #MAX},
+	 * which covers all the kanas, so classifying a character is a single table
+	 * access. Each kind has its own bit, the 4 lowest bits being for the
+	 * {@link KanaVariant}s of the hiraganas and the 4 next ones for the
+	 * katakanas.
+	 */
+	private static class KanaFlags {
+		static final char MIN = JapUnicode.HIRAGANA_MIN;
+		static final char MAX = JapUnicode.KATAKANA_MAX;
+		static final byte[] FLAGS = new byte[MAX - MIN + 1];
+		static {
+			for (int i = 0; i < FLAGS.length; i++) {
+				int flags = 0;
+				for (KanaType type : KanaType.values()) {
+					for (KanaVariant variant : KanaVariant.values()) {
+						if (isKana((char) (MIN + i), type, variant)) {
+							flags |= mask(type, variant);
+						} else {
+							// not of this kind
+						}
+					}
+				}
+				FLAGS[i] = (byte) flags;
+			}
+		}
+
+		/**
+		 * 
+		 * @return the bits of the given kinds of kana, <code>null</code>
+		 *         meaning any type or any variant
+		 */
+		static int mask(KanaType type, KanaVariant variant) {
+			int variants = variant == null ? 0xF : 1 << variant.ordinal();
+			if (type == null) {
+				return variants | variants << 4;
+			} else {
+				return variants << 4 * type.ordinal();
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param type
@@ -137,7 +233,7 @@ public class JapCharacter {
 	 *         {@link JapCharacter} if it is a kana, <code>null</code> otherwise
 	 */
 	public KanaVariant getKanaVariant() {
-		for (KanaVariant variant : KanaVariant.values()) {
+		for (KanaVariant variant : VARIANTS) {
 			if (isKana(variant)) {
 				return variant;
 			} else {
@@ -153,7 +249,7 @@ public class JapCharacter {
 	 *         kana, <code>null</code> otherwise
 	 */
 	public KanaType getKanaType() {
-		for (KanaType type : KanaType.values()) {
+		for (KanaType type : TYPES) {
 			if (isKana(type)) {
 				return type;
 			} else {
@@ -15,10 +15,12 @@ public class JapUnicode {
 	public static final char KATAKANA_AINU_MAX = '\u31FF';
 	public static final char KANJI_RARE_MIN = '\u3400';
 	public static final char KANJI_RARE_MAX = '\u4DB5';
-	public static final char KANJI_MIN = '\u4E01';
+	public static final char KANJI_MIN = '\u4E00';
 	public static final char KANJI_MAX = '\u9FAF';
 	public static final char KATAKANA_HALF_MIN = '\uFF65';
 	public static final char KATAKANA_HALF_MAX = '\uFF9F';
+	public static final int KANJI_COUNT = (KANJI_RARE_MAX - KANJI_RARE_MIN + 1)
+			+ (KANJI_MAX - KANJI_MIN + 1);
 
 	public static final List<Character> HIRAGANAS_CLASSIC = Collections
 			.unmodifiableList(StringUtil
@@ -30,4 +32,43 @@ public class JapUnicode {
 					.split("アイウエオカキクケコサシスセソタチツテトナニヌネノハヒフヘホマミムメモヤユヨラリルレロワヲン"));
 	public static final List<Character> KATAKANAS_OLD = Collections
 			.unmodifiableList(StringUtil.split("ヰヱ"));
+
+	/**
+	 * The kanjis of the {@link #KANJI_RARE_MIN}-{@link #KANJI_RARE_MAX} and
+	 * {@link #KANJI_MIN}-{@link #KANJI_MAX} ranges are numbered from 0 to
+	 * {@link #KANJI_COUNT} (excluded), in the order of their codes. This dense
+	 * index allows to store data about kanjis in plain arrays.
+	 * 
+	 * @param character
+	 *            the character to index
+	 * @return the index of the kanji, -1 if the character is not a kanji
+	 */
+	public static int getKanjiIndex(char character) {
+		if (character >= KANJI_RARE_MIN && character <= KANJI_RARE_MAX) {
+			return character - KANJI_RARE_MIN;
+		} else if (character >= KANJI_MIN && character <= KANJI_MAX) {
+			return character - KANJI_MIN + KANJI_RARE_MAX - KANJI_RARE_MIN + 1;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * 
+	 * @param index
+	 *            the index of a kanji, as returned by
+	 *            {@link #getKanjiIndex(char)}
+	 * @return the kanji having this index
+	 */
+	public static char getKanji(int index) {
+		int rareCount = KANJI_RARE_MAX - KANJI_RARE_MIN + 1;
+		if (index < 0 || index >= KANJI_COUNT) {
+			throw new IndexOutOfBoundsException("No kanji " + index + " in "
+					+ KANJI_COUNT);
+		} else if (index < rareCount) {
+			return (char) (KANJI_RARE_MIN + index);
+		} else {
+			return (char) (KANJI_MIN + index - rareCount);
+		}
+	}
 }
@@ -0,0 +1,365 @@
+package fr.vergne.japdict.jap;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * A {@link KanaCollator} orders texts like a Japanese dictionary, in the
+ * gojūon order (あいうえお, かきくけこ, ...) whatever the script of the kanas.
+ * Texts are compared on three levels, each level being considered only if
+ * the previous ones are equal:
+ * <ol>
+ * <li>primary: the base kanas, obtained by removing the {@link KanaVariant}
+ * of each kana (e.g. が and ガ are considered as か), the prolonged sound mark
+ * ー counting as the vowel of the previous kana (e.g. カー as かあ)</li>
+ * <li>secondary: the {@link KanaVariant}s, small kanas first, then the normal
+ * ones, the ones with tenten, the ones with maru and finally the prolonged
+ * sound marks</li>
+ * <li>tertiary: the {@link KanaType}s, hiraganas first</li>
+ * </ol>
+ * The characters which are not kanas come after the kanas, in the order of
+ * their codes.<br/>
+ * <br/>
+ * Rather than comparing the texts each time, a {@link KanaCollator} computes
+ * their sort keys with {@link #getSortKey(String)}: binary strings which
+ * compare like the texts with a plain byte comparison (see
+ * {@link #compareKeys(byte[], byte[])}). Sorting many texts is thus better
+ * done by computing their keys once, which is what {@link #sort(String[])}
+ * does before sorting them with a radix sort.
+ */
+public class KanaCollator implements Comparator<String> {
+
+	/**
+	 * The base kanas in gojūon order, the old kanas ゐ and ゑ taking their
+	 * traditional place in the w row.
+	 */
+	private static final String GOJUON = "あいうえおかきくけこさしすせそたちつてとなにぬねのはひふへほまみむめもやゆよらりるれろわゐゑをん";
+	/**
+	 * The vowel of each kana of {@link #GOJUON}, as the index of the
+	 * corresponding vowel kana, -1 for ん.
+	 */
+	private static final int[] VOWELS = { 0, 1, 2, 3, 4, 0, 1, 2, 3, 4, 0, 1,
+			2, 3, 4, 0, 1, 2, 3, 4, 0, 1, 2, 3, 4, 0, 1, 2, 3, 4, 0, 1, 2, 3,
+			4, 0, 2, 4, 0, 1, 2, 3, 4, 0, 1, 3, 4, -1 };
+	private static final char PROLONGED_SOUND_MARK = 'ー';
+
+	/**
+	 * Separates the levels of a key, lower than any weight.
+	 */
+	private static final byte LEVEL_SEPARATOR = 1;
+	/**
+	 * First primary weight of the kanas, the next ones following the
+	 * {@link #GOJUON} order.
+	 */
+	private static final int KANA_PRIMARY = 0x10;
+	/**
+	 * First byte of the primary weights of the other characters, which take 3
+	 * bytes to keep the order of their codes, all above the kanas.
+	 */
+	private static final int OTHER_PRIMARY = 0x80;
+
+	private static final byte SMALL = 2;
+	private static final byte NONE = 3;
+	private static final byte TENTEN = 4;
+	private static final byte MARU = 5;
+	private static final byte PROLONGED = 6;
+
+	private static final byte HIRAGANA = 2;
+	private static final byte KATAKANA = 3;
+	private static final byte OTHER = 4;
+
+	/**
+	 * Radix sort partitions smaller than this are sorted by insertion.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * The index in {@link #GOJUON} of the base of each character from
+	 * {@link #MIN} to {@link #MAX}, -1 if it is not a kana.
+	 */
+	private static final byte[] BASES;
+	private static final byte[] SECONDARIES;
+	private static final byte[] TERTIARIES;
+	private static final char MIN = JapUnicode.HIRAGANA_MIN;
+	private static final char MAX = JapUnicode.KATAKANA_MAX;
+	static {
+		KanaFactory factory = new KanaFactory();
+		int size = MAX - MIN + 1;
+		BASES = new byte[size];
+		SECONDARIES = new byte[size];
+		TERTIARIES = new byte[size];
+		for (int i = 0; i < size; i++) {
+			JapCharacter character = JapCharacter.valueOf((char) (MIN + i));
+			KanaVariant variant = character.getKanaVariant();
+			if (variant == null) {
+				BASES[i] = -1;
+			} else {
+				JapCharacter base = factory.transform(factory.transform(
+						character, KanaVariant.NONE), KanaType.HIRAGANA);
+				BASES[i] = (byte) GOJUON.indexOf(base.toChar());
+				if (variant == KanaVariant.SMALL) {
+					SECONDARIES[i] = SMALL;
+				} else if (variant == KanaVariant.NONE) {
+					SECONDARIES[i] = NONE;
+				} else if (variant == KanaVariant.TENTEN) {
+					SECONDARIES[i] = TENTEN;
+				} else if (variant == KanaVariant.MARU) {
+					SECONDARIES[i] = MARU;
+				} else {
+					throw new RuntimeException("Unmanaged variant: " + variant);
+				}
+				if (character.getKanaType() == KanaType.HIRAGANA) {
+					TERTIARIES[i] = HIRAGANA;
+				} else {
+					TERTIARIES[i] = KATAKANA;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to compute the key of
+	 * @return the sort key of the text: two texts compare like their keys do
+	 *         with {@link #compareKeys(byte[], byte[])}
+	 */
+	public byte[] getSortKey(String text) {
+		int length = text.length();
+		int primaryLength = 0;
+		for (int i = 0; i < length; i++) {
+			primaryLength += getBase(text.charAt(i)) < 0
+					&& !isProlonged(text, i) ? 3 : 1;
+		}
+
+		byte[] key = new byte[primaryLength + 2 * length + 2];
+		int primary = 0;
+		int secondary = primaryLength + 1;
+		int tertiary = secondary + length + 1;
+		key[primary + primaryLength] = LEVEL_SEPARATOR;
+		key[secondary + length] = LEVEL_SEPARATOR;
+		for (int i = 0; i < length; i++) {
+			char character = text.charAt(i);
+			int base = getBase(character);
+			if (base >= 0) {
+				key[primary++] = (byte) (KANA_PRIMARY + base);
+				key[secondary++] = SECONDARIES[character - MIN];
+				key[tertiary++] = TERTIARIES[character - MIN];
+			} else if (isProlonged(text, i)) {
+				int vowel = VOWELS[getBase(text.charAt(i - 1))];
+				key[primary++] = (byte) (KANA_PRIMARY + vowel);
+				key[secondary++] = PROLONGED;
+				key[tertiary++] = OTHER;
+			} else {
+				key[primary++] = (byte) (OTHER_PRIMARY | character >>> 14);
+				key[primary++] = (byte) (character >>> 7 & 0x7F);
+				key[primary++] = (byte) (character & 0x7F);
+				key[secondary++] = NONE;
+				key[tertiary++] = OTHER;
+			}
+		}
+		return key;
+	}
+
+	private static int getBase(char character) {
+		int index = character - MIN;
+		return index >= 0 && index < BASES.length ? BASES[index] : -1;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the character at this index is a prolonged
+	 *         sound mark following a kana having a vowel, so it is weighted as
+	 *         this vowel
+	 */
+	private static boolean isProlonged(String text, int index) {
+		if (index == 0 || text.charAt(index) != PROLONGED_SOUND_MARK) {
+			return false;
+		} else {
+			int previous = getBase(text.charAt(index - 1));
+			return previous >= 0 && VOWELS[previous] >= 0;
+		}
+	}
+
+	/**
+	 * Compare two sort keys byte per byte, as unsigned values.
+	 * 
+	 * @param key1
+	 *            the first sort key
+	 * @param key2
+	 *            the second sort key
+	 * @return a negative number, zero or a positive number if the first key is
+	 *         respectively lower than, equal to or greater than the second one
+	 */
+	public static int compareKeys(byte[] key1, byte[] key2) {
+		int length = Math.min(key1.length, key2.length);
+		for (int i = 0; i < length; i++) {
+			int difference = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			} else {
+				// continue with next byte
+			}
+		}
+		return key1.length - key2.length;
+	}
+
+	/**
+	 * Comparing two texts computes their keys, so when the same texts are
+	 * compared several times, like when sorting, it is better to compute their
+	 * keys once with {@link #getSortKey(String)}, or to use
+	 * {@link #sort(String[])}.
+	 */
+	@Override
+	public int compare(String text1, String text2) {
+		return compareKeys(getSortKey(text1), getSortKey(text2));
+	}
+
+	/**
+	 * Sort texts in the order of this {@link KanaCollator}.
+	 * 
+	 * @param texts
+	 *            the texts to sort
+	 */
+	public void sort(String[] texts) {
+		byte[][] keys = new byte[texts.length][];
+		for (int i = 0; i < texts.length; i++) {
+			keys[i] = getSortKey(texts[i]);
+		}
+		sort(keys, texts);
+	}
+
+	/**
+	 * Sort texts in the order of this {@link KanaCollator}.
+	 * 
+	 * @param texts
+	 *            the texts to sort
+	 */
+	public void sort(List<String> texts) {
+		String[] array = texts.toArray(new String[texts.size()]);
+		sort(array);
+		ListIterator<String> iterator = texts.listIterator();
+		for (String text : array) {
+			iterator.next();
+			iterator.set(text);
+		}
+	}
+
+	/**
+	 * Sort sort keys with a most significant digit radix sort, which reads each
+	 * byte of the keys a constant number of times instead of comparing whole
+	 * keys again and again. The values associated to the keys are reordered
+	 * the same way. The sort is stable.
+	 * 
+	 * @param keys
+	 *            the keys to sort
+	 * @param values
+	 *            the values of the keys, at the same indexes, or
+	 *            <code>null</code> if there is none
+	 */
+	public static void sort(byte[][] keys, Object[] values) {
+		if (values != null && values.length != keys.length) {
+			throw new IllegalArgumentException(keys.length + " keys for "
+					+ values.length + " values");
+		} else {
+			byte[][] keysBuffer = new byte[keys.length][];
+			Object[] valuesBuffer = values == null ? null
+					: new Object[values.length];
+			radixSort(keys, values, 0, keys.length, 0, keysBuffer,
+					valuesBuffer);
+		}
+	}
+
+	/**
+	 * Sort the keys from <code>from</code> (included) to <code>to</code>
+	 * (excluded), which all have the same bytes before <code>depth</code>.
+	 */
+	private static void radixSort(byte[][] keys, Object[] values, int from,
+			int to, int depth, byte[][] keysBuffer, Object[] valuesBuffer) {
+		if (to - from < INSERTION_SORT_THRESHOLD) {
+			insertionSort(keys, values, from, to, depth);
+		} else {
+			// bucket 0 for the keys ending before depth, then 1 per byte
+			int[] counts = new int[258];
+			for (int i = from; i < to; i++) {
+				counts[digit(keys[i], depth) + 2]++;
+			}
+			for (int bucket = 0; bucket < 257; bucket++) {
+				counts[bucket + 1] += counts[bucket];
+			}
+			for (int i = from; i < to; i++) {
+				int position = counts[digit(keys[i], depth) + 1]++;
+				keysBuffer[position] = keys[i];
+				if (values != null) {
+					valuesBuffer[position] = values[i];
+				} else {
+					// no value to move
+				}
+			}
+			System.arraycopy(keysBuffer, 0, keys, from, to - from);
+			if (values != null) {
+				System.arraycopy(valuesBuffer, 0, values, from, to - from);
+			} else {
+				// no value to move
+			}
+			// counts[bucket] is now the end of the bucket
+			for (int bucket = 1; bucket < 257; bucket++) {
+				int start = from + counts[bucket - 1];
+				int end = from + counts[bucket];
+				if (end - start > 1) {
+					radixSort(keys, values, start, end, depth + 1, keysBuffer,
+							valuesBuffer);
+				} else {
+					// nothing to sort
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the byte of the key at this depth, as an unsigned value, or -1 if
+	 *         the key is shorter
+	 */
+	private static int digit(byte[] key, int depth) {
+		return depth < key.length ? key[depth] & 0xFF : -1;
+	}
+
+	private static void insertionSort(byte[][] keys, Object[] values,
+			int from, int to, int depth) {
+		for (int i = from + 1; i < to; i++) {
+			byte[] key = keys[i];
+			Object value = values == null ? null : values[i];
+			int j = i;
+			while (j > from && compareKeys(keys[j - 1], key, depth) > 0) {
+				keys[j] = keys[j - 1];
+				if (values != null) {
+					values[j] = values[j - 1];
+				} else {
+					// no value to move
+				}
+				j--;
+			}
+			keys[j] = key;
+			if (values != null) {
+				values[j] = value;
+			} else {
+				// no value to move
+			}
+		}
+	}
+
+	private static int compareKeys(byte[] key1, byte[] key2, int depth) {
+		int length = Math.min(key1.length, key2.length);
+		for (int i = depth; i < length; i++) {
+			int difference = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			} else {
+				// continue with next byte
+			}
+		}
+		return key1.length - key2.length;
+	}
+}
@@ -2,6 +2,10 @@ package fr.vergne.japdict.jap;
 
 import java.util.List;
 
+import fr.vergne.japdict.metrics.Events;
+import fr.vergne.japdict.metrics.Metric;
+import fr.vergne.japdict.metrics.Metrics;
+
 public class KanaFactory {
 
 	/**
@@ -119,6 +123,10 @@ public class KanaFactory {
 	 * <li>ょ ョ +yo</li>
 	 * <li>ゎ ヮ +wa</li>
 	 * </ul>
+	 * <br/>
+	 * The romajis of single kanas of the other {@link RomajiScheme}s are also
+	 * accepted, like ti, tu, zi, di and du for ち, つ, じ, ぢ and づ, or xa,
+	 * la, xtu and ltu for ぁ and っ.
 	 * 
 	 * @param romaji
 	 *            the romaji writing of the kana
@@ -129,6 +137,20 @@ public class KanaFactory {
 	 */
 	public JapCharacter createFromRomaji(final String romaji,
 			final KanaType type) {
+		long start = Metrics.start();
+		try {
+			return parseRomaji(romaji, type);
+		} catch (IllegalArgumentException e) {
+			Metrics.increment(Metric.ROMAJI_REJECTION);
+			Events.romajiFailure(romaji, type == null ? null : type.name(),
+					e.getMessage());
+			throw e;
+		} finally {
+			Metrics.stop(Metric.ROMAJI_CONVERSION, start);
+		}
+	}
+
+	private JapCharacter parseRomaji(final String romaji, final KanaType type) {
 		if (romaji == null) {
 			throw new NullPointerException("No romaji provided");
 		} else if (romaji.isEmpty()) {
@@ -136,159 +158,60 @@ public class KanaFactory {
 		} else if (type == null) {
 			throw new NullPointerException("No type provided");
 		} else {
-			KanaVariant variant;
-			char[] characters = romaji.toLowerCase().toCharArray();
-			if (characters[0] == '+') {
-				variant = KanaVariant.SMALL;
-				characters[0] = ' ';
-			} else if (characters[0] == 'p') {
-				variant = KanaVariant.MARU;
-				characters[0] = 'h';
-			} else if (characters[0] == 'v') {
-				variant = KanaVariant.TENTEN;
-				characters[0] = ' ';
-			} else if (characters[0] == 'g') {
-				variant = KanaVariant.TENTEN;
-				characters[0] = 'k';
-			} else if (characters[0] == 'z' || characters[0] == 'j') {
-				variant = KanaVariant.TENTEN;
-				characters[0] = 's';
-			} else if (characters[0] == 'd') {
-				variant = KanaVariant.TENTEN;
-				characters[0] = 't';
-			} else if (characters[0] == 'b') {
-				variant = KanaVariant.TENTEN;
-				characters[0] = 'h';
-			} else {
-				variant = KanaVariant.NONE;
-			}
-
-			String base = new String(characters).replaceAll(" ", "");
-			base = base.equals("tji") ? "chi" : base;
-			base = base.equals("si") ? "shi" : base;
-			base = base.equals("tzu") ? "tsu" : base;
-			char code;
-			if (base.equals("a")) {
-				code = 'あ';
-			} else if (base.equals("i")) {
-				code = 'い';
-			} else if (base.equals("u")) {
-				code = 'う';
-			} else if (base.equals("e")) {
-				code = 'え';
-			} else if (base.equals("o")) {
-				code = 'お';
-			} else if (base.equals("ka")) {
-				code = 'か';
-			} else if (base.equals("ki")) {
-				code = 'き';
-			} else if (base.equals("ku")) {
-				code = 'く';
-			} else if (base.equals("ke")) {
-				code = 'け';
-			} else if (base.equals("ko")) {
-				code = 'こ';
-			} else if (base.equals("sa")) {
-				code = 'さ';
-			} else if (base.equals("shi")) {
-				code = 'し';
-			} else if (base.equals("su")) {
-				code = 'す';
-			} else if (base.equals("se")) {
-				code = 'せ';
-			} else if (base.equals("so")) {
-				code = 'そ';
-			} else if (base.equals("ta")) {
-				code = 'た';
-			} else if (base.equals("chi")) {
-				code = 'ち';
-			} else if (base.equals("tsu")) {
-				code = 'つ';
-			} else if (base.equals("te")) {
-				code = 'て';
-			} else if (base.equals("to")) {
-				code = 'と';
-			} else if (base.equals("na")) {
-				code = 'な';
-			} else if (base.equals("ni")) {
-				code = 'に';
-			} else if (base.equals("nu")) {
-				code = 'ぬ';
-			} else if (base.equals("ne")) {
-				code = 'ね';
-			} else if (base.equals("no")) {
-				code = 'の';
-			} else if (base.equals("ha")) {
-				code = 'は';
-			} else if (base.equals("hi")) {
-				code = 'ひ';
-			} else if (base.equals("hu")) {
-				code = 'ふ';
-			} else if (base.equals("fu")) {
-				code = 'ふ';
-			} else if (base.equals("he")) {
-				code = 'へ';
-			} else if (base.equals("ho")) {
-				code = 'ほ';
-			} else if (base.equals("ma")) {
-				code = 'ま';
-			} else if (base.equals("mi")) {
-				code = 'み';
-			} else if (base.equals("mu")) {
-				code = 'む';
-			} else if (base.equals("me")) {
-				code = 'め';
-			} else if (base.equals("mo")) {
-				code = 'も';
-			} else if (base.equals("ya")) {
-				code = 'や';
-			} else if (base.equals("yu")) {
-				code = 'ゆ';
-			} else if (base.equals("yo")) {
-				code = 'よ';
-			} else if (base.equals("ra")) {
-				code = 'ら';
-			} else if (base.equals("ri")) {
-				code = 'り';
-			} else if (base.equals("ru")) {
-				code = 'る';
-			} else if (base.equals("re")) {
-				code = 'れ';
-			} else if (base.equals("ro")) {
-				code = 'ろ';
-			} else if (base.equals("wa")) {
-				code = 'わ';
-			} else if (base.equals("wo")) {
-				code = 'を';
-			} else if (base.equals("n")) {
-				code = 'ん';
-			} else if (base.equals("wi")) {
-				code = 'ゐ';
-			} else if (base.equals("we")) {
-				code = 'ゑ';
-			} else {
-				code = 0;
-			}
-			JapCharacter character = transform(new JapCharacter(code), type,
-					variant);
+			char code = Romajis.TRANSDUCER.convertSingle(romaji);
+			JapCharacter character = code == 0 ? null : transform(
+					JapCharacter.valueOf(code), type);
 			if (character == null) {
-				throw new IllegalArgumentException(base + " is not a valid "
-						+ type);
+				throw new IllegalArgumentException(romaji.toLowerCase()
+						+ " is not a valid " + type);
 			} else {
 				return character;
 			}
 		}
 	}
 
+	/**
+	 * Convert a romaji text into kanas, the romaji being the one of
+	 * {@link #createFromRomaji(String, KanaType)} or any of the
+	 * {@link RomajiScheme}s, and the syllables being combined as described in
+	 * {@link RomajiTransducer}.
+	 * 
+	 * @param romaji
+	 *            the romaji text (e.g. "kyōto", "kyouto" or "kyôto")
+	 * @param type
+	 *            the {@link KanaType} wanted
+	 * @return the kanas of the text
+	 * @throws IllegalArgumentException
+	 *             if some letters do not form a known romaji
+	 */
+	public String createFromRomajiText(final String romaji, final KanaType type) {
+		if (romaji == null) {
+			throw new NullPointerException("No romaji provided");
+		} else {
+			return Romajis.TRANSDUCER.convert(romaji, type);
+		}
+	}
+
+	/**
+	 * The {@link RomajiTransducer} understanding all the {@link RomajiScheme}s,
+	 * created when first needed.
+	 */
+	private static class Romajis {
+		static final RomajiTransducer TRANSDUCER = new RomajiTransducer(
+				RomajiScheme.values());
+	}
+
 	/**
 	 * 
 	 * @param character
 	 *            the {@link JapCharacter} to start from
 	 * @param variant
 	 *            the {@link KanaVariant} to apply
-	 * @return a new {@link JapCharacter} with the corresponding
+	 * @return the {@link JapCharacter} with the corresponding
 	 *         {@link KanaVariant}, <code>null</code> if no such
-	 *         {@link JapCharacter} exists
+	 *         {@link JapCharacter} exists. It is the given one if it already
+	 *         has this {@link KanaVariant}, otherwise the instance shared
+	 *         through {@link JapCharacter#valueOf(char)}.
 	 */
 	public JapCharacter transform(JapCharacter character, KanaVariant variant) {
 		if (variant == null) {
@@ -299,165 +222,165 @@ public class KanaFactory {
 			} else {
 				switch (character.toChar()) {
 				case 'ゔ':
-					return new JapCharacter('う');
+					return JapCharacter.valueOf('う');
 				case 'が':
-					return new JapCharacter('か');
+					return JapCharacter.valueOf('か');
 				case 'ぎ':
-					return new JapCharacter('き');
+					return JapCharacter.valueOf('き');
 				case 'ぐ':
-					return new JapCharacter('く');
+					return JapCharacter.valueOf('く');
 				case 'げ':
-					return new JapCharacter('け');
+					return JapCharacter.valueOf('け');
 				case 'ご':
-					return new JapCharacter('こ');
+					return JapCharacter.valueOf('こ');
 				case 'ざ':
-					return new JapCharacter('さ');
+					return JapCharacter.valueOf('さ');
 				case 'じ':
-					return new JapCharacter('し');
+					return JapCharacter.valueOf('し');
 				case 'ず':
-					return new JapCharacter('す');
+					return JapCharacter.valueOf('す');
 				case 'ぜ':
-					return new JapCharacter('せ');
+					return JapCharacter.valueOf('せ');
 				case 'ぞ':
-					return new JapCharacter('そ');
+					return JapCharacter.valueOf('そ');
 				case 'だ':
-					return new JapCharacter('た');
+					return JapCharacter.valueOf('た');
 				case 'ぢ':
-					return new JapCharacter('ち');
+					return JapCharacter.valueOf('ち');
 				case 'づ':
-					return new JapCharacter('つ');
+					return JapCharacter.valueOf('つ');
 				case 'で':
-					return new JapCharacter('て');
+					return JapCharacter.valueOf('て');
 				case 'ど':
-					return new JapCharacter('と');
+					return JapCharacter.valueOf('と');
 				case 'ば':
-					return new JapCharacter('は');
+					return JapCharacter.valueOf('は');
 				case 'び':
-					return new JapCharacter('ひ');
+					return JapCharacter.valueOf('ひ');
 				case 'ぶ':
-					return new JapCharacter('ふ');
+					return JapCharacter.valueOf('ふ');
 				case 'べ':
-					return new JapCharacter('へ');
+					return JapCharacter.valueOf('へ');
 				case 'ぼ':
-					return new JapCharacter('ほ');
+					return JapCharacter.valueOf('ほ');
 				case 'ぱ':
-					return new JapCharacter('は');
+					return JapCharacter.valueOf('は');
 				case 'ぴ':
-					return new JapCharacter('ひ');
+					return JapCharacter.valueOf('ひ');
 				case 'ぷ':
-					return new JapCharacter('ふ');
+					return JapCharacter.valueOf('ふ');
 				case 'ぺ':
-					return new JapCharacter('へ');
+					return JapCharacter.valueOf('へ');
 				case 'ぽ':
-					return new JapCharacter('ほ');
+					return JapCharacter.valueOf('ほ');
 				case 'ぁ':
-					return new JapCharacter('あ');
+					return JapCharacter.valueOf('あ');
 				case 'ぃ':
-					return new JapCharacter('い');
+					return JapCharacter.valueOf('い');
 				case 'ぅ':
-					return new JapCharacter('う');
+					return JapCharacter.valueOf('う');
 				case 'ぇ':
-					return new JapCharacter('え');
+					return JapCharacter.valueOf('え');
 				case 'ぉ':
-					return new JapCharacter('お');
+					return JapCharacter.valueOf('お');
 				case 'ゕ':
-					return new JapCharacter('か');
+					return JapCharacter.valueOf('か');
 				case 'ゖ':
-					return new JapCharacter('け');
+					return JapCharacter.valueOf('け');
 				case 'っ':
-					return new JapCharacter('つ');
+					return JapCharacter.valueOf('つ');
 				case 'ゃ':
-					return new JapCharacter('や');
+					return JapCharacter.valueOf('や');
 				case 'ゅ':
-					return new JapCharacter('ゆ');
+					return JapCharacter.valueOf('ゆ');
 				case 'ょ':
-					return new JapCharacter('よ');
+					return JapCharacter.valueOf('よ');
 				case 'ゎ':
-					return new JapCharacter('わ');
+					return JapCharacter.valueOf('わ');
 				case 'ヴ':
-					return new JapCharacter('ウ');
+					return JapCharacter.valueOf('ウ');
 				case 'ガ':
-					return new JapCharacter('カ');
+					return JapCharacter.valueOf('カ');
 				case 'ギ':
-					return new JapCharacter('キ');
+					return JapCharacter.valueOf('キ');
 				case 'グ':
-					return new JapCharacter('ク');
+					return JapCharacter.valueOf('ク');
 				case 'ゲ':
-					return new JapCharacter('ケ');
+					return JapCharacter.valueOf('ケ');
 				case 'ゴ':
-					return new JapCharacter('コ');
+					return JapCharacter.valueOf('コ');
 				case 'ザ':
-					return new JapCharacter('サ');
+					return JapCharacter.valueOf('サ');
 				case 'ジ':
-					return new JapCharacter('シ');
+					return JapCharacter.valueOf('シ');
 				case 'ズ':
-					return new JapCharacter('ス');
+					return JapCharacter.valueOf('ス');
 				case 'ゼ':
-					return new JapCharacter('セ');
+					return JapCharacter.valueOf('セ');
 				case 'ゾ':
-					return new JapCharacter('ソ');
+					return JapCharacter.valueOf('ソ');
 				case 'ダ':
-					return new JapCharacter('タ');
+					return JapCharacter.valueOf('タ');
 				case 'ヂ':
-					return new JapCharacter('チ');
+					return JapCharacter.valueOf('チ');
 				case 'ヅ':
-					return new JapCharacter('ツ');
+					return JapCharacter.valueOf('ツ');
 				case 'デ':
-					return new JapCharacter('テ');
+					return JapCharacter.valueOf('テ');
 				case 'ド':
-					return new JapCharacter('ト');
+					return JapCharacter.valueOf('ト');
 				case 'バ':
-					return new JapCharacter('ハ');
+					return JapCharacter.valueOf('ハ');
 				case 'ビ':
-					return new JapCharacter('ヒ');
+					return JapCharacter.valueOf('ヒ');
 				case 'ブ':
-					return new JapCharacter('フ');
+					return JapCharacter.valueOf('フ');
 				case 'ベ':
-					return new JapCharacter('ヘ');
+					return JapCharacter.valueOf('ヘ');
 				case 'ボ':
-					return new JapCharacter('ホ');
+					return JapCharacter.valueOf('ホ');
 				case 'ヷ':
-					return new JapCharacter('ワ');
+					return JapCharacter.valueOf('ワ');
 				case 'ヺ':
-					return new JapCharacter('ヲ');
+					return JapCharacter.valueOf('ヲ');
 				case 'ヸ':
-					return new JapCharacter('ヰ');
+					return JapCharacter.valueOf('ヰ');
 				case 'ヹ':
-					return new JapCharacter('ヱ');
+					return JapCharacter.valueOf('ヱ');
 				case 'パ':
-					return new JapCharacter('ハ');
+					return JapCharacter.valueOf('ハ');
 				case 'ピ':
-					return new JapCharacter('ヒ');
+					return JapCharacter.valueOf('ヒ');
 				case 'プ':
-					return new JapCharacter('フ');
+					return JapCharacter.valueOf('フ');
 				case 'ペ':
-					return new JapCharacter('ヘ');
+					return JapCharacter.valueOf('ヘ');
 				case 'ポ':
-					return new JapCharacter('ホ');
+					return JapCharacter.valueOf('ホ');
 				case 'ァ':
-					return new JapCharacter('ア');
+					return JapCharacter.valueOf('ア');
 				case 'ィ':
-					return new JapCharacter('イ');
+					return JapCharacter.valueOf('イ');
 				case 'ゥ':
-					return new JapCharacter('ウ');
+					return JapCharacter.valueOf('ウ');
 				case 'ェ':
-					return new JapCharacter('エ');
+					return JapCharacter.valueOf('エ');
 				case 'ォ':
-					return new JapCharacter('オ');
+					return JapCharacter.valueOf('オ');
 				case 'ヵ':
-					return new JapCharacter('カ');
+					return JapCharacter.valueOf('カ');
 				case 'ヶ':
-					return new JapCharacter('ケ');
+					return JapCharacter.valueOf('ケ');
 				case 'ッ':
-					return new JapCharacter('ツ');
+					return JapCharacter.valueOf('ツ');
 				case 'ャ':
-					return new JapCharacter('ヤ');
+					return JapCharacter.valueOf('ヤ');
 				case 'ュ':
-					return new JapCharacter('ユ');
+					return JapCharacter.valueOf('ユ');
 				case 'ョ':
-					return new JapCharacter('ヨ');
+					return JapCharacter.valueOf('ヨ');
 				case 'ヮ':
-					return new JapCharacter('ワ');
+					return JapCharacter.valueOf('ワ');
 				default:
 					return null;
 				}
@@ -475,97 +398,97 @@ public class KanaFactory {
 			} else {
 				switch (character.toChar()) {
 				case 'う':
-					return new JapCharacter('ゔ');
+					return JapCharacter.valueOf('ゔ');
 				case 'か':
-					return new JapCharacter('が');
+					return JapCharacter.valueOf('が');
 				case 'き':
-					return new JapCharacter('ぎ');
+					return JapCharacter.valueOf('ぎ');
 				case 'く':
-					return new JapCharacter('ぐ');
+					return JapCharacter.valueOf('ぐ');
 				case 'け':
-					return new JapCharacter('げ');
+					return JapCharacter.valueOf('げ');
 				case 'こ':
-					return new JapCharacter('ご');
+					return JapCharacter.valueOf('ご');
 				case 'さ':
-					return new JapCharacter('ざ');
+					return JapCharacter.valueOf('ざ');
 				case 'し':
-					return new JapCharacter('じ');
+					return JapCharacter.valueOf('じ');
 				case 'す':
-					return new JapCharacter('ず');
+					return JapCharacter.valueOf('ず');
 				case 'せ':
-					return new JapCharacter('ぜ');
+					return JapCharacter.valueOf('ぜ');
 				case 'そ':
-					return new JapCharacter('ぞ');
+					return JapCharacter.valueOf('ぞ');
 				case 'た':
-					return new JapCharacter('だ');
+					return JapCharacter.valueOf('だ');
 				case 'ち':
-					return new JapCharacter('ぢ');
+					return JapCharacter.valueOf('ぢ');
 				case 'つ':
-					return new JapCharacter('づ');
+					return JapCharacter.valueOf('づ');
 				case 'て':
-					return new JapCharacter('で');
+					return JapCharacter.valueOf('で');
 				case 'と':
-					return new JapCharacter('ど');
+					return JapCharacter.valueOf('ど');
 				case 'は':
-					return new JapCharacter('ば');
+					return JapCharacter.valueOf('ば');
 				case 'ひ':
-					return new JapCharacter('び');
+					return JapCharacter.valueOf('び');
 				case 'ふ':
-					return new JapCharacter('ぶ');
+					return JapCharacter.valueOf('ぶ');
 				case 'へ':
-					return new JapCharacter('べ');
+					return JapCharacter.valueOf('べ');
 				case 'ほ':
-					return new JapCharacter('ぼ');
+					return JapCharacter.valueOf('ぼ');
 				case 'ウ':
-					return new JapCharacter('ヴ');
+					return JapCharacter.valueOf('ヴ');
 				case 'カ':
-					return new JapCharacter('ガ');
+					return JapCharacter.valueOf('ガ');
 				case 'キ':
-					return new JapCharacter('ギ');
+					return JapCharacter.valueOf('ギ');
 				case 'ク':
-					return new JapCharacter('グ');
+					return JapCharacter.valueOf('グ');
 				case 'ケ':
-					return new JapCharacter('ゲ');
+					return JapCharacter.valueOf('ゲ');
 				case 'コ':
-					return new JapCharacter('ゴ');
+					return JapCharacter.valueOf('ゴ');
 				case 'サ':
-					return new JapCharacter('ザ');
+					return JapCharacter.valueOf('ザ');
 				case 'シ':
-					return new JapCharacter('ジ');
+					return JapCharacter.valueOf('ジ');
 				case 'ス':
-					return new JapCharacter('ズ');
+					return JapCharacter.valueOf('ズ');
 				case 'セ':
-					return new JapCharacter('ゼ');
+					return JapCharacter.valueOf('ゼ');
 				case 'ソ':
-					return new JapCharacter('ゾ');
+					return JapCharacter.valueOf('ゾ');
 				case 'タ':
-					return new JapCharacter('ダ');
+					return JapCharacter.valueOf('ダ');
 				case 'チ':
-					return new JapCharacter('ヂ');
+					return JapCharacter.valueOf('ヂ');
 				case 'ツ':
-					return new JapCharacter('ヅ');
+					return JapCharacter.valueOf('ヅ');
 				case 'テ':
-					return new JapCharacter('デ');
+					return JapCharacter.valueOf('デ');
 				case 'ト':
-					return new JapCharacter('ド');
+					return JapCharacter.valueOf('ド');
 				case 'ハ':
-					return new JapCharacter('バ');
+					return JapCharacter.valueOf('バ');
 				case 'ヒ':
-					return new JapCharacter('ビ');
+					return JapCharacter.valueOf('ビ');
 				case 'フ':
-					return new JapCharacter('ブ');
+					return JapCharacter.valueOf('ブ');
 				case 'ヘ':
-					return new JapCharacter('ベ');
+					return JapCharacter.valueOf('ベ');
 				case 'ホ':
-					return new JapCharacter('ボ');
+					return JapCharacter.valueOf('ボ');
 				case 'ワ':
-					return new JapCharacter('ヷ');
+					return JapCharacter.valueOf('ヷ');
 				case 'ヲ':
-					return new JapCharacter('ヺ');
+					return JapCharacter.valueOf('ヺ');
 				case 'ヰ':
-					return new JapCharacter('ヸ');
+					return JapCharacter.valueOf('ヸ');
 				case 'ヱ':
-					return new JapCharacter('ヹ');
+					return JapCharacter.valueOf('ヹ');
 				default:
 					return null;
 				}
@@ -583,25 +506,25 @@ public class KanaFactory {
 			} else {
 				switch (character.toChar()) {
 				case 'は':
-					return new JapCharacter('ぱ');
+					return JapCharacter.valueOf('ぱ');
 				case 'ひ':
-					return new JapCharacter('ぴ');
+					return JapCharacter.valueOf('ぴ');
 				case 'ふ':
-					return new JapCharacter('ぷ');
+					return JapCharacter.valueOf('ぷ');
 				case 'へ':
-					return new JapCharacter('ぺ');
+					return JapCharacter.valueOf('ぺ');
 				case 'ほ':
-					return new JapCharacter('ぽ');
+					return JapCharacter.valueOf('ぽ');
 				case 'ハ':
-					return new JapCharacter('パ');
+					return JapCharacter.valueOf('パ');
 				case 'ヒ':
-					return new JapCharacter('ピ');
+					return JapCharacter.valueOf('ピ');
 				case 'フ':
-					return new JapCharacter('プ');
+					return JapCharacter.valueOf('プ');
 				case 'ヘ':
-					return new JapCharacter('ペ');
+					return JapCharacter.valueOf('ペ');
 				case 'ホ':
-					return new JapCharacter('ポ');
+					return JapCharacter.valueOf('ポ');
 				default:
 					return null;
 				}
@@ -619,53 +542,53 @@ public class KanaFactory {
 			} else {
 				switch (character.toChar()) {
 				case 'あ':
-					return new JapCharacter('ぁ');
+					return JapCharacter.valueOf('ぁ');
 				case 'い':
-					return new JapCharacter('ぃ');
+					return JapCharacter.valueOf('ぃ');
 				case 'う':
-					return new JapCharacter('ぅ');
+					return JapCharacter.valueOf('ぅ');
 				case 'え':
-					return new JapCharacter('ぇ');
+					return JapCharacter.valueOf('ぇ');
 				case 'お':
-					return new JapCharacter('ぉ');
+					return JapCharacter.valueOf('ぉ');
 				case 'か':
-					return new JapCharacter('ゕ');
+					return JapCharacter.valueOf('ゕ');
 				case 'け':
-					return new JapCharacter('ゖ');
+					return JapCharacter.valueOf('ゖ');
 				case 'つ':
-					return new JapCharacter('っ');
+					return JapCharacter.valueOf('っ');
 				case 'や':
-					return new JapCharacter('ゃ');
+					return JapCharacter.valueOf('ゃ');
 				case 'ゆ':
-					return new JapCharacter('ゅ');
+					return JapCharacter.valueOf('ゅ');
 				case 'よ':
-					return new JapCharacter('ょ');
+					return JapCharacter.valueOf('ょ');
 				case 'わ':
-					return new JapCharacter('ゎ');
+					return JapCharacter.valueOf('ゎ');
 				case 'ア':
-					return new JapCharacter('ァ');
+					return JapCharacter.valueOf('ァ');
 				case 'イ':
-					return new JapCharacter('ィ');
+					return JapCharacter.valueOf('ィ');
 				case 'ウ':
-					return new JapCharacter('ゥ');
+					return JapCharacter.valueOf('ゥ');
 				case 'エ':
-					return new JapCharacter('ェ');
+					return JapCharacter.valueOf('ェ');
 				case 'オ':
-					return new JapCharacter('ォ');
+					return JapCharacter.valueOf('ォ');
 				case 'カ':
-					return new JapCharacter('ヵ');
+					return JapCharacter.valueOf('ヵ');
 				case 'ケ':
-					return new JapCharacter('ヶ');
+					return JapCharacter.valueOf('ヶ');
 				case 'ツ':
-					return new JapCharacter('ッ');
+					return JapCharacter.valueOf('ッ');
 				case 'ヤ':
-					return new JapCharacter('ャ');
+					return JapCharacter.valueOf('ャ');
 				case 'ユ':
-					return new JapCharacter('ュ');
+					return JapCharacter.valueOf('ュ');
 				case 'ヨ':
-					return new JapCharacter('ョ');
+					return JapCharacter.valueOf('ョ');
 				case 'ワ':
-					return new JapCharacter('ヮ');
+					return JapCharacter.valueOf('ヮ');
 				default:
 					return null;
 				}
@@ -681,11 +604,27 @@ public class KanaFactory {
 	 *            the {@link JapCharacter} to start from
 	 * @param newType
 	 *            the {@link KanaType} to apply
-	 * @return a new {@link JapCharacter} with the corresponding
+	 * @return the {@link JapCharacter} with the corresponding
 	 *         {@link KanaType}, <code>null</code> if no such
-	 *         {@link JapCharacter} exists
+	 *         {@link JapCharacter} exists. It is the instance shared through
+	 *         {@link JapCharacter#valueOf(char)}.
 	 */
 	public JapCharacter transform(JapCharacter character, KanaType newType) {
+		char[] table = KanaTables.get(newType);
+		int index = character.toChar() - KanaTables.MIN;
+		if (index >= 0 && index < table.length && table[index] != 0) {
+			return JapCharacter.valueOf(table[index]);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Definition of {@link #transform(JapCharacter, KanaType)}, used to
+	 * compute {@link KanaTables}.
+	 */
+	private JapCharacter computeTransform(JapCharacter character,
+			KanaType newType) {
 		KanaVariant oldVariant = character.getKanaVariant();
 		if (oldVariant == null) {
 			return null;// not a kana
@@ -743,9 +682,10 @@ public class KanaFactory {
 	 *            the {@link KanaType} to apply
 	 * @param variant
 	 *            the {@link KanaVariant} to apply
-	 * @return a new {@link JapCharacter} with the corresponding
+	 * @return the {@link JapCharacter} with the corresponding
 	 *         {@link KanaType} and {@link KanaVariant}, <code>null</code> if
-	 *         there is no such {@link JapCharacter} exists
+	 *         no such {@link JapCharacter} exists. It is the instance shared
+	 *         through {@link JapCharacter#valueOf(char)}.
 	 */
 	public JapCharacter transform(JapCharacter character, KanaType type,
 			KanaVariant variant) {
@@ -761,4 +701,79 @@ public class KanaFactory {
 			}
 		}
 	}
+
+	/**
+	 * Transform all the kanas of a text into the given {@link KanaType}, like
+	 * {@link #transform(JapCharacter, KanaType)} would do for each of them. The
+	 * characters having no counterpart in this {@link KanaType} (e.g. ヷ for
+	 * hiraganas) and the characters which are not kanas are kept as is.
+	 * 
+	 * @param text
+	 *            the text to transform
+	 * @param type
+	 *            the {@link KanaType} to apply
+	 * @return the transformed text
+	 */
+	public String transform(String text, KanaType type) {
+		if (type == null) {
+			throw new NullPointerException("No type provided");
+		} else {
+			long start = Metrics.start();
+			Object event = Events.beginConversion();
+			char[] table = KanaTables.get(type);
+			char[] characters = text.toCharArray();
+			for (int i = 0; i < characters.length; i++) {
+				int index = characters[i] - KanaTables.MIN;
+				if (index >= 0 && index < table.length && table[index] != 0) {
+					characters[i] = table[index];
+				} else {
+					// not a kana or no counterpart
+				}
+			}
+			String result = new String(characters);
+			Metrics.stop(Metric.KANA_CONVERSION, start);
+			Events.commitConversion(event, text.length(), result.length(),
+					type.name());
+			return result;
+		}
+	}
+
+	/**
+	 * Conversion tables computed once from
+	 * {@link KanaFactory#computeTransform(JapCharacter, KanaType)}, covering
+	 * all the hiraganas and katakanas.
+	 */
+	static class KanaTables {
+		static final char MIN = JapUnicode.HIRAGANA_MIN;
+		static final char MAX = JapUnicode.KATAKANA_MAX;
+		private static final char[] TO_HIRAGANA = create(KanaType.HIRAGANA);
+		private static final char[] TO_KATAKANA = create(KanaType.KATAKANA);
+
+		private static char[] create(KanaType type) {
+			KanaFactory factory = new KanaFactory();
+			char[] table = new char[MAX - MIN + 1];
+			for (int i = 0; i < table.length; i++) {
+				char character = (char) (MIN + i);
+				JapCharacter transformed = factory.computeTransform(
+						new JapCharacter(character), type);
+				table[i] = transformed == null ? 0 : transformed.toChar();
+			}
+			return table;
+		}
+
+		/**
+		 * 
+		 * @return the table giving, for each character from {@link #MIN} to
+		 *         {@link #MAX}, its counterpart in the given type or 0 if
+		 *         there is none, which must not be modified
+		 */
+		static char[] get(KanaType type) {
+			if (type == KanaType.HIRAGANA) {
+				return TO_HIRAGANA;
+			} else {
+				// like computeTransform, katakanas for any other type
+				return TO_KATAKANA;
+			}
+		}
+	}
 }
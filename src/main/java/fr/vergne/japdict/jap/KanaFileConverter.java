@@ -0,0 +1,369 @@
+package fr.vergne.japdict.jap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A {@link KanaFileConverter} converts text files of any size with a constant
+ * memory: the bytes are read from a channel into a direct buffer, decoded into
+ * a {@link CharBuffer} reused from a chunk to the next, converted in place
+ * through a table giving the result of each char, then encoded directly into
+ * another direct buffer written to the output channel. No {@link String} is
+ * created, whatever the size of the file or of its lines.<br/>
+ * <br/>
+ * The {@link Conversion}s are the ones which never produce more chars than
+ * they read, so they can be applied in place. The romanization of kanas has
+ * no such bound, and is thus not provided here.
+ */
+public class KanaFileConverter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char VOICED_MARK = 'ﾞ';
+	private static final char SEMI_VOICED_MARK = 'ﾟ';
+
+	/**
+	 * A conversion applied to each char of a file.
+	 */
+	public static enum Conversion {
+		/**
+		 * The kanas are converted into hiraganas, like
+		 * {@link KanaFactory#transform(String, KanaType)} does.
+		 */
+		HIRAGANA,
+		/**
+		 * The kanas are converted into katakanas, like
+		 * {@link KanaFactory#transform(String, KanaType)} does.
+		 */
+		KATAKANA,
+		/**
+		 * The full-width ASCII chars (e.g. Ａ, ！) and the ideographic space are
+		 * converted into their ASCII counterpart, and the half-width katakanas
+		 * (e.g. ｶﾞ) into full-width katakanas (ガ), the voiced marks being
+		 * combined with the previous katakana when possible.
+		 */
+		WIDTH
+	}
+
+	private final Conversion conversion;
+	private final Charset charset;
+	private final int bufferSize;
+	private final char min;
+	private final char[] table;
+
+	/**
+	 * 
+	 * @param conversion
+	 *            the {@link Conversion} to apply
+	 * @param charset
+	 *            the {@link Charset} of the input and output files
+	 */
+	public KanaFileConverter(Conversion conversion, Charset charset) {
+		this(conversion, charset, BUFFER_SIZE);
+	}
+
+	KanaFileConverter(Conversion conversion, Charset charset, int bufferSize) {
+		if (conversion == null) {
+			throw new NullPointerException("No conversion provided");
+		} else if (charset == null) {
+			throw new NullPointerException("No charset provided");
+		} else if (bufferSize < 4) {
+			throw new IllegalArgumentException("Invalid buffer size: "
+					+ bufferSize);
+		} else {
+			this.conversion = conversion;
+			this.charset = charset;
+			this.bufferSize = bufferSize;
+			if (conversion == Conversion.WIDTH) {
+				this.min = Widths.MIN;
+				this.table = Widths.TABLE;
+			} else {
+				this.min = KanaFactory.KanaTables.MIN;
+				this.table = KanaFactory.KanaTables
+						.get(conversion == Conversion.HIRAGANA ? KanaType.HIRAGANA
+								: KanaType.KATAKANA);
+			}
+		}
+	}
+
+	/**
+	 * The tables of {@link Conversion#WIDTH}.
+	 */
+	private static class Widths {
+		static final char MIN = '　';
+		static final char MAX = 'ﾟ';
+		static final char[] TABLE = new char[MAX - MIN + 1];
+		static final char HALF_MIN = '｡';
+		static final String HALF_KATAKANAS = "｡｢｣､･ｦｧｨｩｪｫｬｭｮｯｰｱｲｳｴｵｶｷｸｹｺｻｼｽｾｿﾀﾁﾂﾃﾄﾅﾆﾇﾈﾉﾊﾋﾌﾍﾎﾏﾐﾑﾒﾓﾔﾕﾖﾗﾘﾙﾚﾛﾜﾝﾞﾟ";
+		static final String FULL_KATAKANAS = "。「」、・ヲァィゥェォャュョッーアイウエオカキクケコサシスセソタチツテトナニヌネノハヒフヘホマミムメモヤユヨラリルレロワン゛゜";
+		/**
+		 * The voiced and semi-voiced versions of each half-width katakana, 0
+		 * if there is none.
+		 */
+		static final char[] VOICED = new char[HALF_KATAKANAS.length()];
+		static final char[] SEMI_VOICED = new char[HALF_KATAKANAS.length()];
+		static {
+			TABLE[0] = ' ';
+			for (char c = '！'; c <= '～'; c++) {
+				TABLE[c - MIN] = (char) (c - '！' + '!');
+			}
+			KanaFactory factory = new KanaFactory();
+			for (int i = 0; i < HALF_KATAKANAS.length(); i++) {
+				char full = FULL_KATAKANAS.charAt(i);
+				TABLE[HALF_KATAKANAS.charAt(i) - MIN] = full;
+				VOICED[i] = toChar(factory.transform(JapCharacter.valueOf(full),
+						KanaVariant.TENTEN));
+				SEMI_VOICED[i] = toChar(factory.transform(
+						JapCharacter.valueOf(full), KanaVariant.MARU));
+			}
+		}
+
+		private static char toChar(JapCharacter character) {
+			return character == null ? 0 : character.toChar();
+		}
+	}
+
+	/**
+	 * 
+	 * @return the {@link Conversion} applied
+	 */
+	public Conversion getConversion() {
+		return conversion;
+	}
+
+	/**
+	 * Convert a file into another one, replacing any existing file.
+	 * 
+	 * @param input
+	 *            the file to convert
+	 * @param output
+	 *            the file to write
+	 * @throws IOException
+	 *             if a file cannot be read or written, or is not valid in the
+	 *             {@link Charset} of this {@link KanaFileConverter}
+	 */
+	public void convert(File input, File output) throws IOException {
+		try (FileInputStream in = new FileInputStream(input);
+				FileOutputStream out = new FileOutputStream(output)) {
+			FileChannel outputChannel = out.getChannel();
+			convert(in.getChannel(), outputChannel);
+			outputChannel.force(false);
+		}
+	}
+
+	/**
+	 * Convert the bytes of a channel into another one. The channels are not
+	 * closed.
+	 * 
+	 * @param input
+	 *            the channel to read
+	 * @param output
+	 *            the channel to write
+	 * @throws IOException
+	 *             if a channel cannot be read or written, or its bytes are not
+	 *             valid in the {@link Charset} of this
+	 *             {@link KanaFileConverter}
+	 */
+	public void convert(ReadableByteChannel input, WritableByteChannel output)
+			throws IOException {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		ByteBuffer bytesIn = ByteBuffer.allocateDirect(bufferSize);
+		CharBuffer chars = CharBuffer.allocate(bufferSize);
+		ByteBuffer bytesOut = ByteBuffer.allocateDirect((int) Math
+				.ceil(bufferSize * encoder.maxBytesPerChar()));
+		char[] array = chars.array();
+
+		boolean endOfInput = false;
+		boolean lastChunk = false;
+		while (!lastChunk) {
+			if (!endOfInput) {
+				endOfInput = input.read(bytesIn) < 0;
+			} else {
+				// only the remaining bytes to decode
+			}
+			bytesIn.flip();
+			CoderResult result = decoder.decode(bytesIn, chars, endOfInput);
+			check(result);
+			if (endOfInput && result.isUnderflow()) {
+				result = decoder.flush(chars);
+				check(result);
+				lastChunk = result.isUnderflow();
+			} else {
+				// more to decode
+			}
+			bytesIn.compact();
+
+			int length = chars.position();
+			int ready = length;
+			if (!lastChunk && length > 0 && mayCombine(array[length - 1])) {
+				// wait for the next chunk to know if a mark follows
+				ready--;
+			} else {
+				// all can be converted
+			}
+			int converted = convert(array, ready);
+			int pending = length - ready;
+			if (pending > 0) {
+				array[converted] = array[ready];
+			} else {
+				// nothing kept
+			}
+
+			chars.position(0);
+			chars.limit(converted);
+			encode(encoder, chars, bytesOut, output, lastChunk);
+			chars.limit(converted + pending);
+			// keeps an incomplete surrogate pair and the pending char
+			chars.compact();
+		}
+		while (encoder.flush(bytesOut) == CoderResult.OVERFLOW) {
+			drain(bytesOut, output);
+		}
+		drain(bytesOut, output);
+	}
+
+	private boolean mayCombine(char character) {
+		if (conversion == Conversion.WIDTH && character >= Widths.HALF_MIN
+				&& character <= JapUnicode.KATAKANA_HALF_MAX) {
+			int half = character - Widths.HALF_MIN;
+			return Widths.VOICED[half] != 0 || Widths.SEMI_VOICED[half] != 0;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Convert the chars in place.
+	 * 
+	 * @return the number of chars once converted
+	 */
+	private int convert(char[] chars, int length) {
+		if (conversion != Conversion.WIDTH) {
+			for (int i = 0; i < length; i++) {
+				int index = chars[i] - min;
+				if (index >= 0 && index < table.length && table[index] != 0) {
+					chars[i] = table[index];
+				} else {
+					// not a kana or no counterpart
+				}
+			}
+			return length;
+		} else {
+			int written = 0;
+			for (int i = 0; i < length; i++) {
+				char character = chars[i];
+				int index = character - min;
+				if (index >= 0 && index < table.length && table[index] != 0) {
+					char combined = 0;
+					if (character >= Widths.HALF_MIN && i + 1 < length) {
+						int half = character - Widths.HALF_MIN;
+						if (chars[i + 1] == VOICED_MARK) {
+							combined = Widths.VOICED[half];
+						} else if (chars[i + 1] == SEMI_VOICED_MARK) {
+							combined = Widths.SEMI_VOICED[half];
+						} else {
+							// no mark
+						}
+					} else {
+						// nothing to combine
+					}
+					if (combined != 0) {
+						chars[written++] = combined;
+						i++;
+					} else {
+						chars[written++] = table[index];
+					}
+				} else {
+					chars[written++] = character;
+				}
+			}
+			return written;
+		}
+	}
+
+	private static void encode(CharsetEncoder encoder, CharBuffer chars,
+			ByteBuffer bytes, WritableByteChannel output, boolean endOfInput)
+			throws IOException {
+		CoderResult result;
+		while ((result = encoder.encode(chars, bytes, endOfInput)) == CoderResult.OVERFLOW) {
+			drain(bytes, output);
+		}
+		check(result);
+	}
+
+	private static void drain(ByteBuffer bytes, WritableByteChannel output)
+			throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			output.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	private static void check(CoderResult result)
+			throws CharacterCodingException {
+		if (result.isError()) {
+			result.throwException();
+		} else {
+			// underflow or overflow, managed by the caller
+		}
+	}
+
+	/**
+	 * Convert a file, or the standard input if the input is -, into a file,
+	 * or the standard output if the output is -.
+	 * 
+	 * @param args
+	 *            the {@link Conversion} (hiragana, katakana or width), the
+	 *            input, the output, then optionally the charset (UTF-8 by
+	 *            default)
+	 * @throws IOException
+	 *             if the input cannot be read or the output cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: " + KanaFileConverter.class.getName()
+					+ " <hiragana|katakana|width> <input|-> <output|-> [charset]");
+			System.exit(1);
+		} else {
+			Conversion conversion = Conversion.valueOf(args[0]
+					.toUpperCase(Locale.ROOT));
+			Charset charset = args.length > 3 ? Charset.forName(args[3])
+					: StandardCharsets.UTF_8;
+			KanaFileConverter converter = new KanaFileConverter(conversion,
+					charset);
+			if (!args[1].equals("-") && !args[2].equals("-")) {
+				converter.convert(new File(args[1]), new File(args[2]));
+			} else {
+				try (ReadableByteChannel input = args[1].equals("-") ? Channels
+						.newChannel(System.in) : new FileInputStream(args[1])
+						.getChannel();
+						WritableByteChannel output = args[2].equals("-") ? Channels
+								.newChannel(System.out) : new FileOutputStream(
+								args[2]).getChannel()) {
+					converter.convert(input, output);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package fr.vergne.japdict.jap;
+
+/**
+ * The numeric attributes stored by {@link KanjiMetadata}. For each of them, 0
+ * means that the value is unknown.
+ */
+public enum KanjiAttribute {
+	/**
+	 * The number of strokes needed to write the kanji.
+	 */
+	STROKE_COUNT,
+	/**
+	 * The school grade: 1 to 6 for the kyouiku kanjis, 8 for the remaining
+	 * jouyou kanjis, 9 and 10 for the jinmeiyou kanjis.
+	 */
+	GRADE,
+	/**
+	 * The level of the former JLPT, from 4 (easiest) to 1 (hardest).
+	 */
+	JLPT_LEVEL,
+	/**
+	 * The rank of the kanji among the most used ones, 1 being the most used.
+	 */
+	FREQUENCY
+}
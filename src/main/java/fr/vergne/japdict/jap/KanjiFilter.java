@@ -0,0 +1,87 @@
+package fr.vergne.japdict.jap;
+
+import java.util.Arrays;
+
+/**
+ * A {@link KanjiFilter} tells which values of each {@link KanjiAttribute} are
+ * accepted by {@link KanjiMetadata#search(KanjiFilter, KanjiAttribute)}. By
+ * default, every kanji is accepted. Once a range is given for an attribute,
+ * the kanjis having an unknown value for it are rejected.
+ */
+public class KanjiFilter {
+
+	private final int[] minimums = new int[KanjiAttribute.values().length];
+	private final int[] maximums = new int[KanjiAttribute.values().length];
+	private final boolean[] filtered = new boolean[KanjiAttribute.values().length];
+
+	/**
+	 * Accept only the kanjis having a value in the given range for the given
+	 * attribute, replacing any range previously given for it.
+	 * 
+	 * @param attribute
+	 *            the {@link KanjiAttribute} to filter
+	 * @param minimum
+	 *            the minimum value accepted
+	 * @param maximum
+	 *            the maximum value accepted
+	 * @return this {@link KanjiFilter}
+	 */
+	public KanjiFilter range(KanjiAttribute attribute, int minimum,
+			int maximum) {
+		if (attribute == null) {
+			throw new NullPointerException("No attribute provided");
+		} else if (minimum > maximum) {
+			throw new IllegalArgumentException("Empty range: " + minimum
+					+ " > " + maximum);
+		} else {
+			int index = attribute.ordinal();
+			minimums[index] = minimum;
+			maximums[index] = maximum;
+			filtered[index] = true;
+			return this;
+		}
+	}
+
+	/**
+	 * 
+	 * @param attribute
+	 *            the {@link KanjiAttribute} to filter
+	 * @param value
+	 *            the only value accepted
+	 * @return this {@link KanjiFilter}
+	 */
+	public KanjiFilter equal(KanjiAttribute attribute, int value) {
+		return range(attribute, value, value);
+	}
+
+	/**
+	 * Accept all the values of an attribute.
+	 * 
+	 * @param attribute
+	 *            the {@link KanjiAttribute} to stop filtering
+	 * @return this {@link KanjiFilter}
+	 */
+	public KanjiFilter clear(KanjiAttribute attribute) {
+		filtered[attribute.ordinal()] = false;
+		return this;
+	}
+
+	boolean isFiltered(KanjiAttribute attribute) {
+		return filtered[attribute.ordinal()];
+	}
+
+	int getMinimum(KanjiAttribute attribute) {
+		return minimums[attribute.ordinal()];
+	}
+
+	int getMaximum(KanjiAttribute attribute) {
+		return maximums[attribute.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		return "min=" + Arrays.toString(minimums) + " max="
+				+ Arrays.toString(maximums) + " on="
+				+ Arrays.toString(filtered);
+	}
+}
@@ -0,0 +1,390 @@
+package fr.vergne.japdict.jap;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * {@link KanjiMetadata} stores the data describing each kanji (stroke count,
+ * grade, JLPT level, frequency and readings) in a columnar way: each
+ * {@link KanjiAttribute} is a primitive array indexed by
+ * {@link JapUnicode#getKanjiIndex(char)}, and the readings are packed in a
+ * single <code>char[]</code> with the offsets of each kanji. Searching kanjis
+ * scans the columns of the filtered attributes one after the other, without
+ * creating any object per kanji.<br/>
+ * <br/>
+ * {@link KanjiMetadata} is immutable once loaded, so it can be shared between
+ * threads.
+ */
+public class KanjiMetadata {
+
+	private static final char READING_SEPARATOR = ' ';
+
+	private final byte[] strokeCounts;
+	private final byte[] grades;
+	private final byte[] jlptLevels;
+	private final short[] frequencies;
+	private final PackedStrings onReadings;
+	private final PackedStrings kunReadings;
+	/**
+	 * The indexes of the kanjis described, in increasing order.
+	 */
+	private final int[] described;
+
+	private KanjiMetadata(byte[] strokeCounts, byte[] grades,
+			byte[] jlptLevels, short[] frequencies, String[] onReadings,
+			String[] kunReadings, int[] described) {
+		this.strokeCounts = strokeCounts;
+		this.grades = grades;
+		this.jlptLevels = jlptLevels;
+		this.frequencies = frequencies;
+		this.onReadings = new PackedStrings(onReadings);
+		this.kunReadings = new PackedStrings(kunReadings);
+		this.described = described;
+	}
+
+	/**
+	 * A column of strings, packed in a single array.
+	 */
+	private static class PackedStrings {
+		private final char[] chars;
+		private final int[] offsets;
+
+		public PackedStrings(String[] strings) {
+			offsets = new int[strings.length + 1];
+			int length = 0;
+			for (int i = 0; i < strings.length; i++) {
+				offsets[i] = length;
+				length += strings[i] == null ? 0 : strings[i].length();
+			}
+			offsets[strings.length] = length;
+			chars = new char[length];
+			for (int i = 0; i < strings.length; i++) {
+				if (strings[i] != null) {
+					strings[i].getChars(0, strings[i].length(), chars,
+							offsets[i]);
+				} else {
+					// empty string
+				}
+			}
+		}
+
+		public List<String> split(int index) {
+			int start = offsets[index];
+			int end = offsets[index + 1];
+			if (start == end) {
+				return Collections.emptyList();
+			} else {
+				List<String> parts = new ArrayList<>();
+				int partStart = start;
+				for (int i = start; i <= end; i++) {
+					if (i == end || chars[i] == READING_SEPARATOR) {
+						parts.add(new String(chars, partStart, i - partStart));
+						partStart = i + 1;
+					} else {
+						// part continues
+					}
+				}
+				return Collections.unmodifiableList(parts);
+			}
+		}
+	}
+
+	/**
+	 * Load a KANJIDIC2 file, which can be gzipped if its name ends with
+	 * ".gz".
+	 * 
+	 * @param file
+	 *            the KANJIDIC2 file
+	 * @return the {@link KanjiMetadata} of the file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid KANJIDIC2 file
+	 */
+	public static KanjiMetadata load(File file) throws IOException {
+		try (InputStream stream = new BufferedInputStream(new FileInputStream(
+				file))) {
+			if (file.getName().endsWith(".gz")) {
+				return load(new GZIPInputStream(stream));
+			} else {
+				return load(stream);
+			}
+		}
+	}
+
+	/**
+	 * Load a KANJIDIC2 content. Only the first stroke count of each kanji is
+	 * considered, the next ones being common miscounts, and the readings kept
+	 * are the ja_on and ja_kun ones. The characters which are not kanjis
+	 * according to {@link JapUnicode#getKanjiIndex(char)} are ignored.
+	 * 
+	 * @param stream
+	 *            the KANJIDIC2 XML content
+	 * @return the {@link KanjiMetadata} of the content
+	 * @throws IOException
+	 *             if the content cannot be read or is not a valid KANJIDIC2
+	 */
+	public static KanjiMetadata load(InputStream stream) throws IOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				false);
+		String[] ons = new String[JapUnicode.KANJI_COUNT];
+		String[] kuns = new String[JapUnicode.KANJI_COUNT];
+		byte[] strokeCounts = new byte[JapUnicode.KANJI_COUNT];
+		byte[] grades = new byte[JapUnicode.KANJI_COUNT];
+		byte[] jlptLevels = new byte[JapUnicode.KANJI_COUNT];
+		short[] frequencies = new short[JapUnicode.KANJI_COUNT];
+		boolean[] isDescribed = new boolean[JapUnicode.KANJI_COUNT];
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(stream);
+			int index = -1;
+			StringBuilder on = new StringBuilder();
+			StringBuilder kun = new StringBuilder();
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (name.equals("character")) {
+						index = -1;
+						on.setLength(0);
+						kun.setLength(0);
+					} else if (name.equals("literal")) {
+						String literal = reader.getElementText();
+						index = literal.length() == 1 ? JapUnicode
+								.getKanjiIndex(literal.charAt(0)) : -1;
+					} else if (index < 0) {
+						// ignore the data of unmanaged characters
+					} else if (name.equals("stroke_count")) {
+						int value = parse(reader.getElementText());
+						if (strokeCounts[index] == 0) {
+							strokeCounts[index] = (byte) value;
+						} else {
+							// miscount
+						}
+					} else if (name.equals("grade")) {
+						grades[index] = (byte) parse(reader.getElementText());
+					} else if (name.equals("jlpt")) {
+						jlptLevels[index] = (byte) parse(reader
+								.getElementText());
+					} else if (name.equals("freq")) {
+						frequencies[index] = (short) Math.min(
+								Short.MAX_VALUE,
+								parse(reader.getElementText()));
+					} else if (name.equals("reading")) {
+						String type = reader.getAttributeValue(null, "r_type");
+						String reading = reader.getElementText().trim();
+						if ("ja_on".equals(type)) {
+							append(on, reading);
+						} else if ("ja_kun".equals(type)) {
+							append(kun, reading);
+						} else {
+							// other language
+						}
+					} else {
+						// unmanaged data
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& reader.getLocalName().equals("character")
+						&& index >= 0) {
+					isDescribed[index] = true;
+					ons[index] = on.length() == 0 ? null : on.toString();
+					kuns[index] = kun.length() == 0 ? null : kun.toString();
+				} else {
+					// nothing to read
+				}
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Invalid KANJIDIC2 content", e);
+		}
+
+		int count = 0;
+		int[] described = new int[JapUnicode.KANJI_COUNT];
+		for (int index = 0; index < isDescribed.length; index++) {
+			if (isDescribed[index]) {
+				described[count++] = index;
+			} else {
+				// no data for this kanji
+			}
+		}
+		return new KanjiMetadata(strokeCounts, grades, jlptLevels,
+				frequencies, ons, kuns, Arrays.copyOf(described, count));
+	}
+
+	private static int parse(String text) throws IOException {
+		try {
+			return Integer.parseInt(text.trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid number: " + text, e);
+		}
+	}
+
+	private static void append(StringBuilder builder, String reading) {
+		if (builder.length() > 0) {
+			builder.append(READING_SEPARATOR);
+		} else {
+			// first reading
+		}
+		builder.append(reading);
+	}
+
+	/**
+	 * 
+	 * @return the number of kanjis described
+	 */
+	public int size() {
+		return described.length;
+	}
+
+	/**
+	 * 
+	 * @param kanji
+	 *            a kanji
+	 * @return <code>true</code> if this kanji is described
+	 */
+	public boolean contains(char kanji) {
+		int index = JapUnicode.getKanjiIndex(kanji);
+		return index >= 0 && Arrays.binarySearch(described, index) >= 0;
+	}
+
+	/**
+	 * 
+	 * @param kanji
+	 *            a kanji
+	 * @param attribute
+	 *            the {@link KanjiAttribute} to retrieve
+	 * @return the value of the attribute for this kanji, 0 if unknown
+	 */
+	public int get(char kanji, KanjiAttribute attribute) {
+		int index = JapUnicode.getKanjiIndex(kanji);
+		return index < 0 ? 0 : get(index, attribute);
+	}
+
+	private int get(int index, KanjiAttribute attribute) {
+		switch (attribute) {
+		case STROKE_COUNT:
+			return strokeCounts[index];
+		case GRADE:
+			return grades[index];
+		case JLPT_LEVEL:
+			return jlptLevels[index];
+		case FREQUENCY:
+			return frequencies[index];
+		default:
+			throw new RuntimeException("Unmanaged attribute: " + attribute);
+		}
+	}
+
+	/**
+	 * 
+	 * @param kanji
+	 *            a kanji
+	 * @return the on readings (in katakanas) of the kanji
+	 */
+	public List<String> getOnReadings(char kanji) {
+		int index = JapUnicode.getKanjiIndex(kanji);
+		return index < 0 ? Collections.<String> emptyList() : onReadings
+				.split(index);
+	}
+
+	/**
+	 * 
+	 * @param kanji
+	 *            a kanji
+	 * @return the kun readings (in hiraganas) of the kanji, where '.'
+	 *         separates the okurigana and '-' marks prefixes and suffixes
+	 */
+	public List<String> getKunReadings(char kanji) {
+		int index = JapUnicode.getKanjiIndex(kanji);
+		return index < 0 ? Collections.<String> emptyList() : kunReadings
+				.split(index);
+	}
+
+	/**
+	 * Search the kanjis accepted by a {@link KanjiFilter}.
+	 * 
+	 * @param filter
+	 *            the {@link KanjiFilter} to apply
+	 * @param order
+	 *            the {@link KanjiAttribute} to sort the kanjis by, in
+	 *            increasing order and with unknown values last, or
+	 *            <code>null</code> to sort them by code
+	 * @return the kanjis accepted
+	 */
+	public char[] search(KanjiFilter filter, KanjiAttribute order) {
+		int[] matches = described.clone();
+		int count = matches.length;
+		for (KanjiAttribute attribute : KanjiAttribute.values()) {
+			if (filter.isFiltered(attribute)) {
+				count = filter(matches, count, attribute,
+						filter.getMinimum(attribute),
+						filter.getMaximum(attribute));
+			} else {
+				// all values accepted
+			}
+		}
+
+		char[] kanjis = new char[count];
+		if (order == null) {
+			for (int i = 0; i < count; i++) {
+				kanjis[i] = JapUnicode.getKanji(matches[i]);
+			}
+		} else {
+			long[] keys = new long[count];
+			for (int i = 0; i < count; i++) {
+				int value = get(matches[i], order);
+				long key = value == 0 ? Integer.MAX_VALUE : value;
+				keys[i] = key << 32 | matches[i];
+			}
+			Arrays.sort(keys);
+			for (int i = 0; i < count; i++) {
+				kanjis[i] = JapUnicode.getKanji((int) keys[i]);
+			}
+		}
+		return kanjis;
+	}
+
+	/**
+	 * Keep, at the start of the array, the indexes having a value in the
+	 * range, scanning only the column of the attribute.
+	 * 
+	 * @return the number of indexes kept
+	 */
+	private int filter(int[] indexes, int count, KanjiAttribute attribute,
+			int minimum, int maximum) {
+		int kept = 0;
+		if (attribute == KanjiAttribute.FREQUENCY) {
+			for (int i = 0; i < count; i++) {
+				int value = frequencies[indexes[i]];
+				if (value != 0 && value >= minimum && value <= maximum) {
+					indexes[kept++] = indexes[i];
+				} else {
+					// rejected
+				}
+			}
+		} else {
+			byte[] column = attribute == KanjiAttribute.STROKE_COUNT ? strokeCounts
+					: attribute == KanjiAttribute.GRADE ? grades : jlptLevels;
+			for (int i = 0; i < count; i++) {
+				int value = column[indexes[i]];
+				if (value != 0 && value >= minimum && value <= maximum) {
+					indexes[kept++] = indexes[i];
+				} else {
+					// rejected
+				}
+			}
+		}
+		return kept;
+	}
+}
@@ -0,0 +1,298 @@
+package fr.vergne.japdict.jap;
+
+/**
+ * A {@link MoraAnalyzer} splits readings into morae and syllables in a single
+ * pass:
+ * <ul>
+ * <li>each kana is a mora, except the small kanas of
+ * {@link KanaVariant#SMALL} (e.g. ゃ, ァ), which belong to the mora of the
+ * previous kana</li>
+ * <li>the small っ, the ん and the prolonged sound mark ー are morae of their
+ * own, as well as the iteration marks ゝ, ゞ, ヽ and ヾ</li>
+ * <li>a syllable is a mora followed by the っ, ん and ー morae which extend
+ * it (e.g. きょう: きょ, う; がっこう: がっ, こ, う; らーめん: らー, めん)</li>
+ * </ul>
+ * The characters which are not kanas (spaces, punctuations, etc.) are
+ * ignored. The small ゕ, ゖ, ヵ and ヶ, which are read like their normal
+ * version, are morae of their own.<br/>
+ * <br/>
+ * The characters are classified through a table computed once from
+ * {@link JapCharacter}, and the boundaries are stored in buffers reused from
+ * an analysis to the next, so analysing a reading does not allocate anything
+ * once the buffers are large enough. A {@link MoraAnalyzer} is thus not meant
+ * to be shared between threads: each thread should use its own. For counts
+ * only, the static methods need no buffer at all.
+ */
+public class MoraAnalyzer {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Not a kana, ignored.
+	 */
+	private static final byte IGNORED = 0;
+	/**
+	 * Starts a mora and a syllable.
+	 */
+	private static final byte MORA = 1;
+	/**
+	 * Belongs to the previous mora.
+	 */
+	private static final byte GLIDE = 2;
+	/**
+	 * Starts a mora extending the current syllable.
+	 */
+	private static final byte EXTENSION = 3;
+
+	private static final char MIN = JapUnicode.HIRAGANA_MIN;
+	private static final char MAX = 'ヿ';
+	private static final byte[] CLASSES = createClasses();
+
+	private int[] moraStarts = new int[INITIAL_CAPACITY];
+	private int[] moraEnds = new int[INITIAL_CAPACITY];
+	private int[] syllableMorae = new int[INITIAL_CAPACITY];
+	private int moraCount = 0;
+	private int syllableCount = 0;
+
+	private static byte[] createClasses() {
+		byte[] classes = new byte[MAX - MIN + 1];
+		for (char character = MIN; character <= MAX; character++) {
+			JapCharacter kana = JapCharacter.valueOf(character);
+			byte type;
+			if ("っッんンー".indexOf(character) >= 0) {
+				type = EXTENSION;
+			} else if ("ゕゖヵヶゝゞヽヾ".indexOf(character) >= 0) {
+				type = MORA;
+			} else if (kana.isKana(KanaVariant.SMALL)) {
+				type = GLIDE;
+			} else if (kana.isKana()) {
+				type = MORA;
+			} else {
+				type = IGNORED;
+			}
+			classes[character - MIN] = type;
+		}
+		return classes;
+	}
+
+	private static byte getClass(char character) {
+		return character < MIN || character > MAX ? IGNORED
+				: CLASSES[character - MIN];
+	}
+
+	/**
+	 * Split a text into morae and syllables, which can then be retrieved
+	 * through the getters until the next analysis.
+	 * 
+	 * @param text
+	 *            the text to analyse
+	 * @return the number of morae of the text
+	 */
+	public int analyze(CharSequence text) {
+		moraCount = 0;
+		syllableCount = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			byte type = getClass(text.charAt(i));
+			if (type == IGNORED) {
+				// not a kana
+			} else if (type == GLIDE && moraCount > 0) {
+				moraEnds[moraCount - 1] = i + 1;
+			} else {
+				if (moraCount == moraStarts.length) {
+					grow();
+				} else {
+					// enough space
+				}
+				if (type != EXTENSION || syllableCount == 0) {
+					syllableMorae[syllableCount++] = moraCount;
+				} else {
+					// extends the current syllable
+				}
+				moraStarts[moraCount] = i;
+				moraEnds[moraCount] = i + 1;
+				moraCount++;
+			}
+		}
+		return moraCount;
+	}
+
+	private void grow() {
+		int capacity = moraStarts.length * 2;
+		int[] starts = new int[capacity];
+		int[] ends = new int[capacity];
+		int[] syllables = new int[capacity];
+		System.arraycopy(moraStarts, 0, starts, 0, moraCount);
+		System.arraycopy(moraEnds, 0, ends, 0, moraCount);
+		System.arraycopy(syllableMorae, 0, syllables, 0, syllableCount);
+		moraStarts = starts;
+		moraEnds = ends;
+		syllableMorae = syllables;
+	}
+
+	/**
+	 * 
+	 * @return the number of morae found by the last analysis
+	 */
+	public int getMoraCount() {
+		return moraCount;
+	}
+
+	/**
+	 * 
+	 * @param mora
+	 *            the index of a mora of the last analysis
+	 * @return the offset of the first char of this mora
+	 */
+	public int getMoraStart(int mora) {
+		checkIndex(mora, moraCount);
+		return moraStarts[mora];
+	}
+
+	/**
+	 * 
+	 * @param mora
+	 *            the index of a mora of the last analysis
+	 * @return the offset following the last char of this mora
+	 */
+	public int getMoraEnd(int mora) {
+		checkIndex(mora, moraCount);
+		return moraEnds[mora];
+	}
+
+	/**
+	 * 
+	 * @return the number of syllables found by the last analysis
+	 */
+	public int getSyllableCount() {
+		return syllableCount;
+	}
+
+	/**
+	 * 
+	 * @param syllable
+	 *            the index of a syllable of the last analysis
+	 * @return the index of the first mora of this syllable
+	 */
+	public int getSyllableFirstMora(int syllable) {
+		checkIndex(syllable, syllableCount);
+		return syllableMorae[syllable];
+	}
+
+	/**
+	 * 
+	 * @param syllable
+	 *            the index of a syllable of the last analysis
+	 * @return the offset of the first char of this syllable
+	 */
+	public int getSyllableStart(int syllable) {
+		return moraStarts[getSyllableFirstMora(syllable)];
+	}
+
+	/**
+	 * 
+	 * @param syllable
+	 *            the index of a syllable of the last analysis
+	 * @return the offset following the last char of this syllable
+	 */
+	public int getSyllableEnd(int syllable) {
+		checkIndex(syllable, syllableCount);
+		int lastMora = syllable + 1 < syllableCount ? syllableMorae[syllable + 1]
+				- 1 : moraCount - 1;
+		return moraEnds[lastMora];
+	}
+
+	private static void checkIndex(int index, int count) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("No index " + index + " in "
+					+ count);
+		} else {
+			// valid index
+		}
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to analyse
+	 * @return the number of morae of the text
+	 */
+	public static int countMorae(CharSequence text) {
+		int count = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			byte type = getClass(text.charAt(i));
+			if (type == IGNORED || count > 0 && type == GLIDE) {
+				// no new mora
+			} else {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to analyse
+	 * @return the number of syllables of the text
+	 */
+	public static int countSyllables(CharSequence text) {
+		int count = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			byte type = getClass(text.charAt(i));
+			if (type == IGNORED || count > 0
+					&& (type == GLIDE || type == EXTENSION)) {
+				// no new syllable
+			} else {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count the morae and the syllables of many texts, each text being read
+	 * once for both counts.
+	 * 
+	 * @param texts
+	 *            the texts to analyse
+	 * @param moraCounts
+	 *            the array receiving the number of morae of each text, at
+	 *            least as long as the texts
+	 * @param syllableCounts
+	 *            the array receiving the number of syllables of each text, at
+	 *            least as long as the texts
+	 */
+	public static void count(CharSequence[] texts, int[] moraCounts,
+			int[] syllableCounts) {
+		if (moraCounts.length < texts.length
+				|| syllableCounts.length < texts.length) {
+			throw new IllegalArgumentException("Arrays smaller than the "
+					+ texts.length + " texts");
+		} else {
+			for (int t = 0; t < texts.length; t++) {
+				CharSequence text = texts[t];
+				int morae = 0;
+				int syllables = 0;
+				int length = text.length();
+				for (int i = 0; i < length; i++) {
+					byte type = getClass(text.charAt(i));
+					if (type == IGNORED || morae > 0 && type == GLIDE) {
+						// no new mora
+					} else {
+						morae++;
+						if (type == MORA || syllables == 0) {
+							syllables++;
+						} else {
+							// extends the current syllable
+						}
+					}
+				}
+				moraCounts[t] = morae;
+				syllableCounts[t] = syllables;
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package fr.vergne.japdict.jap;
+
+/**
+ * {@link PackedKana} encodes texts into bytes, each kana taking a single byte,
+ * to keep many readings in memory at a fraction of the size of their
+ * {@link String}s. The codes are:
+ * <ul>
+ * <li><code>0x00</code>: never used, so it can terminate an encoded text</li>
+ * <li><code>0x01</code> followed by the 2 bytes of the char: characters below
+ * the kana block</li>
+ * <li><code>0x02</code>-<code>0xC1</code>: the kana block
+ * <code>U+3040</code>-<code>U+30FF</code>, which contains the
+ * {@link JapUnicode#HIRAGANA_MIN}-{@link JapUnicode#HIRAGANA_MAX} and
+ * {@link JapUnicode#KATAKANA_MIN}-{@link JapUnicode#KATAKANA_MAX} ranges, the
+ * tenten and maru marks, the iteration marks and the prolonged sound mark</li>
+ * <li><code>0xC2</code> followed by the 2 bytes of the char: characters
+ * between the kana block and the half-width katakanas, including the
+ * kanjis</li>
+ * <li><code>0xC3</code>-<code>0xFD</code>: the half-width katakanas
+ * {@link JapUnicode#KATAKANA_HALF_MIN}-{@link JapUnicode#KATAKANA_HALF_MAX}</li>
+ * <li><code>0xFE</code> followed by the 2 bytes of the char: characters above
+ * the half-width katakanas</li>
+ * </ul>
+ * These codes are increasing with the chars they encode, and no code is the
+ * prefix of another. Consequently, encoded texts compare with a plain
+ * unsigned byte comparison like the texts with {@link String#compareTo(String)}
+ * (see {@link #compare(byte[], byte[])}), and a text starts with another if
+ * and only if its encoding starts with the encoding of the other (see
+ * {@link #startsWith(byte[], byte[])}). Indexes can thus keep their readings
+ * encoded and search them without decoding them.<br/>
+ * <br/>
+ * Packing the kanas below one byte each is not worth it: the sub-byte codes
+ * would break the byte comparison, while the readings are short enough for the
+ * array overhead to dominate.
+ */
+public class PackedKana {
+
+	private static final int LOW_ESCAPE = 0x01;
+	private static final int KANA_BLOCK_MIN = 0x3040;
+	private static final int KANA_BLOCK_MAX = 0x30FF;
+	private static final int KANA_CODE_MIN = 0x02;
+	private static final int MIDDLE_ESCAPE = 0xC2;
+	private static final int HALF_CODE_MIN = 0xC3;
+	private static final int HIGH_ESCAPE = 0xFE;
+
+	private PackedKana() {
+		// static methods only
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to encode
+	 * @return the number of bytes needed to encode it
+	 */
+	public static int getEncodedLength(CharSequence text) {
+		int length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			length += isEscaped(text.charAt(i)) ? 3 : 1;
+		}
+		return length;
+	}
+
+	private static boolean isEscaped(char character) {
+		return (character < KANA_BLOCK_MIN || character > KANA_BLOCK_MAX)
+				&& (character < JapUnicode.KATAKANA_HALF_MIN
+						|| character > JapUnicode.KATAKANA_HALF_MAX);
+	}
+
+	/**
+	 * 
+	 * @param text
+	 *            the text to encode
+	 * @return the encoded text
+	 */
+	public static byte[] encode(CharSequence text) {
+		byte[] bytes = new byte[getEncodedLength(text)];
+		encode(text, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * Encode a text into an existing array, for instance to encode many texts
+	 * in a single buffer.
+	 * 
+	 * @param text
+	 *            the text to encode
+	 * @param target
+	 *            the array to write in, with at least
+	 *            {@link #getEncodedLength(CharSequence)} bytes after the
+	 *            offset
+	 * @param offset
+	 *            the position of the first byte to write
+	 * @return the position following the last byte written
+	 */
+	public static int encode(CharSequence text, byte[] target, int offset) {
+		int position = offset;
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			if (character >= KANA_BLOCK_MIN && character <= KANA_BLOCK_MAX) {
+				target[position++] = (byte) (character - KANA_BLOCK_MIN
+						+ KANA_CODE_MIN);
+			} else if (character >= JapUnicode.KATAKANA_HALF_MIN
+					&& character <= JapUnicode.KATAKANA_HALF_MAX) {
+				target[position++] = (byte) (character
+						- JapUnicode.KATAKANA_HALF_MIN + HALF_CODE_MIN);
+			} else {
+				if (character < KANA_BLOCK_MIN) {
+					target[position++] = (byte) LOW_ESCAPE;
+				} else if (character < JapUnicode.KATAKANA_HALF_MIN) {
+					target[position++] = (byte) MIDDLE_ESCAPE;
+				} else {
+					target[position++] = (byte) HIGH_ESCAPE;
+				}
+				target[position++] = (byte) (character >>> 8);
+				target[position++] = (byte) character;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            the encoded text
+	 * @return the decoded text
+	 */
+	public static String decode(byte[] bytes) {
+		return decode(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            the array containing the encoded text
+	 * @param offset
+	 *            the position of the first byte of the encoded text
+	 * @param length
+	 *            the number of bytes of the encoded text
+	 * @return the decoded text
+	 */
+	public static String decode(byte[] bytes, int offset, int length) {
+		char[] chars = new char[length];
+		int count = 0;
+		int end = offset + length;
+		int position = offset;
+		while (position < end) {
+			int code = bytes[position++] & 0xFF;
+			if (code == LOW_ESCAPE || code == MIDDLE_ESCAPE
+					|| code == HIGH_ESCAPE) {
+				if (position + 2 > end) {
+					throw new IllegalArgumentException(
+							"Truncated escape at position " + (position - 1));
+				} else {
+					chars[count++] = (char) ((bytes[position] & 0xFF) << 8
+							| bytes[position + 1] & 0xFF);
+					position += 2;
+				}
+			} else if (code >= KANA_CODE_MIN && code < MIDDLE_ESCAPE) {
+				chars[count++] = (char) (code - KANA_CODE_MIN + KANA_BLOCK_MIN);
+			} else if (code >= HALF_CODE_MIN && code < HIGH_ESCAPE) {
+				chars[count++] = (char) (code - HALF_CODE_MIN
+						+ JapUnicode.KATAKANA_HALF_MIN);
+			} else {
+				throw new IllegalArgumentException("Invalid code " + code
+						+ " at position " + (position - 1));
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            an encoded text
+	 * @return the number of chars of the decoded text
+	 */
+	public static int getDecodedLength(byte[] bytes) {
+		int count = 0;
+		int position = 0;
+		while (position < bytes.length) {
+			int code = bytes[position] & 0xFF;
+			position += code == LOW_ESCAPE || code == MIDDLE_ESCAPE
+					|| code == HIGH_ESCAPE ? 3 : 1;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param bytes1
+	 *            an encoded text
+	 * @param bytes2
+	 *            another encoded text
+	 * @return the same sign than {@link String#compareTo(String)} on the
+	 *         decoded texts
+	 */
+	public static int compare(byte[] bytes1, byte[] bytes2) {
+		return compare(bytes1, 0, bytes1.length, bytes2, 0, bytes2.length);
+	}
+
+	/**
+	 * 
+	 * @param bytes1
+	 *            the array containing the first encoded text
+	 * @param offset1
+	 *            the position of the first encoded text
+	 * @param length1
+	 *            the number of bytes of the first encoded text
+	 * @param bytes2
+	 *            the array containing the second encoded text
+	 * @param offset2
+	 *            the position of the second encoded text
+	 * @param length2
+	 *            the number of bytes of the second encoded text
+	 * @return the same sign than {@link String#compareTo(String)} on the
+	 *         decoded texts
+	 */
+	public static int compare(byte[] bytes1, int offset1, int length1,
+			byte[] bytes2, int offset2, int length2) {
+		int length = Math.min(length1, length2);
+		for (int i = 0; i < length; i++) {
+			int difference = (bytes1[offset1 + i] & 0xFF)
+					- (bytes2[offset2 + i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			} else {
+				// continue
+			}
+		}
+		return length1 - length2;
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            an encoded text
+	 * @param prefix
+	 *            another encoded text
+	 * @return <code>true</code> if the decoded text starts with the decoded
+	 *         prefix, <code>false</code> otherwise
+	 */
+	public static boolean startsWith(byte[] bytes, byte[] prefix) {
+		return startsWith(bytes, 0, bytes.length, prefix);
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            the array containing an encoded text
+	 * @param offset
+	 *            the position of the encoded text
+	 * @param length
+	 *            the number of bytes of the encoded text
+	 * @param prefix
+	 *            another encoded text
+	 * @return <code>true</code> if the decoded text starts with the decoded
+	 *         prefix, <code>false</code> otherwise
+	 */
+	public static boolean startsWith(byte[] bytes, int offset, int length,
+			byte[] prefix) {
+		if (prefix.length > length) {
+			return false;
+		} else {
+			for (int i = 0; i < prefix.length; i++) {
+				if (bytes[offset + i] != prefix[i]) {
+					return false;
+				} else {
+					// continue
+				}
+			}
+			return true;
+		}
+	}
+}
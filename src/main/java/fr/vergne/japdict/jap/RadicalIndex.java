@@ -0,0 +1,219 @@
+package fr.vergne.japdict.jap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link RadicalIndex} tells which kanjis are made of which radicals, in
+ * order to find a kanji by picking its radicals. It is built from a
+ * KRADFILE-like file, where each line gives a kanji followed by its
+ * components:
+ * 
+ * <pre>
+ * # comment
+ * 亜 : ｜ 一 口
+ * </pre>
+ * 
+ * Kanjis are identified by their {@link JapUnicode#getKanjiIndex(char)}, so a
+ * set of kanjis is a bitset of {@link JapUnicode#KANJI_COUNT} bits stored in a
+ * <code>long[]</code>. The index stores one such bitset per radical, so
+ * restricting a set of kanjis to the ones having a given radical is a single
+ * AND over the words of the two bitsets. The searches themselves are done
+ * through {@link RadicalSearch}.
+ */
+public class RadicalIndex {
+
+	static final int WORDS = (JapUnicode.KANJI_COUNT + 63) / 64;
+
+	private final char[] radicals;
+	private final long[][] kanjisByRadical;
+	private final long[] kanjis;
+
+	private RadicalIndex(char[] radicals, long[][] kanjisByRadical,
+			long[] kanjis) {
+		this.radicals = radicals;
+		this.kanjisByRadical = kanjisByRadical;
+		this.kanjis = kanjis;
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            the KRADFILE to read
+	 * @param charset
+	 *            the {@link Charset} of the file (EUC-JP for the original
+	 *            KRADFILE, UTF-8 for kradfile-u)
+	 * @return the {@link RadicalIndex} of the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static RadicalIndex load(File file, Charset charset)
+			throws IOException {
+		try (Reader reader = new InputStreamReader(new FileInputStream(file),
+				charset)) {
+			return load(reader);
+		}
+	}
+
+	/**
+	 * Read a KRADFILE content. Lines starting with '#' are ignored, as well as
+	 * the lines describing characters which are not kanjis according to
+	 * {@link JapUnicode#getKanjiIndex(char)}.
+	 * 
+	 * @param reader
+	 *            the {@link Reader} providing the KRADFILE content
+	 * @return the {@link RadicalIndex} of the content
+	 * @throws IOException
+	 *             if the content cannot be read
+	 */
+	public static RadicalIndex load(Reader reader) throws IOException {
+		Map<Character, long[]> bitsets = new TreeMap<>();
+		long[] kanjis = new long[WORDS];
+		BufferedReader lines = new BufferedReader(reader);
+		String line;
+		while ((line = lines.readLine()) != null) {
+			line = line.trim();
+			int separator = line.indexOf(':');
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				// comment
+			} else if (separator < 0) {
+				throw new IOException("Invalid KRADFILE line: " + line);
+			} else {
+				String kanji = line.substring(0, separator).trim();
+				int index = kanji.length() == 1 ? JapUnicode
+						.getKanjiIndex(kanji.charAt(0)) : -1;
+				if (index < 0) {
+					// not a kanji we can index
+				} else {
+					set(kanjis, index);
+					for (String component : line.substring(separator + 1)
+							.trim().split("\\s+")) {
+						if (component.length() != 1) {
+							// no component or unmanaged one
+						} else {
+							Character radical = component.charAt(0);
+							long[] bitset = bitsets.get(radical);
+							if (bitset == null) {
+								bitset = new long[WORDS];
+								bitsets.put(radical, bitset);
+							} else {
+								// already known radical
+							}
+							set(bitset, index);
+						}
+					}
+				}
+			}
+		}
+
+		char[] radicals = new char[bitsets.size()];
+		long[][] kanjisByRadical = new long[bitsets.size()][];
+		int index = 0;
+		for (Map.Entry<Character, long[]> entry : bitsets.entrySet()) {
+			radicals[index] = entry.getKey();
+			kanjisByRadical[index] = entry.getValue();
+			index++;
+		}
+		return new RadicalIndex(radicals, kanjisByRadical, kanjis);
+	}
+
+	private static void set(long[] bitset, int index) {
+		bitset[index >>> 6] |= 1L << index;
+	}
+
+	static boolean isSet(long[] bitset, int index) {
+		return (bitset[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * 
+	 * @return all the radicals of this {@link RadicalIndex}, ordered by code
+	 */
+	public List<Character> getRadicals() {
+		List<Character> list = new ArrayList<>(radicals.length);
+		for (char radical : radicals) {
+			list.add(radical);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * 
+	 * @param kanji
+	 *            a kanji
+	 * @return the radicals of this kanji, ordered by code, or an empty list if
+	 *         the kanji is not indexed
+	 */
+	public List<Character> getRadicals(char kanji) {
+		int index = JapUnicode.getKanjiIndex(kanji);
+		List<Character> list = new ArrayList<>();
+		if (index < 0) {
+			// not a kanji
+		} else {
+			for (int r = 0; r < radicals.length; r++) {
+				if (isSet(kanjisByRadical[r], index)) {
+					list.add(radicals[r]);
+				} else {
+					// not a radical of this kanji
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 
+	 * @return a new {@link RadicalSearch} on this {@link RadicalIndex}, with no
+	 *         radical selected yet
+	 */
+	public RadicalSearch search() {
+		return new RadicalSearch(this);
+	}
+
+	/**
+	 * 
+	 * @param radical
+	 *            a radical
+	 * @return the position of the radical in {@link #getRadicals()}, or a
+	 *         negative number if it is not a radical of this index
+	 */
+	int getRadicalIndex(char radical) {
+		return Arrays.binarySearch(radicals, radical);
+	}
+
+	int getRadicalCount() {
+		return radicals.length;
+	}
+
+	char getRadical(int radicalIndex) {
+		return radicals[radicalIndex];
+	}
+
+	/**
+	 * 
+	 * @return the bitset of the kanjis having the radical, which must not be
+	 *         modified
+	 */
+	long[] getKanjis(int radicalIndex) {
+		return kanjisByRadical[radicalIndex];
+	}
+
+	/**
+	 * 
+	 * @return the bitset of all the indexed kanjis, which must not be modified
+	 */
+	long[] getKanjis() {
+		return kanjis;
+	}
+}
@@ -0,0 +1,183 @@
+package fr.vergne.japdict.jap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link RadicalSearch} is the state of a search of kanjis by radicals on a
+ * {@link RadicalIndex}: the radicals selected so far and the kanjis having all
+ * of them. Selecting a radical restricts the candidates with a single AND over
+ * the bitsets of the {@link RadicalIndex}, and the radicals which would leave
+ * no candidate can be obtained to disable them in a user interface.<br/>
+ * <br/>
+ * A {@link RadicalSearch} is not thread-safe: each user should have its own.
+ */
+public class RadicalSearch {
+
+	private final RadicalIndex index;
+	private final Set<Character> selected = new LinkedHashSet<>();
+	private final long[] candidates = new long[RadicalIndex.WORDS];
+	/**
+	 * The indexes of the non-empty words of {@link #candidates}, so only them
+	 * are checked when looking for available radicals.
+	 */
+	private final int[] words = new int[RadicalIndex.WORDS];
+	private int wordCount;
+
+	RadicalSearch(RadicalIndex index) {
+		this.index = index;
+		reset();
+	}
+
+	/**
+	 * 
+	 * @return the radicals selected so far, in the order they were selected
+	 */
+	public Set<Character> getSelectedRadicals() {
+		return Collections.unmodifiableSet(selected);
+	}
+
+	/**
+	 * Restrict the candidates to the kanjis having this radical.
+	 * 
+	 * @param radical
+	 *            the radical to select
+	 */
+	public void select(char radical) {
+		int radicalIndex = index.getRadicalIndex(radical);
+		if (radicalIndex < 0) {
+			throw new IllegalArgumentException(radical + " is not a radical");
+		} else if (selected.add(radical)) {
+			narrow(radicalIndex);
+		} else {
+			// already selected
+		}
+	}
+
+	/**
+	 * Remove a radical from the selection, which recomputes the candidates from
+	 * the remaining radicals.
+	 * 
+	 * @param radical
+	 *            the radical to unselect
+	 */
+	public void unselect(char radical) {
+		if (selected.remove(radical)) {
+			reset();
+			for (char remaining : selected) {
+				narrow(index.getRadicalIndex(remaining));
+			}
+		} else {
+			// not selected
+		}
+	}
+
+	/**
+	 * Unselect all the radicals.
+	 */
+	public void clear() {
+		selected.clear();
+		reset();
+	}
+
+	private void reset() {
+		System.arraycopy(index.getKanjis(), 0, candidates, 0,
+				candidates.length);
+		updateWords();
+	}
+
+	private void narrow(int radicalIndex) {
+		long[] kanjis = index.getKanjis(radicalIndex);
+		for (int i = 0; i < wordCount; i++) {
+			int word = words[i];
+			candidates[word] &= kanjis[word];
+		}
+		updateWords();
+	}
+
+	private void updateWords() {
+		wordCount = 0;
+		for (int word = 0; word < candidates.length; word++) {
+			if (candidates[word] != 0) {
+				words[wordCount++] = word;
+			} else {
+				// no candidate in this word
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of kanjis having all the selected radicals
+	 */
+	public int getCandidateCount() {
+		int count = 0;
+		for (int i = 0; i < wordCount; i++) {
+			count += Long.bitCount(candidates[words[i]]);
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @return the kanjis having all the selected radicals, ordered by code
+	 */
+	public List<Character> getCandidates() {
+		List<Character> kanjis = new ArrayList<>(getCandidateCount());
+		for (int i = 0; i < wordCount; i++) {
+			int word = words[i];
+			long bits = candidates[word];
+			while (bits != 0) {
+				int bit = Long.numberOfTrailingZeros(bits);
+				kanjis.add(JapUnicode.getKanji(word * 64 + bit));
+				bits &= bits - 1;
+			}
+		}
+		return kanjis;
+	}
+
+	/**
+	 * 
+	 * @param radical
+	 *            a radical
+	 * @return <code>true</code> if at least one candidate has this radical,
+	 *         so selecting it would not leave the search without candidate
+	 */
+	public boolean isAvailable(char radical) {
+		int radicalIndex = index.getRadicalIndex(radical);
+		return radicalIndex >= 0 && intersects(radicalIndex);
+	}
+
+	/**
+	 * 
+	 * @return the radicals which at least one candidate has, ordered by code,
+	 *         the other ones leaving no candidate if selected
+	 */
+	public List<Character> getAvailableRadicals() {
+		List<Character> available = new ArrayList<>();
+		for (int r = 0; r < index.getRadicalCount(); r++) {
+			if (intersects(r)) {
+				available.add(index.getRadical(r));
+			} else {
+				// no candidate with this radical
+			}
+		}
+		return available;
+	}
+
+	private boolean intersects(int radicalIndex) {
+		long[] kanjis = index.getKanjis(radicalIndex);
+		for (int i = 0; i < wordCount; i++) {
+			int word = words[i];
+			if ((candidates[word] & kanjis[word]) != 0) {
+				return true;
+			} else {
+				// check next word
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,31 @@
+package fr.vergne.japdict.jap;
+
+/**
+ * The romanizations understood by a {@link RomajiTransducer}, in addition to
+ * the one of {@link KanaFactory#createFromRomaji(String, KanaType)}. When
+ * several schemes read the same romaji differently, the first scheme of this
+ * enum wins.
+ */
+public enum RomajiScheme {
+	/**
+	 * Hepburn romanization: shi, chi, tsu, fu, ji, sha, cha, ja, etc., the
+	 * long vowels being written with macrons (ā, ī, ū, ē, ō).
+	 */
+	HEPBURN,
+	/**
+	 * Kunrei-shiki romanization: si, ti, tu, hu, zi, sya, tya, zya, etc., the
+	 * long vowels being written with circumflexes (â, î, û, ê, ô).
+	 */
+	KUNREI_SHIKI,
+	/**
+	 * Nihon-shiki romanization: like Kunrei-shiki, plus di, du, dya, kwa, gwa,
+	 * wi, we and wo.
+	 */
+	NIHON_SHIKI,
+	/**
+	 * The romaji typed in input methods: small kanas with x or l (xa, ltu,
+	 * xya, etc.), nn and n' for ん, - for ー and the combinations of foreign
+	 * sounds (fa, thi, dhi, she, etc.).
+	 */
+	WAPURO
+}
@@ -0,0 +1,422 @@
+package fr.vergne.japdict.jap;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link RomajiTransducer} converts romaji texts into kanas, according to
+ * the romaji of {@link KanaFactory#createFromRomaji(String, KanaType)} and to
+ * the {@link RomajiScheme}s requested. All the romajis of all the schemes are
+ * compiled, when the {@link RomajiTransducer} is created, into a single
+ * deterministic automaton (a trie over the letters), the romajis read
+ * differently by several schemes being resolved at this time by giving
+ * priority to the first scheme of {@link RomajiScheme}. The conversion then
+ * reads each letter once, taking at each position the longest romaji known,
+ * so its cost is linear in the length of the text whatever the number of
+ * schemes.<br/>
+ * <br/>
+ * Beside the romajis of single syllables, the conversion manages:
+ * <ul>
+ * <li>the long vowels written with a macron or a circumflex (e.g. kō, kô),
+ * converted into a vowel for hiraganas (こう) and into ー for katakanas
+ * (コー)</li>
+ * <li>the double consonants, converted into a small っ (e.g. kitte, matcha)</li>
+ * <li>the ん written nn when not followed by a vowel (e.g. konnnichiha, hon'ya
+ * being written with an apostrophe)</li>
+ * </ul>
+ * The letters are case insensitive, and the characters which are neither
+ * letters nor symbols of romajis (spaces, digits, punctuations, etc.) are kept
+ * as is. A {@link RomajiTransducer} is immutable, so it can be shared between
+ * threads.
+ */
+public class RomajiTransducer {
+
+	/**
+	 * The symbols read by the automaton: the 26 letters, then the other
+	 * characters of this string.
+	 */
+	private static final String OTHER_SYMBOLS = "+'-āīūēōâîûêô";
+	private static final int SYMBOLS = 26 + OTHER_SYMBOLS.length();
+	private static final String VOWELS = "aiueo";
+	private static final String MACRONS = "āīūēō";
+	private static final String CIRCUMFLEXES = "âîûêô";
+	/**
+	 * The hiraganas extending each vowel of {@link #VOWELS}, following the
+	 * Hepburn usage of ō for おう.
+	 */
+	private static final String LONG_VOWELS = "あいうえう";
+
+	private final int[] transitions;
+	private final String[] hiraganas;
+	private final String[] katakanas;
+	/**
+	 * The hiragana produced by each state when it is a single kana, 0
+	 * otherwise.
+	 */
+	private final char[] singles;
+
+	/**
+	 * 
+	 * @param schemes
+	 *            the {@link RomajiScheme}s to understand, in addition to the
+	 *            romaji of
+	 *            {@link KanaFactory#createFromRomaji(String, KanaType)}
+	 */
+	public RomajiTransducer(RomajiScheme... schemes) {
+		EnumSet<RomajiScheme> enabled = EnumSet.noneOf(RomajiScheme.class);
+		enabled.addAll(Arrays.asList(schemes));
+		Map<String, String[]> romajis = new LinkedHashMap<>();
+		putDefault(romajis);
+		for (RomajiScheme scheme : enabled) {
+			switch (scheme) {
+			case HEPBURN:
+				putHepburn(romajis);
+				break;
+			case KUNREI_SHIKI:
+				putKunrei(romajis);
+				break;
+			case NIHON_SHIKI:
+				putNihon(romajis);
+				break;
+			case WAPURO:
+				putWapuro(romajis);
+				break;
+			default:
+				throw new RuntimeException("Unmanaged scheme: " + scheme);
+			}
+		}
+		if (enabled.contains(RomajiScheme.HEPBURN)) {
+			putLongVowels(romajis, MACRONS);
+		} else {
+			// no macron
+		}
+		if (enabled.contains(RomajiScheme.KUNREI_SHIKI)
+				|| enabled.contains(RomajiScheme.NIHON_SHIKI)) {
+			putLongVowels(romajis, CIRCUMFLEXES);
+		} else {
+			// no circumflex
+		}
+
+		int capacity = 1;
+		for (String romaji : romajis.keySet()) {
+			capacity += romaji.length();
+		}
+		int[] transitions = new int[capacity * SYMBOLS];
+		String[] hiraganas = new String[capacity];
+		String[] katakanas = new String[capacity];
+		int states = 1;
+		for (Map.Entry<String, String[]> entry : romajis.entrySet()) {
+			String romaji = entry.getKey();
+			int state = 0;
+			for (int i = 0; i < romaji.length(); i++) {
+				int transition = state * SYMBOLS + getSymbol(romaji.charAt(i));
+				if (transitions[transition] == 0) {
+					transitions[transition] = states++;
+				} else {
+					// prefix of a previous romaji
+				}
+				state = transitions[transition];
+			}
+			hiraganas[state] = entry.getValue()[0];
+			katakanas[state] = entry.getValue()[1];
+		}
+		this.transitions = Arrays.copyOf(transitions, states * SYMBOLS);
+		this.hiraganas = Arrays.copyOf(hiraganas, states);
+		this.katakanas = Arrays.copyOf(katakanas, states);
+		this.singles = new char[states];
+		for (int state = 0; state < states; state++) {
+			String kana = this.hiraganas[state];
+			singles[state] = kana != null && kana.length() == 1 ? kana
+					.charAt(0) : 0;
+		}
+	}
+
+	/**
+	 * 
+	 * @param character
+	 *            a character in lower case
+	 * @return the symbol of this character, -1 if it is not read by the
+	 *         automaton
+	 */
+	private static int getSymbol(char character) {
+		if (character >= 'a' && character <= 'z') {
+			return character - 'a';
+		} else {
+			int index = OTHER_SYMBOLS.indexOf(character);
+			return index < 0 ? -1 : 26 + index;
+		}
+	}
+
+	/**
+	 * Add a romaji unless a previous scheme already defines it, the katakanas
+	 * being the counterparts of the hiraganas.
+	 */
+	private static void put(Map<String, String[]> romajis, String romaji,
+			String hiraganas) {
+		put(romajis, romaji, hiraganas, toKatakanas(hiraganas));
+	}
+
+	private static void put(Map<String, String[]> romajis, String romaji,
+			String hiraganas, String katakanas) {
+		if (romajis.containsKey(romaji)) {
+			// resolved in favour of the previous scheme
+		} else {
+			romajis.put(romaji, new String[] { hiraganas, katakanas });
+		}
+	}
+
+	/**
+	 * Add a list of romajis, given as a space-separated string, with the
+	 * kanas of the same position in another string.
+	 */
+	private static void putAll(Map<String, String[]> romajis,
+			String romajiList, String kanas) {
+		String[] list = romajiList.split(" ");
+		if (list.length != kanas.length()) {
+			throw new IllegalArgumentException(list.length + " romajis for "
+					+ kanas.length() + " kanas: " + romajiList);
+		} else {
+			for (int i = 0; i < list.length; i++) {
+				put(romajis, list[i], kanas.substring(i, i + 1));
+			}
+		}
+	}
+
+	/**
+	 * Add the romajis of the small ゃ, ゅ and ょ combinations, given as the
+	 * prefixes of the romajis with the kana they combine with.
+	 */
+	private static void putCombinations(Map<String, String[]> romajis,
+			String prefixes, String kanas) {
+		String[] list = prefixes.split(" ");
+		for (int i = 0; i < list.length; i++) {
+			char kana = kanas.charAt(i);
+			put(romajis, list[i] + "a", kana + "ゃ");
+			put(romajis, list[i] + "u", kana + "ゅ");
+			put(romajis, list[i] + "o", kana + "ょ");
+		}
+	}
+
+	private static String toKatakanas(String hiraganas) {
+		char[] table = KanaFactory.KanaTables.get(KanaType.KATAKANA);
+		char[] characters = hiraganas.toCharArray();
+		for (int i = 0; i < characters.length; i++) {
+			int index = characters[i] - KanaFactory.KanaTables.MIN;
+			if (index >= 0 && index < table.length && table[index] != 0) {
+				characters[i] = table[index];
+			} else {
+				// not a kana
+			}
+		}
+		return new String(characters);
+	}
+
+	/**
+	 * The romaji of {@link KanaFactory#createFromRomaji(String, KanaType)}.
+	 */
+	private static void putDefault(Map<String, String[]> romajis) {
+		putAll(romajis, "a i u e o", "あいうえお");
+		putAll(romajis, "ka ki ku ke ko", "かきくけこ");
+		putAll(romajis, "sa shi su se so", "さしすせそ");
+		putAll(romajis, "ta chi tsu te to", "たちつてと");
+		putAll(romajis, "na ni nu ne no", "なにぬねの");
+		putAll(romajis, "ha hi fu he ho hu", "はひふへほふ");
+		putAll(romajis, "ma mi mu me mo", "まみむめも");
+		putAll(romajis, "ya yu yo", "やゆよ");
+		putAll(romajis, "ra ri ru re ro", "らりるれろ");
+		putAll(romajis, "wa wi we wo n", "わゐゑをん");
+		putAll(romajis, "ga gi gu ge go", "がぎぐげご");
+		putAll(romajis, "za ji zu ze zo", "ざじずぜぞ");
+		putAll(romajis, "da dji dzu de do", "だぢづでど");
+		putAll(romajis, "ba bi bu be bo", "ばびぶべぼ");
+		putAll(romajis, "pa pi pu pe po", "ぱぴぷぺぽ");
+		putAll(romajis, "vu", "ゔ");
+		putAll(romajis, "+a +i +u +e +o +ka +ke +tsu +ya +yu +yo +wa",
+				"ぁぃぅぇぉゕゖっゃゅょゎ");
+		putAll(romajis, "tji si tzu", "ちしつ");
+	}
+
+	private static void putHepburn(Map<String, String[]> romajis) {
+		putCombinations(romajis, "ky sh ch ny hy my ry gy j by py",
+				"きしちにひみりぎじびぴ");
+		put(romajis, "n'", "ん");
+	}
+
+	private static void putKunrei(Map<String, String[]> romajis) {
+		putAll(romajis, "ti tu zi", "ちつじ");
+		putCombinations(romajis, "sy ty zy", "しちじ");
+	}
+
+	private static void putNihon(Map<String, String[]> romajis) {
+		putAll(romajis, "ti tu zi di du", "ちつじぢづ");
+		putCombinations(romajis, "sy ty zy dy", "しちじぢ");
+		put(romajis, "kwa", "くゎ");
+		put(romajis, "gwa", "ぐゎ");
+	}
+
+	private static void putWapuro(Map<String, String[]> romajis) {
+		putAll(romajis, "xa xi xu xe xo xtu xtsu xya xyu xyo xwa xka xke",
+				"ぁぃぅぇぉっっゃゅょゎゕゖ");
+		putAll(romajis, "la li lu le lo ltu ltsu lya lyu lyo lwa lka lke",
+				"ぁぃぅぇぉっっゃゅょゎゕゖ");
+		putAll(romajis, "ti tu zi di du", "ちつじぢづ");
+		putCombinations(romajis, "sy ty zy dy jy cy", "しちじぢじち");
+		put(romajis, "n'", "ん");
+		put(romajis, "-", "ー", "ー");
+		put(romajis, "fa", "ふぁ");
+		put(romajis, "fi", "ふぃ");
+		put(romajis, "fe", "ふぇ");
+		put(romajis, "fo", "ふぉ");
+		put(romajis, "va", "ゔぁ");
+		put(romajis, "vi", "ゔぃ");
+		put(romajis, "ve", "ゔぇ");
+		put(romajis, "vo", "ゔぉ");
+		put(romajis, "thi", "てぃ");
+		put(romajis, "dhi", "でぃ");
+		put(romajis, "twu", "とぅ");
+		put(romajis, "dwu", "どぅ");
+		put(romajis, "she", "しぇ");
+		put(romajis, "che", "ちぇ");
+		put(romajis, "je", "じぇ");
+		put(romajis, "ye", "いぇ");
+		put(romajis, "tsa", "つぁ");
+		put(romajis, "tsi", "つぃ");
+		put(romajis, "tse", "つぇ");
+		put(romajis, "tso", "つぉ");
+	}
+
+	/**
+	 * Add, for each romaji ending with a vowel, the same romaji with a long
+	 * vowel marked by the given characters.
+	 */
+	private static void putLongVowels(Map<String, String[]> romajis,
+			String marks) {
+		Map<String, String[]> longs = new LinkedHashMap<>();
+		for (Map.Entry<String, String[]> entry : romajis.entrySet()) {
+			String romaji = entry.getKey();
+			int vowel = VOWELS.indexOf(romaji.charAt(romaji.length() - 1));
+			char first = romaji.charAt(0);
+			if (vowel < 0 || first == '+' || first == 'x' || first == 'l') {
+				// no long version
+			} else {
+				String longRomaji = romaji.substring(0, romaji.length() - 1)
+						+ marks.charAt(vowel);
+				String[] kanas = entry.getValue();
+				longs.put(longRomaji, new String[] {
+						kanas[0] + LONG_VOWELS.charAt(vowel), kanas[1] + 'ー' });
+			}
+		}
+		for (Map.Entry<String, String[]> entry : longs.entrySet()) {
+			put(romajis, entry.getKey(), entry.getValue()[0],
+					entry.getValue()[1]);
+		}
+	}
+
+	/**
+	 * 
+	 * @param romaji
+	 *            a romaji text
+	 * @param type
+	 *            the {@link KanaType} wanted
+	 * @return the kanas of the text
+	 * @throws IllegalArgumentException
+	 *             if some letters do not form a known romaji
+	 */
+	public String convert(CharSequence romaji, KanaType type) {
+		if (type == null) {
+			throw new NullPointerException("No type provided");
+		} else {
+			String[] outputs = type == KanaType.HIRAGANA ? hiraganas
+					: katakanas;
+			char sokuon = type == KanaType.HIRAGANA ? 'っ' : 'ッ';
+			char nasal = type == KanaType.HIRAGANA ? 'ん' : 'ン';
+			StringBuilder kanas = new StringBuilder(romaji.length());
+			int length = romaji.length();
+			int position = 0;
+			while (position < length) {
+				char character = Character.toLowerCase(romaji.charAt(position));
+				char next = position + 1 < length ? Character
+						.toLowerCase(romaji.charAt(position + 1)) : 0;
+				char afterNext = position + 2 < length ? Character
+						.toLowerCase(romaji.charAt(position + 2)) : 0;
+				if (getSymbol(character) < 0) {
+					kanas.append(romaji.charAt(position));
+					position++;
+				} else if (isGeminated(character, next, afterNext)) {
+					kanas.append(sokuon);
+					position++;
+				} else if (character == 'n' && next == 'n'
+						&& !isVowel(afterNext) && afterNext != 'y') {
+					kanas.append(nasal);
+					position += 2;
+				} else {
+					int state = 0;
+					int accepted = -1;
+					int end = position;
+					for (int i = position; i < length; i++) {
+						int symbol = getSymbol(Character.toLowerCase(romaji
+								.charAt(i)));
+						state = symbol < 0 ? 0 : transitions[state * SYMBOLS
+								+ symbol];
+						if (state == 0) {
+							break;
+						} else if (outputs[state] != null) {
+							accepted = state;
+							end = i + 1;
+						} else {
+							// not a complete romaji yet
+						}
+					}
+					if (accepted < 0) {
+						throw new IllegalArgumentException("Invalid romaji at "
+								+ position + ": " + romaji);
+					} else {
+						kanas.append(outputs[accepted]);
+						position = end;
+					}
+				}
+			}
+			return kanas.toString();
+		}
+	}
+
+	private static boolean isGeminated(char character, char next,
+			char afterNext) {
+		if (character < 'a' || character > 'z' || isVowel(character)
+				|| character == 'n') {
+			return false;
+		} else {
+			return next == character || character == 't' && next == 'c'
+					&& afterNext == 'h';
+		}
+	}
+
+	private static boolean isVowel(char character) {
+		return VOWELS.indexOf(character) >= 0
+				|| MACRONS.indexOf(character) >= 0
+				|| CIRCUMFLEXES.indexOf(character) >= 0;
+	}
+
+	/**
+	 * 
+	 * @param romaji
+	 *            the romaji of a single kana
+	 * @return the hiragana of this romaji, 0 if it is not the romaji of a
+	 *         single kana
+	 */
+	char convertSingle(CharSequence romaji) {
+		int state = 0;
+		for (int i = 0; i < romaji.length(); i++) {
+			int symbol = getSymbol(Character.toLowerCase(romaji.charAt(i)));
+			state = symbol < 0 ? 0 : transitions[state * SYMBOLS + symbol];
+			if (state == 0) {
+				return 0;
+			} else {
+				// romaji continues
+			}
+		}
+		return singles[state];
+	}
+}
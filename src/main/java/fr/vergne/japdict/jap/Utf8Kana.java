@@ -0,0 +1,325 @@
+package fr.vergne.japdict.jap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Utf8Kana} classifies and converts the kanas of UTF-8 texts directly on
+ * their bytes, without decoding them into chars and encoding them back. All
+ * the chars from {@link JapUnicode#HIRAGANA_MIN} to
+ * {@link JapUnicode#KATAKANA_MAX} are encoded on 3 bytes: <code>E3</code>,
+ * then <code>81</code>, <code>82</code> or <code>83</code>, then a
+ * continuation byte. A hiragana and its katakana are both in this range, so
+ * converting one into the other rewrites the 2 last bytes in place without
+ * changing the length of the text.<br/>
+ * <br/>
+ * The results are the same than the char-based methods:
+ * {@link #transform(byte[], int, int, KanaType)} gives the bytes of
+ * {@link KanaFactory#transform(String, KanaType)}, and
+ * {@link #getKanaType(byte[], int)} and {@link #isKanji(byte[], int)} give the
+ * answers of {@link JapCharacter#getKanaType()} and
+ * {@link JapCharacter#isKanji()}. The malformed sequences are left unchanged
+ * and are neither kanas nor kanjis.
+ */
+public class Utf8Kana {
+
+	private static final int KANA_LEAD = 0xE3;
+	private static final int KANA_SECOND_MIN = 0x80 | JapUnicode.HIRAGANA_MIN >> 6
+			& 0x3F;
+	private static final int KANA_SECOND_MAX = 0x80 | JapUnicode.KATAKANA_MAX >> 6
+			& 0x3F;
+	private static final byte NOT_KANA = 0;
+	private static final byte HIRAGANA = 1;
+	private static final byte KATAKANA = 2;
+	/**
+	 * The type of each char from {@link JapUnicode#HIRAGANA_MIN} to
+	 * {@link JapUnicode#KATAKANA_MAX}.
+	 */
+	private static final byte[] TYPES = createTypes();
+
+	private Utf8Kana() {
+		// static methods only
+	}
+
+	private static byte[] createTypes() {
+		byte[] types = new byte[JapUnicode.KATAKANA_MAX
+				- JapUnicode.HIRAGANA_MIN + 1];
+		for (int i = 0; i < types.length; i++) {
+			KanaType type = JapCharacter.valueOf(
+					(char) (JapUnicode.HIRAGANA_MIN + i)).getKanaType();
+			types[i] = type == KanaType.HIRAGANA ? HIRAGANA
+					: type == KanaType.KATAKANA ? KATAKANA : NOT_KANA;
+		}
+		return types;
+	}
+
+	/**
+	 * Convert in place the kanas of a UTF-8 text.
+	 * 
+	 * @param bytes
+	 *            the bytes of the text
+	 * @param offset
+	 *            the index of the first byte of the text
+	 * @param length
+	 *            the number of bytes of the text
+	 * @param type
+	 *            the {@link KanaType} to convert the kanas to
+	 * @return the number of kanas changed
+	 */
+	public static int transform(byte[] bytes, int offset, int length,
+			KanaType type) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset
+					+ "+" + length + " for " + bytes.length + " bytes");
+		} else {
+			char[] table = KanaFactory.KanaTables.get(type);
+			int converted = 0;
+			int end = offset + length - 2;
+			for (int i = offset; i < end;) {
+				int lead = bytes[i] & 0xFF;
+				if (lead == KANA_LEAD) {
+					int index = getKanaIndex(bytes[i + 1], bytes[i + 2]);
+					if (index >= 0 && table[index] != 0
+							&& table[index] != JapUnicode.HIRAGANA_MIN + index) {
+						char character = table[index];
+						bytes[i + 1] = (byte) (0x80 | character >> 6 & 0x3F);
+						bytes[i + 2] = (byte) (0x80 | character & 0x3F);
+						converted++;
+					} else {
+						// no counterpart or already of this type
+					}
+					i += index >= 0 ? 3 : 1;
+				} else {
+					// continuation bytes are never a lead, no skip needed
+					i++;
+				}
+			}
+			return converted;
+		}
+	}
+
+	/**
+	 * Convert in place the kanas of a UTF-8 text.
+	 * 
+	 * @param bytes
+	 *            the bytes of the text
+	 * @param type
+	 *            the {@link KanaType} to convert the kanas to
+	 * @return the number of kanas changed
+	 */
+	public static int transform(byte[] bytes, KanaType type) {
+		return transform(bytes, 0, bytes.length, type);
+	}
+
+	/**
+	 * Convert in place the kanas of a UTF-8 text, from the position to the
+	 * limit of the buffer, which are left unchanged. Heap buffers are
+	 * converted through their array, other buffers with absolute gets and
+	 * puts, so direct buffers are converted without copy too.
+	 * 
+	 * @param buffer
+	 *            the bytes of the text
+	 * @param type
+	 *            the {@link KanaType} to convert the kanas to
+	 * @return the number of kanas changed
+	 */
+	public static int transform(ByteBuffer buffer, KanaType type) {
+		if (buffer.hasArray()) {
+			return transform(buffer.array(),
+					buffer.arrayOffset() + buffer.position(),
+					buffer.remaining(), type);
+		} else {
+			char[] table = KanaFactory.KanaTables.get(type);
+			int converted = 0;
+			int end = buffer.limit() - 2;
+			for (int i = buffer.position(); i < end;) {
+				int lead = buffer.get(i) & 0xFF;
+				if (lead == KANA_LEAD) {
+					int index = getKanaIndex(buffer.get(i + 1),
+							buffer.get(i + 2));
+					if (index >= 0 && table[index] != 0
+							&& table[index] != JapUnicode.HIRAGANA_MIN + index) {
+						char character = table[index];
+						buffer.put(i + 1,
+								(byte) (0x80 | character >> 6 & 0x3F));
+						buffer.put(i + 2, (byte) (0x80 | character & 0x3F));
+						converted++;
+					} else {
+						// no counterpart or already of this type
+					}
+					i += index >= 0 ? 3 : 1;
+				} else {
+					// continuation bytes are never a lead, no skip needed
+					i++;
+				}
+			}
+			return converted;
+		}
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            the bytes of a UTF-8 text
+	 * @param offset
+	 *            the index of the first byte of a char
+	 * @return the {@link KanaType} of this char, <code>null</code> if it is
+	 *         not a kana
+	 */
+	public static KanaType getKanaType(byte[] bytes, int offset) {
+		if (offset + 2 < bytes.length && (bytes[offset] & 0xFF) == KANA_LEAD) {
+			return toKanaType(getKanaIndex(bytes[offset + 1],
+					bytes[offset + 2]));
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * 
+	 * @param buffer
+	 *            the bytes of a UTF-8 text
+	 * @param index
+	 *            the index of the first byte of a char
+	 * @return the {@link KanaType} of this char, <code>null</code> if it is
+	 *         not a kana
+	 */
+	public static KanaType getKanaType(ByteBuffer buffer, int index) {
+		if (index + 2 < buffer.limit()
+				&& (buffer.get(index) & 0xFF) == KANA_LEAD) {
+			return toKanaType(getKanaIndex(buffer.get(index + 1),
+					buffer.get(index + 2)));
+		} else {
+			return null;
+		}
+	}
+
+	private static KanaType toKanaType(int index) {
+		if (index < 0) {
+			return null;
+		} else if (TYPES[index] == HIRAGANA) {
+			return KanaType.HIRAGANA;
+		} else if (TYPES[index] == KATAKANA) {
+			return KanaType.KATAKANA;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            the bytes of a UTF-8 text
+	 * @param offset
+	 *            the index of the first byte of a char
+	 * @return <code>true</code> if this char is a kanji, <code>false</code>
+	 *         otherwise
+	 */
+	public static boolean isKanji(byte[] bytes, int offset) {
+		if (offset + 2 < bytes.length) {
+			return isKanji(decode3(bytes[offset], bytes[offset + 1],
+					bytes[offset + 2]));
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * 
+	 * @param buffer
+	 *            the bytes of a UTF-8 text
+	 * @param index
+	 *            the index of the first byte of a char
+	 * @return <code>true</code> if this char is a kanji, <code>false</code>
+	 *         otherwise
+	 */
+	public static boolean isKanji(ByteBuffer buffer, int index) {
+		if (index + 2 < buffer.limit()) {
+			return isKanji(decode3(buffer.get(index), buffer.get(index + 1),
+					buffer.get(index + 2)));
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean isKanji(int character) {
+		return character >= JapUnicode.KANJI_MIN
+				&& character <= JapUnicode.KANJI_MAX
+				|| character >= JapUnicode.KANJI_RARE_MIN
+				&& character <= JapUnicode.KANJI_RARE_MAX;
+	}
+
+	/**
+	 * Count the kanas of each {@link KanaType} in a UTF-8 text.
+	 * 
+	 * @param bytes
+	 *            the bytes of the text
+	 * @param offset
+	 *            the index of the first byte of the text
+	 * @param length
+	 *            the number of bytes of the text
+	 * @return the number of kanas of each {@link KanaType}, indexed by their
+	 *         ordinal
+	 */
+	public static int[] countKanas(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset
+					+ "+" + length + " for " + bytes.length + " bytes");
+		} else {
+			int[] counts = new int[KanaType.values().length];
+			int end = offset + length - 2;
+			for (int i = offset; i < end;) {
+				int lead = bytes[i] & 0xFF;
+				if (lead == KANA_LEAD) {
+					int index = getKanaIndex(bytes[i + 1], bytes[i + 2]);
+					if (index < 0) {
+						// not a kana
+					} else if (TYPES[index] == HIRAGANA) {
+						counts[KanaType.HIRAGANA.ordinal()]++;
+					} else if (TYPES[index] == KATAKANA) {
+						counts[KanaType.KATAKANA.ordinal()]++;
+					} else {
+						// not a kana
+					}
+					i += index >= 0 ? 3 : 1;
+				} else {
+					// continuation bytes are never a lead, no skip needed
+					i++;
+				}
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the index of the char encoded by {@link #KANA_LEAD} and the two
+	 *         bytes in {@link #TYPES}, -1 if it is out of the kana range or
+	 *         malformed
+	 */
+	private static int getKanaIndex(byte second, byte third) {
+		int b2 = second & 0xFF;
+		int b3 = third & 0xFF;
+		if (b2 < KANA_SECOND_MIN || b2 > KANA_SECOND_MAX
+				|| (b3 & 0xC0) != 0x80) {
+			return -1;
+		} else {
+			int index = (0x3000 | (b2 & 0x3F) << 6 | b3 & 0x3F)
+					- JapUnicode.HIRAGANA_MIN;
+			return index < 0 || index >= TYPES.length ? -1 : index;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the char encoded by these 3 bytes, -1 if they are not a 3-byte
+	 *         UTF-8 sequence
+	 */
+	private static int decode3(byte first, byte second, byte third) {
+		if ((first & 0xF0) != 0xE0 || (second & 0xC0) != 0x80
+				|| (third & 0xC0) != 0x80) {
+			return -1;
+		} else {
+			return (first & 0x0F) << 12 | (second & 0x3F) << 6 | third & 0x3F;
+		}
+	}
+}
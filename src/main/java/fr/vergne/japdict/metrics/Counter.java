@@ -0,0 +1,21 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * A {@link Counter} counts the occurrences of an event, like the romajis
+ * rejected by the {@link fr.vergne.japdict.jap.KanaFactory}.
+ */
+public interface Counter {
+
+	/**
+	 * Count one more occurrence.
+	 */
+	public void increment();
+
+	/**
+	 * Count several occurrences at once.
+	 * 
+	 * @param occurrences
+	 *            the number of occurrences
+	 */
+	public void add(long occurrences);
+}
@@ -0,0 +1,13 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * JMX view of a {@link StripedCounter}.
+ */
+public interface CounterMXBean {
+
+	/**
+	 * 
+	 * @return the number of occurrences counted so far
+	 */
+	public long getCount();
+}
@@ -0,0 +1,150 @@
+package fr.vergne.japdict.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The {@link DefaultMetricsRegistry} measures with {@link StripedCounter}s and
+ * {@link LatencyHistogram}s, and registers each of them as an MXBean named
+ * <code>fr.vergne.japdict:type=Counter|Timer,name=&lt;metric&gt;</code>, so
+ * they can be watched with any JMX client. The instruments are also available
+ * through {@link #getCounters()} and {@link #getTimers()}.
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+	/**
+	 * The JMX domain of the instruments.
+	 */
+	public static final String DOMAIN = "fr.vergne.japdict";
+
+	private final MBeanServer server;
+	private final Map<String, StripedCounter> counters = Collections
+			.synchronizedMap(new LinkedHashMap<String, StripedCounter>());
+	private final Map<String, LatencyHistogram> timers = Collections
+			.synchronizedMap(new LinkedHashMap<String, LatencyHistogram>());
+
+	/**
+	 * Create a {@link DefaultMetricsRegistry} registering its instruments on
+	 * the platform {@link MBeanServer}.
+	 */
+	public DefaultMetricsRegistry() {
+		this(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	/**
+	 * 
+	 * @param server
+	 *            the {@link MBeanServer} to register the instruments on,
+	 *            <code>null</code> to not register them
+	 */
+	public DefaultMetricsRegistry(MBeanServer server) {
+		this.server = server;
+	}
+
+	@Override
+	public Counter createCounter(String name) {
+		StripedCounter counter = new StripedCounter();
+		register("Counter", name, counter);
+		counters.put(name, counter);
+		return counter;
+	}
+
+	@Override
+	public Timer createTimer(String name) {
+		LatencyHistogram timer = new LatencyHistogram();
+		register("Timer", name, timer);
+		timers.put(name, timer);
+		return timer;
+	}
+
+	/**
+	 * 
+	 * @param type
+	 *            the type of the instrument, Counter or Timer
+	 * @param name
+	 *            the name of the metric measured by the instrument
+	 * @return the {@link ObjectName} of the given instrument
+	 */
+	public static ObjectName getObjectName(String type, String name) {
+		try {
+			return new ObjectName(DOMAIN + ":type=" + type + ",name="
+					+ ObjectName.quote(name));
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Invalid metric name: " + name,
+					e);
+		}
+	}
+
+	/**
+	 * Register an instrument, replacing the one of a previous registry having
+	 * the same name.
+	 */
+	private void register(String type, String name, Object instrument) {
+		if (server == null) {
+			// no JMX
+		} else {
+			ObjectName objectName = getObjectName(type, name);
+			try {
+				try {
+					server.registerMBean(instrument, objectName);
+				} catch (InstanceAlreadyExistsException e) {
+					server.unregisterMBean(objectName);
+					server.registerMBean(instrument, objectName);
+				}
+			} catch (JMException e) {
+				throw new RuntimeException("Cannot register " + objectName, e);
+			}
+		}
+	}
+
+	/**
+	 * Unregister all the instruments of this {@link DefaultMetricsRegistry}
+	 * from JMX.
+	 */
+	public void unregister() {
+		if (server == null) {
+			// no JMX
+		} else {
+			for (String name : counters.keySet()) {
+				unregister(getObjectName("Counter", name));
+			}
+			for (String name : timers.keySet()) {
+				unregister(getObjectName("Timer", name));
+			}
+		}
+	}
+
+	private void unregister(ObjectName objectName) {
+		try {
+			server.unregisterMBean(objectName);
+		} catch (InstanceNotFoundException e) {
+			// already unregistered
+		} catch (JMException e) {
+			throw new RuntimeException("Cannot unregister " + objectName, e);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the {@link StripedCounter}s created so far, by name
+	 */
+	public Map<String, StripedCounter> getCounters() {
+		return Collections.unmodifiableMap(counters);
+	}
+
+	/**
+	 * 
+	 * @return the {@link LatencyHistogram}s created so far, by name
+	 */
+	public Map<String, LatencyHistogram> getTimers() {
+		return Collections.unmodifiableMap(timers);
+	}
+}
@@ -0,0 +1,95 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * {@link Events} reports the japdict operations to the JDK Flight Recorder, so
+ * they appear in the recordings next to the GC and allocation events. This
+ * version does nothing: JFR events need Java 11, so the multi-release jar
+ * replaces this class by one emitting them when running on Java 11 or later.
+ * The events are:
+ * <ul>
+ * <li><code>fr.vergne.japdict.Conversion</code> for the conversions of texts
+ * by {@link fr.vergne.japdict.jap.KanaFactory}</li>
+ * <li><code>fr.vergne.japdict.RomajiFailure</code> for the romajis rejected by
+ * {@link fr.vergne.japdict.jap.KanaFactory}</li>
+ * <li><code>fr.vergne.japdict.Lookup</code> for the lookups in a
+ * {@link fr.vergne.japdict.dict.BinarySegment}</li>
+ * </ul>
+ * The timed events are reported through a begin method, which returns the
+ * event to give to the commit method, or <code>null</code> if the event is
+ * disabled, so a disabled event costs a single check. The
+ * <code>japdict.jfc</code> file provides the settings of these events,
+ * including their duration thresholds, to use with the default ones:
+ * 
+ * <pre>
+ * -XX:StartFlightRecording:settings=default,settings=japdict.jfc
+ * </pre>
+ */
+public class Events {
+
+	private Events() {
+		// static methods only
+	}
+
+	/**
+	 * 
+	 * @return the event of a text conversion which starts, or
+	 *         <code>null</code> if it is not recorded
+	 */
+	public static Object beginConversion() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param event
+	 *            the value returned by {@link #beginConversion()}
+	 * @param inputLength
+	 *            the length of the text converted
+	 * @param resultLength
+	 *            the length of the result
+	 * @param type
+	 *            the type of kanas requested
+	 */
+	public static void commitConversion(Object event, int inputLength,
+			int resultLength, String type) {
+		// not recorded
+	}
+
+	/**
+	 * 
+	 * @param romaji
+	 *            the romaji rejected
+	 * @param type
+	 *            the type of kana requested
+	 * @param reason
+	 *            the reason of the rejection
+	 */
+	public static void romajiFailure(String romaji, String type, String reason) {
+		// not recorded
+	}
+
+	/**
+	 * 
+	 * @return the event of a lookup which starts, or <code>null</code> if it
+	 *         is not recorded
+	 */
+	public static Object beginLookup() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param event
+	 *            the value returned by {@link #beginLookup()}
+	 * @param keyCount
+	 *            the number of keys looked up
+	 * @param resultCount
+	 *            the number of entries found
+	 * @param missCount
+	 *            the number of keys without entry
+	 */
+	public static void commitLookup(Object event, int keyCount,
+			int resultCount, int missCount) {
+		// not recorded
+	}
+}
@@ -0,0 +1,158 @@
+package fr.vergne.japdict.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link LatencyHistogram} is a {@link Timer} which counts the durations in
+ * buckets of logarithmic size, like an HDR histogram: the values below
+ * {@link #SUB_BUCKETS} have their own bucket, then each power of 2 is split
+ * into {@link #SUB_BUCKETS} linear buckets. Any percentile is thus known with
+ * a relative error below 1/{@link #SUB_BUCKETS}, whatever the range of the
+ * durations, with a fixed memory and a constant recording cost: a few bit
+ * operations and an atomic increment.
+ */
+public class LatencyHistogram implements Timer, TimerMXBean {
+
+	private static final int PRECISION = 5;
+	/**
+	 * Number of buckets splitting each power of 2.
+	 */
+	static final int SUB_BUCKETS = 1 << PRECISION;
+	private static final int BUCKETS = getIndex(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final StripedCounter total = new StripedCounter();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 
+	 * @param value
+	 *            a non-negative value
+	 * @return the index of the bucket of this value
+	 */
+	static int getIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		} else {
+			int shift = 63 - Long.numberOfLeadingZeros(value) - PRECISION;
+			return (shift << PRECISION) + (int) (value >>> shift);
+		}
+	}
+
+	/**
+	 * 
+	 * @param index
+	 *            the index of a bucket
+	 * @return the smallest value of this bucket
+	 */
+	static long getLowestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		} else {
+			int shift = (index >>> PRECISION) - 1;
+			return (long) (index - (shift << PRECISION)) << shift;
+		}
+	}
+
+	/**
+	 * 
+	 * @param index
+	 *            the index of a bucket
+	 * @return the highest value of this bucket
+	 */
+	static long getHighestValue(int index) {
+		return index == BUCKETS - 1 ? Long.MAX_VALUE
+				: getLowestValue(index + 1) - 1;
+	}
+
+	/**
+	 * Negative durations, which can happen with badly synchronized clocks, are
+	 * recorded as 0.
+	 */
+	@Override
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(getIndex(value));
+		total.add(value);
+		long current;
+		while (value > (current = max.get())
+				&& !max.compareAndSet(current, value)) {
+			// retry with the new max
+		}
+	}
+
+	@Override
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	@Override
+	public double getMeanNanos() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return max.get();
+	}
+
+	/**
+	 * 
+	 * @param ratio
+	 *            the ratio of durations to cover, between 0 and 1
+	 * @return the highest value of the bucket where this ratio of the recorded
+	 *         durations is reached, bounded by the max recorded, or 0 if
+	 *         nothing has been recorded yet
+	 */
+	public long getPercentile(double ratio) {
+		if (ratio < 0 || ratio > 1) {
+			throw new IllegalArgumentException("Invalid ratio: " + ratio);
+		} else {
+			long[] snapshot = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = counts.get(i);
+				count += snapshot[i];
+			}
+			long rank = Math.max(1, (long) Math.ceil(ratio * count));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= rank) {
+					return Math.min(getHighestValue(i), max.get());
+				} else {
+					// not reached yet
+				}
+			}
+			return 0;
+		}
+	}
+
+	@Override
+	public long get50thPercentileNanos() {
+		return getPercentile(0.5);
+	}
+
+	@Override
+	public long get99thPercentileNanos() {
+		return getPercentile(0.99);
+	}
+
+	@Override
+	public long get999thPercentileNanos() {
+		return getPercentile(0.999);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", p50=" + get50thPercentileNanos()
+				+ "ns, p99=" + get99thPercentileNanos() + "ns, max="
+				+ getMaxNanos() + "ns";
+	}
+}
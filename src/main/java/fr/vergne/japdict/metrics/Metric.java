@@ -0,0 +1,63 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * The measures provided by {@link Metrics}.
+ */
+public enum Metric {
+	/**
+	 * Durations of {@link fr.vergne.japdict.jap.KanaFactory#createFromRomaji}.
+	 */
+	ROMAJI_CONVERSION("kana.romaji", true),
+	/**
+	 * Romajis rejected by
+	 * {@link fr.vergne.japdict.jap.KanaFactory#createFromRomaji}.
+	 */
+	ROMAJI_REJECTION("kana.romaji.rejected", false),
+	/**
+	 * Durations of the conversions of texts by
+	 * {@link fr.vergne.japdict.jap.KanaFactory#transform(String, fr.vergne.japdict.jap.KanaType)}
+	 * .
+	 */
+	KANA_CONVERSION("kana.transform", true),
+	/**
+	 * Durations of the single lookups on a
+	 * {@link fr.vergne.japdict.dict.DictionaryHandle}.
+	 */
+	LOOKUP("dict.lookup", true),
+	/**
+	 * Durations of the batch lookups on a
+	 * {@link fr.vergne.japdict.dict.DictionaryHandle}.
+	 */
+	BATCH_LOOKUP("dict.lookupAll", true),
+	/**
+	 * Keys looked up on a {@link fr.vergne.japdict.dict.DictionaryHandle}
+	 * without any result, single and batch lookups included.
+	 */
+	LOOKUP_MISS("dict.lookup.miss", false);
+
+	private final String name;
+	private final boolean timed;
+
+	private Metric(String name, boolean timed) {
+		this.name = name;
+		this.timed = timed;
+	}
+
+	/**
+	 * 
+	 * @return the name of this {@link Metric}, as given to the
+	 *         {@link MetricsRegistry}
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if this {@link Metric} is measured with a
+	 *         {@link Timer}, <code>false</code> if it is with a {@link Counter}
+	 */
+	public boolean isTimed() {
+		return timed;
+	}
+}
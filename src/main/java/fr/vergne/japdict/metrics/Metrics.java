@@ -0,0 +1,174 @@
+package fr.vergne.japdict.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * {@link Metrics} is the entry point of the instrumentation of japdict. It is
+ * disabled by default, in which case an instrumented operation only reads a
+ * field and skips the measure. Once enabled, the operations listed in
+ * {@link Metric} are measured with the {@link Counter}s and {@link Timer}s of
+ * the {@link MetricsRegistry} given, by default a
+ * {@link DefaultMetricsRegistry} exposing them through JMX. Setting the system
+ * property {@value #PROPERTY} to <code>true</code> enables them at startup.<br/>
+ * <br/>
+ * An operation is instrumented this way:
+ * 
+ * <pre>
+ * long start = Metrics.start();
+ * // operation
+ * Metrics.stop(Metric.LOOKUP, start);
+ * </pre>
+ */
+public class Metrics {
+
+	/**
+	 * The system property enabling the {@link Metrics} at startup.
+	 */
+	public static final String PROPERTY = "fr.vergne.japdict.metrics";
+	/**
+	 * The start returned by {@link #start()} when {@link Metrics} are
+	 * disabled.
+	 */
+	private static final long DISABLED = Long.MIN_VALUE;
+
+	private static volatile Instruments instruments;
+
+	static {
+		if (Boolean.getBoolean(PROPERTY)) {
+			enable();
+		} else {
+			// disabled by default
+		}
+	}
+
+	private Metrics() {
+		// static methods only
+	}
+
+	/**
+	 * Enable the {@link Metrics} with the first {@link MetricsRegistry}
+	 * declared as a service, or a {@link DefaultMetricsRegistry} on the
+	 * platform MBean server if there is none.
+	 */
+	public static void enable() {
+		Iterator<MetricsRegistry> services = ServiceLoader.load(
+				MetricsRegistry.class).iterator();
+		enable(services.hasNext() ? services.next()
+				: new DefaultMetricsRegistry());
+	}
+
+	/**
+	 * Enable the {@link Metrics} with new instruments created by the given
+	 * {@link MetricsRegistry}, replacing the ones of any previous registry.
+	 * 
+	 * @param registry
+	 *            the {@link MetricsRegistry} to use
+	 */
+	public static void enable(MetricsRegistry registry) {
+		if (registry == null) {
+			throw new NullPointerException("No registry provided");
+		} else {
+			instruments = new Instruments(registry);
+		}
+	}
+
+	/**
+	 * Stop measuring. The instruments of the previous {@link MetricsRegistry}
+	 * are not updated anymore, but keep their values.
+	 */
+	public static void disable() {
+		instruments = null;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the operations are currently measured
+	 */
+	public static boolean isEnabled() {
+		return instruments != null;
+	}
+
+	/**
+	 * 
+	 * @return the start time of an operation, to give to
+	 *         {@link #stop(Metric, long)} once the operation is done
+	 */
+	public static long start() {
+		return instruments == null ? DISABLED : System.nanoTime();
+	}
+
+	/**
+	 * Record the duration of an operation. Nothing is recorded if the
+	 * {@link Metrics} were disabled when the operation started or are
+	 * disabled now.
+	 * 
+	 * @param metric
+	 *            the timed {@link Metric} of the operation
+	 * @param start
+	 *            the value returned by {@link #start()} when the operation
+	 *            started
+	 */
+	public static void stop(Metric metric, long start) {
+		Instruments current = instruments;
+		if (start == DISABLED || current == null) {
+			// not measured
+		} else {
+			current.timers[metric.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Count an occurrence of an event, if the {@link Metrics} are enabled.
+	 * 
+	 * @param metric
+	 *            the counted {@link Metric} of the event
+	 */
+	public static void increment(Metric metric) {
+		Instruments current = instruments;
+		if (current == null) {
+			// not measured
+		} else {
+			current.counters[metric.ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Count several occurrences of an event, if the {@link Metrics} are
+	 * enabled.
+	 * 
+	 * @param metric
+	 *            the counted {@link Metric} of the event
+	 * @param occurrences
+	 *            the number of occurrences
+	 */
+	public static void increment(Metric metric, int occurrences) {
+		Instruments current = instruments;
+		if (current == null) {
+			// not measured
+		} else {
+			current.counters[metric.ordinal()].add(occurrences);
+		}
+	}
+
+	/**
+	 * The instruments of all the {@link Metric}s, indexed by ordinal, so
+	 * finding one does not need any lookup.
+	 */
+	private static class Instruments {
+		private final Counter[] counters = new Counter[Metric.values().length];
+		private final Timer[] timers = new Timer[Metric.values().length];
+
+		public Instruments(MetricsRegistry registry) {
+			for (Metric metric : Metric.values()) {
+				if (metric.isTimed()) {
+					timers[metric.ordinal()] = registry.createTimer(metric
+							.getName());
+				} else {
+					counters[metric.ordinal()] = registry.createCounter(metric
+							.getName());
+				}
+			}
+		}
+	}
+}
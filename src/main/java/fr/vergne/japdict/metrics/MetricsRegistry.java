@@ -0,0 +1,31 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * A {@link MetricsRegistry} creates the {@link Counter}s and {@link Timer}s of
+ * the {@link Metric}s once they are enabled through
+ * {@link Metrics#enable(MetricsRegistry)}. This is the extension point to
+ * forward the measures to another monitoring system: implementations can also
+ * be declared in a
+ * <code>META-INF/services/fr.vergne.japdict.metrics.MetricsRegistry</code>
+ * file to be picked by {@link Metrics#enable()}. The instruments created are
+ * used concurrently, so they must be thread-safe, and they are on the hot
+ * path of the instrumented operations, so they must be cheap.
+ */
+public interface MetricsRegistry {
+
+	/**
+	 * 
+	 * @param name
+	 *            the name of the {@link Metric}
+	 * @return the {@link Counter} to use for this {@link Metric}
+	 */
+	public Counter createCounter(String name);
+
+	/**
+	 * 
+	 * @param name
+	 *            the name of the {@link Metric}
+	 * @return the {@link Timer} to use for this {@link Metric}
+	 */
+	public Timer createTimer(String name);
+}
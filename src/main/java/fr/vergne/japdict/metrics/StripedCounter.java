@@ -0,0 +1,78 @@
+package fr.vergne.japdict.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link StripedCounter} is a {@link Counter} which can be incremented by
+ * many threads at the same time without making them wait for each other. The
+ * count is split into several stripes, each thread updating the stripe of its
+ * identifier, and the stripes are summed only when the count is read. Each
+ * stripe has its own cache line, so threads updating different stripes do not
+ * invalidate the cache of each other.
+ */
+public class StripedCounter implements Counter, CounterMXBean {
+
+	/**
+	 * Number of <code>long</code> per stripe, so each stripe fills a 64 bytes
+	 * cache line.
+	 */
+	private static final int PADDING = 8;
+	private static final int MAX_STRIPES = 64;
+
+	private final AtomicLongArray cells;
+	private final int mask;
+
+	/**
+	 * Create a {@link StripedCounter} having at least two stripes per
+	 * processor, up to 64.
+	 */
+	public StripedCounter() {
+		int stripes = 1;
+		int wanted = Runtime.getRuntime().availableProcessors() * 2;
+		while (stripes < wanted && stripes < MAX_STRIPES) {
+			stripes <<= 1;
+		}
+		this.mask = stripes - 1;
+		this.cells = new AtomicLongArray(stripes * PADDING);
+	}
+
+	@Override
+	public void increment() {
+		add(1);
+	}
+
+	@Override
+	public void add(long value) {
+		cells.getAndAdd(stripe() * PADDING, value);
+	}
+
+	private int stripe() {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * The sum is not atomic: the increments done while summing may be counted
+	 * or not.
+	 * 
+	 * @return the sum of the values added so far
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < cells.length(); i += PADDING) {
+			sum += cells.get(i);
+		}
+		return sum;
+	}
+
+	@Override
+	public long getCount() {
+		return sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(sum());
+	}
+}
@@ -0,0 +1,16 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * A {@link Timer} records the durations of an operation, like the lookups
+ * in a {@link fr.vergne.japdict.dict.Dictionary}.
+ */
+public interface Timer {
+
+	/**
+	 * Record one execution of the operation.
+	 * 
+	 * @param nanos
+	 *            the duration of the execution, in nanoseconds
+	 */
+	public void record(long nanos);
+}
@@ -0,0 +1,44 @@
+package fr.vergne.japdict.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. The durations are given in
+ * nanoseconds.
+ */
+public interface TimerMXBean {
+
+	/**
+	 * 
+	 * @return the number of durations recorded so far
+	 */
+	public long getCount();
+
+	/**
+	 * 
+	 * @return the mean of the durations recorded so far
+	 */
+	public double getMeanNanos();
+
+	/**
+	 * 
+	 * @return the longest duration recorded so far
+	 */
+	public long getMaxNanos();
+
+	/**
+	 * 
+	 * @return the median of the durations recorded so far
+	 */
+	public long get50thPercentileNanos();
+
+	/**
+	 * 
+	 * @return the duration exceeded by 1% of the durations recorded so far
+	 */
+	public long get99thPercentileNanos();
+
+	/**
+	 * 
+	 * @return the duration exceeded by 0.1% of the durations recorded so far
+	 */
+	public long get999thPercentileNanos();
+}
@@ -0,0 +1,528 @@
+package fr.vergne.japdict.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import fr.vergne.japdict.dict.BinarySegment;
+import fr.vergne.japdict.dict.Dictionary;
+import fr.vergne.japdict.dict.DictionaryHandle;
+import fr.vergne.japdict.dict.Entry;
+import fr.vergne.japdict.jap.JapCharacter;
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaType;
+
+/**
+ * A {@link LookupServer} exposes a {@link Dictionary} and the
+ * {@link KanaFactory} conversions through the HTTP server of the JDK. All the
+ * responses are JSON documents encoded in UTF-8:
+ * <ul>
+ * <li><code>GET /lookup?key=...&amp;key=...</code> looks up all the keys in a
+ * single {@link Dictionary#lookupAll(List)} call and returns an object mapping
+ * each key to its entries. The keys can also be sent with a <code>POST</code>,
+ * one per line, to batch more of them than a URL allows. A body larger than
+ * 1MB is rejected with a 413 status, and more than 10000 keys with a 400
+ * status.</li>
+ * <li><code>GET /romaji?romaji=...&amp;type=hiragana|katakana</code> returns
+ * the kanas of {@link KanaFactory#createFromRomaji(String, KanaType)}, the
+ * romaji being one kana or several ones separated by spaces (e.g. "ne ko").
+ * </li>
+ * <li><code>GET /kana?text=...&amp;type=hiragana|katakana</code> returns the
+ * text given by {@link KanaFactory#transform(String, KanaType)}.</li>
+ * </ul>
+ * Each request is handled on its own virtual thread when the JVM provides them
+ * (Java 21 and later), or on a pooled thread otherwise. Responses are sent with
+ * their length, so connections can be kept alive, and compressed with GZIP
+ * when the client accepts it and they are large enough to benefit from it.<br/>
+ * <br/>
+ * The JDK server writes the headers and the body of a response separately, so
+ * with Nagle's algorithm a small response waits for the delayed ACK of the
+ * client, adding about 40ms to each request of a kept-alive connection. This
+ * is avoided by setting the system property
+ * <code>sun.net.httpserver.nodelay</code> to <code>true</code> before the
+ * first server of the JVM is created, which {@link #main(String[])} does. This
+ * property applies to all the servers of the JVM, so it is left to the
+ * application embedding a {@link LookupServer}.
+ */
+public class LookupServer {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/**
+	 * The minimal size of a response to compress it, smaller ones being sent
+	 * faster as they are.
+	 */
+	static final int GZIP_THRESHOLD = 1024;
+
+	/**
+	 * The maximal size of the body of a <code>POST</code>, in bytes, bigger
+	 * ones being rejected with a 413 status.
+	 */
+	static final int MAX_BODY_SIZE = 1024 * 1024;
+	/**
+	 * The maximal number of keys of a lookup, more being rejected with a 400
+	 * status.
+	 */
+	static final int MAX_KEYS = 10000;
+
+	private final Dictionary dictionary;
+	private final KanaFactory factory = new KanaFactory();
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final int maxBodySize;
+	private final int maxKeys;
+
+	/**
+	 * 
+	 * @param dictionary
+	 *            the {@link Dictionary} to expose, which can be a
+	 *            {@link DictionaryHandle} to update it while serving
+	 * @param address
+	 *            the address to listen to, a port 0 picking any free port
+	 * @throws IOException
+	 *             if the address cannot be bound
+	 */
+	public LookupServer(Dictionary dictionary, InetSocketAddress address)
+			throws IOException {
+		this(dictionary, address, MAX_BODY_SIZE, MAX_KEYS);
+	}
+
+	LookupServer(Dictionary dictionary, InetSocketAddress address,
+			int maxBodySize, int maxKeys) throws IOException {
+		if (dictionary == null) {
+			throw new NullPointerException("No dictionary provided");
+		} else if (maxBodySize <= 0) {
+			throw new IllegalArgumentException("Invalid body size: "
+					+ maxBodySize);
+		} else if (maxKeys <= 0) {
+			throw new IllegalArgumentException("Invalid number of keys: "
+					+ maxKeys);
+		} else {
+			this.dictionary = dictionary;
+			this.maxBodySize = maxBodySize;
+			this.maxKeys = maxKeys;
+			this.server = HttpServer.create(address, 0);
+			this.executor = createExecutor();
+			server.setExecutor(executor);
+			server.createContext("/lookup", new LookupHandler());
+			server.createContext("/romaji", new RomajiHandler());
+			server.createContext("/kana", new KanaHandler());
+		}
+	}
+
+	/**
+	 * 
+	 * @return an executor starting a virtual thread per task if the JVM
+	 *         supports it, otherwise a pool of daemon threads
+	 */
+	static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			final AtomicInteger counter = new AtomicInteger();
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "japdict-http-"
+							+ counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Start to serve requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop to serve requests, waiting at most the given delay for the current
+	 * exchanges to finish. The {@link Dictionary} is not closed.
+	 * 
+	 * @param delay
+	 *            the maximal delay to wait, in seconds
+	 */
+	public void stop(int delay) {
+		server.stop(delay);
+		executor.shutdown();
+	}
+
+	/**
+	 * 
+	 * @return the address this {@link LookupServer} listens to, giving the
+	 *         actual port when a port 0 was requested
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	private abstract class JsonHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			StringBuilder json = new StringBuilder(256);
+			int status;
+			try {
+				Map<String, List<String>> parameters = parseQuery(exchange
+						.getRequestURI().getRawQuery());
+				status = respond(exchange, parameters, json);
+			} catch (BodyTooLargeException e) {
+				json.setLength(0);
+				json.append("{\"error\":");
+				appendString(json, e.getMessage());
+				json.append('}');
+				status = 413;
+			} catch (IllegalArgumentException e) {
+				json.setLength(0);
+				json.append("{\"error\":");
+				appendString(json, String.valueOf(e.getMessage()));
+				json.append('}');
+				status = 400;
+			} catch (IOException e) {
+				// the request could not be read, like a truncated body
+				json.setLength(0);
+				json.append("{\"error\":\"unreadable request\"}");
+				status = 400;
+			} catch (RuntimeException e) {
+				json.setLength(0);
+				json.append("{\"error\":\"internal error\"}");
+				status = 500;
+			}
+			send(exchange, status, json);
+		}
+
+		/**
+		 * Write the JSON response of a request.
+		 * 
+		 * @return the HTTP status of the response
+		 * @throws BodyTooLargeException
+		 *             if the body of the request is too large
+		 * @throws IllegalArgumentException
+		 *             if the request is invalid
+		 * @throws IOException
+		 *             if the request cannot be read
+		 */
+		protected abstract int respond(HttpExchange exchange,
+				Map<String, List<String>> parameters, StringBuilder json)
+				throws IOException;
+	}
+
+	/**
+	 * Thrown when the body of a request is larger than accepted.
+	 */
+	@SuppressWarnings("serial")
+	private static class BodyTooLargeException extends
+			IllegalArgumentException {
+
+		public BodyTooLargeException(int maxSize) {
+			super("Body larger than " + maxSize + " bytes");
+		}
+	}
+
+	private class LookupHandler extends JsonHandler {
+
+		@Override
+		protected int respond(HttpExchange exchange,
+				Map<String, List<String>> parameters, StringBuilder json)
+				throws IOException {
+			List<String> keys = new ArrayList<>();
+			List<String> queried = parameters.get("key");
+			if (queried != null) {
+				keys.addAll(queried);
+			} else {
+				// no key in the URL
+			}
+			if ("POST".equals(exchange.getRequestMethod())) {
+				String body = new String(readAll(exchange.getRequestBody(),
+						maxBodySize), UTF_8);
+				for (String line : body.split("\r?\n")) {
+					if (!line.isEmpty()) {
+						keys.add(line);
+					} else {
+						// empty line
+					}
+				}
+			} else {
+				// keys in the URL only
+			}
+			if (keys.isEmpty()) {
+				throw new IllegalArgumentException("No key provided");
+			} else if (keys.size() > maxKeys) {
+				throw new IllegalArgumentException("Too many keys: "
+						+ keys.size() + " > " + maxKeys);
+			} else {
+				List<List<Entry>> results = dictionary.lookupAll(keys);
+				json.append('{');
+				for (int i = 0; i < keys.size(); i++) {
+					if (i > 0) {
+						json.append(',');
+					} else {
+						// first key
+					}
+					appendString(json, keys.get(i));
+					json.append(":[");
+					List<Entry> entries = results.get(i);
+					for (int j = 0; j < entries.size(); j++) {
+						if (j > 0) {
+							json.append(',');
+						} else {
+							// first entry
+						}
+						appendEntry(json, entries.get(j));
+					}
+					json.append(']');
+				}
+				json.append('}');
+				return 200;
+			}
+		}
+	}
+
+	private class RomajiHandler extends JsonHandler {
+
+		@Override
+		protected int respond(HttpExchange exchange,
+				Map<String, List<String>> parameters, StringBuilder json) {
+			String romaji = getParameter(parameters, "romaji");
+			KanaType type = getType(parameters);
+			StringBuilder kanas = new StringBuilder();
+			for (String syllable : romaji.trim().split("\\s+")) {
+				JapCharacter kana = factory.createFromRomaji(syllable, type);
+				kanas.append(kana.toChar());
+			}
+			json.append("{\"romaji\":");
+			appendString(json, romaji);
+			json.append(",\"kana\":");
+			appendString(json, kanas.toString());
+			json.append('}');
+			return 200;
+		}
+	}
+
+	private class KanaHandler extends JsonHandler {
+
+		@Override
+		protected int respond(HttpExchange exchange,
+				Map<String, List<String>> parameters, StringBuilder json) {
+			String text = getParameter(parameters, "text");
+			KanaType type = getType(parameters);
+			json.append("{\"text\":");
+			appendString(json, text);
+			json.append(",\"kana\":");
+			appendString(json, factory.transform(text, type));
+			json.append('}');
+			return 200;
+		}
+	}
+
+	private static String getParameter(Map<String, List<String>> parameters,
+			String name) {
+		List<String> values = parameters.get(name);
+		if (values == null) {
+			throw new IllegalArgumentException("No " + name + " provided");
+		} else {
+			return values.get(0);
+		}
+	}
+
+	private static KanaType getType(Map<String, List<String>> parameters) {
+		List<String> values = parameters.get("type");
+		if (values == null) {
+			return KanaType.HIRAGANA;
+		} else {
+			try {
+				return KanaType.valueOf(values.get(0).toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown type: "
+						+ values.get(0));
+			}
+		}
+	}
+
+	static Map<String, List<String>> parseQuery(String query) {
+		Map<String, List<String>> parameters = new LinkedHashMap<>();
+		if (query == null || query.isEmpty()) {
+			// no parameter
+		} else {
+			for (String pair : query.split("&")) {
+				int separator = pair.indexOf('=');
+				String name = decode(separator < 0 ? pair : pair.substring(0,
+						separator));
+				String value = separator < 0 ? "" : decode(pair
+						.substring(separator + 1));
+				List<String> values = parameters.get(name);
+				if (values == null) {
+					values = new ArrayList<>(1);
+					parameters.put(name, values);
+				} else {
+					// add to the previous values
+				}
+				values.add(value);
+			}
+		}
+		return parameters;
+	}
+
+	private static String decode(String text) {
+		try {
+			return URLDecoder.decode(text, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Read a body, but no more than the maximal size, so a huge body cannot
+	 * fill the memory.
+	 */
+	private static byte[] readAll(InputStream input, int maxSize)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = input.read(buffer)) >= 0) {
+			if (bytes.size() + read > maxSize) {
+				throw new BodyTooLargeException(maxSize);
+			} else {
+				bytes.write(buffer, 0, read);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void appendEntry(StringBuilder json, Entry entry) {
+		json.append("{\"writing\":");
+		appendString(json, entry.getWriting());
+		json.append(",\"reading\":");
+		appendString(json, entry.getReading());
+		json.append(",\"priority\":").append(entry.getPriority());
+		json.append(",\"glosses\":[");
+		List<String> glosses = entry.getGlosses();
+		for (int i = 0; i < glosses.size(); i++) {
+			if (i > 0) {
+				json.append(',');
+			} else {
+				// first gloss
+			}
+			appendString(json, glosses.get(i));
+		}
+		json.append("]}");
+	}
+
+	static void appendString(StringBuilder json, String text) {
+		json.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			if (character == '"' || character == '\\') {
+				json.append('\\').append(character);
+			} else if (character == '\n') {
+				json.append("\\n");
+			} else if (character == '\r') {
+				json.append("\\r");
+			} else if (character == '\t') {
+				json.append("\\t");
+			} else if (character < 0x20) {
+				json.append(String.format("\\u%04x", (int) character));
+			} else {
+				json.append(character);
+			}
+		}
+		json.append('"');
+	}
+
+	private static void send(HttpExchange exchange, int status,
+			StringBuilder json) throws IOException {
+		byte[] body = json.toString().getBytes(UTF_8);
+		String encodings = exchange.getRequestHeaders().getFirst(
+				"Accept-Encoding");
+		if (body.length >= GZIP_THRESHOLD && encodings != null
+				&& encodings.contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+					body.length / 4);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(body);
+			}
+			body = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		} else {
+			// send as is
+		}
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Disable Nagle's algorithm for the HTTP servers of the JVM, unless the
+	 * property <code>sun.net.httpserver.nodelay</code> is explicitly set. It
+	 * has effect only if called before the first server of the JVM is created.
+	 */
+	static void enableNoDelay() {
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		} else {
+			// explicitly configured
+		}
+	}
+
+	/**
+	 * Serve a {@link BinarySegment} until the JVM stops.
+	 * 
+	 * @param args
+	 *            the segment file, then optionally the port to listen to
+	 *            (8080 by default)
+	 * @throws IOException
+	 *             if the segment cannot be read or the port cannot be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: " + LookupServer.class.getName()
+					+ " <segment file> [port]");
+			System.exit(1);
+		} else {
+			int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+			enableNoDelay();
+			final DictionaryHandle handle = new DictionaryHandle(
+					BinarySegment.open(new File(args[0])));
+			final LookupServer server = new LookupServer(handle,
+					new InetSocketAddress(port));
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					server.stop(1);
+					handle.close();
+				}
+			});
+			server.start();
+			System.out.println("Listening on " + server.getAddress());
+		}
+	}
+}
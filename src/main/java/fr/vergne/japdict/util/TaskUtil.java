@@ -0,0 +1,132 @@
+package fr.vergne.japdict.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers to run tasks in parallel while keeping the exceptions of the
+ * sequential code.
+ */
+public class TaskUtil {
+
+	/**
+	 * Run tasks on a new {@link ForkJoinPool}, shut down once they are done.
+	 * 
+	 * @param <T>
+	 *            the type of the results
+	 * @param tasks
+	 *            the tasks to run
+	 * @param parallelism
+	 *            the number of threads to use
+	 * @return the results of the tasks, in the order of the tasks
+	 * @throws IOException
+	 *             if a task fails with an {@link IOException}, or if the
+	 *             current thread is interrupted while waiting for the tasks
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks,
+			int parallelism) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return invokeAll(pool, tasks);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Run tasks on a {@link ForkJoinPool}. The exception of the first task
+	 * failing, in the order of the tasks, is thrown as is if it is an
+	 * {@link IOException} or a {@link RuntimeException}.
+	 * 
+	 * @param <T>
+	 *            the type of the results
+	 * @param pool
+	 *            the {@link ForkJoinPool} running the tasks
+	 * @param tasks
+	 *            the tasks to run
+	 * @return the results of the tasks, in the order of the tasks
+	 * @throws IOException
+	 *             if a task fails with an {@link IOException}, or if the
+	 *             current thread is interrupted while waiting for the tasks
+	 */
+	public static <T> List<T> invokeAll(ForkJoinPool pool,
+			List<? extends Callable<T>> tasks) throws IOException {
+		List<Callable<T>> checkedTasks = new ArrayList<>(tasks.size());
+		for (Callable<T> task : tasks) {
+			checkedTasks.add(new CheckedTask<>(task));
+		}
+		List<T> results = new ArrayList<>(tasks.size());
+		for (Future<T> task : pool.invokeAll(checkedTasks)) {
+			results.add(waitFor(task));
+		}
+		return results;
+	}
+
+	/**
+	 * A {@link ForkJoinPool} wraps the checked exceptions of the tasks into
+	 * {@link RuntimeException}s, and may wrap again the exceptions coming from
+	 * another thread, so the checked exceptions are wrapped explicitly into a
+	 * {@link CheckedFailure} to find them back.
+	 */
+	private static class CheckedTask<T> implements Callable<T> {
+		private final Callable<T> task;
+
+		public CheckedTask(Callable<T> task) {
+			this.task = task;
+		}
+
+		@Override
+		public T call() {
+			try {
+				return task.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CheckedFailure(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class CheckedFailure extends RuntimeException {
+		public CheckedFailure(Exception cause) {
+			super(cause);
+		}
+	}
+
+	private static <T> T waitFor(Future<T> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a task", e);
+		} catch (ExecutionException e) {
+			for (Throwable cause = e.getCause(); cause != null; cause = cause
+					.getCause()) {
+				if (cause instanceof CheckedFailure) {
+					Throwable failure = cause.getCause();
+					if (failure instanceof IOException) {
+						throw (IOException) failure;
+					} else {
+						throw new RuntimeException(failure);
+					}
+				} else {
+					// search deeper
+				}
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+}
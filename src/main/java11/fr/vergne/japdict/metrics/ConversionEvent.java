@@ -0,0 +1,25 @@
+package fr.vergne.japdict.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("fr.vergne.japdict.Conversion")
+@Label("Kana Conversion")
+@Description("Conversion of a text by KanaFactory")
+@Category("Japanese Dictionary")
+@StackTrace(false)
+class ConversionEvent extends Event {
+
+	@Label("Input Length")
+	int inputLength;
+
+	@Label("Result Length")
+	int resultLength;
+
+	@Label("Kana Type")
+	String type;
+}
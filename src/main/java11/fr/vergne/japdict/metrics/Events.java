@@ -0,0 +1,92 @@
+package fr.vergne.japdict.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Java 11 version of {@link Events}, emitting JDK Flight Recorder events. The
+ * events are created only if their type is enabled in a running recording,
+ * and the timed ones are committed only if their duration exceeds the
+ * threshold of the recording.
+ */
+public class Events {
+
+	private static final EventType CONVERSION = EventType
+			.getEventType(ConversionEvent.class);
+	private static final EventType LOOKUP = EventType
+			.getEventType(LookupEvent.class);
+	private static final EventType ROMAJI_FAILURE = EventType
+			.getEventType(RomajiFailureEvent.class);
+
+	private Events() {
+		// static methods only
+	}
+
+	public static Object beginConversion() {
+		if (CONVERSION.isEnabled()) {
+			ConversionEvent event = new ConversionEvent();
+			event.begin();
+			return event;
+		} else {
+			return null;
+		}
+	}
+
+	public static void commitConversion(Object event, int inputLength,
+			int resultLength, String type) {
+		if (event == null) {
+			// not recorded
+		} else {
+			ConversionEvent conversion = (ConversionEvent) event;
+			conversion.end();
+			if (conversion.shouldCommit()) {
+				conversion.inputLength = inputLength;
+				conversion.resultLength = resultLength;
+				conversion.type = type;
+				conversion.commit();
+			} else {
+				// below threshold
+			}
+		}
+	}
+
+	public static void romajiFailure(String romaji, String type, String reason) {
+		if (ROMAJI_FAILURE.isEnabled()) {
+			RomajiFailureEvent event = new RomajiFailureEvent();
+			event.romaji = romaji;
+			event.inputLength = romaji == null ? 0 : romaji.length();
+			event.type = type;
+			event.reason = reason;
+			event.commit();
+		} else {
+			// not recorded
+		}
+	}
+
+	public static Object beginLookup() {
+		if (LOOKUP.isEnabled()) {
+			LookupEvent event = new LookupEvent();
+			event.begin();
+			return event;
+		} else {
+			return null;
+		}
+	}
+
+	public static void commitLookup(Object event, int keyCount,
+			int resultCount, int missCount) {
+		if (event == null) {
+			// not recorded
+		} else {
+			LookupEvent lookup = (LookupEvent) event;
+			lookup.end();
+			if (lookup.shouldCommit()) {
+				lookup.keyCount = keyCount;
+				lookup.resultCount = resultCount;
+				lookup.missCount = missCount;
+				lookup.commit();
+			} else {
+				// below threshold
+			}
+		}
+	}
+}
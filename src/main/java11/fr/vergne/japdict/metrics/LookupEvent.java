@@ -0,0 +1,25 @@
+package fr.vergne.japdict.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("fr.vergne.japdict.Lookup")
+@Label("Dictionary Lookup")
+@Description("Lookup of one or several keys in the index of a BinarySegment")
+@Category("Japanese Dictionary")
+@StackTrace(false)
+class LookupEvent extends Event {
+
+	@Label("Key Count")
+	int keyCount;
+
+	@Label("Result Count")
+	int resultCount;
+
+	@Label("Miss Count")
+	int missCount;
+}
@@ -0,0 +1,26 @@
+package fr.vergne.japdict.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fr.vergne.japdict.RomajiFailure")
+@Label("Romaji Failure")
+@Description("Romaji rejected by KanaFactory")
+@Category("Japanese Dictionary")
+class RomajiFailureEvent extends Event {
+
+	@Label("Romaji")
+	String romaji;
+
+	@Label("Input Length")
+	int inputLength;
+
+	@Label("Kana Type")
+	String type;
+
+	@Label("Reason")
+	String reason;
+}
@@ -0,0 +1,125 @@
+package fr.vergne.japdict.jap;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Java 17 version of {@link BulkKana}, converting the chars with the Vector
+ * API when the <code>jdk.incubator.vector</code> module is added. The range of
+ * chars to convert and the constant to add are computed from the kana tables,
+ * so the conversion stays the one of {@link KanaFactory}: if a table is not a
+ * single range shifted by a constant, the scalar conversion is used.
+ */
+public class BulkKana {
+
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+	/**
+	 * The first char, last char and constant to add for each {@link KanaType},
+	 * <code>null</code> if its table is not a single shifted range.
+	 */
+	private static final int[] TO_HIRAGANA = computeShift(KanaType.HIRAGANA);
+	private static final int[] TO_KATAKANA = computeShift(KanaType.KATAKANA);
+	private static final boolean ACCELERATED = ModuleLayer.boot()
+			.findModule(VECTOR_MODULE).isPresent()
+			&& TO_HIRAGANA != null && TO_KATAKANA != null;
+
+	private BulkKana() {
+		// static methods only
+	}
+
+	private static int[] computeShift(KanaType type) {
+		char[] table = KanaFactory.KanaTables.get(type);
+		int first = -1;
+		int last = -1;
+		int delta = 0;
+		for (int i = 0; i < table.length; i++) {
+			char character = (char) (KanaFactory.KanaTables.MIN + i);
+			if (table[i] == 0 || table[i] == character) {
+				// unchanged
+			} else if (first < 0) {
+				first = character;
+				last = character;
+				delta = table[i] - character;
+			} else if (last == character - 1
+					&& table[i] - character == delta) {
+				last = character;
+			} else {
+				return null;
+			}
+		}
+		return first < 0 ? null : new int[] { first, last, delta };
+	}
+
+	public static boolean isAccelerated() {
+		return ACCELERATED;
+	}
+
+	public static void transform(char[] chars, int offset, int length,
+			KanaType type) {
+		if (type == null) {
+			throw new NullPointerException("No type provided");
+		} else if (offset < 0 || length < 0 || offset + length > chars.length) {
+			throw new IndexOutOfBoundsException("Invalid range " + offset
+					+ "+" + length + " for " + chars.length + " chars");
+		} else {
+			int end = offset + length;
+			int start = offset;
+			if (ACCELERATED) {
+				int[] shift = type == KanaType.HIRAGANA ? TO_HIRAGANA
+						: TO_KATAKANA;
+				start = Vectors.transform(chars, offset, end, (short) shift[0],
+						(short) shift[1], (short) shift[2]);
+			} else {
+				// scalar only
+			}
+			char[] table = KanaFactory.KanaTables.get(type);
+			for (int i = start; i < end; i++) {
+				int index = chars[i] - KanaFactory.KanaTables.MIN;
+				if (index >= 0 && index < table.length && table[index] != 0) {
+					chars[i] = table[index];
+				} else {
+					// not a kana or no counterpart
+				}
+			}
+		}
+	}
+
+	public static String transform(String text, KanaType type) {
+		char[] chars = text.toCharArray();
+		transform(chars, 0, chars.length, type);
+		return new String(chars);
+	}
+
+	/**
+	 * The vectorized conversion, in its own class to load the Vector API only
+	 * when the module is present.
+	 */
+	private static class Vectors {
+		private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+		/**
+		 * Convert the chars by whole vectors, the chars being compared as
+		 * shorts: the chars above 0x7FFF become negative, so below the kanas.
+		 * 
+		 * @return the index of the first char not converted
+		 */
+		static int transform(char[] chars, int offset, int end, short first,
+				short last, short delta) {
+			int bound = offset + SPECIES.loopBound(end - offset);
+			int i = offset;
+			for (; i < bound; i += SPECIES.length()) {
+				ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, i);
+				VectorMask<Short> mask = vector.compare(VectorOperators.GE,
+						first).and(vector.compare(VectorOperators.LE, last));
+				if (mask.anyTrue()) {
+					vector.add(delta, mask).intoCharArray(chars, i);
+				} else {
+					// no kana to convert
+				}
+			}
+			return i;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AutocompleteIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final List<Entry> ENTRIES = Arrays.asList(
+			entry("紙", "かみ", 3), entry("神", "かみ", 7), entry("川", "かわ", 5),
+			entry("蟹", "かに", 1), entry("漢字", "かんじ", 6),
+			entry("カメラ", "カメラ", 4), entry("木", "き", 9),
+			entry("今日", "きょう", 8));
+
+	private static Entry entry(String writing, String reading, int priority) {
+		return new Entry(writing, reading, Arrays.asList(writing), priority);
+	}
+
+	private AutocompleteIndex createIndex(List<Entry> entries, int depth,
+			int limit) throws IOException {
+		File file = folder.newFile();
+		AutocompleteIndex.write(entries, depth, limit, file);
+		return AutocompleteIndex.open(file);
+	}
+
+	private static String getWritings(BinarySegment segment, int[] indexes) {
+		List<String> writings = new ArrayList<>();
+		for (int index : indexes) {
+			writings.add(segment.getEntry(index).getWriting());
+		}
+		return writings.toString();
+	}
+
+	@Test
+	public void testCompleteReturnsBestEntriesFirst() throws IOException {
+		File segmentFile = folder.newFile();
+		BinarySegment.write(ENTRIES, segmentFile);
+		try (BinarySegment segment = BinarySegment.open(segmentFile);
+				AutocompleteIndex index = createIndex(ENTRIES, 3, 3)) {
+			assertEquals("[神, 漢字, 川]",
+					getWritings(segment, index.complete("か")));
+			assertEquals("[神, 紙]", getWritings(segment, index.complete("かみ")));
+			assertEquals("[木, 今日, 神]", getWritings(segment, index.complete("")));
+			assertEquals("[]", getWritings(segment, index.complete("く")));
+		}
+	}
+
+	@Test
+	public void testCompleteNormalizesKatakanas() throws IOException {
+		File segmentFile = folder.newFile();
+		BinarySegment.write(ENTRIES, segmentFile);
+		try (BinarySegment segment = BinarySegment.open(segmentFile);
+				AutocompleteIndex index = createIndex(ENTRIES, 3, 10)) {
+			assertEquals("[カメラ]", getWritings(segment, index.complete("カメ")));
+			assertEquals("[神, 紙]", getWritings(segment, index.complete("カミ")));
+		}
+	}
+
+	@Test
+	public void testCompleteRomajiCompletesPendingConsonants()
+			throws IOException {
+		File segmentFile = folder.newFile();
+		BinarySegment.write(ENTRIES, segmentFile);
+		try (BinarySegment segment = BinarySegment.open(segmentFile);
+				AutocompleteIndex index = createIndex(ENTRIES, 3, 10)) {
+			assertEquals("[神, 紙]",
+					getWritings(segment, index.completeRomaji("kami")));
+			assertEquals("[漢字, 蟹]",
+					getWritings(segment, index.completeRomaji("kan")));
+			assertEquals("[神, カメラ, 紙]",
+					getWritings(segment, index.completeRomaji("kam")));
+			assertEquals("[今日]",
+					getWritings(segment, index.completeRomaji("ky")));
+			assertEquals("[木, 今日]",
+					getWritings(segment, index.completeRomaji("KI")));
+		}
+	}
+
+	@Test
+	public void testPrefixLongerThanDepthIsCut() throws IOException {
+		File segmentFile = folder.newFile();
+		BinarySegment.write(ENTRIES, segmentFile);
+		try (BinarySegment segment = BinarySegment.open(segmentFile);
+				AutocompleteIndex index = createIndex(ENTRIES, 2, 10)) {
+			assertEquals("[漢字]", getWritings(segment, index.complete("かんじ")));
+			assertEquals("[神, 紙]",
+					getWritings(segment, index.complete("かみさま")));
+			assertEquals("[漢字]",
+					getWritings(segment, index.completeRomaji("kanj")));
+			assertEquals("[漢字]",
+					getWritings(segment, index.completeRomaji("kanji")));
+			assertEquals("[]", getWritings(segment, index.complete("くるま")));
+		}
+	}
+
+	@Test
+	public void testCompleteMatchesBruteForce() throws IOException {
+		Random random = new Random(0);
+		String kanas = "かきがぎゃ";
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			StringBuilder reading = new StringBuilder();
+			for (int j = random.nextInt(5); j >= 0; j--) {
+				reading.append(kanas.charAt(random.nextInt(kanas.length())));
+			}
+			entries.add(entry("w" + i, reading.toString(), random.nextInt(10)));
+		}
+		File segmentFile = folder.newFile();
+		BinarySegment.write(entries, segmentFile);
+
+		try (BinarySegment segment = BinarySegment.open(segmentFile);
+				AutocompleteIndex index = createIndex(entries, 3, 7)) {
+			assertEquals(3, index.getDepth());
+			assertEquals(7, index.getLimit());
+			for (int q = 0; q < 200; q++) {
+				StringBuilder prefix = new StringBuilder();
+				for (int j = random.nextInt(4); j > 0; j--) {
+					prefix.append(kanas.charAt(random.nextInt(kanas.length())));
+				}
+				List<Integer> expected = new ArrayList<>();
+				for (int i = 0; i < segment.size() && expected.size() < 7; i++) {
+					if (segment.getEntry(i).getReading()
+							.startsWith(prefix.toString())) {
+						expected.add(i);
+					} else {
+						// other prefix
+					}
+				}
+				List<Integer> actual = new ArrayList<>();
+				for (int i : index.complete(prefix.toString())) {
+					actual.add(i);
+				}
+				assertEquals(prefix.toString(), expected, actual);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package fr.vergne.japdict.dict;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare {@link BinarySegment#lookupAll(List)} with successive calls to
+ * {@link BinarySegment#lookup(String)} on a segment of 200k entries, for
+ * batches of 20k keys similar to the ones of an annotation job (many
+ * duplicates, half of them missing). This is not a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes fr.vergne.japdict.dict.BatchLookupBenchmark
+ * </pre>
+ */
+public class BatchLookupBenchmark {
+
+	private static final int ENTRIES = 200000;
+	private static final int KEYS = 20000;
+	private static final int ROUNDS = 50;
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(0);
+		List<Entry> entries = new ArrayList<>(ENTRIES);
+		for (int i = 0; i < ENTRIES; i++) {
+			entries.add(new Entry(word(i), reading(i), Arrays.asList("gloss "
+					+ i), random.nextInt(100)));
+		}
+		File file = File.createTempFile("benchmark", ".bin");
+		file.deleteOnExit();
+		BinarySegment.write(entries, file);
+
+		try (BinarySegment segment = BinarySegment.open(file)) {
+			List<String> keys = new ArrayList<>(KEYS);
+			for (int i = 0; i < KEYS; i++) {
+				// Zipf-like distribution: frequent words repeat a lot
+				int rank = (int) Math.pow(ENTRIES, random.nextDouble());
+				if (random.nextBoolean()) {
+					// candidate which is not a word
+					rank += ENTRIES;
+				} else {
+					// existing word
+				}
+				keys.add(random.nextBoolean() ? word(rank) : reading(rank));
+			}
+
+			long bestSingle = Long.MAX_VALUE;
+			long bestBatch = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				int single = 0;
+				for (String key : keys) {
+					single += segment.lookup(key).size();
+				}
+				long singleTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				int batch = 0;
+				for (List<Entry> found : segment.lookupAll(keys)) {
+					batch += found.size();
+				}
+				long batchTime = System.nanoTime() - start;
+
+				if (single != batch) {
+					throw new IllegalStateException(single + " != " + batch);
+				} else {
+					bestSingle = Math.min(bestSingle, singleTime);
+					bestBatch = Math.min(bestBatch, batchTime);
+				}
+			}
+			System.out.println(String.format(
+					"best of %d rounds: single %.2f ms, batch %.2f ms (x%.1f)",
+					ROUNDS, bestSingle / 1e6, bestBatch / 1e6,
+					(double) bestSingle / bestBatch));
+		}
+	}
+
+	private static String word(int index) {
+		return "語" + Integer.toString(index, 36);
+	}
+
+	private static String reading(int index) {
+		StringBuilder builder = new StringBuilder();
+		do {
+			builder.append((char) ('あ' + index % 80));
+			index /= 80;
+		} while (index > 0);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,162 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinarySegmentTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Entry entry(String writing, String reading, int priority,
+			String... glosses) {
+		return new Entry(writing, reading, Arrays.asList(glosses), priority);
+	}
+
+	private BinarySegment createSegment(Entry... entries) throws IOException {
+		File file = folder.newFile();
+		BinarySegment.write(Arrays.asList(entries), file);
+		return BinarySegment.open(file);
+	}
+
+	@Test
+	public void testLookupFindsEntriesByWritingAndReading() throws IOException {
+		Entry food = entry("食べ物", "たべもの", 0, "food");
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		BinarySegment segment = createSegment(food, dog);
+
+		assertEquals(Arrays.asList(food), segment.lookup("食べ物"));
+		assertEquals(Arrays.asList(food), segment.lookup("たべもの"));
+		assertEquals(Arrays.asList(dog), segment.lookup("犬"));
+		assertEquals(Arrays.asList(dog), segment.lookup("いぬ"));
+	}
+
+	@Test
+	public void testLookupReturnsEmptyListForUnknownKey() throws IOException {
+		BinarySegment segment = createSegment(entry("犬", "いぬ", 0, "dog"));
+
+		assertTrue(segment.lookup("ねこ").isEmpty());
+		assertTrue(segment.lookup("い").isEmpty());
+		assertTrue(segment.lookup("いぬい").isEmpty());
+		assertTrue(segment.lookup("").isEmpty());
+	}
+
+	@Test
+	public void testLookupOrdersEntriesByDecreasingPriority()
+			throws IOException {
+		Entry low = entry("紙", "かみ", 1, "paper");
+		Entry high = entry("神", "かみ", 5, "god");
+		Entry middle = entry("髪", "かみ", 3, "hair");
+		BinarySegment segment = createSegment(low, high, middle);
+
+		assertEquals(Arrays.asList(high, middle, low), segment.lookup("かみ"));
+	}
+
+	@Test
+	public void testKanaOnlyEntryIsReturnedOnce() throws IOException {
+		Entry entry = entry("すし", "すし", 0, "sushi");
+		BinarySegment segment = createSegment(entry);
+
+		assertEquals(Arrays.asList(entry), segment.lookup("すし"));
+	}
+
+	@Test
+	public void testEntriesAreRestoredWithAllTheirData() throws IOException {
+		Entry entry = entry("食べる", "たべる", 42, "to eat", "to live on");
+		BinarySegment segment = createSegment(entry);
+
+		assertEquals(1, segment.size());
+		Entry restored = segment.getEntry(0);
+		assertEquals("食べる", restored.getWriting());
+		assertEquals("たべる", restored.getReading());
+		assertEquals(42, restored.getPriority());
+		assertEquals(Arrays.asList("to eat", "to live on"),
+				restored.getGlosses());
+	}
+
+	@Test
+	public void testGetEntriesReturnsAllEntries() throws IOException {
+		Entry e1 = entry("一", "いち", 2, "one");
+		Entry e2 = entry("二", "に", 1, "two");
+		BinarySegment segment = createSegment(e2, e1);
+
+		List<Entry> entries = segment.getEntries();
+		assertEquals(Arrays.asList(e1, e2), entries);
+	}
+
+	@Test
+	public void testOpenRejectsNonSegmentFile() throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5,
+				6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+		try {
+			BinarySegment.open(file);
+			fail("No exception thrown");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testLookupAllReturnsResultsInInputOrder() throws IOException {
+		Entry food = entry("食べ物", "たべもの", 0, "food");
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		Entry cat = entry("猫", "ねこ", 0, "cat");
+		BinarySegment segment = createSegment(food, dog, cat);
+
+		List<List<Entry>> results = segment.lookupAll(Arrays.asList("ねこ",
+				"とり", "犬", "たべもの", "ねこ"));
+		assertEquals(5, results.size());
+		assertEquals(Arrays.asList(cat), results.get(0));
+		assertTrue(results.get(1).isEmpty());
+		assertEquals(Arrays.asList(dog), results.get(2));
+		assertEquals(Arrays.asList(food), results.get(3));
+		assertEquals(Arrays.asList(cat), results.get(4));
+	}
+
+	@Test
+	public void testLookupAllReturnsIndependentResultsForDuplicatedKeys()
+			throws IOException {
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		BinarySegment segment = createSegment(dog);
+
+		List<List<Entry>> results = segment.lookupAll(Arrays.asList("いぬ",
+				"いぬ"));
+		results.get(0).clear();
+		assertEquals(Arrays.asList(dog), results.get(1));
+	}
+
+	@Test
+	public void testLookupAllIsConsistentWithLookup() throws IOException {
+		Random random = new Random(0);
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			entries.add(entry("語" + random.nextInt(500), "ご" + i,
+					random.nextInt(10), "word " + i));
+		}
+		File file = folder.newFile();
+		BinarySegment.write(entries, file);
+		BinarySegment segment = BinarySegment.open(file);
+
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			keys.add((random.nextBoolean() ? "語" : "ご")
+					+ random.nextInt(1100));
+		}
+		List<List<Entry>> results = segment.lookupAll(keys);
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(keys.get(i), segment.lookup(keys.get(i)),
+					results.get(i));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DictionaryHandleTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BinarySegment createVersion(int version) throws IOException {
+		File file = folder.newFile();
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			entries.add(new Entry("語" + i, "ご" + i, Arrays.asList(""
+					+ version), 0));
+		}
+		BinarySegment.write(entries, file);
+		return BinarySegment.open(file);
+	}
+
+	private static int versionOf(List<Entry> entries) {
+		assertEquals(1, entries.size());
+		return Integer.parseInt(entries.get(0).getGlosses().get(0));
+	}
+
+	@Test
+	public void testLookupUsesCurrentVersion() throws IOException {
+		try (DictionaryHandle handle = new DictionaryHandle(createVersion(1))) {
+			assertEquals(1, versionOf(handle.lookup("ご1")));
+			handle.swap(createVersion(2));
+			assertEquals(2, versionOf(handle.lookup("ご1")));
+		}
+	}
+
+	@Test
+	public void testSwapReleasesUnusedVersion() throws IOException {
+		BinarySegment version1 = createVersion(1);
+		try (DictionaryHandle handle = new DictionaryHandle(version1)) {
+			handle.swap(createVersion(2));
+			assertTrue(version1.isClosed());
+		}
+	}
+
+	@Test
+	public void testSwapKeepsVersionUsedByReader() throws IOException {
+		BinarySegment version1 = createVersion(1);
+		BinarySegment version2 = createVersion(2);
+		try (DictionaryHandle handle = new DictionaryHandle(version1)) {
+			Snapshot snapshot = handle.acquire();
+			handle.swap(version2);
+
+			assertFalse(version1.isClosed());
+			assertEquals(1, versionOf(snapshot.lookup("ご1")));
+			assertEquals(2, versionOf(handle.lookup("ご1")));
+
+			snapshot.close();
+			assertTrue(version1.isClosed());
+			assertFalse(version2.isClosed());
+		}
+		assertTrue(version2.isClosed());
+	}
+
+	@Test
+	public void testReleasedSnapshotCannotBeRetained() throws IOException {
+		Snapshot snapshot = new Snapshot(createVersion(1));
+		assertTrue(snapshot.retain());
+		snapshot.close();
+		assertFalse(snapshot.isReleased());
+		snapshot.close();
+		assertTrue(snapshot.isReleased());
+		assertFalse(snapshot.retain());
+	}
+
+	@Test
+	public void testAcquireFailsOnClosedHandle() throws IOException {
+		DictionaryHandle handle = new DictionaryHandle(createVersion(1));
+		handle.close();
+		try {
+			handle.acquire();
+			fail("No exception thrown");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testConcurrentLookupsAndSwaps() throws Exception {
+		final int readers = 8;
+		final int versions = 200;
+		final List<BinarySegment> segments = Collections
+				.synchronizedList(new ArrayList<BinarySegment>());
+		BinarySegment first = createVersion(0);
+		segments.add(first);
+		final DictionaryHandle handle = new DictionaryHandle(first);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(readers);
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int r = 0; r < readers; r++) {
+			results.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					start.await();
+					int lookups = 0;
+					int lastVersion = -1;
+					while (running.get()) {
+						try (Snapshot snapshot = handle.acquire()) {
+							int version = versionOf(snapshot.lookup("ご"
+									+ (lookups % 100)));
+							// a snapshot is immutable
+							assertEquals(version, versionOf(snapshot
+									.lookup("語" + (lookups % 100))));
+							// versions only move forward
+							assertTrue(version >= lastVersion);
+							lastVersion = version;
+						}
+						lookups++;
+					}
+					return lookups;
+				}
+			}));
+		}
+
+		start.countDown();
+		for (int version = 1; version <= versions; version++) {
+			BinarySegment segment = createVersion(version);
+			segments.add(segment);
+			handle.swap(segment);
+		}
+		Thread.sleep(100);
+		running.set(false);
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		for (Future<Integer> result : results) {
+			assertTrue(result.get() > 0);
+		}
+
+		for (int version = 0; version < versions; version++) {
+			assertTrue("Version " + version + " not released",
+					segments.get(version).isClosed());
+		}
+		assertFalse(segments.get(versions).isClosed());
+		handle.close();
+		assertTrue(segments.get(versions).isClosed());
+	}
+}
@@ -0,0 +1,101 @@
+package fr.vergne.japdict.dict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measure how {@link IndexBuilder#build(List, File)} scales with the number of
+ * threads on 200k synthetic EDICT lines, from 1 thread to the number of
+ * available cores, and check that all of them write the same files. This is
+ * not a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes fr.vergne.japdict.dict.IndexBuildBenchmark
+ * </pre>
+ */
+public class IndexBuildBenchmark {
+
+	private static final int LINES = 200000;
+	private static final int ROUNDS = 5;
+	private static final String KANJIS = "日本人語学生先年大中小山川田目手口心気";
+	private static final String KANAS = "あいうえおかきくけこさしすせそたちつてとなにぬねのまみむめも";
+	private static final String[] WORDS = { "to", "eat", "drink", "person",
+			"book", "large", "small", "river", "mountain", "field", "eye",
+			"hand", "mouth", "heart", "spirit", "language", "student" };
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(0);
+		List<String> lines = new ArrayList<>(LINES);
+		for (int i = 0; i < LINES; i++) {
+			StringBuilder line = new StringBuilder();
+			line.append(random(random, KANJIS, 1 + random.nextInt(3)));
+			line.append(" [");
+			line.append(random(random, KANAS, 2 + random.nextInt(4)));
+			line.append("] /(n) ");
+			for (int w = random.nextInt(4); w >= 0; w--) {
+				line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+			line.append(i).append('/');
+			if (random.nextInt(5) == 0) {
+				line.append("(P)/");
+			} else {
+				// common word
+			}
+			line.append("EntL").append(i).append("X/");
+			lines.add(line.toString());
+		}
+
+		File reference = null;
+		long sequential = 0;
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			File directory = Files.createTempDirectory("benchmark").toFile();
+			IndexBuilder builder = new IndexBuilder(threads);
+			long best = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				builder.build(lines, directory);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			if (reference == null) {
+				reference = directory;
+				sequential = best;
+			} else {
+				check(reference, directory);
+			}
+			System.out.println(String.format(
+					"%d thread(s): best of %d rounds %.0f ms (x%.1f)", threads,
+					ROUNDS, best / 1e6, (double) sequential / best));
+		}
+	}
+
+	private static String random(Random random, String characters, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(characters.charAt(random.nextInt(characters
+					.length())));
+		}
+		return builder.toString();
+	}
+
+	private static void check(File reference, File directory)
+			throws IOException {
+		for (String name : Arrays.asList(IndexBuilder.ENTRIES_FILE,
+				IndexBuilder.READINGS_FILE, IndexBuilder.KANJIS_FILE,
+				IndexBuilder.GLOSSES_FILE)) {
+			if (!Arrays.equals(
+					Files.readAllBytes(new File(reference, name).toPath()),
+					Files.readAllBytes(new File(directory, name).toPath()))) {
+				throw new IllegalStateException(name + " differs in "
+						+ directory);
+			} else {
+				// same output
+			}
+		}
+	}
+}
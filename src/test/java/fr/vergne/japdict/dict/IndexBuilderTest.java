@@ -0,0 +1,128 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IndexBuilderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final List<String> LINES = Arrays.asList(
+			"　？？？ /,EDICT, EDRDG/",
+			"猫 [ねこ] /(n) cat/EntL1467640X/",
+			"日本 [にほん] /(n) Japan/(P)/EntL1582710X/",
+			"本 [ほん] /(n) book/volume/(P)/EntL1522150X/",
+			"カタカナ /(n) katakana/EntL1215550X/",
+			"日本人 [にほんじん] /(n) Japanese person/(P)/EntL1464530X/");
+
+	@Test
+	public void testParseEdictLineReadsWritingReadingAndGlosses() {
+		assertEquals(new Entry("日本", "にほん", Arrays.asList("(n) Japan"), 1),
+				IndexBuilder
+						.parseEdictLine("日本 [にほん] /(n) Japan/(P)/EntL1582710X/"));
+		assertEquals(new Entry("猫", "ねこ", Arrays.asList("(n) cat"), 0),
+				IndexBuilder.parseEdictLine("猫 [ねこ] /(n) cat/EntL1467640X/"));
+	}
+
+	@Test
+	public void testParseEdictLineUsesWritingAsReadingForKanaWords() {
+		assertEquals(new Entry("カタカナ", "カタカナ", Arrays.asList("(n) katakana"),
+				0), IndexBuilder.parseEdictLine("カタカナ /(n) katakana/"));
+	}
+
+	@Test
+	public void testParseEdictLineKeepsFirstFormOnly() {
+		assertEquals(new Entry("日本", "にほん", Arrays.asList("Japan"), 0),
+				IndexBuilder
+						.parseEdictLine("日本(P);日の本 [にほん(P);ひのもと] /Japan/"));
+	}
+
+	@Test
+	public void testParseEdictLineIgnoresHeaderAndComments() {
+		assertNull(IndexBuilder.parseEdictLine("　？？？ /,EDICT, EDRDG/"));
+		assertNull(IndexBuilder.parseEdictLine("# comment"));
+		assertNull(IndexBuilder.parseEdictLine(""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseEdictLineRejectsLineWithoutGlosses() {
+		IndexBuilder.parseEdictLine("猫 [ねこ]");
+	}
+
+	@Test
+	public void testBuildWritesSegmentAndIndexes() throws IOException {
+		File directory = folder.newFolder();
+		assertEquals(5, new IndexBuilder(2).build(LINES, directory));
+
+		try (BinarySegment segment = BinarySegment.open(new File(directory,
+				IndexBuilder.ENTRIES_FILE));
+				PostingIndex readings = PostingIndex.open(new File(directory,
+						IndexBuilder.READINGS_FILE));
+				PostingIndex kanjis = PostingIndex.open(new File(directory,
+						IndexBuilder.KANJIS_FILE));
+				PostingIndex glosses = PostingIndex.open(new File(directory,
+						IndexBuilder.GLOSSES_FILE))) {
+			assertEquals(5, segment.size());
+			assertEquals("日本", getWriting(segment, readings.lookup("にほん")));
+			assertEquals("カタカナ",
+					getWriting(segment, readings.lookup("かたかな")));
+			assertEquals("日本 本 日本人",
+					getWriting(segment, kanjis.lookup("本")));
+			assertEquals("日本 日本人", getWriting(segment, kanjis.lookup("日")));
+			assertEquals("本", getWriting(segment, glosses.lookup("volume")));
+			assertEquals("日本", getWriting(segment, glosses.lookup("japan")));
+			assertEquals("日本人",
+					getWriting(segment, glosses.lookup("person")));
+			assertEquals(0, glosses.lookup("n").length);
+			assertEquals(0, readings.lookup("いぬ").length);
+		}
+	}
+
+	@Test
+	public void testBuildIsDeterministicWhateverTheParallelism()
+			throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			lines.add("日本" + i + " [にほん" + i + "] /(n) Japan " + i + "/"
+					+ (i % 3 == 0 ? "(P)/" : ""));
+			lines.add("ホン" + i + " /(n) book " + (i % 7) + "/");
+		}
+
+		File sequential = folder.newFolder();
+		new IndexBuilder(1).build(lines, sequential);
+		File parallel = folder.newFolder();
+		new IndexBuilder(4, 10).build(lines, parallel);
+
+		for (String name : Arrays.asList(IndexBuilder.ENTRIES_FILE,
+				IndexBuilder.READINGS_FILE, IndexBuilder.KANJIS_FILE,
+				IndexBuilder.GLOSSES_FILE)) {
+			assertArrayEquals(name,
+					Files.readAllBytes(new File(sequential, name).toPath()),
+					Files.readAllBytes(new File(parallel, name).toPath()));
+		}
+	}
+
+	private static String getWriting(BinarySegment segment, int[] postings) {
+		StringBuilder builder = new StringBuilder();
+		for (int index : postings) {
+			if (builder.length() > 0) {
+				builder.append(" ");
+			} else {
+				// first one
+			}
+			builder.append(segment.getEntry(index).getWriting());
+		}
+		return builder.toString();
+	}
+}
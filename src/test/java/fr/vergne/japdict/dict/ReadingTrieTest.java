@@ -0,0 +1,230 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import fr.vergne.japdict.dict.ReadingTrie.Completion;
+import fr.vergne.japdict.dict.ReadingTrie.Match;
+
+public class ReadingTrieTest {
+
+	private final ReadingTrie trie = new ReadingTrie(Arrays.asList("がっこう",
+			"がこう", "かっこう", "きょう", "きよう", "ぎょう", "ばか", "はか", "はかせ",
+			"こうこう", "がっこう"));
+
+	private static String toString(List<Match> matches) {
+		List<String> strings = new ArrayList<>();
+		for (Match match : matches) {
+			strings.add(match.toString());
+		}
+		return strings.toString();
+	}
+
+	@Test
+	public void testDuplicatesAreStoredOnce() {
+		assertEquals(10, trie.size());
+		assertTrue(trie.contains("はか"));
+		assertFalse(trie.contains("は"));
+	}
+
+	@Test
+	public void testExactSearch() {
+		assertEquals("[きょう(0)]", toString(trie.search("きょう", 0, 10)));
+		assertEquals("[]", toString(trie.search("きょ", 0, 10)));
+	}
+
+	@Test
+	public void testVariantsAreCheaper() {
+		assertEquals("[かっこう(0), がっこう(1)]",
+				toString(trie.search("かっこう", ReadingTrie.EDIT_COST, 10)));
+		assertEquals("[がっこう(0), かっこう(1), がこう(2)]",
+				toString(trie.search("がっこう", ReadingTrie.EDIT_COST, 10)));
+		List<Match> matches = trie.search("きょう", ReadingTrie.VARIANT_COST, 10);
+		assertEquals("[きょう(0), きよう(1), ぎょう(1)]", toString(matches));
+	}
+
+	@Test
+	public void testResultsAreOrderedByCost() {
+		List<Match> matches = trie.search("はかせ", 2 * ReadingTrie.EDIT_COST,
+				100);
+		assertEquals("はかせ", matches.get(0).getReading());
+		for (int i = 1; i < matches.size(); i++) {
+			assertTrue(matches.get(i - 1).getCost() <= matches.get(i)
+					.getCost());
+		}
+		assertEquals(3, matches.size());
+	}
+
+	@Test
+	public void testReadingsOfSameCostAreSorted() {
+		ReadingTrie trie = new ReadingTrie(Arrays.asList("か", "かき", "かく",
+				"かかか", "がか", "きか"));
+		assertEquals("[がか(1), か(2), かかか(2), かき(2), かく(2), きか(2)]",
+				toString(trie.search("かか", 2, 100)));
+	}
+
+	@Test
+	public void testLimitStopsTheSearch() {
+		assertEquals(1, trie.search("はか", 2 * ReadingTrie.EDIT_COST, 1)
+				.size());
+		assertEquals(0, trie.search("はか", 2 * ReadingTrie.EDIT_COST, 0)
+				.size());
+	}
+
+	@Test
+	public void testSearchMatchesBruteForce() {
+		Random random = new Random(0);
+		String alphabet = "かがきぎやゃよょうっー";
+		List<String> readings = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			readings.add(randomText(random, alphabet));
+		}
+		ReadingTrie trie = new ReadingTrie(readings);
+		for (int i = 0; i < 100; i++) {
+			String query = randomText(random, alphabet);
+			int maxCost = random.nextInt(5);
+			List<String> expected = new ArrayList<>();
+			for (String reading : new java.util.TreeSet<>(readings)) {
+				if (distance(query, reading) <= maxCost) {
+					expected.add(reading);
+				} else {
+					// too far
+				}
+			}
+			List<String> actual = new ArrayList<>();
+			Match previous = null;
+			for (Match match : trie.search(query, maxCost, Integer.MAX_VALUE)) {
+				assertEquals(distance(query, match.getReading()),
+						match.getCost());
+				if (previous != null && previous.getCost() == match.getCost()) {
+					assertTrue(query, previous.getReading().compareTo(
+							match.getReading()) < 0);
+				} else {
+					// first match of its cost
+				}
+				actual.add(match.getReading());
+				previous = match;
+			}
+			Collections.sort(actual);
+			assertEquals(query, expected, actual);
+		}
+	}
+
+	@Test
+	public void testCompleteReturnsBestReadingsFirst() {
+		Map<String, Integer> scores = new HashMap<>();
+		scores.put("か", 10);
+		scores.put("かさ", 30);
+		scores.put("かみ", 50);
+		scores.put("かみなり", 20);
+		scores.put("かわ", 30);
+		scores.put("き", 99);
+		ReadingTrie scored = new ReadingTrie(scores);
+
+		assertEquals("[かみ(50), かさ(30), かわ(30), かみなり(20), か(10)]",
+				scored.complete("か", 10).toString());
+		assertEquals("[かみ(50), かさ(30)]", scored.complete("か", 2)
+				.toString());
+		assertEquals("[かみ(50), かみなり(20)]", scored.complete("かみ", 10)
+				.toString());
+		assertEquals("[き(99), かみ(50)]", scored.complete("", 2).toString());
+		assertTrue(scored.complete("く", 10).isEmpty());
+		assertTrue(scored.complete("か", 0).isEmpty());
+	}
+
+	@Test
+	public void testFromEntriesScoresReadingsWithBestPriority() {
+		ReadingTrie scored = ReadingTrie.fromEntries(Arrays.asList(new Entry(
+				"紙", "かみ", Arrays.asList("paper"), 3), new Entry("神", "かみ",
+				Arrays.asList("god"), 7), new Entry("川", "かわ", Arrays
+				.asList("river"), 5)));
+
+		assertEquals("[かみ(7), かわ(5)]", scored.complete("か", 10).toString());
+	}
+
+	@Test
+	public void testCompleteMatchesSortedPrefixMatches() {
+		Random random = new Random(0);
+		String alphabet = "かがきぎやゃよょ";
+		Map<String, Integer> scores = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			scores.put(randomText(random, alphabet), random.nextInt(20));
+		}
+		ReadingTrie scored = new ReadingTrie(scores);
+
+		for (int q = 0; q < 200; q++) {
+			String prefix = randomText(random, alphabet);
+			prefix = prefix.substring(0, Math.min(prefix.length(), 2));
+			List<String> expected = new ArrayList<>();
+			for (Map.Entry<String, Integer> entry : new TreeMap<>(scores)
+					.entrySet()) {
+				if (entry.getKey().startsWith(prefix)) {
+					expected.add(entry.getKey() + "(" + entry.getValue() + ")");
+				} else {
+					// other prefix
+				}
+			}
+			Collections.sort(expected, new Comparator<String>() {
+				@Override
+				public int compare(String s1, String s2) {
+					return Integer.compare(getScore(s2), getScore(s1));
+				}
+			});
+			int limit = 1 + random.nextInt(20);
+			List<String> actual = new ArrayList<>();
+			for (Completion completion : scored.complete(prefix, limit)) {
+				actual.add(completion.toString());
+			}
+			assertEquals(prefix, expected.subList(0,
+					Math.min(limit, expected.size())), actual);
+		}
+	}
+
+	private static int getScore(String completion) {
+		return Integer.parseInt(completion.substring(
+				completion.indexOf('(') + 1, completion.length() - 1));
+	}
+
+	private static String randomText(Random random, String alphabet) {
+		StringBuilder builder = new StringBuilder();
+		int length = 1 + random.nextInt(5);
+		for (int i = 0; i < length; i++) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+
+	private static int distance(String query, String reading) {
+		String pairs = "かが きぎ やゃ よょ";
+		int[][] costs = new int[query.length() + 1][reading.length() + 1];
+		for (int i = 0; i <= query.length(); i++) {
+			for (int j = 0; j <= reading.length(); j++) {
+				if (i == 0 || j == 0) {
+					costs[i][j] = (i + j) * ReadingTrie.EDIT_COST;
+				} else {
+					char q = query.charAt(i - 1);
+					char r = reading.charAt(j - 1);
+					int substitution = q == r ? 0
+							: pairs.contains("" + q + r)
+									|| pairs.contains("" + r + q) ? ReadingTrie.VARIANT_COST
+									: ReadingTrie.EDIT_COST;
+					costs[i][j] = Math.min(costs[i - 1][j - 1] + substitution,
+							Math.min(costs[i - 1][j], costs[i][j - 1])
+									+ ReadingTrie.EDIT_COST);
+				}
+			}
+		}
+		return costs[query.length()][reading.length()];
+	}
+}
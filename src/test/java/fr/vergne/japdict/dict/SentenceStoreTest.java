@@ -0,0 +1,146 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.dict.SentenceStore.Sentence;
+
+public class SentenceStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Sentence DOG = new Sentence(1, "私は犬が好きです。");
+	private static final Sentence ATE = new Sentence(2, "昨日、寿司を食べた。");
+	private static final Sentence POPULAR = new Sentence(3,
+			"この歌手は若者に人気がある。");
+	private static final Sentence EAT = new Sentence(4, "何を食べたい？");
+	private static final Sentence COFFEE = new Sentence(5, "コーヒーを飲みます。");
+	private static final SentenceStore STORE = new SentenceStore(Arrays.asList(
+			DOG, ATE, POPULAR, EAT, COFFEE));
+
+	@Test
+	public void testSearchFindsConjugatedForms() {
+		assertEquals(Arrays.asList(EAT, ATE), STORE.search("食べた", 10));
+		assertEquals(Arrays.asList(EAT), STORE.search("食べたい", 10));
+	}
+
+	@Test
+	public void testSearchFindsKanjisNextToKanas() {
+		assertEquals(Arrays.asList(DOG), STORE.search("犬", 10));
+		assertEquals(Arrays.asList(POPULAR), STORE.search("人気", 10));
+		assertEquals(Arrays.asList(EAT, ATE), STORE.search("食", 10));
+	}
+
+	@Test
+	public void testSearchFindsKatakanaWords() {
+		assertEquals(Arrays.asList(COFFEE), STORE.search("コーヒー", 10));
+	}
+
+	@Test
+	public void testSearchFindsSingleCharacters() {
+		assertEquals(Arrays.asList(DOG, COFFEE), STORE.search("す", 10));
+		assertEquals(Arrays.asList(ATE), STORE.search("、", 10));
+		assertEquals(Arrays.asList(EAT), STORE.search("？", 10));
+		assertTrue(STORE.search("ぬ", 10).isEmpty());
+	}
+
+	@Test
+	public void testSearchConfirmsCandidates() {
+		// has the keys 食, べ and た, but not in this order
+		assertTrue(STORE.search("食た", 10).isEmpty());
+		assertTrue(STORE.search("猫", 10).isEmpty());
+	}
+
+	@Test
+	public void testSearchReturnsShortestSentencesFirst() {
+		assertEquals(Arrays.asList(EAT), STORE.search("を", 1));
+		assertEquals(Arrays.asList(EAT, ATE, COFFEE), STORE.search("を", 10));
+		assertTrue(STORE.search("を", 0).isEmpty());
+	}
+
+	@Test
+	public void testSearchMatchesBruteForce() {
+		Random random = new Random(0);
+		String characters = "人気食飲べたいをはがのコーヒ日本、。";
+		List<Sentence> sentences = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			sentences.add(new Sentence(i, random(random, characters,
+					1 + random.nextInt(20))));
+		}
+		SentenceStore store = new SentenceStore(sentences);
+
+		for (int q = 0; q < 300; q++) {
+			String query = random(random, characters, 1 + random.nextInt(3));
+			List<Sentence> expected = new ArrayList<>();
+			for (Sentence sentence : sentences) {
+				if (sentence.getText().contains(query)) {
+					expected.add(sentence);
+				} else {
+					// not found
+				}
+			}
+			List<Sentence> actual = new ArrayList<>(store.search(query,
+					Integer.MAX_VALUE));
+			assertEquals(query, expected.size(), actual.size());
+			for (int i = 1; i < actual.size(); i++) {
+				assertTrue(query, actual.get(i - 1).getText().length() <= actual
+						.get(i).getText().length());
+			}
+			Collections.sort(actual, new Comparator<Sentence>() {
+				@Override
+				public int compare(Sentence s1, Sentence s2) {
+					return Integer.compare(s1.getId(), s2.getId());
+				}
+			});
+			assertEquals(query, expected, actual);
+		}
+	}
+
+	@Test
+	public void testReadTsvKeepsJapaneseSentences() throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), Arrays.asList("4705\tjpn\t私は犬が好きです。",
+				"4706\teng\tI like dogs.", "", "4707\t猫が好きです。"),
+				StandardCharsets.UTF_8);
+
+		SentenceStore store = SentenceStore.readTsv(file);
+
+		assertEquals(2, store.size());
+		assertEquals(Arrays.asList(new Sentence(4707, "猫が好きです。"),
+				new Sentence(4705, "私は犬が好きです。")),
+				store.search("好き", 10));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadTsvRejectsInvalidLine() throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), Arrays.asList("私は犬が好きです。"),
+				StandardCharsets.UTF_8);
+
+		SentenceStore.readTsv(file);
+	}
+
+	private static String random(Random random, String characters, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(characters.charAt(random.nextInt(characters
+					.length())));
+		}
+		return builder.toString();
+	}
+}
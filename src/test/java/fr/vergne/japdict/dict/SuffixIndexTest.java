@@ -0,0 +1,161 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SuffixIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SuffixIndex createIndex(String... words) throws IOException {
+		File file = folder.newFile();
+		SuffixIndex.write(Arrays.asList(words), file);
+		return SuffixIndex.open(file);
+	}
+
+	@Test
+	public void testFindReturnsWordsContainingSubstring() throws IOException {
+		try (SuffixIndex index = createIndex("人気", "人気者", "不人気", "人間",
+				"にんき", "天気")) {
+			assertEquals(new TreeSet<>(Arrays.asList("人気", "人気者", "不人気")),
+					new TreeSet<>(index.find("人気", 10)));
+			assertEquals(Arrays.asList("天気"), index.find("天", 10));
+			assertEquals(Arrays.asList("にんき"), index.find("んき", 10));
+			assertTrue(index.find("気者だ", 10).isEmpty());
+			assertTrue(index.find("猫", 10).isEmpty());
+		}
+	}
+
+	@Test
+	public void testFindDoesNotCrossWords() throws IOException {
+		try (SuffixIndex index = createIndex("ab", "cd")) {
+			assertTrue(index.find("bc", 10).isEmpty());
+			assertEquals(0, index.count("bc"));
+		}
+	}
+
+	@Test
+	public void testFindReturnsEachWordOnce() throws IOException {
+		try (SuffixIndex index = createIndex("ままま", "まめ")) {
+			assertEquals(new TreeSet<>(Arrays.asList("ままま", "まめ")),
+					new TreeSet<>(index.find("ま", 10)));
+			assertEquals(1, index.find("ま", 1).size());
+			assertTrue(index.find("ま", 0).isEmpty());
+		}
+	}
+
+	@Test
+	public void testCountReturnsOccurrences() throws IOException {
+		try (SuffixIndex index = createIndex("ままま", "まめ", "まめ")) {
+			assertEquals(2, index.size());
+			assertEquals(4, index.count("ま"));
+			assertEquals(2, index.count("まま"));
+			assertEquals(1, index.count("まめ"));
+			assertEquals(0, index.count("め ま"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCountRejectsEmptySubstring() throws IOException {
+		try (SuffixIndex index = createIndex("まめ")) {
+			index.count("");
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testOpenRejectsOtherFile() throws IOException {
+		SuffixIndex.open(folder.newFile());
+	}
+
+	@Test
+	public void testSuffixArrayMatchesNaiveSort() {
+		Random random = new Random(0);
+		for (int round = 0; round < 200; round++) {
+			final int[] text = new int[1 + random.nextInt(60)];
+			int alphabetSize = 2 + random.nextInt(4);
+			for (int i = 0; i < text.length - 1; i++) {
+				text[i] = 1 + random.nextInt(alphabetSize - 1);
+			}
+			text[text.length - 1] = 0;
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < text.length; i++) {
+				expected.add(i);
+			}
+			Collections.sort(expected, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer i1, Integer i2) {
+					int i = i1;
+					int j = i2;
+					while (text[i] == text[j]) {
+						i++;
+						j++;
+					}
+					return Integer.compare(text[i], text[j]);
+				}
+			});
+
+			int[] actual = SuffixIndex.buildSuffixArray(text, alphabetSize);
+
+			int[] expectedArray = new int[text.length];
+			for (int i = 0; i < text.length; i++) {
+				expectedArray[i] = expected.get(i);
+			}
+			assertArrayEquals(Arrays.toString(text), expectedArray, actual);
+		}
+	}
+
+	@Test
+	public void testSearchMatchesBruteForce() throws IOException {
+		Random random = new Random(0);
+		String characters = "にんきじ人気";
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			words.add(random(random, characters, 1 + random.nextInt(8)));
+		}
+		File file = folder.newFile();
+		SuffixIndex.write(words, file);
+		TreeSet<String> distinct = new TreeSet<>(words);
+
+		try (SuffixIndex index = SuffixIndex.open(file)) {
+			for (int q = 0; q < 300; q++) {
+				String query = random(random, characters, 1 + random.nextInt(3));
+				int count = 0;
+				TreeSet<String> expected = new TreeSet<>();
+				for (String word : distinct) {
+					for (int i = word.indexOf(query); i >= 0; i = word.indexOf(
+							query, i + 1)) {
+						count++;
+						expected.add(word);
+					}
+				}
+
+				assertEquals(query, count, index.count(query));
+				assertEquals(query, expected, new TreeSet<>(index.find(query,
+						Integer.MAX_VALUE)));
+			}
+		}
+	}
+
+	private static String random(Random random, String characters, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(characters.charAt(random.nextInt(characters
+					.length())));
+		}
+		return builder.toString();
+	}
+}
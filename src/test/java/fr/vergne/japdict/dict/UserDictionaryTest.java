@@ -0,0 +1,259 @@
+package fr.vergne.japdict.dict;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UserDictionaryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Entry entry(String writing, String reading, int priority,
+			String... glosses) {
+		return new Entry(writing, reading, Arrays.asList(glosses), priority);
+	}
+
+	private Dictionary createBase(Entry... entries) throws IOException {
+		File file = folder.newFile();
+		BinarySegment.write(Arrays.asList(entries), file);
+		return BinarySegment.open(file);
+	}
+
+	@Test
+	public void testAddedEntryIsImmediatelySearchable() throws IOException {
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		Entry mine = entry("犬", "いぬ", 0, "my dog");
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(dog),
+				directory, 100)) {
+			assertEquals(Arrays.asList(dog), dictionary.lookup("いぬ"));
+			dictionary.add(mine);
+			assertEquals(Arrays.asList(mine, dog), dictionary.lookup("いぬ"));
+			assertEquals(Arrays.asList(mine, dog), dictionary.lookup("犬"));
+		}
+	}
+
+	@Test
+	public void testResultsAreMergedByPriority() throws IOException {
+		Entry low = entry("紙", "かみ", 1, "paper");
+		Entry high = entry("神", "かみ", 5, "god");
+		Entry middle = entry("髪", "かみ", 3, "hair");
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(low,
+				high), directory, 100)) {
+			dictionary.add(middle);
+			assertEquals(Arrays.asList(high, middle, low),
+					dictionary.lookup("かみ"));
+			assertTrue(dictionary.lookup("かみ") instanceof RandomAccess);
+			assertTrue(dictionary.lookupAll(Arrays.asList("かみ")).get(0)
+					instanceof RandomAccess);
+		}
+	}
+
+	@Test
+	public void testDuplicatedEntriesAreReturnedOnce() throws IOException {
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(dog),
+				directory, 100)) {
+			dictionary.add(dog);
+			assertEquals(Arrays.asList(dog), dictionary.lookup("いぬ"));
+		}
+	}
+
+	@Test
+	public void testCompactionKeepsEntriesSearchable() throws IOException,
+			InterruptedException, ExecutionException {
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(),
+				directory, 100)) {
+			for (int i = 0; i < 10; i++) {
+				dictionary.add(entry("語" + i, "ご" + i, i, "word " + i));
+			}
+			dictionary.compact().get();
+			dictionary.add(entry("語10", "ご10", 10, "word 10"));
+			for (int i = 0; i <= 10; i++) {
+				assertEquals(Arrays.asList(entry("語" + i, "ご" + i, i, "word "
+						+ i)), dictionary.lookup("ご" + i));
+			}
+		}
+		assertEquals(1, directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".bin");
+			}
+		}).length);
+	}
+
+	@Test
+	public void testThresholdTriggersCompaction() throws IOException,
+			InterruptedException, ExecutionException {
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(),
+				directory, 3)) {
+			for (int i = 0; i < 3; i++) {
+				dictionary.add(entry("語" + i, "ご" + i, i, "word " + i));
+			}
+			dictionary.compact().get();
+			File[] segments = directory.listFiles(new FilenameFilter() {
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.endsWith(".bin");
+				}
+			});
+			assertEquals(1, segments.length);
+		}
+	}
+
+	/**
+	 * Block the compaction into the first segment with a non-empty directory
+	 * at its place.
+	 */
+	private static File blockFirstSegment(File directory) throws IOException {
+		File blocker = new File(directory, "segment-1.bin");
+		assertTrue(blocker.mkdir());
+		assertTrue(new File(blocker, "file").createNewFile());
+		return blocker;
+	}
+
+	@Test
+	public void testFailedAutomaticCompactionIsThrownByNextAdd()
+			throws IOException, InterruptedException {
+		Entry cat = entry("猫", "ねこ", 0, "cat");
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		Entry bird = entry("鳥", "とり", 0, "bird");
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(),
+				directory, 2)) {
+			File blocker = blockFirstSegment(directory);
+			dictionary.add(cat);
+			dictionary.add(dog);
+			try {
+				// queued after the automatic compaction
+				dictionary.compact().get();
+				fail("Compaction should fail");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+			try {
+				dictionary.add(bird);
+				fail("Failure of the compaction not reported");
+			} catch (IOException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+			assertEquals(Arrays.asList(cat), dictionary.lookup("ねこ"));
+			assertEquals(Arrays.<Entry> asList(), dictionary.lookup("とり"));
+
+			dictionary.add(bird);
+			assertEquals(Arrays.asList(bird), dictionary.lookup("とり"));
+			new File(blocker, "file").delete();
+			blocker.delete();
+		}
+		try (UserDictionary dictionary = new UserDictionary(createBase(),
+				directory, 100)) {
+			assertEquals(Arrays.asList(cat), dictionary.lookup("ねこ"));
+			assertEquals(Arrays.asList(dog), dictionary.lookup("いぬ"));
+			assertEquals(Arrays.asList(bird), dictionary.lookup("とり"));
+		}
+	}
+
+	@Test
+	public void testFailedAutomaticCompactionIsThrownByClose()
+			throws IOException {
+		File directory = folder.newFolder();
+		UserDictionary dictionary = new UserDictionary(createBase(),
+				directory, 2);
+		blockFirstSegment(directory);
+		dictionary.add(entry("猫", "ねこ", 0, "cat"));
+		dictionary.add(entry("犬", "いぬ", 0, "dog"));
+		try {
+			dictionary.close();
+			fail("Failure of the compaction not reported");
+		} catch (IOException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testEntriesSurviveReopening() throws IOException,
+			InterruptedException, ExecutionException {
+		Entry compacted = entry("猫", "ねこ", 0, "cat");
+		Entry journaled = entry("犬", "いぬ", 0, "dog");
+		File directory = folder.newFolder();
+		Dictionary base = createBase();
+		try (UserDictionary dictionary = new UserDictionary(base, directory,
+				100)) {
+			dictionary.add(compacted);
+			dictionary.compact().get();
+			dictionary.add(journaled);
+		}
+		try (UserDictionary dictionary = new UserDictionary(base, directory,
+				100)) {
+			assertEquals(Arrays.asList(compacted), dictionary.lookup("ねこ"));
+			assertEquals(Arrays.asList(journaled), dictionary.lookup("いぬ"));
+		}
+	}
+
+	@Test
+	public void testIncompleteJournalRecordIsIgnored() throws IOException {
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		File directory = folder.newFolder();
+		Dictionary base = createBase();
+		try (UserDictionary dictionary = new UserDictionary(base, directory,
+				100)) {
+			dictionary.add(dog);
+			dictionary.add(entry("猫", "ねこ", 0, "cat"));
+		}
+		File journal = new File(directory, "journal-1.log");
+		try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+		try (UserDictionary dictionary = new UserDictionary(base, directory,
+				100)) {
+			assertEquals(Arrays.asList(dog), dictionary.lookup("いぬ"));
+			List<Entry> empty = Collections.emptyList();
+			assertEquals(empty, dictionary.lookup("ねこ"));
+			dictionary.add(entry("鳥", "とり", 0, "bird"));
+		}
+		try (UserDictionary dictionary = new UserDictionary(base, directory,
+				100)) {
+			assertEquals(1, dictionary.lookup("とり").size());
+		}
+	}
+
+	@Test
+	public void testLookupAllMergesAllLayers() throws IOException,
+			InterruptedException, ExecutionException {
+		Entry base = entry("紙", "かみ", 1, "paper");
+		Entry compacted = entry("神", "かみ", 5, "god");
+		Entry journaled = entry("髪", "かみ", 3, "hair");
+		Entry dog = entry("犬", "いぬ", 0, "dog");
+		File directory = folder.newFolder();
+		try (UserDictionary dictionary = new UserDictionary(createBase(base),
+				directory, 100)) {
+			dictionary.add(compacted);
+			dictionary.compact().get();
+			dictionary.add(journaled);
+			dictionary.add(dog);
+			List<List<Entry>> results = dictionary.lookupAll(Arrays.asList(
+					"いぬ", "かみ", "ねこ"));
+			assertEquals(Arrays.asList(dog), results.get(0));
+			assertEquals(Arrays.asList(compacted, journaled, base),
+					results.get(1));
+			assertTrue(results.get(2).isEmpty());
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fr.vergne.japdict.util.AllocationMeter;
+
+/**
+ * Check that the hot paths do not allocate more than the budgets of
+ * <code>allocation-budgets.properties</code>, most of them being expected to
+ * not allocate at all.
+ */
+public class AllocationBudgetTest {
+
+	private static final int WARM_UP = 20000;
+	private static final int ITERATIONS = 20000;
+	private static final String SAMPLE = "ひらがなカタカナ漢字がぱぁゐヰヷゔヴっーabc";
+	private static final String TEXT = "きょうはいいてんきですねカタカナもまぜてみましょうゔぁゐゑっぱ"
+			+ "ひらがなとカタカナのへんかんをなんどもくりかえしてけいそくするよ。";
+	private static final String[] ROMAJIS = { "a", "ka", "shi", "tsu", "fu",
+			"ga", "ji", "dzu", "pa", "+ya", "+tsu", "vu", "n", "wo", "wi", "KA" };
+
+	private static Properties budgets;
+	private static AllocationMeter meter;
+	/**
+	 * Receives the results of the operations, so they are not optimized away.
+	 */
+	private static int sink;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		Assume.assumeTrue(AllocationMeter.isSupported());
+		budgets = new Properties();
+		try (InputStream input = AllocationBudgetTest.class
+				.getResourceAsStream("/allocation-budgets.properties")) {
+			budgets.load(input);
+		}
+		meter = new AllocationMeter();
+	}
+
+	private static void assertWithinBudget(String name, Runnable operation) {
+		double budget = Double.parseDouble(budgets.getProperty(name));
+		double bytes = meter.measure(operation, WARM_UP, ITERATIONS);
+		assertTrue(name + " allocates " + bytes + " bytes per operation, "
+				+ "more than its budget of " + budget, bytes < budget + 1);
+	}
+
+	@Test
+	public void testClassificationBudget() {
+		final JapCharacter[] characters = new JapCharacter[SAMPLE.length()];
+		for (int i = 0; i < characters.length; i++) {
+			characters[i] = new JapCharacter(SAMPLE.charAt(i));
+		}
+		assertWithinBudget("classification", new Runnable() {
+
+			@Override
+			public void run() {
+				for (JapCharacter character : characters) {
+					sink += character.isKana() ? 1 : 0;
+					sink += character.isKana(KanaType.KATAKANA) ? 1 : 0;
+					sink += character.isKana(KanaVariant.TENTEN) ? 1 : 0;
+					sink += character.isKana(KanaType.HIRAGANA,
+							KanaVariant.SMALL) ? 1 : 0;
+					sink += character.isKanji() ? 1 : 0;
+					sink += character.getKanaType() == null ? 1 : 0;
+					sink += character.getKanaVariant() == null ? 1 : 0;
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testConversionBudget() {
+		final KanaFactory factory = new KanaFactory();
+		final JapCharacter[] characters = new JapCharacter[SAMPLE.length()];
+		for (int i = 0; i < characters.length; i++) {
+			characters[i] = new JapCharacter(SAMPLE.charAt(i));
+		}
+		assertWithinBudget("conversion", new Runnable() {
+
+			@Override
+			public void run() {
+				for (JapCharacter character : characters) {
+					sink += factory.transform(character, KanaType.KATAKANA) == null ? 1
+							: 0;
+					sink += factory.transform(character, KanaVariant.NONE) == null ? 1
+							: 0;
+					sink += factory.transform(character, KanaType.HIRAGANA,
+							KanaVariant.TENTEN) == null ? 1 : 0;
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testRomajiBudget() {
+		final KanaFactory factory = new KanaFactory();
+		assertWithinBudget("romaji", new Runnable() {
+
+			@Override
+			public void run() {
+				for (String romaji : ROMAJIS) {
+					sink += factory.createFromRomaji(romaji, KanaType.HIRAGANA)
+							.toChar();
+					sink += factory.createFromRomaji(romaji, KanaType.KATAKANA)
+							.toChar();
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testTextConversionBudget() {
+		final KanaFactory factory = new KanaFactory();
+		assertEquals(64, TEXT.length());
+		assertWithinBudget("text.conversion", new Runnable() {
+
+			@Override
+			public void run() {
+				sink += factory.transform(TEXT, KanaType.KATAKANA).length();
+			}
+		});
+	}
+
+	@Test
+	public void testMoraAnalysisBudget() {
+		final MoraAnalyzer analyzer = new MoraAnalyzer();
+		analyzer.analyze(TEXT);
+		assertWithinBudget("mora.analysis", new Runnable() {
+
+			@Override
+			public void run() {
+				sink += analyzer.analyze(TEXT);
+				sink += analyzer.getSyllableCount();
+				sink += MoraAnalyzer.countMorae(TEXT);
+				sink += MoraAnalyzer.countSyllables(TEXT);
+			}
+		});
+	}
+}
@@ -0,0 +1,55 @@
+package fr.vergne.japdict.jap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare the conversion into katakanas of 16M chars by
+ * {@link KanaFactory#transform(String, KanaType)} and by
+ * {@link BulkKana#transform(char[], int, int, KanaType)}. The Vector API
+ * version of {@link BulkKana} being in the multi-release jar, run it on the
+ * jar with the incubator module to compare both:
+ * 
+ * <pre>
+ * mvn package
+ * java --add-modules jdk.incubator.vector -cp target/japdict-1.0-SNAPSHOT.jar:target/test-classes fr.vergne.japdict.jap.BulkKanaBenchmark
+ * </pre>
+ */
+public class BulkKanaBenchmark {
+
+	private static final int CHARS = 16 * 1024 * 1024;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		String characters = "あいうえおかきくけこがぎさしすたちつてとなにのはひふまみむやゆよらりるれろわをんゐゑアイウカキクサシタチツテトナハバパマラリルレロンーヷ漢字日本語、。 abc";
+		char[] text = new char[CHARS];
+		for (int i = 0; i < CHARS; i++) {
+			text[i] = characters.charAt(random.nextInt(characters.length()));
+		}
+		String string = new String(text);
+		KanaFactory factory = new KanaFactory();
+
+		long bestFactory = Long.MAX_VALUE;
+		long bestBulk = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			String expected = factory.transform(string, KanaType.KATAKANA);
+			bestFactory = Math.min(bestFactory, System.nanoTime() - start);
+
+			char[] chars = text.clone();
+			start = System.nanoTime();
+			BulkKana.transform(chars, 0, chars.length, KanaType.KATAKANA);
+			bestBulk = Math.min(bestBulk, System.nanoTime() - start);
+
+			if (!Arrays.equals(expected.toCharArray(), chars)) {
+				throw new IllegalStateException("Different conversions");
+			} else {
+				// consistent
+			}
+		}
+		System.out.println(String.format("KanaFactory: %d ms", bestFactory / 1000000));
+		System.out.println(String.format("BulkKana (%s): %d ms",
+				BulkKana.isAccelerated() ? "vector" : "scalar", bestBulk / 1000000));
+	}
+}
@@ -0,0 +1,60 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BulkKanaTest {
+
+	@Test
+	public void testTransformMatchesKanaFactoryOnAllChars() {
+		KanaFactory factory = new KanaFactory();
+		StringBuilder builder = new StringBuilder();
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			builder.append((char) c);
+		}
+		String text = builder.toString();
+		for (KanaType type : KanaType.values()) {
+			assertEquals(factory.transform(text, type),
+					BulkKana.transform(text, type));
+		}
+	}
+
+	@Test
+	public void testTransformKeepsKanasWithoutCounterpart() {
+		assertEquals("ヰヱヷヸヹヺー", BulkKana.transform("ゐゑヷヸヹヺー",
+				KanaType.KATAKANA));
+		assertEquals("ゐゑヷヸヹヺー", BulkKana.transform("ヰヱヷヸヹヺー",
+				KanaType.HIRAGANA));
+	}
+
+	@Test
+	public void testTransformLimitsToRange() {
+		Random random = new Random(0);
+		KanaFactory factory = new KanaFactory();
+		for (int round = 0; round < 500; round++) {
+			char[] chars = new char[random.nextInt(200)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = (char) (0x3030 + random.nextInt(0xE0));
+			}
+			int offset = chars.length == 0 ? 0 : random.nextInt(chars.length);
+			int length = random.nextInt(chars.length - offset + 1);
+			KanaType type = random.nextBoolean() ? KanaType.HIRAGANA
+					: KanaType.KATAKANA;
+			char[] expected = chars.clone();
+			factory.transform(new String(chars, offset, length), type)
+					.getChars(0, length, expected, offset);
+
+			BulkKana.transform(chars, offset, length, type);
+			assertTrue(Arrays.equals(expected, chars));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testTransformRejectsInvalidRange() {
+		BulkKana.transform(new char[3], 2, 2, KanaType.HIRAGANA);
+	}
+}
@@ -0,0 +1,85 @@
+package fr.vergne.japdict.jap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import fr.vergne.japdict.jap.CharacterStatistics.Script;
+
+/**
+ * Compare the counting of the kanjis of 64M chars of text with a
+ * {@link HashMap} of {@link JapCharacter}s, with
+ * {@link CharacterStatistics#add(CharSequence)}, and with
+ * {@link CharacterStatistics#countUtf8(File, int)} on the UTF-8 file, using as
+ * many threads as processors. This is not a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes fr.vergne.japdict.jap.CharacterStatisticsBenchmark
+ * </pre>
+ */
+public class CharacterStatisticsBenchmark {
+
+	private static final int CHARS = 64 * 1024 * 1024;
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(0);
+		String characters = "あいうえおかきくけこがぎさしすたちつてとなにのはひふまみむやゆよらりるれろわをんアイウカキクサシタチツテトナハバパマラリルレロンー漢字日本語人気天気、。 abc";
+		char[] chars = new char[CHARS];
+		for (int i = 0; i < CHARS; i++) {
+			chars[i] = characters.charAt(random.nextInt(characters.length()));
+		}
+		String text = new String(chars);
+		File file = File.createTempFile("statistics", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		int parallelism = Runtime.getRuntime().availableProcessors();
+
+		long bestMap = Long.MAX_VALUE;
+		long bestArrays = Long.MAX_VALUE;
+		long bestFile = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Map<JapCharacter, Integer> map = new HashMap<>();
+			for (int i = 0; i < text.length(); i++) {
+				JapCharacter character = JapCharacter.valueOf(text.charAt(i));
+				if (character.isKanji()) {
+					Integer count = map.get(character);
+					map.put(character, count == null ? 1 : count + 1);
+				} else {
+					// not a kanji
+				}
+			}
+			long mapKanjis = 0;
+			for (int count : map.values()) {
+				mapKanjis += count;
+			}
+			bestMap = Math.min(bestMap, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			CharacterStatistics statistics = new CharacterStatistics();
+			statistics.add(text);
+			long arrayKanjis = statistics.getCount(Script.KANJI);
+			bestArrays = Math.min(bestArrays, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			long fileKanjis = CharacterStatistics.countUtf8(file, parallelism)
+					.getCount(Script.KANJI);
+			bestFile = Math.min(bestFile, System.nanoTime() - start);
+
+			if (mapKanjis != arrayKanjis || arrayKanjis != fileKanjis) {
+				throw new IllegalStateException("Different counts");
+			} else {
+				// consistent
+			}
+		}
+		System.out.println(String.format("HashMap: %d ms", bestMap / 1000000));
+		System.out.println(String.format("Arrays, chars: %d ms", bestArrays / 1000000));
+		System.out.println(String.format("Arrays, UTF-8 file (%d threads, %d MB): %d ms",
+				parallelism, file.length() / 1024 / 1024, bestFile / 1000000));
+	}
+}
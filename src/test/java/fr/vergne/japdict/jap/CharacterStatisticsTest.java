@@ -0,0 +1,168 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.jap.CharacterStatistics.CharacterCount;
+import fr.vergne.japdict.jap.CharacterStatistics.Script;
+
+public class CharacterStatisticsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String createText(Random random, int length) {
+		String characters = "のはにをがカナタ日本語人気、。 ab🐱ー";
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < length) {
+			int index = random.nextInt(characters.length());
+			if (Character.isSurrogate(characters.charAt(index))) {
+				builder.append("🐱");
+			} else {
+				builder.append(characters.charAt(index));
+			}
+		}
+		return builder.toString();
+	}
+
+	private static void assertSameCounts(CharacterStatistics expected,
+			CharacterStatistics actual) {
+		for (Script script : Script.values()) {
+			assertEquals(script.name(), expected.getCount(script),
+					actual.getCount(script));
+			if (script != Script.OTHER) {
+				assertEquals(script.name(),
+						expected.getTop(script, Integer.MAX_VALUE).toString(),
+						actual.getTop(script, Integer.MAX_VALUE).toString());
+			} else {
+				// not counted per character
+			}
+		}
+	}
+
+	@Test
+	public void testAddCountsCharactersPerScript() {
+		CharacterStatistics statistics = new CharacterStatistics();
+		statistics.add("日本のカタカナ、日本語🐱a");
+
+		assertEquals(2, statistics.getCount('日'));
+		assertEquals(2, statistics.getCount('本'));
+		assertEquals(1, statistics.getCount('の'));
+		assertEquals(2, statistics.getCount('カ'));
+		assertEquals(0, statistics.getCount('ん'));
+		assertEquals(1, statistics.getCount(Script.HIRAGANA));
+		assertEquals(4, statistics.getCount(Script.KATAKANA));
+		assertEquals(5, statistics.getCount(Script.KANJI));
+		assertEquals(3, statistics.getCount(Script.OTHER));
+		assertEquals(13, statistics.getTotalCount());
+		assertEquals(3, statistics.getDistinctCount(Script.KANJI));
+		assertEquals(3, statistics.getDistinctCount(Script.KATAKANA));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetCountRejectsCharacterNotCountedIndividually() {
+		new CharacterStatistics().getCount('a');
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetTopRejectsOtherScript() {
+		new CharacterStatistics().getTop(Script.OTHER, 10);
+	}
+
+	@Test
+	public void testGetTopReturnsMostFrequentFirst() {
+		CharacterStatistics statistics = new CharacterStatistics();
+		statistics.add("語本日本語本");
+
+		List<CharacterCount> top = statistics.getTop(Script.KANJI, 2);
+
+		assertEquals("[本(3), 語(2)]", top.toString());
+		assertEquals("[本(3), 語(2), 日(1)]",
+				statistics.getTop(Script.KANJI, 10).toString());
+		assertTrue(statistics.getTop(Script.HIRAGANA, 10).isEmpty());
+	}
+
+	@Test
+	public void testAddUtf8MatchesAdd() {
+		Random random = new Random(0);
+		for (int round = 0; round < 20; round++) {
+			String text = createText(random, random.nextInt(500));
+			CharacterStatistics expected = new CharacterStatistics();
+			expected.add(text);
+			CharacterStatistics actual = new CharacterStatistics();
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			actual.addUtf8(bytes, 0, bytes.length);
+			assertSameCounts(expected, actual);
+		}
+	}
+
+	@Test
+	public void testAddUtf8CountsMalformedBytesAsOther() {
+		CharacterStatistics statistics = new CharacterStatistics();
+		byte[] kana = "の".getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = { 'x', kana[0], kana[1], 'a', kana[2], kana[0], kana[1],
+				kana[2], kana[0], kana[1] };
+		statistics.addUtf8(bytes, 1, bytes.length - 2);
+		assertEquals(1, statistics.getCount('の'));
+		assertEquals(3, statistics.getCount(Script.OTHER));
+	}
+
+	@Test
+	public void testCountUtf8MatchesAddWhateverTheBlocks() throws IOException {
+		String text = createText(new Random(0), 2000);
+		File file = folder.newFile();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		CharacterStatistics expected = new CharacterStatistics();
+		expected.add(text);
+
+		for (int blockSize : new int[] { 1, 2, 3, 5, 64, 1 << 20 }) {
+			for (int parallelism = 1; parallelism <= 3; parallelism++) {
+				assertSameCounts(expected, CharacterStatistics.countUtf8(file,
+						parallelism, blockSize));
+			}
+		}
+		assertSameCounts(new CharacterStatistics(),
+				CharacterStatistics.countUtf8(folder.newFile(), 2));
+	}
+
+	@Test
+	public void testCountMatchesSequentialAdd() {
+		Random random = new Random(0);
+		List<String> texts = new ArrayList<>();
+		CharacterStatistics expected = new CharacterStatistics();
+		for (int i = 0; i < 100; i++) {
+			String text = createText(random, random.nextInt(100));
+			texts.add(text);
+			expected.add(text);
+		}
+		assertSameCounts(expected, CharacterStatistics.count(texts, 3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCountRejectsInvalidParallelism() {
+		CharacterStatistics.count(Arrays.asList("の"), 0);
+	}
+
+	@Test
+	public void testWriteSummaryWritesScriptsThenTops() throws IOException {
+		CharacterStatistics statistics = new CharacterStatistics();
+		statistics.add("日本の日a");
+		StringBuilder builder = new StringBuilder();
+		statistics.writeSummary(builder, 1);
+		assertEquals("HIRAGANA\t1\t1\n" + "KATAKANA\t0\t0\n" + "KANJI\t3\t2\n"
+				+ "OTHER\t1\t\n" + "HIRAGANA\tの\t1\n" + "KANJI\t日\t2\n",
+				builder.toString());
+	}
+}
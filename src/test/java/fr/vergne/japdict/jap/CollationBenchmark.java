@@ -0,0 +1,74 @@
+package fr.vergne.japdict.jap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Compare the ways to sort 1M kana words with a {@link KanaCollator}:
+ * comparing the words directly, comparing their precomputed sort keys, and
+ * radix sorting the keys with {@link KanaCollator#sort(String[])}. This is
+ * not a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes fr.vergne.japdict.jap.CollationBenchmark
+ * </pre>
+ */
+public class CollationBenchmark {
+
+	private static final int WORDS = 1000000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		String kanas = "あいうえおかきくけこがぎぐげごさしすせそたちつてとっなにぬねのはひふへほばぱまみむめもやゆよゃゅょらりるれろわをんアイウカキクサシスタチツテトナハバパマラリルレロンー";
+		final String[] words = new String[WORDS];
+		for (int i = 0; i < WORDS; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 2 + random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				word.append(kanas.charAt(random.nextInt(kanas.length())));
+			}
+			words[i] = word.toString();
+		}
+		final KanaCollator collator = new KanaCollator();
+
+		long bestCompare = Long.MAX_VALUE;
+		long bestKeys = Long.MAX_VALUE;
+		long bestRadix = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			String[] copy = words.clone();
+			long start = System.nanoTime();
+			Arrays.sort(copy, collator);
+			bestCompare = Math.min(bestCompare, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			byte[][] keys = new byte[WORDS][];
+			for (int i = 0; i < WORDS; i++) {
+				keys[i] = collator.getSortKey(words[i]);
+			}
+			Arrays.sort(keys, new Comparator<byte[]>() {
+
+				@Override
+				public int compare(byte[] key1, byte[] key2) {
+					return KanaCollator.compareKeys(key1, key2);
+				}
+			});
+			bestKeys = Math.min(bestKeys, System.nanoTime() - start);
+
+			String[] radix = words.clone();
+			start = System.nanoTime();
+			collator.sort(radix);
+			bestRadix = Math.min(bestRadix, System.nanoTime() - start);
+
+			if (!Arrays.equals(copy, radix)) {
+				throw new IllegalStateException("Different orders");
+			} else {
+				// consistent
+			}
+		}
+		System.out.println(String.format("Comparator: %d ms", bestCompare / 1000000));
+		System.out.println(String.format("Keys + merge sort: %d ms", bestKeys / 1000000));
+		System.out.println(String.format("Keys + radix sort: %d ms", bestRadix / 1000000));
+	}
+}
@@ -0,0 +1,169 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.jap.DifficultyScorer.Score;
+
+public class DifficultyScorerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static KanjiMetadata createMetadata() throws IOException {
+		return new KanjidicFixture()
+				.character("日", 1, 1, 0, 4, null, null)
+				.character("本", 1, 1, 0, 4, null, null)
+				.character("語", 1, 2, 0, 4, null, null)
+				.character("猫", 1, 8, 0, 2, null, null)
+				.character("亜", 1, 8, 0, 1, null, null).load();
+	}
+
+	/**
+	 * A {@link Reader} giving few chars at a time, to split the windows
+	 * between several reads.
+	 */
+	private static Reader slow(String text) {
+		return new FilterReader(new StringReader(text)) {
+			@Override
+			public int read(char[] buffer, int offset, int length)
+					throws IOException {
+				return super.read(buffer, offset, Math.min(length, 2));
+			}
+		};
+	}
+
+	@Test
+	public void testScoreCountsKanjisAboveJlptLevel() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.JLPT_LEVEL, 3);
+
+		Score score = scorer.score(new StringReader("日本語の猫と亜鉛だ"));
+
+		assertEquals(9, score.getCharacterCount());
+		assertEquals(6, score.getKanjiCount());
+		assertEquals(3, score.getKanjiCount(4));
+		assertEquals(1, score.getKanjiCount(2));
+		assertEquals(1, score.getKanjiCount(0));
+		// 猫 (JLPT 2), 亜 (JLPT 1) and 鉛 (unknown)
+		assertEquals(3, score.getAboveCount());
+		assertEquals(0.5, score.getAboveShare(), 0);
+	}
+
+	@Test
+	public void testScoreCountsKanjisAboveGrade() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.GRADE, 1);
+
+		Score score = scorer.score(new StringReader("日本語の猫と亜鉛だ"));
+
+		// 語 (grade 2), 猫 and 亜 (grade 8) and 鉛 (unknown)
+		assertEquals(4, score.getAboveCount());
+	}
+
+	@Test
+	public void testScoreOfTextWithoutKanji() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.JLPT_LEVEL, 3);
+
+		Score score = scorer.score(new StringReader("ひらがな"));
+
+		assertEquals(4, score.getCharacterCount());
+		assertEquals(0, score.getKanjiCount());
+		assertEquals(0, score.getAboveShare(), 0);
+		assertEquals(0, scorer.score(new StringReader("")).getCharacterCount());
+		assertTrue(scorer.score(new StringReader(""), 10).isEmpty());
+	}
+
+	@Test
+	public void testScoreCountsFirstKanjiOfTheRange() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.JLPT_LEVEL, 3);
+
+		Score score = scorer.score(new StringReader("一一一人"));
+
+		assertEquals(4, score.getKanjiCount());
+		// 一 and 人 (unknown)
+		assertEquals(4, score.getAboveCount());
+	}
+
+	@Test
+	public void testWindowsSumToWholeScore() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.JLPT_LEVEL, 3);
+		String text = "日本語の猫と亜鉛だ";
+
+		List<Score> windows = scorer.score(slow(text), 4);
+
+		assertEquals(3, windows.size());
+		assertEquals(4, windows.get(0).getCharacterCount());
+		assertEquals(4, windows.get(1).getCharacterCount());
+		assertEquals(1, windows.get(2).getCharacterCount());
+		// 日本語の | 猫と亜鉛 | だ
+		assertEquals(0, windows.get(0).getAboveCount());
+		assertEquals(3, windows.get(1).getAboveCount());
+		assertEquals(0, windows.get(2).getKanjiCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testScoreRejectsInvalidWindowSize() throws IOException {
+		new DifficultyScorer(createMetadata(), KanjiAttribute.GRADE, 6).score(
+				new StringReader("日"), 0);
+	}
+
+	@Test
+	public void testParallelScoreMatchesSequentialScore() throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.GRADE, 2);
+		Random random = new Random(0);
+		String characters = "日本語猫亜鉛のだ a";
+		List<File> files = new ArrayList<>();
+		List<String> texts = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			StringBuilder builder = new StringBuilder();
+			for (int j = random.nextInt(20000); j > 0; j--) {
+				builder.append(characters.charAt(random.nextInt(characters
+						.length())));
+			}
+			File file = folder.newFile();
+			Files.write(file.toPath(),
+					builder.toString().getBytes(StandardCharsets.UTF_8));
+			files.add(file);
+			texts.add(builder.toString());
+		}
+
+		List<Score> scores = scorer.score(files, StandardCharsets.UTF_8, 3);
+
+		assertEquals(files.size(), scores.size());
+		for (int i = 0; i < files.size(); i++) {
+			Score expected = scorer.score(slow(texts.get(i)));
+			assertEquals(expected.toString(), scores.get(i).toString());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testParallelScoreThrowsIOExceptionOfMissingFile()
+			throws IOException {
+		DifficultyScorer scorer = new DifficultyScorer(createMetadata(),
+				KanjiAttribute.GRADE, 2);
+		List<File> files = new ArrayList<>();
+		files.add(folder.newFile());
+		files.add(new File(folder.getRoot(), "missing.txt"));
+
+		scorer.score(files, StandardCharsets.UTF_8, 2);
+	}
+}
@@ -0,0 +1,89 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fr.vergne.japdict.jap.FuriganaAligner.Segment;
+
+public class FuriganaAlignerTest {
+
+	private static FuriganaAligner aligner;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		aligner = new FuriganaAligner(new KanjidicFixture()
+				.character("食", "ショク ジキ", "く.う た.べる")
+				.character("物", "ブツ モツ", "もの")
+				.character("今", "コン キン", "いま")
+				.character("日", "ニチ ジツ", "ひ -び -か")
+				.character("本", "ホン", "もと")
+				.character("学", "ガク", "まな.ぶ")
+				.character("校", "コウ", "-")
+				.character("受", "ジュ", "う.ける う.かる")
+				.character("付", "フ", "つ.ける つ.く")
+				.character("人", "ジン ニン", "ひと -り -と")
+				.character("話", "ワ", "はな.す はなし")
+				.character("年", "ネン", "とし")
+				.character("一", "イチ イツ", "ひと- ひと.つ")
+				.character("丁", "-", ". -.").load());
+	}
+
+	private static void assertAlignment(String word, String reading,
+			String... expected) {
+		List<Segment> segments = aligner.align(word, reading);
+		assertNotNull(word + " not aligned on " + reading, segments);
+		assertEquals(Arrays.asList(expected).toString(), segments.toString());
+	}
+
+	@Test
+	public void testKanasAreAnchors() {
+		assertAlignment("食べ物", "たべもの", "食:た", "べ", "物:もの");
+	}
+
+	@Test
+	public void testOnReadingsAreComparedAsHiraganas() {
+		assertAlignment("日本", "にほん", "日:に", "本:ほん");
+		assertAlignment("日本", "ニホン", "日:ニ", "本:ホン");
+	}
+
+	@Test
+	public void testSoundChanges() {
+		assertAlignment("学校", "がっこう", "学:がっ", "校:こう");
+		assertAlignment("人々", "ひとびと", "人:ひと", "々:びと");
+		assertAlignment("受付", "うけつけ", "受:うけ", "付:つけ");
+		assertAlignment("話す", "はなす", "話:はな", "す");
+		assertAlignment("年々", "ねんねん", "年:ねん", "々:ねん");
+		assertAlignment("一人", "ひとり", "一:ひと", "人:り");
+	}
+
+	@Test
+	public void testUnexplainedReadingsGoToTheKanjiRun() {
+		assertAlignment("今日", "きょう", "今日:きょう");
+		assertAlignment("今日は", "きょうは", "今日:きょう", "は");
+		assertAlignment("二人", "ふたり", "二:ふた", "人:り");
+	}
+
+	@Test
+	public void testEmptyReadingsAreIgnored() {
+		assertAlignment("丁目", "ちょうめ", "丁目:ちょうめ");
+	}
+
+	@Test
+	public void testKanaWords() {
+		assertAlignment("たべる", "たべる", "たべる");
+		assertAlignment("コーヒー", "こーひー", "コーヒー");
+	}
+
+	@Test
+	public void testMissingAnchorIsRejected() {
+		assertNull(aligner.align("食べ物", "たもの"));
+		assertNull(aligner.align("食べる", "たべ"));
+		assertNull(aligner.align("日", ""));
+	}
+}
@@ -0,0 +1,38 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class JapUnicodeTest {
+
+	@Test
+	public void testKanjiIndexIsDenseAndReversible() {
+		for (int index = 0; index < JapUnicode.KANJI_COUNT; index++) {
+			char kanji = JapUnicode.getKanji(index);
+			assertTrue(new JapCharacter(kanji).isKanji());
+			assertEquals(index, JapUnicode.getKanjiIndex(kanji));
+		}
+	}
+
+	@Test
+	public void testKanjiIndexIsNegativeForAllNonKanjis() {
+		for (int code = '\u0000'; code <= '\uFFFF'; code++) {
+			char character = (char) code;
+			if (!new JapCharacter(character).isKanji()) {
+				assertEquals(-1, JapUnicode.getKanjiIndex(character));
+			} else {
+				// kanji
+			}
+		}
+	}
+
+	@Test
+	public void testKanjiIndexIncludesFirstKanjiOfTheRange() {
+		int index = JapUnicode.getKanjiIndex('一');
+		assertTrue(index >= 0);
+		assertEquals('一', JapUnicode.getKanji(index));
+		assertEquals(index + 1, JapUnicode.getKanjiIndex('丁'));
+		assertTrue(new JapCharacter('一').isKanji());
+	}
+}
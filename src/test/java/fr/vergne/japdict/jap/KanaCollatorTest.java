@@ -0,0 +1,95 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class KanaCollatorTest {
+
+	private final KanaCollator collator = new KanaCollator();
+
+	private void assertOrder(String... texts) {
+		for (int i = 1; i < texts.length; i++) {
+			assertTrue(texts[i - 1] + " should be before " + texts[i],
+					collator.compare(texts[i - 1], texts[i]) < 0);
+			assertTrue(texts[i] + " should be after " + texts[i - 1],
+					collator.compare(texts[i], texts[i - 1]) > 0);
+		}
+	}
+
+	@Test
+	public void testGojuonOrderWhateverTheScript() {
+		assertOrder("あ", "イ", "う", "エ", "お", "か", "ン");
+		assertOrder("わ", "ゐ", "ゑ", "を", "ん");
+		assertOrder("カキ", "かく", "サ");
+	}
+
+	@Test
+	public void testVariantsComeAfterBaseKanas() {
+		assertOrder("はは", "ばば", "ぱぱ", "ひ");
+		assertOrder("っ", "つ", "づ", "て");
+		assertOrder("ゃ", "や", "ゆ");
+		assertOrder("ウ", "ヴ", "え");
+		assertOrder("わ", "ヷ", "ゐ");
+	}
+
+	@Test
+	public void testHiraganasComeBeforeKatakanas() {
+		assertOrder("かき", "カキ", "かきく");
+		assertOrder("はし", "ハシ", "ばし");
+	}
+
+	@Test
+	public void testProlongedSoundMarkCountsAsVowel() {
+		assertOrder("かあ", "カー", "かい");
+		assertOrder("スウ", "スー", "すえ");
+		assertOrder("ン", "ンー", "ーあ");
+	}
+
+	@Test
+	public void testShorterTextComesFirst() {
+		assertOrder("", "あ", "ああ", "あい");
+		assertEquals(0, collator.compare("かな", "かな"));
+	}
+
+	@Test
+	public void testOtherCharactersComeAfterKanasByCode() {
+		assertOrder("ん", "a", "b", "漢", "￿");
+		assertOrder("か", "かい", "かa");
+	}
+
+	@Test
+	public void testSortMatchesComparator() {
+		Random random = new Random(0);
+		String alphabet = "あかがぱっつづゐアカガパッツヅヰーヴヷaz漢";
+		List<String> texts = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			texts.add(text.toString());
+		}
+
+		List<String> expected = new ArrayList<>(texts);
+		Collections.sort(expected, collator);
+		List<String> actual = new ArrayList<>(texts);
+		collator.sort(actual);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testSortOfKeysWithoutValues() {
+		byte[][] keys = { { 3, 1 }, {}, { 3 }, { (byte) 0xFF }, { 2, 5 } };
+		KanaCollator.sort(keys, null);
+		assertEquals("[[], [2, 5], [3], [3, 1], [-1]]",
+				Arrays.deepToString(keys));
+	}
+}
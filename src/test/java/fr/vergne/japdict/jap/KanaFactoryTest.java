@@ -344,6 +344,39 @@ public class KanaFactoryTest {
 		}
 	}
 
+	@Test
+	public void testCreateFromRomajiAcceptsOtherSchemes() {
+		KanaFactory factory = new KanaFactory();
+		Map<String, Character> expected = new HashMap<>();
+		expected.put("ti", 'ち');
+		expected.put("tu", 'つ');
+		expected.put("zi", 'じ');
+		expected.put("di", 'ぢ');
+		expected.put("du", 'づ');
+		expected.put("xa", 'ぁ');
+		expected.put("ltu", 'っ');
+		expected.put("xtsu", 'っ');
+		expected.put("lyo", 'ょ');
+
+		for (Entry<String, Character> entry : expected.entrySet()) {
+			String romaji = entry.getKey();
+			char jap = entry.getValue();
+			assertEquals("For " + romaji + ": ", "" + jap, factory
+					.createFromRomaji(romaji, KanaType.HIRAGANA).toString());
+		}
+	}
+
+	@Test
+	public void testCreateFromRomajiTextCombinesSyllables() {
+		KanaFactory factory = new KanaFactory();
+		assertEquals("とうきょう",
+				factory.createFromRomajiText("tōkyō", KanaType.HIRAGANA));
+		assertEquals("トーキョー",
+				factory.createFromRomajiText("tôkyô", KanaType.KATAKANA));
+		assertEquals("がっこう",
+				factory.createFromRomajiText("gakkou", KanaType.HIRAGANA));
+	}
+
 	@Test
 	public void testCreateFromRomajiThrowsExceptionForNullTypes() {
 		KanaFactory factory = new KanaFactory();
@@ -567,4 +600,29 @@ public class KanaFactoryTest {
 			}
 		}
 	}
+
+	@Test
+	public void testTransformTextConvertsAllKanas() {
+		KanaFactory factory = new KanaFactory();
+		assertEquals("ヒラガナ・カタカナ、ヰヱヴッ", factory.transform(
+				"ひらがな・かたかな、ゐゑゔっ", KanaType.KATAKANA));
+		assertEquals("ひらがなー漢字abc", factory.transform("ヒラガナー漢字abc",
+				KanaType.HIRAGANA));
+		assertEquals("ヷヸヹヺ", factory.transform("ヷヸヹヺ", KanaType.HIRAGANA));
+		assertEquals("", factory.transform("", KanaType.HIRAGANA));
+	}
+
+	@Test
+	public void testTransformTextIsConsistentWithTransformCharacter() {
+		KanaFactory factory = new KanaFactory();
+		for (int code = '\u0000'; code <= '\uFFFF'; code++) {
+			JapCharacter character = new JapCharacter((char) code);
+			for (KanaType type : KanaType.values()) {
+				JapCharacter expected = factory.transform(character, type);
+				String result = factory.transform(character.toString(), type);
+				assertEquals(expected == null ? character.toString()
+						: expected.toString(), result);
+			}
+		}
+	}
 }
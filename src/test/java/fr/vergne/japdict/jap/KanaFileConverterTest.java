@@ -0,0 +1,122 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.jap.KanaFileConverter.Conversion;
+
+public class KanaFileConverterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String convert(KanaFileConverter converter, String text,
+			Charset charset) throws IOException {
+		File input = folder.newFile();
+		File output = folder.newFile();
+		Files.write(input.toPath(), text.getBytes(charset));
+		converter.convert(input, output);
+		return new String(Files.readAllBytes(output.toPath()), charset);
+	}
+
+	@Test
+	public void testHiraganaConversionMatchesKanaFactory() throws IOException {
+		KanaFactory factory = new KanaFactory();
+		String text = "カタカナとひらがな、漢字とABC。ヴァイオリン\nキャット🐱ー";
+		for (int size : new int[] { 4, 5, 7, 1024 }) {
+			KanaFileConverter converter = new KanaFileConverter(
+					Conversion.HIRAGANA, StandardCharsets.UTF_8, size);
+			assertEquals(factory.transform(text, KanaType.HIRAGANA),
+					convert(converter, text, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testKatakanaConversionMatchesKanaFactory() throws IOException {
+		KanaFactory factory = new KanaFactory();
+		Random random = new Random(0);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			builder.append((char) (JapUnicode.HIRAGANA_MIN + random
+					.nextInt(JapUnicode.KATAKANA_MAX - JapUnicode.HIRAGANA_MIN
+							+ 1)));
+			if (random.nextInt(20) == 0) {
+				builder.append("漢字 text\n");
+			} else {
+				// only kanas
+			}
+		}
+		String text = builder.toString();
+		String expected = factory.transform(text, KanaType.KATAKANA);
+		for (int size : new int[] { 4, 13, 64 * 1024 }) {
+			KanaFileConverter converter = new KanaFileConverter(
+					Conversion.KATAKANA, StandardCharsets.UTF_8, size);
+			assertEquals(expected,
+					convert(converter, text, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testWidthConversionNormalizesCharacters() throws IOException {
+		KanaFileConverter converter = new KanaFileConverter(Conversion.WIDTH,
+				StandardCharsets.UTF_8);
+		assertEquals("ABC 123!", convert(converter, "ＡＢＣ　１２３！",
+				StandardCharsets.UTF_8));
+		assertEquals("ガギパピヴ「カタカナ」。",
+				convert(converter, "ｶﾞｷﾞﾊﾟﾋﾟｳﾞ｢ｶﾀｶﾅ｣｡", StandardCharsets.UTF_8));
+		assertEquals("ア゛ン゜゛", convert(converter, "ｱﾞﾝﾟﾞ",
+				StandardCharsets.UTF_8));
+		assertEquals("カナ ゛", convert(converter, "カナ ﾞ", StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testWidthConversionCombinesAcrossChunks() throws IOException {
+		StringBuilder text = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			text.append(i % 3 == 0 ? "ﾊﾟ" : i % 3 == 1 ? "ﾀﾞﾞ" : "ｻ🐱");
+			expected.append(i % 3 == 0 ? "パ" : i % 3 == 1 ? "ダ゛" : "サ🐱");
+		}
+		for (int size : new int[] { 4, 5, 6, 7, 11 }) {
+			KanaFileConverter converter = new KanaFileConverter(
+					Conversion.WIDTH, StandardCharsets.UTF_8, size);
+			assertEquals(expected.toString(),
+					convert(converter, text.toString(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testConversionSupportsOtherCharsets() throws IOException {
+		Charset charset = Charset.forName("Shift_JIS");
+		KanaFileConverter converter = new KanaFileConverter(
+				Conversion.KATAKANA, charset, 4);
+		assertEquals("カタカナ、漢字", convert(converter, "かたカな、漢字", charset));
+	}
+
+	@Test
+	public void testEmptyFileGivesEmptyFile() throws IOException {
+		KanaFileConverter converter = new KanaFileConverter(
+				Conversion.HIRAGANA, StandardCharsets.UTF_8);
+		assertEquals("", convert(converter, "", StandardCharsets.UTF_8));
+	}
+
+	@Test(expected = CharacterCodingException.class)
+	public void testMalformedInputIsRejected() throws IOException {
+		KanaFileConverter converter = new KanaFileConverter(
+				Conversion.HIRAGANA, StandardCharsets.UTF_8);
+		File input = folder.newFile();
+		Files.write(input.toPath(), new byte[] { 'a', (byte) 0xE3, (byte) 0x81 });
+		converter.convert(input, folder.newFile());
+	}
+}
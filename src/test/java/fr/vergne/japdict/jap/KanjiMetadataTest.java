@@ -0,0 +1,93 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class KanjiMetadataTest {
+
+	private static KanjiMetadata createMetadata() throws IOException {
+		return new KanjidicFixture()
+				.character("日", 4, 1, 1, 4, "ニチ ジツ", "ひ -び -か")
+				.character("本", 5, 1, 10, 4, "ホン", "もと")
+				.character("語", 14, 2, 301, 4, "ゴ", "かた.る かた.らう")
+				.character("亜", 7, 8, 1509, 1, "ア", "つ.ぐ")
+				.character("丂", 2, 0, 0, 0, null, null)
+				.character("〇", 1, 0, 0, 0, null, null).load();
+	}
+
+	@Test
+	public void testLoadReadsAttributes() throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		assertEquals(5, metadata.size());
+		assertTrue(metadata.contains('語'));
+		assertFalse(metadata.contains('〇'));
+		assertFalse(metadata.contains('犬'));
+		assertEquals(14, metadata.get('語', KanjiAttribute.STROKE_COUNT));
+		assertEquals(2, metadata.get('語', KanjiAttribute.GRADE));
+		assertEquals(4, metadata.get('語', KanjiAttribute.JLPT_LEVEL));
+		assertEquals(301, metadata.get('語', KanjiAttribute.FREQUENCY));
+		assertEquals(2, metadata.get('丂', KanjiAttribute.STROKE_COUNT));
+		assertEquals(0, metadata.get('丂', KanjiAttribute.GRADE));
+		assertEquals(0, metadata.get('犬', KanjiAttribute.GRADE));
+	}
+
+	@Test
+	public void testLoadReadsReadings() throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		assertEquals(Arrays.asList("ニチ", "ジツ"), metadata.getOnReadings('日'));
+		assertEquals(Arrays.asList("ひ", "-び", "-か"),
+				metadata.getKunReadings('日'));
+		assertEquals(Arrays.asList("かた.る", "かた.らう"),
+				metadata.getKunReadings('語'));
+		assertEquals(Collections.emptyList(), metadata.getOnReadings('丂'));
+		assertEquals(Collections.emptyList(), metadata.getOnReadings('x'));
+	}
+
+	@Test
+	public void testSearchWithoutFilterReturnsAllKanjisByCode()
+			throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		char[] kanjis = metadata.search(new KanjiFilter(), null);
+		assertEquals("丂亜日本語", new String(kanjis));
+	}
+
+	@Test
+	public void testSearchAppliesAllRanges() throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		KanjiFilter filter = new KanjiFilter();
+		filter.range(KanjiAttribute.GRADE, 1, 2);
+		assertEquals("日本語", new String(metadata.search(filter, null)));
+		filter.range(KanjiAttribute.STROKE_COUNT, 5, 20);
+		assertEquals("本語", new String(metadata.search(filter, null)));
+		filter.equal(KanjiAttribute.GRADE, 2);
+		assertEquals("語", new String(metadata.search(filter, null)));
+		filter.clear(KanjiAttribute.GRADE);
+		assertEquals("亜本語", new String(metadata.search(filter, null)));
+	}
+
+	@Test
+	public void testSearchRejectsUnknownValuesOfFilteredAttributes()
+			throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		KanjiFilter filter = new KanjiFilter().range(
+				KanjiAttribute.STROKE_COUNT, 1, 3);
+		assertEquals("丂", new String(metadata.search(filter, null)));
+		filter.range(KanjiAttribute.GRADE, 0, 10);
+		assertEquals("", new String(metadata.search(filter, null)));
+	}
+
+	@Test
+	public void testSearchSortsByAttributeWithUnknownLast()
+			throws IOException {
+		KanjiMetadata metadata = createMetadata();
+		assertEquals("日本語亜丂", new String(metadata.search(
+				new KanjiFilter(), KanjiAttribute.FREQUENCY)));
+		assertEquals("丂日本亜語", new String(metadata.search(
+				new KanjiFilter(), KanjiAttribute.STROKE_COUNT)));
+	}
+}
@@ -0,0 +1,115 @@
+package fr.vergne.japdict.jap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Build KANJIDIC2 contents for the tests of the classes using a
+ * {@link KanjiMetadata}. The elements which are not given are not written, and
+ * the elements ignored by {@link KanjiMetadata} are added to check they are
+ * actually ignored: a DTD, a second stroke count, a pinyin reading and a
+ * meaning.
+ */
+class KanjidicFixture {
+
+	private final StringBuilder characters = new StringBuilder();
+
+	/**
+	 * Add a character.
+	 * 
+	 * @param literal
+	 *            the character
+	 * @param strokes
+	 *            the stroke count, 0 for none
+	 * @param grade
+	 *            the grade, 0 for none
+	 * @param frequency
+	 *            the frequency rank, 0 for none
+	 * @param jlpt
+	 *            the JLPT level, 0 for none
+	 * @param ons
+	 *            the on readings separated by spaces, <code>null</code> for
+	 *            no reading at all
+	 * @param kuns
+	 *            the kun readings separated by spaces
+	 * @return this {@link KanjidicFixture}
+	 */
+	public KanjidicFixture character(String literal, int strokes, int grade,
+			int frequency, int jlpt, String ons, String kuns) {
+		characters.append("<character><literal>" + literal + "</literal>");
+		if (strokes > 0 || grade > 0 || frequency > 0 || jlpt > 0) {
+			characters.append("<misc>");
+			append("grade", grade);
+			if (strokes > 0) {
+				append("stroke_count", strokes);
+				append("stroke_count", strokes + 1);
+			} else {
+				// no stroke count
+			}
+			append("freq", frequency);
+			append("jlpt", jlpt);
+			characters.append("</misc>");
+		} else {
+			// no misc
+		}
+		if (ons != null) {
+			characters.append("<reading_meaning><rmgroup>");
+			characters.append("<reading r_type=\"pinyin\">xx</reading>");
+			for (String on : ons.split(" ")) {
+				characters.append("<reading r_type=\"ja_on\">" + on
+						+ "</reading>");
+			}
+			for (String kun : kuns.split(" ")) {
+				characters.append("<reading r_type=\"ja_kun\">" + kun
+						+ "</reading>");
+			}
+			characters.append("<meaning>meaning</meaning>");
+			characters.append("</rmgroup></reading_meaning>");
+		} else {
+			// no reading
+		}
+		characters.append("</character>\n");
+		return this;
+	}
+
+	/**
+	 * Add a character having only readings.
+	 * 
+	 * @return this {@link KanjidicFixture}
+	 */
+	public KanjidicFixture character(String literal, String ons, String kuns) {
+		return character(literal, 0, 0, 0, 0, ons, kuns);
+	}
+
+	private void append(String element, int value) {
+		if (value > 0) {
+			characters.append("<" + element + ">" + value + "</" + element
+					+ ">");
+		} else {
+			// unknown value
+		}
+	}
+
+	/**
+	 * 
+	 * @return the KANJIDIC2 content of the characters added
+	 */
+	public String toXml() {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<!DOCTYPE kanjidic2 [\n"
+				+ "<!ELEMENT kanjidic2 (header,character*)>\n" + "]>\n"
+				+ "<kanjidic2>\n"
+				+ "<header><file_version>4</file_version></header>\n"
+				+ characters + "</kanjidic2>\n";
+	}
+
+	/**
+	 * 
+	 * @return the {@link KanjiMetadata} of the characters added
+	 */
+	public KanjiMetadata load() throws IOException {
+		return KanjiMetadata.load(new ByteArrayInputStream(toXml().getBytes(
+				StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,90 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MoraAnalyzerTest {
+
+	private static String[] split(String text, boolean syllables) {
+		MoraAnalyzer analyzer = new MoraAnalyzer();
+		analyzer.analyze(text);
+		int count = syllables ? analyzer.getSyllableCount() : analyzer
+				.getMoraCount();
+		String[] parts = new String[count];
+		for (int i = 0; i < count; i++) {
+			parts[i] = syllables ? text.substring(analyzer.getSyllableStart(i),
+					analyzer.getSyllableEnd(i)) : text.substring(
+					analyzer.getMoraStart(i), analyzer.getMoraEnd(i));
+		}
+		return parts;
+	}
+
+	@Test
+	public void testMorae() {
+		assertArrayEquals(new String[] { "きょ", "う" }, split("きょう", false));
+		assertArrayEquals(new String[] { "が", "っ", "こ", "う" },
+				split("がっこう", false));
+		assertArrayEquals(new String[] { "ラ", "ー", "メ", "ン" },
+				split("ラーメン", false));
+		assertArrayEquals(new String[] { "ティ", "ー" }, split("ティー", false));
+		assertArrayEquals(new String[] { "ヶ", "げ" }, split("ヶげ", false));
+	}
+
+	@Test
+	public void testSyllables() {
+		assertArrayEquals(new String[] { "きょ", "う" }, split("きょう", true));
+		assertArrayEquals(new String[] { "がっ", "こ", "う" },
+				split("がっこう", true));
+		assertArrayEquals(new String[] { "ラー", "メン" }, split("ラーメン", true));
+		assertArrayEquals(new String[] { "しん", "ぶん" }, split("しんぶん", true));
+		assertArrayEquals(new String[] { "ん", "ぱ" }, split("んぱ", true));
+	}
+
+	@Test
+	public void testNonKanasAreIgnored() {
+		assertArrayEquals(new String[] { "か", "な" }, split("か、 な", false));
+		assertArrayEquals(new String[] {}, split("漢字 abc", false));
+		assertArrayEquals(new String[] { "ゃ", "ん" }, split("ゃん", false));
+	}
+
+	@Test
+	public void testAnalyzerIsReusable() {
+		MoraAnalyzer analyzer = new MoraAnalyzer();
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longText.append("しゅっ");
+		}
+		assertEquals(200, analyzer.analyze(longText));
+		assertEquals(100, analyzer.getSyllableCount());
+		assertEquals(297, analyzer.getSyllableStart(99));
+		assertEquals(2, analyzer.analyze("ねこ"));
+		assertEquals(1, analyzer.getMoraStart(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfAnalysisRejected() {
+		MoraAnalyzer analyzer = new MoraAnalyzer();
+		analyzer.analyze("しゅっぱつ");
+		analyzer.analyze("ね");
+		analyzer.getMoraStart(1);
+	}
+
+	@Test
+	public void testCountsMatchAnalysis() {
+		String[] texts = { "", "きょう", "がっこう", "ラーメン", "ゃん", "ーっ",
+				"しんぶん、ティー", "ヶげ", "abc", "ゝゞヽヾ" };
+		int[] morae = new int[texts.length];
+		int[] syllables = new int[texts.length];
+		MoraAnalyzer.count(texts, morae, syllables);
+		MoraAnalyzer analyzer = new MoraAnalyzer();
+		for (int i = 0; i < texts.length; i++) {
+			analyzer.analyze(texts[i]);
+			assertEquals(texts[i], analyzer.getMoraCount(), morae[i]);
+			assertEquals(texts[i], analyzer.getSyllableCount(), syllables[i]);
+			assertEquals(texts[i], morae[i], MoraAnalyzer.countMorae(texts[i]));
+			assertEquals(texts[i], syllables[i],
+					MoraAnalyzer.countSyllables(texts[i]));
+		}
+	}
+}
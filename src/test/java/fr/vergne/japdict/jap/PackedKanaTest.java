@@ -0,0 +1,98 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedKanaTest {
+
+	private static final String ALPHABET = "あいかがっゃーゝゟアヴヵヺ・ｱｶﾟ漢字aZ、。\u0000￿😀";
+
+	private static String randomText(Random random) {
+		StringBuilder builder = new StringBuilder();
+		int length = random.nextInt(6);
+		for (int i = 0; i < length; i++) {
+			builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return builder.toString();
+	}
+
+	@Test
+	public void testKanasTakeOneByte() {
+		assertEquals(4, PackedKana.encode("たべもの").length);
+		assertEquals(4, PackedKana.encode("タベモノ").length);
+		assertEquals(4, PackedKana.encode("ラーメン").length);
+		assertEquals(2, PackedKana.encode("ｶﾞ").length);
+		assertEquals(3, PackedKana.encode("食").length);
+		assertEquals(7, PackedKana.encode("食べ物").length);
+		assertEquals(7, PackedKana.getEncodedLength("食べ物"));
+	}
+
+	@Test
+	public void testDecodeEncodedText() {
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			String text = randomText(random);
+			byte[] bytes = PackedKana.encode(text);
+			assertEquals(text, PackedKana.decode(bytes));
+			assertEquals(text.length(), PackedKana.getDecodedLength(bytes));
+		}
+	}
+
+	@Test
+	public void testDecodeInBuffer() {
+		byte[] buffer = new byte[20];
+		int middle = PackedKana.encode("ひらがな", buffer, 0);
+		int end = PackedKana.encode("漢字", buffer, middle);
+		assertEquals(10, end);
+		assertEquals("ひらがな", PackedKana.decode(buffer, 0, middle));
+		assertEquals("漢字", PackedKana.decode(buffer, middle, end - middle));
+	}
+
+	@Test
+	public void testNoZeroByteForKanas() {
+		for (char c = JapUnicode.HIRAGANA_MIN; c <= JapUnicode.KATAKANA_MAX; c++) {
+			assertEquals(1, PackedKana.encode("" + c).length);
+			assertNotEquals(0, PackedKana.encode("" + c)[0]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedEscapeRejected() {
+		byte[] bytes = PackedKana.encode("字");
+		PackedKana.decode(bytes, 0, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCodeRejected() {
+		PackedKana.decode(new byte[] { 0 });
+	}
+
+	@Test
+	public void testCompareLikeStrings() {
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			String text1 = randomText(random);
+			String text2 = randomText(random);
+			assertEquals(text1 + " vs " + text2,
+					Integer.signum(text1.compareTo(text2)),
+					Integer.signum(PackedKana.compare(
+							PackedKana.encode(text1), PackedKana.encode(text2))));
+		}
+	}
+
+	@Test
+	public void testStartsWithLikeStrings() {
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			String text = randomText(random);
+			String prefix = random.nextBoolean() ? text.substring(0,
+					random.nextInt(text.length() + 1)) : randomText(random);
+			assertEquals(text + " starts with " + prefix,
+					text.startsWith(prefix), PackedKana.startsWith(
+							PackedKana.encode(text), PackedKana.encode(prefix)));
+		}
+	}
+}
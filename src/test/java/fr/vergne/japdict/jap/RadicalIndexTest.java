@@ -0,0 +1,107 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RadicalIndexTest {
+
+	private static final String KRADFILE = "# KRADFILE sample\n"
+			+ "亜 : ｜ 一 口\n" + "唖 : ｜ 一 口\n" + "娃 : 土 女\n"
+			+ "阿 : 一 口 阡 亅\n" + "哀 : 衣 口 亠\n" + "〆 : 一\n";
+
+	private static RadicalIndex createIndex() throws IOException {
+		return RadicalIndex.load(new StringReader(KRADFILE));
+	}
+
+	@Test
+	public void testLoadReadsAllRadicals() throws IOException {
+		RadicalIndex index = createIndex();
+		List<Character> expected = Arrays.asList('一', '亅', '亠', '口', '土',
+				'女', '衣', '阡', '｜');
+		assertEquals(expected, index.getRadicals());
+	}
+
+	@Test
+	public void testGetRadicalsOfKanji() throws IOException {
+		RadicalIndex index = createIndex();
+		assertEquals(Arrays.asList('土', '女'), index.getRadicals('娃'));
+		assertEquals(Arrays.asList('一', '亅', '口', '阡'),
+				index.getRadicals('阿'));
+		assertEquals(Collections.emptyList(), index.getRadicals('犬'));
+		assertEquals(Collections.emptyList(), index.getRadicals('a'));
+	}
+
+	@Test
+	public void testNewSearchHasAllKanjisAsCandidates() throws IOException {
+		RadicalSearch search = createIndex().search();
+		assertEquals(5, search.getCandidateCount());
+		assertEquals(Arrays.asList('亜', '哀', '唖', '娃', '阿'),
+				search.getCandidates());
+	}
+
+	@Test
+	public void testSelectNarrowsCandidates() throws IOException {
+		RadicalSearch search = createIndex().search();
+		search.select('口');
+		assertEquals(Arrays.asList('亜', '哀', '唖', '阿'),
+				search.getCandidates());
+		search.select('一');
+		assertEquals(Arrays.asList('亜', '唖', '阿'), search.getCandidates());
+		search.select('｜');
+		assertEquals(Arrays.asList('亜', '唖'), search.getCandidates());
+		search.select('女');
+		assertEquals(0, search.getCandidateCount());
+		assertEquals(Collections.emptyList(), search.getCandidates());
+	}
+
+	@Test
+	public void testUnselectWidensCandidates() throws IOException {
+		RadicalSearch search = createIndex().search();
+		search.select('口');
+		search.select('｜');
+		search.unselect('｜');
+		assertEquals(Arrays.asList('亜', '哀', '唖', '阿'),
+				search.getCandidates());
+		search.clear();
+		assertEquals(5, search.getCandidateCount());
+		assertTrue(search.getSelectedRadicals().isEmpty());
+	}
+
+	@Test
+	public void testAvailableRadicalsAreTheOnesOfCandidates()
+			throws IOException {
+		RadicalSearch search = createIndex().search();
+		search.select('一');
+		assertEquals(Arrays.asList('一', '亅', '口', '阡', '｜'),
+				search.getAvailableRadicals());
+		assertTrue(search.isAvailable('阡'));
+		assertFalse(search.isAvailable('女'));
+		assertFalse(search.isAvailable('x'));
+	}
+
+	@Test
+	public void testSelectRejectsUnknownRadical() throws IOException {
+		RadicalSearch search = createIndex().search();
+		try {
+			search.select('x');
+			fail("No exception thrown");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testKanjisOfBothRangesAreIndexed() throws IOException {
+		RadicalIndex index = RadicalIndex.load(new StringReader(
+				"㐀 : 一\n\u9FAF : 一\n"));
+		RadicalSearch search = index.search();
+		search.select('一');
+		assertEquals(Arrays.asList('㐀', '\u9FAF'), search.getCandidates());
+	}
+}
@@ -0,0 +1,91 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RomajiTransducerTest {
+
+	private final RomajiTransducer all = new RomajiTransducer(
+			RomajiScheme.values());
+
+	private void assertConversion(String romaji, String hiraganas,
+			String katakanas) {
+		assertEquals(romaji, hiraganas, all.convert(romaji, KanaType.HIRAGANA));
+		assertEquals(romaji, katakanas, all.convert(romaji, KanaType.KATAKANA));
+	}
+
+	@Test
+	public void testHepburn() {
+		assertConversion("shinbun", "しんぶん", "シンブン");
+		assertConversion("kyōto", "きょうと", "キョート");
+		assertConversion("Tōkyō", "とうきょう", "トーキョー");
+		assertConversion("chanoyu", "ちゃのゆ", "チャノユ");
+		assertConversion("matcha", "まっちゃ", "マッチャ");
+		assertConversion("kitte", "きって", "キッテ");
+		assertConversion("jinja", "じんじゃ", "ジンジャ");
+		assertConversion("kan'i", "かんい", "カンイ");
+		assertConversion("onna", "おんな", "オンナ");
+	}
+
+	@Test
+	public void testKunreiAndNihon() {
+		assertConversion("tizu", "ちず", "チズ");
+		assertConversion("tukue", "つくえ", "ツクエ");
+		assertConversion("huzisan", "ふじさん", "フジサン");
+		assertConversion("syasin", "しゃしん", "シャシン");
+		assertConversion("kyôto", "きょうと", "キョート");
+		assertConversion("hanadi", "はなぢ", "ハナヂ");
+		assertConversion("tudukeru", "つづける", "ツヅケル");
+		assertConversion("kwaji", "くゎじ", "クヮジ");
+	}
+
+	@Test
+	public void testWapuro() {
+		assertConversion("konnnichiha", "こんにちは", "コンニチハ");
+		assertConversion("hon", "ほん", "ホン");
+		assertConversion("honn", "ほん", "ホン");
+		assertConversion("ra-men", "らーめん", "ラーメン");
+		assertConversion("xtu", "っ", "ッ");
+		assertConversion("faito", "ふぁいと", "ファイト");
+		assertConversion("dhisuku", "でぃすく", "ディスク");
+		assertConversion("kyouto", "きょうと", "キョウト");
+	}
+
+	@Test
+	public void testOtherCharactersAreKept() {
+		assertConversion("Ohayou, sekai!", "おはよう, せかい!", "オハヨウ, セカイ!");
+		assertConversion("+tsu", "っ", "ッ");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRomajiRejected() {
+		all.convert("kq", KanaType.HIRAGANA);
+	}
+
+	@Test
+	public void testSchemesCanBeDisabled() {
+		RomajiTransducer hepburn = new RomajiTransducer(RomajiScheme.HEPBURN);
+		assertEquals("きょうと", hepburn.convert("kyōto", KanaType.HIRAGANA));
+		try {
+			hepburn.convert("tizu", KanaType.HIRAGANA);
+			fail("No exception thrown");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			hepburn.convert("kyôto", KanaType.HIRAGANA);
+			fail("No exception thrown");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testFirstSchemeWins() {
+		RomajiTransducer kunrei = new RomajiTransducer(
+				RomajiScheme.KUNREI_SHIKI);
+		assertEquals("を", kunrei.convert("wo", KanaType.HIRAGANA));
+		assertEquals("じ", kunrei.convert("zi", KanaType.HIRAGANA));
+		assertEquals("じ", all.convert("zi", KanaType.HIRAGANA));
+		assertEquals("ぢ", all.convert("di", KanaType.HIRAGANA));
+	}
+}
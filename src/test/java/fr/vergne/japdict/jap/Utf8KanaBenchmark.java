@@ -0,0 +1,84 @@
+package fr.vergne.japdict.jap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare the conversion into katakanas and the counting of kanas of 16MB of
+ * UTF-8 text, either on its bytes with {@link Utf8Kana} or by decoding it into
+ * a {@link String}, using {@link KanaFactory} and {@link JapCharacter}, then
+ * encoding it back. This is not a unit test, run it with:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes fr.vergne.japdict.jap.Utf8KanaBenchmark
+ * </pre>
+ */
+public class Utf8KanaBenchmark {
+
+	private static final int BYTES = 16 * 1024 * 1024;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		String characters = "あいうえおかきくけこがぎさしすたちつてとなにのはひふまみむやゆよらりるれろわをんアイウカキクサシタチツテトナハバパマラリルレロンー漢字日本語、。 abc";
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < BYTES / 3) {
+			builder.append(characters.charAt(random.nextInt(characters
+					.length())));
+		}
+		byte[] text = builder.toString().getBytes(StandardCharsets.UTF_8);
+		KanaFactory factory = new KanaFactory();
+
+		long bestChars = Long.MAX_VALUE;
+		long bestBytes = Long.MAX_VALUE;
+		long bestCountChars = Long.MAX_VALUE;
+		long bestCountBytes = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			byte[] viaChars = factory.transform(
+					new String(text, StandardCharsets.UTF_8),
+					KanaType.KATAKANA).getBytes(StandardCharsets.UTF_8);
+			bestChars = Math.min(bestChars, System.nanoTime() - start);
+
+			byte[] viaBytes = text.clone();
+			start = System.nanoTime();
+			Utf8Kana.transform(viaBytes, KanaType.KATAKANA);
+			bestBytes = Math.min(bestBytes, System.nanoTime() - start);
+
+			if (!Arrays.equals(viaChars, viaBytes)) {
+				throw new IllegalStateException("Different conversions");
+			} else {
+				// consistent
+			}
+
+			start = System.nanoTime();
+			int[] countChars = new int[KanaType.values().length];
+			String decoded = new String(text, StandardCharsets.UTF_8);
+			for (int i = 0; i < decoded.length(); i++) {
+				KanaType type = JapCharacter.valueOf(decoded.charAt(i))
+						.getKanaType();
+				if (type != null) {
+					countChars[type.ordinal()]++;
+				} else {
+					// not a kana
+				}
+			}
+			bestCountChars = Math.min(bestCountChars, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			int[] countBytes = Utf8Kana.countKanas(text, 0, text.length);
+			bestCountBytes = Math.min(bestCountBytes, System.nanoTime() - start);
+
+			if (!Arrays.equals(countChars, countBytes)) {
+				throw new IllegalStateException("Different counts");
+			} else {
+				// consistent
+			}
+		}
+		System.out.println(String.format("Convert, decode + encode: %d ms", bestChars / 1000000));
+		System.out.println(String.format("Convert, bytes in place: %d ms", bestBytes / 1000000));
+		System.out.println(String.format("Count, decode: %d ms", bestCountChars / 1000000));
+		System.out.println(String.format("Count, bytes: %d ms", bestCountBytes / 1000000));
+	}
+}
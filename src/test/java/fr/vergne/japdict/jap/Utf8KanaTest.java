@@ -0,0 +1,144 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Utf8KanaTest {
+
+	private static String createText(Random random, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			switch (random.nextInt(6)) {
+			case 0:
+				builder.append((char) ('a' + random.nextInt(26)));
+				break;
+			case 1:
+				builder.append((char) (JapUnicode.KANJI_MIN + random
+						.nextInt(JapUnicode.KANJI_MAX - JapUnicode.KANJI_MIN)));
+				break;
+			case 2:
+				builder.append((char) (0x3000 + random.nextInt(0x100)));
+				break;
+			case 3:
+				builder.append("é🐱ｶﾞ");
+				break;
+			default:
+				builder.append((char) (JapUnicode.HIRAGANA_MIN + random
+						.nextInt(JapUnicode.KATAKANA_MAX
+								- JapUnicode.HIRAGANA_MIN + 1)));
+			}
+		}
+		return builder.toString();
+	}
+
+	@Test
+	public void testTransformMatchesKanaFactory() {
+		KanaFactory factory = new KanaFactory();
+		Random random = new Random(0);
+		for (int round = 0; round < 100; round++) {
+			String text = createText(random, random.nextInt(200));
+			for (KanaType type : KanaType.values()) {
+				byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+				Utf8Kana.transform(bytes, type);
+				assertEquals(factory.transform(text, type), new String(bytes,
+						StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	@Test
+	public void testTransformCountsConvertedKanas() {
+		byte[] bytes = "かなカナ漢字".getBytes(StandardCharsets.UTF_8);
+		assertEquals(2, Utf8Kana.transform(bytes, KanaType.KATAKANA));
+		assertEquals("カナカナ漢字", new String(bytes, StandardCharsets.UTF_8));
+		assertEquals(0, Utf8Kana.transform(bytes, KanaType.KATAKANA));
+		assertEquals(4, Utf8Kana.transform(bytes, KanaType.HIRAGANA));
+		assertEquals("かなかな漢字", new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testTransformLimitsToRange() {
+		byte[] bytes = "かなかな".getBytes(StandardCharsets.UTF_8);
+		Utf8Kana.transform(bytes, 3, 4, KanaType.KATAKANA);
+		assertEquals("かナかな", new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testTransformBufferMatchesArray() {
+		Random random = new Random(0);
+		for (int round = 0; round < 50; round++) {
+			byte[] expected = createText(random, 100).getBytes(
+					StandardCharsets.UTF_8);
+			ByteBuffer direct = ByteBuffer.allocateDirect(expected.length + 2);
+			direct.put((byte) 'x').put(expected).put((byte) 'y');
+			direct.position(1).limit(expected.length + 1);
+			ByteBuffer heap = ByteBuffer.wrap(expected.clone());
+
+			int count = Utf8Kana.transform(expected, KanaType.KATAKANA);
+			assertEquals(count, Utf8Kana.transform(direct, KanaType.KATAKANA));
+			assertEquals(count, Utf8Kana.transform(heap, KanaType.KATAKANA));
+
+			byte[] actual = new byte[expected.length];
+			direct.get(actual);
+			assertArrayEquals(expected, actual);
+			assertArrayEquals(expected, heap.array());
+			assertEquals('x', direct.get(0));
+		}
+	}
+
+	@Test
+	public void testTransformLeavesMalformedBytesUnchanged() {
+		byte[] kana = "か".getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = { kana[0], kana[1], kana[0], kana[1], kana[2], kana[0],
+				kana[1] };
+		Utf8Kana.transform(bytes, KanaType.KATAKANA);
+		byte[] katakana = "カ".getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(new byte[] { kana[0], kana[1], katakana[0],
+				katakana[1], katakana[2], kana[0], kana[1] }, bytes);
+	}
+
+	@Test
+	public void testClassificationMatchesJapCharacter() {
+		for (char c = 0x3000; c < 0xA000; c++) {
+			byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+			JapCharacter character = JapCharacter.valueOf(c);
+			assertEquals(String.valueOf(c), character.getKanaType(),
+					Utf8Kana.getKanaType(bytes, 0));
+			assertEquals(String.valueOf(c), character.isKanji(),
+					Utf8Kana.isKanji(bytes, 0));
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			assertEquals(character.getKanaType(),
+					Utf8Kana.getKanaType(buffer, 0));
+			assertEquals(character.isKanji(), Utf8Kana.isKanji(buffer, 0));
+		}
+		byte[] ascii = "abc".getBytes(StandardCharsets.UTF_8);
+		assertNull(Utf8Kana.getKanaType(ascii, 0));
+		assertFalse(Utf8Kana.isKanji(ascii, 0));
+		assertNull(Utf8Kana.getKanaType(Arrays.copyOf(
+				"か".getBytes(StandardCharsets.UTF_8), 2), 0));
+	}
+
+	@Test
+	public void testCountKanasMatchesJapCharacter() {
+		Random random = new Random(0);
+		String text = createText(random, 1000);
+		int[] expected = new int[KanaType.values().length];
+		for (char c : text.toCharArray()) {
+			KanaType type = JapCharacter.valueOf(c).getKanaType();
+			if (type != null) {
+				expected[type.ordinal()]++;
+			} else {
+				// not a kana
+			}
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(expected,
+				Utf8Kana.countKanas(bytes, 0, bytes.length));
+	}
+}
@@ -0,0 +1,60 @@
+package fr.vergne.japdict.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBucketsAreContiguous() {
+		assertEquals(0, LatencyHistogram.getLowestValue(0));
+		for (int index = 1; index <= LatencyHistogram
+				.getIndex(Long.MAX_VALUE); index++) {
+			long lowest = LatencyHistogram.getLowestValue(index);
+			assertEquals(index, LatencyHistogram.getIndex(lowest));
+			assertEquals(index - 1, LatencyHistogram.getIndex(lowest - 1));
+			assertEquals(lowest - 1, LatencyHistogram.getHighestValue(index - 1));
+		}
+	}
+
+	@Test
+	public void testBucketsHaveBoundedRelativeError() {
+		for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			int index = LatencyHistogram.getIndex(value);
+			long width = LatencyHistogram.getHighestValue(index)
+					- LatencyHistogram.getLowestValue(index);
+			assertTrue(value + " in bucket of " + width,
+					width <= value / LatencyHistogram.SUB_BUCKETS);
+		}
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(0.5));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000000, histogram.getMaxNanos());
+		assertEquals(500500, histogram.getMeanNanos(), 0.001);
+		assertEquals(500000, histogram.get50thPercentileNanos(), 500000 / 32);
+		assertEquals(990000, histogram.get99thPercentileNanos(), 990000 / 32);
+		assertEquals(1000000, histogram.getPercentile(1));
+		assertEquals(1000, histogram.getPercentile(0), 1000 / 32);
+	}
+
+	@Test
+	public void testNegativeDurationIsRecordedAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPercentileIsRejected() {
+		new LatencyHistogram().getPercentile(1.5);
+	}
+}
@@ -0,0 +1,124 @@
+package fr.vergne.japdict.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.vergne.japdict.dict.Dictionary;
+import fr.vergne.japdict.dict.DictionaryHandle;
+import fr.vergne.japdict.dict.Entry;
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaType;
+
+public class MetricsTest {
+
+	@After
+	public void tearDown() {
+		Metrics.disable();
+	}
+
+	private static Dictionary createDictionary() {
+		final Entry entry = new Entry("猫", "ねこ", Arrays.asList("cat"), 0);
+		return new Dictionary() {
+
+			@Override
+			public List<Entry> lookup(String key) {
+				return key.equals("ねこ") ? Arrays.asList(entry) : Collections
+						.<Entry> emptyList();
+			}
+
+			@Override
+			public List<List<Entry>> lookupAll(
+					List<String> keys) {
+				List<List<Entry>> results = new ArrayList<>();
+				for (String key : keys) {
+					results.add(lookup(key));
+				}
+				return results;
+			}
+		};
+	}
+
+	@Test
+	public void testNothingIsMeasuredWhenDisabled() {
+		DefaultMetricsRegistry registry = new DefaultMetricsRegistry(null);
+		Metrics.enable(registry);
+		Metrics.disable();
+		assertFalse(Metrics.isEnabled());
+
+		new KanaFactory().createFromRomaji("ka", KanaType.HIRAGANA);
+		long start = Metrics.start();
+		Metrics.enable(new DefaultMetricsRegistry(null));
+		Metrics.stop(Metric.LOOKUP, start);
+
+		assertEquals(0, registry.getTimers().get("kana.romaji").getCount());
+	}
+
+	@Test
+	public void testKanaFactoryIsMeasured() {
+		DefaultMetricsRegistry registry = new DefaultMetricsRegistry(null);
+		Metrics.enable(registry);
+		KanaFactory factory = new KanaFactory();
+		factory.createFromRomaji("ka", KanaType.HIRAGANA);
+		try {
+			factory.createFromRomaji("kya", KanaType.HIRAGANA);
+			fail("No exception thrown");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		factory.transform("ひらがな", KanaType.KATAKANA);
+
+		assertEquals(2, registry.getTimers().get("kana.romaji").getCount());
+		assertEquals(1, registry.getCounters().get("kana.romaji.rejected")
+				.getCount());
+		assertEquals(1, registry.getTimers().get("kana.transform").getCount());
+	}
+
+	@Test
+	public void testHandleLookupsAreMeasured() {
+		DefaultMetricsRegistry registry = new DefaultMetricsRegistry(null);
+		Metrics.enable(registry);
+		try (DictionaryHandle handle = new DictionaryHandle(createDictionary())) {
+			handle.lookup("ねこ");
+			handle.lookup("いぬ");
+			handle.lookupAll(Arrays.asList("ねこ", "いぬ", "とり"));
+		}
+
+		assertEquals(2, registry.getTimers().get("dict.lookup").getCount());
+		assertEquals(1, registry.getTimers().get("dict.lookupAll").getCount());
+		assertEquals(3, registry.getCounters().get("dict.lookup.miss")
+				.getCount());
+	}
+
+	@Test
+	public void testInstrumentsAreExposedThroughJmx() throws JMException {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		DefaultMetricsRegistry registry = new DefaultMetricsRegistry(server);
+		Metrics.enable(registry);
+		new KanaFactory().createFromRomaji("ka", KanaType.HIRAGANA);
+
+		assertEquals(1L, server.getAttribute(DefaultMetricsRegistry
+				.getObjectName("Timer", "kana.romaji"), "Count"));
+		assertEquals(0L, server.getAttribute(DefaultMetricsRegistry
+				.getObjectName("Counter", "kana.romaji.rejected"), "Count"));
+
+		DefaultMetricsRegistry replacement = new DefaultMetricsRegistry(server);
+		Metrics.enable(replacement);
+		assertEquals(0L, server.getAttribute(DefaultMetricsRegistry
+				.getObjectName("Timer", "kana.romaji"), "Count"));
+
+		replacement.unregister();
+		assertFalse(server.isRegistered(DefaultMetricsRegistry.getObjectName(
+				"Timer", "kana.romaji")));
+	}
+}
@@ -0,0 +1,37 @@
+package fr.vergne.japdict.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StripedCounterTest {
+
+	@Test
+	public void testConcurrentIncrementsAreAllCounted()
+			throws InterruptedException {
+		final StripedCounter counter = new StripedCounter();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 100000; i++) {
+						counter.increment();
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		counter.add(5);
+		assertEquals(800005, counter.sum());
+		assertEquals(800005, counter.getCount());
+	}
+}
@@ -0,0 +1,162 @@
+package fr.vergne.japdict.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.vergne.japdict.dict.BinarySegment;
+import fr.vergne.japdict.dict.Entry;
+
+/**
+ * Local load test of a {@link LookupServer}: several clients send lookups as
+ * fast as they can for a given duration, then the throughput and the latency
+ * percentiles are printed. Without arguments, a synthetic dictionary is served
+ * locally, otherwise the given server is queried with the given keys:
+ * 
+ * <pre>
+ * LoadTestClient [clients] [seconds] [batch] [url keys-file]
+ * </pre>
+ */
+public class LoadTestClient {
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int batch = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+		LookupServer server = null;
+		BinarySegment segment = null;
+		String base;
+		List<String> keys = new ArrayList<>();
+		if (args.length > 4) {
+			base = args[3];
+			keys.addAll(Files.readAllLines(new File(args[4])
+					.toPath(), Charset.forName("UTF-8")));
+		} else {
+			List<Entry> entries = new ArrayList<>();
+			for (int i = 0; i < 100000; i++) {
+				entries.add(new Entry("語" + i, "ご" + i, Arrays.asList("word "
+						+ i), i % 10));
+				keys.add("語" + i);
+			}
+			File file = File.createTempFile("load", ".bin");
+			file.deleteOnExit();
+			BinarySegment.write(entries, file);
+			segment = BinarySegment.open(file);
+			LookupServer.enableNoDelay();
+			server = new LookupServer(segment, new InetSocketAddress(
+					"localhost", 0));
+			server.start();
+			base = "http://localhost:" + server.getAddress().getPort();
+		}
+
+		System.out.println(clients + " clients, " + seconds + "s, " + batch
+				+ " key(s) per request on " + base);
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		final long end = System.nanoTime() + seconds * 1000000000L;
+		List<Future<long[]>> futures = new ArrayList<>();
+		for (int c = 0; c < clients; c++) {
+			futures.add(executor.submit(new Client(base, keys, batch, c, end)));
+		}
+		long[] all = new long[0];
+		for (Future<long[]> future : futures) {
+			long[] latencies = future.get();
+			long[] merged = Arrays.copyOf(all, all.length + latencies.length);
+			System.arraycopy(latencies, 0, merged, all.length,
+					latencies.length);
+			all = merged;
+		}
+		executor.shutdown();
+		if (server != null) {
+			server.stop(0);
+			segment.close();
+		} else {
+			// remote server
+		}
+
+		Arrays.sort(all);
+		System.out.println(String.format(
+				"%d requests, %.0f req/s, %.0f keys/s", all.length,
+				(double) all.length / seconds, (double) all.length * batch
+						/ seconds));
+		System.out.println(String.format("p50 %.3f ms, p99 %.3f ms, "
+				+ "p99.9 %.3f ms, max %.3f ms", percentile(all, 0.5),
+				percentile(all, 0.99), percentile(all, 0.999),
+				all.length == 0 ? 0 : all[all.length - 1] / 1e6));
+	}
+
+	private static double percentile(long[] sorted, double ratio) {
+		if (sorted.length == 0) {
+			return 0;
+		} else {
+			int index = (int) Math.min(sorted.length - 1,
+					Math.ceil(ratio * sorted.length) - 1);
+			return sorted[Math.max(0, index)] / 1e6;
+		}
+	}
+
+	private static class Client implements Callable<long[]> {
+
+		private final String base;
+		private final List<String> keys;
+		private final int batch;
+		private final Random random;
+		private final long end;
+
+		public Client(String base, List<String> keys, int batch, int seed,
+				long end) {
+			this.base = base;
+			this.keys = keys;
+			this.batch = batch;
+			this.random = new Random(seed);
+			this.end = end;
+		}
+
+		@Override
+		public long[] call() throws IOException {
+			long[] latencies = new long[1024];
+			int count = 0;
+			byte[] buffer = new byte[8192];
+			while (System.nanoTime() < end) {
+				StringBuilder path = new StringBuilder(base).append("/lookup?");
+				for (int i = 0; i < batch; i++) {
+					path.append(i == 0 ? "key=" : "&key=").append(
+							URLEncoder.encode(
+									keys.get(random.nextInt(keys.size())),
+									"UTF-8"));
+				}
+				long start = System.nanoTime();
+				HttpURLConnection connection = (HttpURLConnection) new URL(
+						path.toString()).openConnection();
+				connection.setRequestProperty("Accept-Encoding", "gzip");
+				try (InputStream input = connection.getInputStream()) {
+					while (input.read(buffer) >= 0) {
+						// consume the response to reuse the connection
+					}
+				}
+				long latency = System.nanoTime() - start;
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				} else {
+					// enough space
+				}
+				latencies[count++] = latency;
+			}
+			return Arrays.copyOf(latencies, count);
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package fr.vergne.japdict.server;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.dict.BinarySegment;
+import fr.vergne.japdict.dict.Entry;
+
+public class LookupServerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BinarySegment segment;
+	private LookupServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		entries.add(new Entry("猫", "ねこ", Arrays.asList("cat"), 1));
+		entries.add(new Entry("犬", "いぬ", Arrays.asList("dog", "\"hound\""),
+				1));
+		for (int i = 0; i < 100; i++) {
+			entries.add(new Entry("本" + i, "ほん", Arrays.asList("book " + i),
+					0));
+		}
+		File file = folder.newFile();
+		BinarySegment.write(entries, file);
+		segment = BinarySegment.open(file);
+		server = new LookupServer(segment, new InetSocketAddress("localhost",
+				0));
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.stop(0);
+		segment.close();
+	}
+
+	private HttpURLConnection connect(String path) throws IOException {
+		return (HttpURLConnection) new URL("http://localhost:"
+				+ server.getAddress().getPort() + path).openConnection();
+	}
+
+	private static String encode(String text) throws IOException {
+		return URLEncoder.encode(text, "UTF-8");
+	}
+
+	private static String read(HttpURLConnection connection)
+			throws IOException {
+		InputStream input = connection.getResponseCode() < 400 ? connection
+				.getInputStream() : connection.getErrorStream();
+		if ("gzip".equals(connection.getContentEncoding())) {
+			input = new GZIPInputStream(input);
+		} else {
+			// not compressed
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = input.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, read);
+		}
+		input.close();
+		return new String(bytes.toByteArray(), "UTF-8");
+	}
+
+	@Test
+	public void testLookupReturnsEntriesOfAllKeys() throws IOException {
+		HttpURLConnection connection = connect("/lookup?key=" + encode("猫")
+				+ "&key=" + encode("いぬ") + "&key=" + encode("鳥"));
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("{\"猫\":[{\"writing\":\"猫\",\"reading\":\"ねこ\","
+				+ "\"priority\":1,\"glosses\":[\"cat\"]}],"
+				+ "\"いぬ\":[{\"writing\":\"犬\",\"reading\":\"いぬ\","
+				+ "\"priority\":1,\"glosses\":[\"dog\",\"\\\"hound\\\"\"]}],"
+				+ "\"鳥\":[]}", read(connection));
+	}
+
+	@Test
+	public void testLookupAcceptsPostedKeys() throws IOException {
+		HttpURLConnection connection = connect("/lookup");
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write("猫\n\n鳥\n".getBytes("UTF-8"));
+		}
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("{\"猫\":[{\"writing\":\"猫\",\"reading\":\"ねこ\","
+				+ "\"priority\":1,\"glosses\":[\"cat\"]}],\"鳥\":[]}",
+				read(connection));
+	}
+
+	@Test
+	public void testLookupWithoutKeyIsBadRequest() throws IOException {
+		HttpURLConnection connection = connect("/lookup");
+		assertEquals(400, connection.getResponseCode());
+		assertEquals("{\"error\":\"No key provided\"}", read(connection));
+	}
+
+	@Test
+	public void testTooLargeBodyIsRejected() throws IOException {
+		HttpURLConnection connection = connect("/lookup");
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		byte[] body = new byte[LookupServer.MAX_BODY_SIZE + 1];
+		Arrays.fill(body, (byte) '\n');
+		connection.setFixedLengthStreamingMode(body.length);
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write(body);
+		}
+		assertEquals(413, connection.getResponseCode());
+		assertEquals("{\"error\":\"Body larger than "
+				+ LookupServer.MAX_BODY_SIZE + " bytes\"}", read(connection));
+	}
+
+	@Test
+	public void testTruncatedBodyIsBadRequest() throws IOException {
+		try (Socket socket = new Socket("localhost", server.getAddress()
+				.getPort())) {
+			OutputStream output = socket.getOutputStream();
+			output.write(("POST /lookup HTTP/1.1\r\nHost: localhost\r\n"
+					+ "Content-Length: 100\r\n\r\nabc").getBytes("UTF-8"));
+			output.flush();
+			socket.shutdownOutput();
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			InputStream input = socket.getInputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = input.read(buffer)) >= 0) {
+				response.write(buffer, 0, read);
+			}
+			String text = new String(response.toByteArray(), "UTF-8");
+			assertTrue(text, text.startsWith("HTTP/1.1 400 "));
+		}
+	}
+
+	@Test
+	public void testTooManyKeysIsBadRequest() throws IOException {
+		HttpURLConnection connection = connect("/lookup?key=" + encode("猫"));
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < LookupServer.MAX_KEYS; i++) {
+			body.append("鳥\n");
+		}
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write(body.toString().getBytes("UTF-8"));
+		}
+		assertEquals(400, connection.getResponseCode());
+		assertEquals("{\"error\":\"Too many keys: "
+				+ (LookupServer.MAX_KEYS + 1) + " > " + LookupServer.MAX_KEYS
+				+ "\"}", read(connection));
+	}
+
+	@Test
+	public void testLargeResponseIsCompressedOnlyIfAccepted()
+			throws IOException {
+		String path = "/lookup?key=" + encode("ほん");
+
+		HttpURLConnection plain = connect(path);
+		plain.setRequestProperty("Accept-Encoding", "identity");
+		assertNull(plain.getContentEncoding());
+		String expected = read(plain);
+		assertTrue(expected.length() > LookupServer.GZIP_THRESHOLD);
+
+		HttpURLConnection compressed = connect(path);
+		compressed.setRequestProperty("Accept-Encoding", "gzip");
+		assertEquals("gzip", compressed.getContentEncoding());
+		assertTrue(compressed.getContentLength() < expected.length());
+		assertEquals(expected, read(compressed));
+	}
+
+	@Test
+	public void testSmallResponseIsNotCompressed() throws IOException {
+		HttpURLConnection connection = connect("/lookup?key=" + encode("猫"));
+		connection.setRequestProperty("Accept-Encoding", "gzip");
+		assertEquals(200, connection.getResponseCode());
+		assertNull(connection.getContentEncoding());
+	}
+
+	@Test
+	public void testRomajiReturnsKanas() throws IOException {
+		HttpURLConnection hiragana = connect("/romaji?romaji=ne+ko");
+		assertEquals("{\"romaji\":\"ne ko\",\"kana\":\"ねこ\"}", read(hiragana));
+
+		HttpURLConnection katakana = connect("/romaji?romaji=ne+ko"
+				+ "&type=katakana");
+		assertEquals("{\"romaji\":\"ne ko\",\"kana\":\"ネコ\"}", read(katakana));
+	}
+
+	@Test
+	public void testInvalidRomajiIsBadRequest() throws IOException {
+		HttpURLConnection connection = connect("/romaji?romaji=kya");
+		assertEquals(400, connection.getResponseCode());
+		assertTrue(read(connection).startsWith("{\"error\":"));
+	}
+
+	@Test
+	public void testUnknownTypeIsBadRequest() throws IOException {
+		HttpURLConnection connection = connect("/kana?text=a&type=romaji");
+		assertEquals(400, connection.getResponseCode());
+		assertEquals("{\"error\":\"Unknown type: romaji\"}", read(connection));
+	}
+
+	@Test
+	public void testTypeDoesNotDependOnDefaultLocale() throws IOException {
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			HttpURLConnection connection = connect("/kana?text="
+					+ encode("ネコ") + "&type=hiragana");
+			assertEquals(200, connection.getResponseCode());
+			assertEquals("{\"text\":\"ネコ\",\"kana\":\"ねこ\"}",
+					read(connection));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void testKanaTransformsText() throws IOException {
+		HttpURLConnection connection = connect("/kana?text="
+				+ encode("ねこと犬") + "&type=katakana");
+		assertEquals("{\"text\":\"ねこと犬\",\"kana\":\"ネコト犬\"}",
+				read(connection));
+	}
+
+	@Test
+	public void testParseQueryDecodesRepeatedParameters() {
+		assertEquals("{a=[1, 2], b=[x y], c=[]}", LookupServer.parseQuery(
+				"a=1&b=x+y&a=2&c").toString());
+		assertTrue(LookupServer.parseQuery(null).isEmpty());
+	}
+
+	@Test
+	public void testAppendStringEscapesJson() {
+		StringBuilder json = new StringBuilder();
+		LookupServer.appendString(json, "a\"b\\c\nd\u0001");
+		assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", json.toString());
+	}
+}
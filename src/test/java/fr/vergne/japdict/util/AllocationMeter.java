@@ -0,0 +1,90 @@
+package fr.vergne.japdict.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * An {@link AllocationMeter} measures the memory allocated by an operation
+ * through the allocation counter of the current thread, which is provided by
+ * the HotSpot {@link com.sun.management.ThreadMXBean}. The operation is first
+ * warmed up, so it is measured once compiled like it would run in production.
+ */
+public class AllocationMeter {
+
+	private static final int ROUNDS = 5;
+
+	private final com.sun.management.ThreadMXBean bean;
+	private final long threadId = Thread.currentThread().getId();
+	private final long overhead;
+
+	/**
+	 * The {@link AllocationMeter} must be used by the thread which creates it.
+	 */
+	public AllocationMeter() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!isSupported()) {
+			throw new UnsupportedOperationException(
+					"No allocation counter on this JVM");
+		} else {
+			bean = (com.sun.management.ThreadMXBean) threads;
+			bean.setThreadAllocatedMemoryEnabled(true);
+			Runnable nothing = new Runnable() {
+
+				@Override
+				public void run() {
+					// nothing
+				}
+			};
+			long min = Long.MAX_VALUE;
+			for (int i = 0; i < 10; i++) {
+				min = Math.min(min, measureOnce(nothing, 1));
+			}
+			overhead = min;
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if this JVM can count the allocations of a
+	 *         thread
+	 */
+	public static boolean isSupported() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		return threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads)
+						.isThreadAllocatedMemorySupported();
+	}
+
+	private long measureOnce(Runnable operation, int iterations) {
+		long before = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			operation.run();
+		}
+		return bean.getThreadAllocatedBytes(threadId) - before;
+	}
+
+	/**
+	 * The measure is done several times and the smallest one is kept, to
+	 * ignore the allocations of the JVM itself (e.g. JIT compilation) which
+	 * happen while measuring. A few bytes may still remain, so a result below
+	 * 1 byte per execution should be considered as no allocation at all, any
+	 * object taking at least 16 bytes.
+	 * 
+	 * @param operation
+	 *            the operation to measure
+	 * @param warmUp
+	 *            the number of executions before measuring
+	 * @param iterations
+	 *            the number of executions measured
+	 * @return the number of bytes allocated per execution of the operation
+	 */
+	public double measure(Runnable operation, int warmUp, int iterations) {
+		measureOnce(operation, warmUp);
+		long bytes = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			bytes = Math.min(bytes, measureOnce(operation, iterations)
+					- overhead);
+		}
+		return Math.max(0, (double) bytes / iterations);
+	}
+}
@@ -0,0 +1,65 @@
+package fr.vergne.japdict.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class TaskUtilTest {
+
+	private static Callable<Integer> square(final int value) {
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return value * value;
+			}
+		};
+	}
+
+	@Test
+	public void testInvokeAllReturnsResultsInTaskOrder() throws IOException {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			tasks.add(square(i));
+		}
+		List<Integer> results = TaskUtil.invokeAll(tasks, 3);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i * i, (int) results.get(i));
+		}
+	}
+
+	@Test
+	public void testInvokeAllThrowsIOExceptionOfTask() {
+		final IOException failure = new IOException("failure");
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		tasks.add(square(1));
+		tasks.add(new Callable<Integer>() {
+			@Override
+			public Integer call() throws IOException {
+				throw failure;
+			}
+		});
+		try {
+			TaskUtil.invokeAll(tasks, 2);
+			fail("No exception thrown");
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInvokeAllThrowsRuntimeExceptionOfTask() throws IOException {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		tasks.add(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				throw new IllegalStateException("failure");
+			}
+		});
+		TaskUtil.invokeAll(tasks, 1);
+	}
+}
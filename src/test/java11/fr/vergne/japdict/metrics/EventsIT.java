@@ -0,0 +1,166 @@
+package fr.vergne.japdict.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.vergne.japdict.dict.BinarySegment;
+import fr.vergne.japdict.dict.Entry;
+import fr.vergne.japdict.jap.KanaFactory;
+import fr.vergne.japdict.jap.KanaType;
+
+/**
+ * Test the Java 11 version of {@link Events}, which exists only in the
+ * multi-release jar, so this test is run by the failsafe plugin on the jar.
+ */
+public class EventsIT {
+
+	private static final String CONVERSION = "fr.vergne.japdict.Conversion";
+	private static final String ROMAJI_FAILURE = "fr.vergne.japdict.RomajiFailure";
+	private static final String LOOKUP = "fr.vergne.japdict.Lookup";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File segmentFile;
+
+	@Before
+	public void setUp() throws IOException {
+		segmentFile = folder.newFile();
+		BinarySegment.write(Arrays.asList(new Entry("猫", "ねこ", Arrays
+				.asList("cat"), 1)), segmentFile);
+	}
+
+	/**
+	 * Do a conversion, a romaji failure, a lookup and a batch lookup.
+	 */
+	private void runOperations() throws IOException {
+		KanaFactory factory = new KanaFactory();
+		factory.transform("ねこ", KanaType.KATAKANA);
+		try {
+			factory.createFromRomaji("xyz", KanaType.HIRAGANA);
+			fail("No exception thrown");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try (BinarySegment segment = BinarySegment.open(segmentFile)) {
+			segment.lookup("猫");
+			segment.lookupAll(Arrays.asList("猫", "犬", "ねこ"));
+		}
+	}
+
+	private List<RecordedEvent> record(Duration threshold) throws IOException {
+		Path dump = folder.newFile().toPath();
+		try (Recording recording = new Recording()) {
+			recording.enable(CONVERSION).withThreshold(threshold);
+			recording.enable(ROMAJI_FAILURE);
+			recording.enable(LOOKUP).withThreshold(threshold);
+			recording.start();
+			runOperations();
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = new ArrayList<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+			if (event.getEventType().getName().startsWith("fr.vergne.japdict.")) {
+				events.add(event);
+			} else {
+				// JDK event
+			}
+		}
+		return events;
+	}
+
+	private static List<RecordedEvent> filter(List<RecordedEvent> events,
+			String name) {
+		List<RecordedEvent> filtered = new ArrayList<>();
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(name)) {
+				filtered.add(event);
+			} else {
+				// other event
+			}
+		}
+		return filtered;
+	}
+
+	@Test
+	public void testEventsAreRecordedWithTheirFields() throws IOException {
+		List<RecordedEvent> events = record(Duration.ZERO);
+
+		List<RecordedEvent> conversions = filter(events, CONVERSION);
+		assertEquals(1, conversions.size());
+		assertEquals(2, conversions.get(0).getInt("inputLength"));
+		assertEquals(2, conversions.get(0).getInt("resultLength"));
+		assertEquals("KATAKANA", conversions.get(0).getString("type"));
+
+		List<RecordedEvent> failures = filter(events, ROMAJI_FAILURE);
+		assertEquals(1, failures.size());
+		assertEquals("xyz", failures.get(0).getString("romaji"));
+		assertEquals(3, failures.get(0).getInt("inputLength"));
+		assertEquals("HIRAGANA", failures.get(0).getString("type"));
+		assertNotNull(failures.get(0).getString("reason"));
+
+		List<RecordedEvent> lookups = filter(events, LOOKUP);
+		assertEquals(2, lookups.size());
+		assertEquals(1, lookups.get(0).getInt("keyCount"));
+		assertEquals(1, lookups.get(0).getInt("resultCount"));
+		assertEquals(0, lookups.get(0).getInt("missCount"));
+		assertEquals(3, lookups.get(1).getInt("keyCount"));
+		assertEquals(2, lookups.get(1).getInt("resultCount"));
+		assertEquals(1, lookups.get(1).getInt("missCount"));
+	}
+
+	@Test
+	public void testTimedEventsBelowThresholdAreNotCommitted()
+			throws IOException {
+		List<RecordedEvent> events = record(Duration.ofHours(1));
+
+		assertTrue(filter(events, CONVERSION).isEmpty());
+		assertTrue(filter(events, LOOKUP).isEmpty());
+		assertEquals(1, filter(events, ROMAJI_FAILURE).size());
+	}
+
+	@Test
+	public void testEventsAreNotRecordedWithoutRecording() {
+		assertNull(Events.beginConversion());
+		assertNull(Events.beginLookup());
+	}
+
+	@Test
+	public void testSettingsFileEnablesAllEvents() throws IOException,
+			ParseException {
+		Configuration configuration;
+		try (Reader reader = new InputStreamReader(getClass()
+				.getResourceAsStream("/japdict.jfc"), StandardCharsets.UTF_8)) {
+			configuration = Configuration.create(reader);
+		}
+		Map<String, String> settings = configuration.getSettings();
+		for (String name : Arrays.asList(CONVERSION, ROMAJI_FAILURE, LOOKUP)) {
+			assertEquals(name, "true", settings.get(name + "#enabled"));
+		}
+		assertEquals("1 ms", settings.get(CONVERSION + "#threshold"));
+		assertEquals("1 ms", settings.get(LOOKUP + "#threshold"));
+	}
+}
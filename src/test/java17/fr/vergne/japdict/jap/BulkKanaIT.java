@@ -0,0 +1,59 @@
+package fr.vergne.japdict.jap;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the Java 17 version of {@link BulkKana}, which exists only in the
+ * multi-release jar, so this test is run by the failsafe plugin on the jar,
+ * with the <code>jdk.incubator.vector</code> module added.
+ */
+public class BulkKanaIT {
+
+	@Test
+	public void testTransformIsAccelerated() {
+		assertTrue(BulkKana.isAccelerated());
+	}
+
+	@Test
+	public void testTransformMatchesKanaFactoryOnAllChars() {
+		KanaFactory factory = new KanaFactory();
+		StringBuilder builder = new StringBuilder();
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			builder.append((char) c);
+		}
+		String text = builder.toString();
+		for (KanaType type : KanaType.values()) {
+			assertEquals(factory.transform(text, type),
+					BulkKana.transform(text, type));
+		}
+	}
+
+	@Test
+	public void testTransformMatchesKanaFactoryOnSlices() {
+		Random random = new Random(0);
+		KanaFactory factory = new KanaFactory();
+		for (int round = 0; round < 5000; round++) {
+			char[] chars = new char[random.nextInt(300)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = random.nextInt(4) == 0 ? (char) random
+						.nextInt(Character.MAX_VALUE + 1) : (char) (0x3030 + random
+						.nextInt(0xE0));
+			}
+			int offset = chars.length == 0 ? 0 : random.nextInt(chars.length);
+			int length = random.nextInt(chars.length - offset + 1);
+			KanaType type = random.nextBoolean() ? KanaType.HIRAGANA
+					: KanaType.KATAKANA;
+			char[] expected = chars.clone();
+			factory.transform(new String(chars, offset, length), type)
+					.getChars(0, length, expected, offset);
+
+			BulkKana.transform(chars, offset, length, type);
+			assertTrue(Arrays.equals(expected, chars));
+		}
+	}
+}